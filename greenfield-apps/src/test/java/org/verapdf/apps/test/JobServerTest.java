@@ -0,0 +1,131 @@
+package org.verapdf.apps.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.verapdf.cli.server.JobStore;
+import org.verapdf.cli.server.ValidationServer;
+import org.verapdf.features.FeatureFactory;
+import org.verapdf.metadata.fixer.FixerFactory;
+import org.verapdf.pdfa.VeraGreenfieldFoundryProvider;
+import org.verapdf.pdfa.validation.validators.ValidatorFactory;
+import org.verapdf.processor.FormatOption;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorFactory;
+import org.verapdf.processor.TaskType;
+import org.verapdf.processor.plugins.PluginsCollectionConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JobServerTest {
+	private static final String TEST_FILE = "src/test/resources/veraPDFtest-pass-a.pdf";
+
+	private File jobDir;
+	private ValidationServer server;
+
+	@Before
+	public void init() throws IOException {
+		VeraGreenfieldFoundryProvider.initialise();
+		ProcessorConfig config = ProcessorFactory.fromValues(ValidatorFactory.defaultConfig(),
+				FeatureFactory.defaultConfig(), PluginsCollectionConfig.defaultConfig(),
+				FixerFactory.defaultConfig(), EnumSet.of(TaskType.VALIDATE));
+		this.jobDir = Files.createTempDirectory("jobs").toFile();
+		this.server = ValidationServer.start(config, FormatOption.MRR, 0, 2, 60,
+				new JobStore(this.jobDir, TimeUnit.MINUTES.toMillis(1)), 10);
+	}
+
+	@After
+	public void close() {
+		this.server.close();
+		File[] files = this.jobDir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		this.jobDir.delete();
+	}
+
+	@Test
+	public void shouldSubmitPollAndFetchJob() throws Exception {
+		HttpURLConnection submit = post("?name=pass.pdf&priority=high", Files.readAllBytes(Paths.get(TEST_FILE)));
+		assertEquals(202, submit.getResponseCode());
+		String location = submit.getHeaderField("Location");
+		assertTrue(read(submit.getInputStream()).contains("\"name\":\"pass.pdf\""));
+
+		String status = "";
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+		while (!status.contains("\"DONE\"") && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			HttpURLConnection poll = (HttpURLConnection) url(location).openConnection();
+			assertEquals(200, poll.getResponseCode());
+			status = read(poll.getInputStream());
+		}
+		assertTrue(status.contains("\"exitCode\":\"VALID\""));
+
+		HttpURLConnection fetch = (HttpURLConnection) url(location + "/report").openConnection();
+		assertEquals(200, fetch.getResponseCode());
+		assertTrue(read(fetch.getInputStream()).contains("isCompliant=\"true\""));
+	}
+
+	@Test
+	public void shouldReportFailedJob() throws Exception {
+		HttpURLConnection submit = post("", "not a pdf".getBytes(StandardCharsets.UTF_8));
+		assertEquals(202, submit.getResponseCode());
+		String location = submit.getHeaderField("Location");
+		String status = "";
+		long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(60);
+		while (!status.contains("\"FAILED\"") && System.currentTimeMillis() < deadline) {
+			Thread.sleep(100);
+			status = read(url(location).openStream());
+		}
+		assertTrue(status.contains("\"exitCode\":\"FAILED_PARSING\""));
+		HttpURLConnection fetch = (HttpURLConnection) url(location + "/report").openConnection();
+		assertEquals(422, fetch.getResponseCode());
+	}
+
+	@Test
+	public void shouldReturnNotFoundForUnknownJob() throws Exception {
+		HttpURLConnection poll = (HttpURLConnection) url("/jobs/unknown").openConnection();
+		assertEquals(404, poll.getResponseCode());
+	}
+
+	private URL url(String path) throws IOException {
+		return new URL("http://127.0.0.1:" + this.server.getPort() + path);
+	}
+
+	private HttpURLConnection post(String query, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) url("/jobs" + query).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream os = connection.getOutputStream()) {
+			os.write(body);
+		}
+		return connection;
+	}
+
+	private static String read(InputStream is) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			bytes.write(buffer, 0, read);
+		}
+		is.close();
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,111 @@
+package org.verapdf.apps.test;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.cli.server.ValidationServer;
+import org.verapdf.features.FeatureFactory;
+import org.verapdf.metadata.fixer.FixerFactory;
+import org.verapdf.pdfa.VeraGreenfieldFoundryProvider;
+import org.verapdf.pdfa.validation.validators.ValidatorFactory;
+import org.verapdf.processor.FormatOption;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorFactory;
+import org.verapdf.processor.TaskType;
+import org.verapdf.processor.plugins.PluginsCollectionConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ValidationServerTest {
+	private static final String TEST_FILE = "src/test/resources/veraPDFtest-pass-a.pdf";
+
+	private ValidationServer server;
+
+	@Before
+	public void init() throws IOException {
+		VeraGreenfieldFoundryProvider.initialise();
+		ProcessorConfig config = ProcessorFactory.fromValues(ValidatorFactory.defaultConfig(),
+				FeatureFactory.defaultConfig(), PluginsCollectionConfig.defaultConfig(),
+				FixerFactory.defaultConfig(), EnumSet.of(TaskType.VALIDATE));
+		this.server = ValidationServer.start(config, FormatOption.MRR, 0, 2, 60);
+	}
+
+	@After
+	public void close() {
+		this.server.close();
+	}
+
+	@Test
+	public void shouldReturnXmlReportForPostedPdf() throws Exception {
+		HttpURLConnection connection = post("?name=pass.pdf", Files.readAllBytes(Paths.get(TEST_FILE)));
+		assertEquals(200, connection.getResponseCode());
+		assertEquals(ExitCodes.VALID.name(), connection.getHeaderField(ValidationServer.STATUS_HEADER));
+		String report = read(connection.getInputStream());
+		assertTrue(report.contains("pass.pdf"));
+		assertTrue(report.contains("isCompliant=\"true\""));
+	}
+
+	@Test
+	public void shouldReturnTextResult() throws Exception {
+		HttpURLConnection connection = post("?format=text&name=pass.pdf", Files.readAllBytes(Paths.get(TEST_FILE)));
+		assertEquals(200, connection.getResponseCode());
+		assertEquals("PASS pass.pdf", read(connection.getInputStream()).trim());
+	}
+
+	@Test
+	public void shouldRejectNonPdf() throws Exception {
+		HttpURLConnection connection = post("", "not a pdf".getBytes(StandardCharsets.UTF_8));
+		assertEquals(422, connection.getResponseCode());
+		assertEquals(ExitCodes.FAILED_PARSING.name(), connection.getHeaderField(ValidationServer.STATUS_HEADER));
+	}
+
+	@Test
+	public void shouldRejectUnsupportedFormat() throws Exception {
+		HttpURLConnection connection = post("?format=html", Files.readAllBytes(Paths.get(TEST_FILE)));
+		assertEquals(400, connection.getResponseCode());
+	}
+
+	@Test
+	public void shouldRejectGet() throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) validateUrl("").openConnection();
+		assertEquals(405, connection.getResponseCode());
+	}
+
+	private URL validateUrl(String query) throws IOException {
+		return new URL("http://127.0.0.1:" + this.server.getPort() + ValidationServer.VALIDATE_PATH + query);
+	}
+
+	private HttpURLConnection post(String query, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) validateUrl(query).openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		try (OutputStream os = connection.getOutputStream()) {
+			os.write(body);
+		}
+		return connection;
+	}
+
+	private static String read(InputStream is) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			bytes.write(buffer, 0, read);
+		}
+		is.close();
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -189,6 +189,7 @@ public final class Applications {
 		private String _reportFolder = FileSystems.getDefault().getPath("").toString(); //$NON-NLS-1$
 		private String _policyFile = FileSystems.getDefault().getPath("").toString(); //$NON-NLS-1$
 		private boolean _isVerbose = false;
+		private int _concurrency = 1;
 
 		private Builder() {
 			super();
@@ -206,6 +207,7 @@ public final class Applications {
 			this._reportFile = config.getReportFile();
 			this._reportFolder = config.getReportFolder();
 			this._policyFile = config.getPolicyFile();
+			this._concurrency = config.getConcurrency();
 		}
 
 		public Builder type(ProcessType type) {
@@ -258,6 +260,11 @@ public final class Applications {
 			return this;
 		}
 
+		public Builder concurrency(int concurrency) {
+			this._concurrency = concurrency;
+			return this;
+		}
+
 		public static Builder fromConfig(VeraAppConfig config) {
 			return new Builder(config);
 		}
@@ -268,7 +275,8 @@ public final class Applications {
 
 		public VeraAppConfig build() {
 			return new VeraAppConfigImpl(this._type, this._maxFails, this._isOverwrite, this._fixerFolder, this._format,
-					this._isVerbose, this._wikiPath, this._reportFile, this._reportFolder, this._policyFile);
+					this._isVerbose, this._wikiPath, this._reportFile, this._reportFolder, this._policyFile,
+					this._concurrency);
 		}
 	}
 
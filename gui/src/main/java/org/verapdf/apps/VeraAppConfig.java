@@ -47,4 +47,5 @@ public interface VeraAppConfig {
 	public ProcessType getProcessType();
 	public boolean isVerbose();
 	public int getMaxFailsDisplayed();
+	public int getConcurrency();
 }
@@ -53,6 +53,8 @@ final class VeraAppConfigImpl implements VeraAppConfig {
 	private final FormatOption format;
 	@XmlAttribute
 	private final boolean isVerbose;
+	@XmlAttribute
+	private final int concurrency;
 	@XmlElement
 	private final String fixerFolder;
 	@XmlElement
@@ -68,12 +70,12 @@ final class VeraAppConfigImpl implements VeraAppConfig {
 		this(defaultInstance.getProcessType(), defaultInstance.getMaxFailsDisplayed(),
 				defaultInstance.isOverwriteReport(), defaultInstance.getFixesFolder(), defaultInstance.getFormat(),
 				defaultInstance.isVerbose(), defaultInstance.getWikiPath(), defaultInstance.getReportFile(),
-				defaultInstance.getReportFolder(), defaultInstance.getPolicyFile());
+				defaultInstance.getReportFolder(), defaultInstance.getPolicyFile(), defaultInstance.getConcurrency());
 	}
 
 	VeraAppConfigImpl(final ProcessType type, final int maxFails, final boolean isOverwrite, final String fixerFolder,
 			final FormatOption format, final boolean isVerbose, final String wikiPath, final String reportFile,
-					  final String reportFolder, final String policyFile) {
+					  final String reportFolder, final String policyFile, final int concurrency) {
 		super();
 		this.type = type;
 		this.maxFails = maxFails;
@@ -85,6 +87,7 @@ final class VeraAppConfigImpl implements VeraAppConfig {
 		this.reportFile = reportFile;
 		this.reportFolder = reportFolder;
 		this.policyFile = policyFile;
+		this.concurrency = concurrency;
 	}
 
 	/**
@@ -149,6 +152,11 @@ final class VeraAppConfigImpl implements VeraAppConfig {
 		return this.maxFails;
 	}
 
+	@Override
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
 	public static VeraAppConfig defaultInstance() {
 		return defaultInstance;
 	}
@@ -169,6 +177,7 @@ final class VeraAppConfigImpl implements VeraAppConfig {
 		result = 31 * result + (this.reportFile != null ? this.reportFile.hashCode() : 0);
 		result = 31 * result + (this.reportFolder != null ? this.reportFolder.hashCode() : 0);
 		result = 31 * result + (this.policyFile != null ? this.policyFile.hashCode() : 0);
+		result = 31 * result + this.concurrency;
 		return result;
 	}
 
@@ -206,6 +215,9 @@ final class VeraAppConfigImpl implements VeraAppConfig {
 		if (this.maxFails != other.maxFails) {
 			return false;
 		}
+		if (this.concurrency != other.concurrency) {
+			return false;
+		}
 		if (this.policyFile == null) {
 			if (other.policyFile != null) {
 				return false;
@@ -248,7 +260,7 @@ final class VeraAppConfigImpl implements VeraAppConfig {
 		return "VeraAppConfigImpl [type=" + this.type + ", maxFails=" + this.maxFails + ", isOverwrite=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 				+ this.isOverwrite + ", format=" + this.format + ", isVerbose=" + this.isVerbose + ", fixerFolder=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 				+ this.fixerFolder + ", wikiPath=" + this.wikiPath + ", reportFile=" + this.reportFile + ", reportFolder=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
-				+ this.reportFolder + ", policyFile=" + this.policyFile + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+				+ this.reportFolder + ", policyFile=" + this.policyFile + ", concurrency=" + this.concurrency + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
 	}
 
 	static String toXml(final VeraAppConfig toConvert, Boolean prettyXml) throws JAXBException, IOException {
@@ -0,0 +1,228 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Admits in-process jobs only when the heap has room for them. A job's heap
+ * use is estimated from the size of its file, the heap bytes per file byte
+ * start at {@value #DEFAULT_HEAP_PER_BYTE} and are learnt from the peak heap
+ * use of jobs that ran alone. A job waits until its estimate fits in the heap
+ * headroom reported by the {@link MemoryMXBean}, less the estimates of the
+ * jobs already running. A job is always admitted when nothing else is
+ * running so that a file larger than any estimate still gets processed.
+ * <p>
+ * Files at or above the large file size go through a single slot lane, at
+ * most one large file is processed at a time.
+ */
+public final class AdmissionController {
+	private static final Logger LOGGER = Logger.getLogger(AdmissionController.class.getCanonicalName());
+
+	/** The default size in bytes from which files take the large file lane */
+	public static final long DEFAULT_LARGE_FILE_BYTES = 100L * 1024L * 1024L;
+	static final double DEFAULT_HEAP_PER_BYTE = 10.0;
+	static final long MIN_ESTIMATE_BYTES = 16L * 1024L * 1024L;
+	private static final double MIN_HEAP_PER_BYTE = 1.0;
+	private static final double HISTORY_WEIGHT = 0.25;
+	private static final long RECHECK_MILLIS = 100L;
+
+	private final MemoryMXBean memory;
+	private final List<MemoryPoolMXBean> heapPools;
+	private final long largeFileBytes;
+	private final Semaphore largeLane = new Semaphore(1, true);
+
+	private double heapPerByte = DEFAULT_HEAP_PER_BYTE;
+	private long reserved = 0;
+	private int inFlight = 0;
+	private Permit measuring;
+
+	/**
+	 * @param largeFileBytes
+	 *            the size in bytes from which files take the large file lane
+	 */
+	public AdmissionController(final long largeFileBytes) {
+		this(ManagementFactory.getMemoryMXBean(), heapPools(), largeFileBytes);
+	}
+
+	AdmissionController(final MemoryMXBean memory, final List<MemoryPoolMXBean> heapPools,
+			final long largeFileBytes) {
+		this.memory = memory;
+		this.heapPools = heapPools;
+		this.largeFileBytes = largeFileBytes;
+	}
+
+	/**
+	 * @param size
+	 *            a file size in bytes
+	 * @return true if the file takes the large file lane
+	 */
+	public boolean isLarge(final long size) {
+		return this.largeFileBytes > 0 && size >= this.largeFileBytes;
+	}
+
+	/**
+	 * @param size
+	 *            a file size in bytes, negative if unknown
+	 * @return the estimated heap use in bytes of processing the file
+	 */
+	public synchronized long estimate(final long size) {
+		return Math.max(MIN_ESTIMATE_BYTES, (long) (Math.max(0L, size) * this.heapPerByte));
+	}
+
+	/**
+	 * Blocks until a job processing a file of the given size can start.
+	 *
+	 * @param size
+	 *            the file size in bytes, negative if unknown
+	 * @return the permit to close when the job ends
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public Permit admit(final long size) throws InterruptedException {
+		boolean isLarge = isLarge(size);
+		if (isLarge) {
+			this.largeLane.acquire();
+		}
+		try {
+			return reserve(size, isLarge);
+		} catch (InterruptedException excep) {
+			if (isLarge) {
+				this.largeLane.release();
+			}
+			throw excep;
+		}
+	}
+
+	private synchronized Permit reserve(final long size, final boolean isLarge) throws InterruptedException {
+		long estimate = estimate(size);
+		boolean isLogged = false;
+		while (this.inFlight > 0 && estimate > headroom()) {
+			if (!isLogged) {
+				LOGGER.log(Level.FINE, "Holding back a {0} byte file until {1} bytes of heap are free", //$NON-NLS-1$
+						new Object[] { String.valueOf(size), String.valueOf(estimate) });
+				isLogged = true;
+			}
+			wait(RECHECK_MILLIS);
+		}
+		Permit permit = new Permit(size, estimate, isLarge);
+		if (this.measuring != null) {
+			this.measuring.isIsolated = false;
+		}
+		if (this.inFlight == 0 && size > 0 && !this.heapPools.isEmpty()) {
+			for (MemoryPoolMXBean pool : this.heapPools) {
+				pool.resetPeakUsage();
+			}
+			permit.usedAtStart = this.memory.getHeapMemoryUsage().getUsed();
+			permit.isIsolated = true;
+			this.measuring = permit;
+		}
+		this.inFlight++;
+		this.reserved += estimate;
+		return permit;
+	}
+
+	/**
+	 * @return the heap in bytes neither used nor reserved by running jobs. The
+	 *         used heap already holds part of what the running jobs reserved
+	 *         so the larger of the two is subtracted.
+	 */
+	synchronized long headroom() {
+		MemoryUsage heap = this.memory.getHeapMemoryUsage();
+		long max = (heap.getMax() > 0) ? heap.getMax() : heap.getCommitted();
+		return max - Math.max(heap.getUsed(), this.reserved);
+	}
+
+	synchronized double getHeapPerByte() {
+		return this.heapPerByte;
+	}
+
+	private synchronized void release(final Permit permit) {
+		this.inFlight--;
+		this.reserved -= permit.estimate;
+		if (permit == this.measuring) {
+			this.measuring = null;
+			if (permit.isIsolated) {
+				learn(permit);
+			}
+		}
+		notifyAll();
+	}
+
+	private void learn(final Permit permit) {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : this.heapPools) {
+			MemoryUsage usage = pool.getPeakUsage();
+			if (usage != null) {
+				peak += usage.getUsed();
+			}
+		}
+		double observed = Math.max(0L, peak - permit.usedAtStart) / (double) permit.size;
+		this.heapPerByte = Math.max(MIN_HEAP_PER_BYTE,
+				(1 - HISTORY_WEIGHT) * this.heapPerByte + HISTORY_WEIGHT * observed);
+	}
+
+	private static List<MemoryPoolMXBean> heapPools() {
+		List<MemoryPoolMXBean> pools = new ArrayList<>();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				pools.add(pool);
+			}
+		}
+		return Collections.unmodifiableList(pools);
+	}
+
+	/**
+	 * Holds a job's heap reservation, closing the permit releases it.
+	 */
+	public final class Permit implements AutoCloseable {
+		final long size;
+		final long estimate;
+		private final boolean isLarge;
+		long usedAtStart;
+		boolean isIsolated = false;
+		private boolean isClosed = false;
+
+		Permit(final long size, final long estimate, final boolean isLarge) {
+			this.size = size;
+			this.estimate = estimate;
+			this.isLarge = isLarge;
+		}
+
+		@Override
+		public void close() {
+			synchronized (AdmissionController.this) {
+				if (this.isClosed) {
+					return;
+				}
+				this.isClosed = true;
+				release(this);
+			}
+			if (this.isLarge) {
+				AdmissionController.this.largeLane.release();
+			}
+		}
+	}
+}
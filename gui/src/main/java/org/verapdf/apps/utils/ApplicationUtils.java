@@ -8,6 +8,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Predicate;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -60,7 +61,26 @@ public final class ApplicationUtils {
 	 *             when toFilter is null
 	 */
 	public static List<File> filterPdfFiles(final List<File> toFilter, final boolean isRecursive) {
+		return filterPdfFiles(toFilter, isRecursive, ShardSelector.ALL);
+	}
+
+	/**
+	 * Filters the passed list files by removing all files without a ".pdf"
+	 * extension and those that aren't selected. The selector is applied as
+	 * each file is found, so unselected files are never held in memory.
+	 *
+	 * @param toFilter
+	 *            the list of files to filter, can not be null
+	 * @param selector
+	 *            selects the PDF files to keep, see {@link ShardSelector}
+	 * @return an immutable list of the filtered files
+	 * @throws IllegalArgumentException
+	 *             when toFilter or selector is null
+	 */
+	public static List<File> filterPdfFiles(final List<File> toFilter, final boolean isRecursive,
+			final Predicate<File> selector) {
 		Applications.checkArgNotNull(toFilter, "toFilter"); //$NON-NLS-1$
+		Applications.checkArgNotNull(selector, "selector"); //$NON-NLS-1$
 		List<File> retVal = new ArrayList<>();
 		for (File file : toFilter) {
 			if (!file.exists()) {
@@ -68,30 +88,29 @@ public final class ApplicationUtils {
 				continue;
 			}
 			if (file.isFile()) {
-				if (FileUtils.hasExtNoCase(file.getName(), GUIConstants.PDF)) {
-					retVal.add(file);
-				} else {
+				if (!FileUtils.hasExtNoCase(file.getName(), GUIConstants.PDF)) {
 					LOGGER.log(Level.SEVERE, "File " + file.getAbsolutePath() + " doesn't have a .pdf extension.");
+				} else if (selector.test(file)) {
+					retVal.add(file);
 				}
 			} else if (file.isDirectory()) {
-				retVal.addAll(filterPdfFilesFromDirs(Arrays.asList(file.listFiles()), isRecursive));
+				filterPdfFilesFromDirs(Arrays.asList(file.listFiles()), isRecursive, selector, retVal);
 			}
 		}
 		return Collections.unmodifiableList(retVal);
 	}
 
-	private static List<File> filterPdfFilesFromDirs(final List<File> toFilter,
-											 final boolean isRecursive) {
-		Applications.checkArgNotNull(toFilter, "toFilter"); //$NON-NLS-1$
-		List<File> retVal = new ArrayList<>();
+	private static void filterPdfFilesFromDirs(final List<File> toFilter, final boolean isRecursive,
+			final Predicate<File> selector, final List<File> retVal) {
 		for (File file : toFilter) {
 			if (file.isFile() && FileUtils.hasExtNoCase(file.getName(), GUIConstants.PDF)) {
-				retVal.add(file);
+				if (selector.test(file)) {
+					retVal.add(file);
+				}
 			} else if (file.isDirectory() && isRecursive) {
-				retVal.addAll(filterPdfFilesFromDirs(Arrays.asList(file.listFiles()), isRecursive));
+				filterPdfFilesFromDirs(Arrays.asList(file.listFiles()), isRecursive, selector, retVal);
 			}
 		}
-		return Collections.unmodifiableList(retVal);
 	}
 
 	/**
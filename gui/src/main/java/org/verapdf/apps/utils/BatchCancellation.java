@@ -0,0 +1,195 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops a batch part way through while still producing a valid report of the
+ * files processed so far. Once cancelled no new files are dispatched and the
+ * threads processing a file are interrupted.
+ * <p>
+ * A thread processing a file marks the processing with {@link #enter()}. It's
+ * only ever interrupted inside the section, and closing the section clears the
+ * interrupt, so the report of the finished files is written as normal.
+ * Whatever started the cancellation can wait for the report with
+ * {@link #awaitFinished(long)}, once the batch has called {@link #finished()}.
+ */
+public final class BatchCancellation {
+	private final Set<Section> active = ConcurrentHashMap.newKeySet();
+	private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+	private final CountDownLatch finished = new CountDownLatch(1);
+	private volatile boolean isCancelled = false;
+
+	/**
+	 * Cancels the batch, does nothing if it's already cancelled.
+	 */
+	public void cancel() {
+		synchronized (this) {
+			if (this.isCancelled) {
+				return;
+			}
+			this.isCancelled = true;
+		}
+		for (Section section : this.active) {
+			section.interrupt();
+		}
+		for (Runnable listener : this.listeners) {
+			listener.run();
+		}
+	}
+
+	/**
+	 * @return true once the batch has been cancelled
+	 */
+	public boolean isCancelled() {
+		return this.isCancelled;
+	}
+
+	/**
+	 * Runs the listener when the batch is cancelled, straight away if it
+	 * already has been.
+	 *
+	 * @param listener
+	 *            called on the thread that cancels the batch
+	 */
+	public void onCancel(final Runnable listener) {
+		this.listeners.add(listener);
+		synchronized (this) {
+			if (!this.isCancelled) {
+				return;
+			}
+		}
+		listener.run();
+	}
+
+	/**
+	 * @param items
+	 *            the items of the batch
+	 * @return a view of the items whose iterators end early once the batch is
+	 *         cancelled
+	 */
+	public <T> List<T> dispatching(final List<T> items) {
+		return new AbstractList<T>() {
+			@Override
+			public T get(final int index) {
+				return items.get(index);
+			}
+
+			@Override
+			public int size() {
+				return items.size();
+			}
+
+			@Override
+			public Iterator<T> iterator() {
+				final Iterator<T> iterator = items.iterator();
+				return new Iterator<T>() {
+					@Override
+					public boolean hasNext() {
+						return !BatchCancellation.this.isCancelled && iterator.hasNext();
+					}
+
+					@Override
+					public T next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return iterator.next();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Marks the start of processing a file on the current thread, a file
+	 * started after the batch is cancelled is interrupted straight away.
+	 *
+	 * @return the section to close once the file is processed
+	 */
+	public Section enter() {
+		Section section = new Section(Thread.currentThread());
+		this.active.add(section);
+		if (this.isCancelled) {
+			section.interrupt();
+		}
+		return section;
+	}
+
+	/**
+	 * Signals that the batch's report is complete, whether or not it was
+	 * cancelled.
+	 */
+	public void finished() {
+		this.finished.countDown();
+	}
+
+	/**
+	 * @param millis
+	 *            the longest to wait
+	 * @return true if the batch finished in time
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public boolean awaitFinished(final long millis) throws InterruptedException {
+		return this.finished.await(millis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * The processing of a single file by a single thread.
+	 */
+	public final class Section implements AutoCloseable {
+		private final Thread thread;
+		private boolean isInterrupted = false;
+		private boolean isClosed = false;
+
+		Section(final Thread thread) {
+			this.thread = thread;
+		}
+
+		synchronized void interrupt() {
+			if (!this.isClosed && !this.isInterrupted) {
+				this.isInterrupted = true;
+				this.thread.interrupt();
+			}
+		}
+
+		/**
+		 * Ends the section, must be called by the thread that entered it.
+		 * Clears the interrupt raised by cancelling the batch so it doesn't
+		 * disturb writing the report.
+		 */
+		@Override
+		public synchronized void close() {
+			if (this.isClosed) {
+				return;
+			}
+			this.isClosed = true;
+			BatchCancellation.this.active.remove(this);
+			if (this.isInterrupted) {
+				Thread.interrupted();
+			}
+		}
+	}
+}
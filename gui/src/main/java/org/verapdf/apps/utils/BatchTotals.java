@@ -0,0 +1,262 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import org.verapdf.processor.reports.BatchSummary;
+import org.verapdf.processor.reports.FeaturesBatchSummary;
+import org.verapdf.processor.reports.MetadataRepairBatchSummary;
+import org.verapdf.processor.reports.ValidationBatchSummary;
+
+/**
+ * Running totals of a batch, the counts of a {@link BatchSummary} that can be
+ * added together when a batch is processed in parts. Totals aren't thread safe,
+ * each part keeps its own and they're added once the part is done.
+ */
+public final class BatchTotals {
+	private int totalJobs = 0;
+	private int failedParsingJobs = 0;
+	private int failedEncryptedJobs = 0;
+	private int outOfMemory = 0;
+	private int veraExceptions = 0;
+	private int validationJobs = 0;
+	private int failedValidationJobs = 0;
+	private int compliantPdfa = 0;
+	private int nonCompliantPdfa = 0;
+	private int featuresJobs = 0;
+	private int failedFeaturesJobs = 0;
+	private int repairJobs = 0;
+	private int failedRepairJobs = 0;
+	private int policyJobs = 0;
+	private int policyNonCompliantJobs = 0;
+
+	/**
+	 * @param summary
+	 *            a batch summary
+	 * @return new totals holding the summary's counts
+	 */
+	public static BatchTotals of(final BatchSummary summary) {
+		BatchTotals totals = new BatchTotals();
+		totals.add(summary);
+		return totals;
+	}
+
+	/**
+	 * Adds the counts of a batch summary.
+	 *
+	 * @param summary
+	 *            the summary to add
+	 */
+	public void add(final BatchSummary summary) {
+		this.totalJobs += summary.getTotalJobs();
+		this.failedParsingJobs += summary.getFailedParsingJobs();
+		this.failedEncryptedJobs += summary.getFailedEncryptedJobs();
+		this.outOfMemory += summary.getOutOfMemory();
+		this.veraExceptions += summary.getVeraExceptions();
+		ValidationBatchSummary validation = summary.getValidationSummary();
+		if (validation != null) {
+			this.validationJobs += validation.getTotalJobCount();
+			this.failedValidationJobs += validation.getFailedJobCount();
+			this.compliantPdfa += validation.getCompliantPdfaCount();
+			this.nonCompliantPdfa += validation.getNonCompliantPdfaCount();
+		}
+		FeaturesBatchSummary features = summary.getFeaturesSummary();
+		if (features != null) {
+			this.featuresJobs += features.getTotalJobCount();
+			this.failedFeaturesJobs += features.getFailedJobCount();
+		}
+		MetadataRepairBatchSummary repair = summary.getRepairSummary();
+		if (repair != null) {
+			this.repairJobs += repair.getTotalJobCount();
+			this.failedRepairJobs += repair.getFailedJobCount();
+		}
+	}
+
+	/**
+	 * Adds another set of totals.
+	 *
+	 * @param other
+	 *            the totals to add
+	 */
+	public void add(final BatchTotals other) {
+		this.totalJobs += other.totalJobs;
+		this.failedParsingJobs += other.failedParsingJobs;
+		this.failedEncryptedJobs += other.failedEncryptedJobs;
+		this.outOfMemory += other.outOfMemory;
+		this.veraExceptions += other.veraExceptions;
+		this.validationJobs += other.validationJobs;
+		this.failedValidationJobs += other.failedValidationJobs;
+		this.compliantPdfa += other.compliantPdfa;
+		this.nonCompliantPdfa += other.nonCompliantPdfa;
+		this.featuresJobs += other.featuresJobs;
+		this.failedFeaturesJobs += other.failedFeaturesJobs;
+		this.repairJobs += other.repairJobs;
+		this.failedRepairJobs += other.failedRepairJobs;
+		this.policyJobs += other.policyJobs;
+		this.policyNonCompliantJobs += other.policyNonCompliantJobs;
+	}
+
+	/**
+	 * Counts a job that was processed, whatever its outcome.
+	 */
+	public void addJob() {
+		this.totalJobs++;
+	}
+
+	public void addFailedParsing() {
+		this.failedParsingJobs++;
+	}
+
+	public void addFailedEncrypted() {
+		this.failedEncryptedJobs++;
+	}
+
+	public void addOutOfMemory() {
+		this.outOfMemory++;
+	}
+
+	public void addVeraException() {
+		this.veraExceptions++;
+	}
+
+	/**
+	 * Counts a validation job.
+	 *
+	 * @param isFailed
+	 *            true if validation couldn't complete
+	 * @param isCompliant
+	 *            true if the file is a compliant PDF/A, ignored for a failed
+	 *            job
+	 */
+	public void addValidation(final boolean isFailed, final boolean isCompliant) {
+		this.validationJobs++;
+		if (isFailed) {
+			this.failedValidationJobs++;
+		} else if (isCompliant) {
+			this.compliantPdfa++;
+		} else {
+			this.nonCompliantPdfa++;
+		}
+	}
+
+	/**
+	 * Counts a feature extraction job.
+	 *
+	 * @param isFailed
+	 *            true if feature extraction failed
+	 */
+	public void addFeatures(final boolean isFailed) {
+		this.featuresJobs++;
+		if (isFailed) {
+			this.failedFeaturesJobs++;
+		}
+	}
+
+	/**
+	 * Counts a metadata repair job.
+	 *
+	 * @param isFailed
+	 *            true if the repair failed
+	 */
+	public void addRepair(final boolean isFailed) {
+		this.repairJobs++;
+		if (isFailed) {
+			this.failedRepairJobs++;
+		}
+	}
+
+	/**
+	 * Counts a policy check.
+	 *
+	 * @param isCompliant
+	 *            true if the file met the policy
+	 */
+	public void addPolicy(final boolean isCompliant) {
+		this.policyJobs++;
+		if (!isCompliant) {
+			this.policyNonCompliantJobs++;
+		}
+	}
+
+	public int getTotalJobs() {
+		return this.totalJobs;
+	}
+
+	public int getFailedParsingJobs() {
+		return this.failedParsingJobs;
+	}
+
+	public int getFailedEncryptedJobs() {
+		return this.failedEncryptedJobs;
+	}
+
+	public int getOutOfMemory() {
+		return this.outOfMemory;
+	}
+
+	public int getVeraExceptions() {
+		return this.veraExceptions;
+	}
+
+	public int getValidationJobs() {
+		return this.validationJobs;
+	}
+
+	public int getFailedValidationJobs() {
+		return this.failedValidationJobs;
+	}
+
+	public int getCompliantPdfaCount() {
+		return this.compliantPdfa;
+	}
+
+	public int getNonCompliantPdfaCount() {
+		return this.nonCompliantPdfa;
+	}
+
+	public int getFeaturesJobs() {
+		return this.featuresJobs;
+	}
+
+	public int getFailedFeaturesJobs() {
+		return this.failedFeaturesJobs;
+	}
+
+	public int getRepairJobs() {
+		return this.repairJobs;
+	}
+
+	public int getFailedRepairJobs() {
+		return this.failedRepairJobs;
+	}
+
+	public int getPolicyJobs() {
+		return this.policyJobs;
+	}
+
+	public int getPolicyNonCompliantJobs() {
+		return this.policyNonCompliantJobs;
+	}
+
+	@Override
+	public String toString() {
+		return "BatchTotals [totalJobs=" + this.totalJobs + ", failedParsingJobs=" + this.failedParsingJobs //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", failedEncryptedJobs=" + this.failedEncryptedJobs + ", outOfMemory=" + this.outOfMemory //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", veraExceptions=" + this.veraExceptions + ", compliant=" + this.compliantPdfa //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", nonCompliant=" + this.nonCompliantPdfa + ", failedValidation=" + this.failedValidationJobs //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", features=" + this.featuresJobs + ", failedFeatures=" + this.failedFeaturesJobs //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", repairs=" + this.repairJobs + ", failedRepairs=" + this.failedRepairJobs //$NON-NLS-1$ //$NON-NLS-2$
+				+ ", policyNonCompliant=" + this.policyNonCompliantJobs + "]"; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.IOException;
+
+import org.verapdf.core.VeraPDFException;
+import org.verapdf.processor.BatchProcessingHandler;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.BatchSummary;
+import org.verapdf.processor.reports.ItemDetails;
+
+/**
+ * Passes the batch processor's callbacks on to the report handler and marks
+ * the processing of each file as a {@link BatchCancellation.Section}, so a
+ * cancelled batch interrupts the file in progress but never the writing of
+ * the report. Pair it with {@link BatchCancellation#dispatching(java.util.List)}
+ * to stop the batch starting new files.
+ */
+public final class CancellableHandler implements BatchProcessingHandler {
+	private final BatchProcessingHandler handler;
+	private final BatchCancellation cancellation;
+	private BatchCancellation.Section section = null;
+
+	public CancellableHandler(final BatchProcessingHandler handler, final BatchCancellation cancellation) {
+		this.handler = handler;
+		this.cancellation = cancellation;
+	}
+
+	@Override
+	public void handleBatchStart(final ProcessorConfig config) {
+		this.handler.handleBatchStart(config);
+	}
+
+	@Override
+	public void handleItemStart(final ItemDetails itemDetails) {
+		this.handler.handleItemStart(itemDetails);
+		leave();
+		this.section = this.cancellation.enter();
+	}
+
+	@Override
+	public void handleResult(final ProcessorResult result) throws VeraPDFException {
+		leave();
+		this.handler.handleResult(result);
+	}
+
+	@Override
+	public void handleBatchEnd(final BatchSummary summary) throws VeraPDFException {
+		leave();
+		this.handler.handleBatchEnd(summary);
+	}
+
+	@Override
+	public void close() throws IOException {
+		leave();
+		this.handler.close();
+	}
+
+	private void leave() {
+		if (this.section != null) {
+			this.section.close();
+			this.section = null;
+		}
+	}
+}
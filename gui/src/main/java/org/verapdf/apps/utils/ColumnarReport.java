@@ -0,0 +1,380 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads a columnar export written by {@link ColumnarReportStream}. Opening an
+ * export reads its footer, the dictionaries and batch summary, jobs and
+ * failures are then read a row group at a time.
+ */
+public final class ColumnarReport {
+	static final byte[] MAGIC = "VPDFCOL1".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	static final int JOBS = 0;
+	static final int FAILURES = 1;
+	static final int END = 0xFF;
+	static final int JOB_COLUMNS = 9;
+	static final int FAILURE_COLUMNS = 4;
+	static final int DICTIONARIES = 4;
+	static final int PROFILES = 0;
+	static final int RULES = 1;
+	static final int CLAUSES = 2;
+	static final int EXCEPTIONS = 3;
+
+	private final Path file;
+	private final long jobCount;
+	private final long failureCount;
+	private final List<List<String>> dictionaries = new ArrayList<>();
+	private final Map<String, String> summary = new LinkedHashMap<>();
+
+	private ColumnarReport(final Path file, final DataInputStream footer) throws IOException {
+		this.file = file;
+		this.jobCount = readVarint(footer);
+		this.failureCount = readVarint(footer);
+		for (int i = 0; i < DICTIONARIES; i++) {
+			int size = (int) readVarint(footer);
+			List<String> values = new ArrayList<>(size);
+			for (int j = 0; j < size; j++) {
+				values.add(readString(footer));
+			}
+			this.dictionaries.add(Collections.unmodifiableList(values));
+		}
+		long entries = readVarint(footer);
+		for (long i = 0; i < entries; i++) {
+			this.summary.put(readString(footer), readString(footer));
+		}
+	}
+
+	/**
+	 * @param file
+	 *            a columnar export
+	 * @return the export, ready to read
+	 * @throws IOException
+	 *             if the file can't be read or isn't a complete export
+	 */
+	public static ColumnarReport open(final Path file) throws IOException {
+		try (RandomAccessFile export = new RandomAccessFile(file.toFile(), "r")) { //$NON-NLS-1$
+			long trailer = export.length() - Integer.BYTES - MAGIC.length;
+			if (trailer < MAGIC.length) {
+				throw new IOException(file + " isn't a columnar report"); //$NON-NLS-1$
+			}
+			export.seek(trailer);
+			int footerLength = export.readInt();
+			byte[] magic = new byte[MAGIC.length];
+			export.readFully(magic);
+			if (!Arrays.equals(MAGIC, magic) || footerLength < 0 || footerLength > trailer - MAGIC.length) {
+				throw new IOException(file + " isn't a complete columnar report"); //$NON-NLS-1$
+			}
+			byte[] footer = new byte[footerLength];
+			export.seek(trailer - footerLength);
+			export.readFully(footer);
+			return new ColumnarReport(file, inflate(footer));
+		}
+	}
+
+	/**
+	 * @return the number of jobs in the export
+	 */
+	public long getJobCount() {
+		return this.jobCount;
+	}
+
+	/**
+	 * @return the number of failed rules in the export
+	 */
+	public long getFailureCount() {
+		return this.failureCount;
+	}
+
+	/**
+	 * @return the batch summary and release details, attributes of nested
+	 *         elements are keyed by the element's name, e.g.
+	 *         validationReports.compliant
+	 */
+	public Map<String, String> getSummary() {
+		return Collections.unmodifiableMap(this.summary);
+	}
+
+	/**
+	 * @return the distinct rule ids in the export, specification, clause and
+	 *         test number
+	 */
+	public List<String> getRuleIds() {
+		return this.dictionaries.get(RULES);
+	}
+
+	/**
+	 * @return the distinct clauses in the export
+	 */
+	public List<String> getClauses() {
+		return this.dictionaries.get(CLAUSES);
+	}
+
+	/**
+	 * @param visitor
+	 *            called with each job, in report order
+	 * @throws IOException
+	 *             if the export can't be read
+	 */
+	public void readJobs(final Consumer<Job> visitor) throws IOException {
+		long index = 0;
+		try (DataInputStream groups = openGroups()) {
+			for (int table = groups.readUnsignedByte(); table != END; table = groups.readUnsignedByte()) {
+				int rows = (int) readVarint(groups);
+				if (table != JOBS) {
+					skipColumns(groups, FAILURE_COLUMNS);
+					continue;
+				}
+				DataInputStream[] columns = readColumns(groups, JOB_COLUMNS);
+				String path = ""; //$NON-NLS-1$
+				for (int row = 0; row < rows; row++) {
+					int shared = (int) readVarint(columns[0]);
+					path = path.substring(0, shared) + readString(columns[0]);
+					visitor.accept(new Job(index++, path, readVarint(columns[1]), (int) readVarint(columns[2]),
+							decode(PROFILES, columns[3]), readVarint(columns[4]), readVarint(columns[5]),
+							readVarint(columns[6]), decode(EXCEPTIONS, columns[7]), readVarint(columns[8])));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param visitor
+	 *            called with each failed rule, in report order
+	 * @throws IOException
+	 *             if the export can't be read
+	 */
+	public void readFailures(final Consumer<Failure> visitor) throws IOException {
+		try (DataInputStream groups = openGroups()) {
+			for (int table = groups.readUnsignedByte(); table != END; table = groups.readUnsignedByte()) {
+				int rows = (int) readVarint(groups);
+				if (table != FAILURES) {
+					skipColumns(groups, JOB_COLUMNS);
+					continue;
+				}
+				DataInputStream[] columns = readColumns(groups, FAILURE_COLUMNS);
+				long job = 0;
+				for (int row = 0; row < rows; row++) {
+					job += readVarint(columns[0]);
+					visitor.accept(new Failure(job, decode(RULES, columns[1]), decode(CLAUSES, columns[2]),
+							readVarint(columns[3])));
+				}
+			}
+		}
+	}
+
+	private DataInputStream openGroups() throws IOException {
+		InputStream is = new BufferedInputStream(Files.newInputStream(this.file));
+		DataInputStream groups = new DataInputStream(is);
+		byte[] magic = new byte[MAGIC.length];
+		groups.readFully(magic);
+		return groups;
+	}
+
+	private String decode(final int dictionary, final DataInputStream column) throws IOException {
+		int code = (int) readVarint(column);
+		return (code == 0) ? null : this.dictionaries.get(dictionary).get(code - 1);
+	}
+
+	private static DataInputStream[] readColumns(final DataInputStream groups, final int count) throws IOException {
+		DataInputStream[] columns = new DataInputStream[count];
+		for (int i = 0; i < count; i++) {
+			byte[] column = new byte[(int) readVarint(groups)];
+			groups.readFully(column);
+			columns[i] = inflate(column);
+		}
+		return columns;
+	}
+
+	private static void skipColumns(final DataInputStream groups, final int count) throws IOException {
+		for (int i = 0; i < count; i++) {
+			long length = readVarint(groups);
+			if (groups.skip(length) != length) {
+				throw new EOFException();
+			}
+		}
+	}
+
+	private static DataInputStream inflate(final byte[] deflated) throws IOException {
+		Inflater inflater = new Inflater(true);
+		try (InputStream is = new InflaterInputStream(new ByteArrayInputStream(deflated), inflater)) {
+			ByteArrayOutputStream inflated = new ByteArrayOutputStream(deflated.length * 4);
+			byte[] buffer = new byte[8 * 1024];
+			for (int read = is.read(buffer); read != -1; read = is.read(buffer)) {
+				inflated.write(buffer, 0, read);
+			}
+			return new DataInputStream(new ByteArrayInputStream(inflated.toByteArray()));
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static long readVarint(final DataInputStream is) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += 7) {
+			int b = is.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Malformed varint"); //$NON-NLS-1$
+	}
+
+	private static String readString(final DataInputStream is) throws IOException {
+		byte[] bytes = new byte[(int) readVarint(is)];
+		is.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * A row of the jobs table.
+	 */
+	public static final class Job {
+		private final long index;
+		private final String path;
+		private final long size;
+		private final int compliance;
+		private final String profile;
+		private final long passedChecks;
+		private final long failedChecks;
+		private final long failedRules;
+		private final String exception;
+		private final long durationMillis;
+
+		Job(final long index, final String path, final long size, final int compliance, final String profile,
+				final long passedChecks, final long failedChecks, final long failedRules, final String exception,
+				final long durationMillis) {
+			this.index = index;
+			this.path = path;
+			this.size = size;
+			this.compliance = compliance;
+			this.profile = profile;
+			this.passedChecks = passedChecks;
+			this.failedChecks = failedChecks;
+			this.failedRules = failedRules;
+			this.exception = exception;
+			this.durationMillis = durationMillis;
+		}
+
+		/**
+		 * @return the job's position in the report, failures refer to it
+		 */
+		public long getIndex() {
+			return this.index;
+		}
+
+		public String getPath() {
+			return this.path;
+		}
+
+		public long getSize() {
+			return this.size;
+		}
+
+		/**
+		 * @return true if compliant, false if not, null if not validated
+		 */
+		public Boolean isCompliant() {
+			return (this.compliance == 0) ? null : Boolean.valueOf(this.compliance == 1);
+		}
+
+		/**
+		 * @return the validation profile's name, null if not validated
+		 */
+		public String getProfile() {
+			return this.profile;
+		}
+
+		public long getPassedChecks() {
+			return this.passedChecks;
+		}
+
+		public long getFailedChecks() {
+			return this.failedChecks;
+		}
+
+		public long getFailedRules() {
+			return this.failedRules;
+		}
+
+		/**
+		 * @return the task exception's message, null if no task failed
+		 */
+		public String getException() {
+			return this.exception;
+		}
+
+		public long getDurationMillis() {
+			return this.durationMillis;
+		}
+	}
+
+	/**
+	 * A row of the failures table.
+	 */
+	public static final class Failure {
+		private final long job;
+		private final String ruleId;
+		private final String clause;
+		private final long failedChecks;
+
+		Failure(final long job, final String ruleId, final String clause, final long failedChecks) {
+			this.job = job;
+			this.ruleId = ruleId;
+			this.clause = clause;
+			this.failedChecks = failedChecks;
+		}
+
+		/**
+		 * @return the index of the job the rule failed in
+		 */
+		public long getJob() {
+			return this.job;
+		}
+
+		public String getRuleId() {
+			return this.ruleId;
+		}
+
+		public String getClause() {
+			return this.clause;
+		}
+
+		public long getFailedChecks() {
+			return this.failedChecks;
+		}
+	}
+}
@@ -0,0 +1,347 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Converts a machine readable report, as it's written, to a compact columnar
+ * export for analytics, read with {@link ColumnarReport}. The export has a
+ * row per job and a row per failed rule, rows are buffered into groups of up
+ * to {@value #ROW_GROUP_SIZE} and each group is written column by column:
+ *
+ * <pre>
+ * file     := MAGIC group* END footer footerLength:int32 MAGIC
+ * group    := table:byte rows:varint (length:varint deflated-column)*
+ * footer   := deflated(jobs:varint failures:varint dictionary{4} summary)
+ * </pre>
+ *
+ * Integers are unsigned LEB128 varints. Profiles, rule ids, clauses and
+ * exception messages are dictionary encoded, the column holds the 1 based
+ * index of the value in the footer's dictionary, 0 if there's no value. Paths
+ * are front coded, each is the length of the prefix it shares with the path
+ * before it followed by the rest of the path. The job column of the failures
+ * table holds the difference from the job of the failure before it. Front
+ * coding and differences restart with each group.
+ * <p>
+ * Jobs columns are path, size, compliance (0 not validated, 1 compliant, 2
+ * non-compliant), profile, passed checks, failed checks, failed rules,
+ * exception and duration in milliseconds. Failures columns are job, rule id,
+ * clause and failed checks.
+ */
+public final class ColumnarReportStream extends ConvertingReportStream {
+	/** The number of rows buffered before a group is written */
+	public static final int ROW_GROUP_SIZE = 64 * 1024;
+
+	private static final String COMPLIANT = "true"; //$NON-NLS-1$
+	private static final String FAILED = "failed"; //$NON-NLS-1$
+
+	private final DataOutputStream out;
+	private final List<Dictionary> dictionaries = new ArrayList<>();
+	private final Column[] jobs = newColumns(ColumnarReport.JOB_COLUMNS);
+	private final Column[] failures = newColumns(ColumnarReport.FAILURE_COLUMNS);
+	private final Map<String, String> summary = new LinkedHashMap<>();
+	private int jobRows = 0;
+	private int failureRows = 0;
+	private long jobCount = 0;
+	private long failureCount = 0;
+	private long lastFailedJob = 0;
+	private boolean isStarted = false;
+
+	/**
+	 * @param target
+	 *            receives the export
+	 */
+	public ColumnarReportStream(final OutputStream target) {
+		super(target, "veraPDF-columnar"); //$NON-NLS-1$
+		this.out = new DataOutputStream(new BufferedOutputStream(target));
+		for (int i = 0; i < ColumnarReport.DICTIONARIES; i++) {
+			this.dictionaries.add(new Dictionary());
+		}
+	}
+
+	@Override
+	void record(final ReportElement record) throws IOException {
+		switch (record.getName()) {
+		case "job": //$NON-NLS-1$
+			addJob(record);
+			break;
+		case "batchSummary": //$NON-NLS-1$
+			flatten(record, "", this.summary); //$NON-NLS-1$
+			break;
+		case "buildInformation": //$NON-NLS-1$
+			for (ReportElement release : record.getChildren()) {
+				this.summary.put("release." + release.getAttribute("id"), release.getAttribute("version")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			break;
+		default:
+			break;
+		}
+	}
+
+	@Override
+	void endReport() throws IOException {
+		if (this.jobCount == 0 && this.summary.isEmpty()) {
+			// not a machine readable report, there's nothing to export
+			return;
+		}
+		start();
+		if (this.jobRows > 0) {
+			writeGroup(ColumnarReport.JOBS, this.jobs, this.jobRows);
+		}
+		if (this.failureRows > 0) {
+			writeGroup(ColumnarReport.FAILURES, this.failures, this.failureRows);
+		}
+		this.out.writeByte(ColumnarReport.END);
+		Column footer = new Column();
+		footer.writeVarint(this.jobCount);
+		footer.writeVarint(this.failureCount);
+		for (Dictionary dictionary : this.dictionaries) {
+			footer.writeVarint(dictionary.values.size());
+			for (String value : dictionary.values) {
+				footer.writeString(value);
+			}
+		}
+		footer.writeVarint(this.summary.size());
+		for (Map.Entry<String, String> entry : this.summary.entrySet()) {
+			footer.writeString(entry.getKey());
+			footer.writeString(String.valueOf(entry.getValue()));
+		}
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			byte[] deflated = deflate(footer, deflater);
+			this.out.write(deflated);
+			this.out.writeInt(deflated.length);
+		} finally {
+			deflater.end();
+		}
+		this.out.write(ColumnarReport.MAGIC);
+		this.out.flush();
+	}
+
+	private void start() throws IOException {
+		if (!this.isStarted) {
+			this.out.write(ColumnarReport.MAGIC);
+			this.isStarted = true;
+		}
+	}
+
+	private void addJob(final ReportElement job) throws IOException {
+		start();
+		ReportElement item = job.getChild("item"); //$NON-NLS-1$
+		ReportElement name = (item == null) ? null : item.getChild("name"); //$NON-NLS-1$
+		this.jobs[0].writeFrontCoded((name == null) ? "" : name.getText()); //$NON-NLS-1$
+		this.jobs[1].writeVarint((item == null) ? 0 : toLong(item.getAttribute("size"))); //$NON-NLS-1$
+		ReportElement validation = job.getChild("validationReport"); //$NON-NLS-1$
+		ReportElement details = (validation == null) ? null : validation.getChild("details"); //$NON-NLS-1$
+		if (validation == null) {
+			this.jobs[2].writeVarint(0);
+			this.jobs[3].writeVarint(0);
+		} else {
+			this.jobs[2].writeVarint(COMPLIANT.equals(validation.getAttribute("isCompliant")) ? 1 : 2); //$NON-NLS-1$
+			this.jobs[3].writeVarint(code(ColumnarReport.PROFILES, validation.getAttribute("profileName"))); //$NON-NLS-1$
+		}
+		this.jobs[4].writeVarint((details == null) ? 0 : toLong(details.getAttribute("passedChecks"))); //$NON-NLS-1$
+		this.jobs[5].writeVarint((details == null) ? 0 : toLong(details.getAttribute("failedChecks"))); //$NON-NLS-1$
+		this.jobs[6].writeVarint((details == null) ? 0 : toLong(details.getAttribute("failedRules"))); //$NON-NLS-1$
+		ReportElement exception = job.getChild("taskException"); //$NON-NLS-1$
+		ReportElement message = (exception == null) ? null : exception.getChild("exceptionMessage"); //$NON-NLS-1$
+		this.jobs[7].writeVarint((message == null) ? 0 : code(ColumnarReport.EXCEPTIONS, message.getText().trim()));
+		ReportElement duration = job.getChild("duration"); //$NON-NLS-1$
+		this.jobs[8].writeVarint((duration == null) ? 0
+				: Math.max(0, toLong(duration.getAttribute("finish")) - toLong(duration.getAttribute("start")))); //$NON-NLS-1$ //$NON-NLS-2$
+		if (details != null) {
+			for (ReportElement rule : details.getChildren()) {
+				if ("rule".equals(rule.getName()) && FAILED.equals(rule.getAttribute("status"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					addFailure(rule);
+				}
+			}
+		}
+		this.jobCount++;
+		if (++this.jobRows == ROW_GROUP_SIZE) {
+			writeGroup(ColumnarReport.JOBS, this.jobs, this.jobRows);
+			this.jobRows = 0;
+		}
+	}
+
+	private void addFailure(final ReportElement rule) throws IOException {
+		String clause = rule.getAttribute("clause"); //$NON-NLS-1$
+		String ruleId = rule.getAttribute("specification") + ' ' + clause + '-' + rule.getAttribute("testNumber"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.failures[0].writeVarint(this.jobCount - this.lastFailedJob);
+		this.failures[1].writeVarint(code(ColumnarReport.RULES, ruleId));
+		this.failures[2].writeVarint(code(ColumnarReport.CLAUSES, clause));
+		this.failures[3].writeVarint(toLong(rule.getAttribute("failedChecks"))); //$NON-NLS-1$
+		this.lastFailedJob = this.jobCount;
+		this.failureCount++;
+		if (++this.failureRows == ROW_GROUP_SIZE) {
+			writeGroup(ColumnarReport.FAILURES, this.failures, this.failureRows);
+			this.failureRows = 0;
+		}
+	}
+
+	private void writeGroup(final int table, final Column[] columns, final int rows) throws IOException {
+		this.out.writeByte(table);
+		writeVarint(this.out, rows);
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		try {
+			for (Column column : columns) {
+				byte[] deflated = deflate(column, deflater);
+				writeVarint(this.out, deflated.length);
+				this.out.write(deflated);
+				column.clear();
+			}
+		} finally {
+			deflater.end();
+		}
+		if (table == ColumnarReport.FAILURES) {
+			this.lastFailedJob = 0;
+		}
+		this.out.flush();
+	}
+
+	private static byte[] deflate(final Column column, final Deflater deflater) throws IOException {
+		deflater.reset();
+		ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+		try (DeflaterOutputStream os = new DeflaterOutputStream(deflated, deflater)) {
+			column.writeTo(os);
+		}
+		return deflated.toByteArray();
+	}
+
+	private int code(final int dictionary, final String value) {
+		return (value == null) ? 0 : this.dictionaries.get(dictionary).code(value);
+	}
+
+	private static void flatten(final ReportElement element, final String prefix, final Map<String, String> values) {
+		for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+			values.put(prefix + attribute.getKey(), attribute.getValue());
+		}
+		String text = element.getText().trim();
+		if (!text.isEmpty() && !prefix.isEmpty()) {
+			values.put(prefix.substring(0, prefix.length() - 1), text);
+		}
+		for (ReportElement child : element.getChildren()) {
+			flatten(child, prefix + child.getName() + '.', values);
+		}
+	}
+
+	private static long toLong(final String value) {
+		if (value == null) {
+			return 0;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException excep) {
+			return 0;
+		}
+	}
+
+	private static Column[] newColumns(final int count) {
+		Column[] columns = new Column[count];
+		for (int i = 0; i < count; i++) {
+			columns[i] = new Column();
+		}
+		return columns;
+	}
+
+	private static void writeVarint(final OutputStream os, final long value) throws IOException {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			os.write((int) ((remaining & 0x7F) | 0x80));
+			remaining >>>= 7;
+		}
+		os.write((int) remaining);
+	}
+
+	/**
+	 * The encoded values of a column in the current group.
+	 */
+	private static final class Column extends ByteArrayOutputStream {
+		private String previous = ""; //$NON-NLS-1$
+
+		Column() {
+			super();
+		}
+
+		void writeVarint(final long value) {
+			long remaining = value;
+			while ((remaining & ~0x7FL) != 0) {
+				write((int) ((remaining & 0x7F) | 0x80));
+				remaining >>>= 7;
+			}
+			write((int) remaining);
+		}
+
+		void writeString(final String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeVarint(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		void writeFrontCoded(final String value) {
+			int shared = 0;
+			int max = Math.min(value.length(), this.previous.length());
+			while (shared < max && value.charAt(shared) == this.previous.charAt(shared)) {
+				shared++;
+			}
+			if (shared > 0 && Character.isHighSurrogate(value.charAt(shared - 1))) {
+				// never splits a surrogate pair
+				shared--;
+			}
+			writeVarint(shared);
+			writeString(value.substring(shared));
+			this.previous = value;
+		}
+
+		void clear() {
+			reset();
+			this.previous = ""; //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Assigns 1 based codes to values in the order they're first seen.
+	 */
+	private static final class Dictionary {
+		final List<String> values = new ArrayList<>();
+		private final Map<String, Integer> codes = new HashMap<>();
+
+		Dictionary() {
+			super();
+		}
+
+		int code(final String value) {
+			Integer code = this.codes.get(value);
+			if (code == null) {
+				this.values.add(value);
+				code = Integer.valueOf(this.values.size());
+				this.codes.put(value, code);
+			}
+			return code.intValue();
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Converts a machine readable report to another format as it's written. The
+ * report is handed to a converter thread through a small bounded queue, the
+ * converter reads it one record at a time, the build information, each job
+ * and the batch summary, so memory use doesn't grow with the batch.
+ * <p>
+ * Closing the stream waits for the conversion to finish and closes the
+ * target stream.
+ */
+abstract class ConvertingReportStream extends OutputStream {
+	private static final int CHUNK_SIZE = 8 * 1024;
+	private static final int QUEUE_CHUNKS = 16;
+	private static final byte[] END = new byte[0];
+	private static final String REPORT_JOBS = "jobs"; //$NON-NLS-1$
+
+	private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+	private final OutputStream target;
+	private final Thread converter;
+	private volatile IOException failure;
+	private byte[] buffer = new byte[CHUNK_SIZE];
+	private int count = 0;
+	private boolean isStarted = false;
+	private boolean isClosed = false;
+
+	/**
+	 * @param target
+	 *            receives the converted report
+	 * @param name
+	 *            the name of the converter thread
+	 */
+	ConvertingReportStream(final OutputStream target, final String name) {
+		this.target = target;
+		this.converter = IoExecutors.namedDaemonThreads(name).newThread(this::convert);
+	}
+
+	/**
+	 * Called on the converter thread for each record, in report order.
+	 */
+	abstract void record(ReportElement record) throws IOException;
+
+	/**
+	 * Called on the converter thread after the last record, not called if
+	 * nothing was written to the stream.
+	 */
+	abstract void endReport() throws IOException;
+
+	final OutputStream getTarget() {
+		return this.target;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (this.count == this.buffer.length) {
+			sendBuffer();
+		}
+		this.buffer[this.count++] = (byte) b;
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			if (this.count == this.buffer.length) {
+				sendBuffer();
+			}
+			int toCopy = Math.min(remaining, this.buffer.length - this.count);
+			System.arraycopy(b, offset, this.buffer, this.count, toCopy);
+			this.count += toCopy;
+			offset += toCopy;
+			remaining -= toCopy;
+		}
+	}
+
+	/**
+	 * Hands what's been written so far to the converter, a job that's complete
+	 * is converted without waiting for more of the report.
+	 */
+	@Override
+	public void flush() throws IOException {
+		if (this.count > 0) {
+			sendBuffer();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.isClosed) {
+			return;
+		}
+		this.isClosed = true;
+		try {
+			flush();
+			send(END);
+			this.converter.join();
+		} catch (InterruptedException excep) {
+			this.converter.interrupt();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while converting report"); //$NON-NLS-1$
+		} finally {
+			this.target.close();
+		}
+		checkFailure();
+	}
+
+	private void sendBuffer() throws IOException {
+		send(Arrays.copyOf(this.buffer, this.count));
+		this.count = 0;
+	}
+
+	private void send(final byte[] chunk) throws IOException {
+		checkFailure();
+		if (!this.isStarted) {
+			// started once the subclass is constructed
+			this.converter.start();
+			this.isStarted = true;
+		}
+		try {
+			this.chunks.put(chunk);
+		} catch (InterruptedException excep) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while converting report"); //$NON-NLS-1$
+		}
+	}
+
+	private void checkFailure() throws IOException {
+		IOException excep = this.failure;
+		if (excep != null) {
+			throw new IOException("Can't convert report", excep); //$NON-NLS-1$
+		}
+	}
+
+	private void convert() {
+		ChunkInputStream report = new ChunkInputStream();
+		try {
+			convert(report);
+		} catch (XMLStreamException excep) {
+			this.failure = new IOException(excep);
+		} catch (IOException excep) {
+			this.failure = excep;
+		} finally {
+			// keeps the writer from blocking on a full queue
+			report.drain();
+		}
+	}
+
+	private void convert(final InputStream input) throws XMLStreamException, IOException {
+		PushbackInputStream report = new PushbackInputStream(input);
+		int first = report.read();
+		if (first == -1) {
+			// nothing was processed, there's no report to convert
+			return;
+		}
+		report.unread(first);
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		XMLStreamReader reader = factory.createXMLStreamReader(report);
+		try {
+			int depth = 0;
+			boolean isInJobs = false;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					depth++;
+					if (depth == 2 && REPORT_JOBS.equals(reader.getLocalName())) {
+						isInJobs = true;
+					} else if (depth == 2 || (depth == 3 && isInJobs)) {
+						record(ReportElement.read(reader));
+						depth--;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					if (depth == 2) {
+						isInJobs = false;
+					}
+					depth--;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		endReport();
+	}
+
+	/**
+	 * Reads the chunks handed over by the writing thread.
+	 */
+	private final class ChunkInputStream extends InputStream {
+		private byte[] chunk = new byte[0];
+		private int position = 0;
+		private boolean isEnded = false;
+
+		@Override
+		public int read() throws IOException {
+			if (!nextChunk()) {
+				return -1;
+			}
+			return this.chunk[this.position++] & 0xff;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (!nextChunk()) {
+				return -1;
+			}
+			int toCopy = Math.min(len, this.chunk.length - this.position);
+			System.arraycopy(this.chunk, this.position, b, off, toCopy);
+			this.position += toCopy;
+			return toCopy;
+		}
+
+		private boolean nextChunk() throws IOException {
+			while (!this.isEnded && this.position == this.chunk.length) {
+				try {
+					this.chunk = ConvertingReportStream.this.chunks.take();
+				} catch (InterruptedException excep) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while converting report"); //$NON-NLS-1$
+				}
+				this.position = 0;
+				this.isEnded = this.chunk == END;
+			}
+			return !this.isEnded;
+		}
+
+		void drain() {
+			try {
+				while (!this.isEnded) {
+					this.isEnded = ConvertingReportStream.this.chunks.take() == END;
+				}
+			} catch (InterruptedException excep) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,298 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Renders a machine readable report, as it's written, to an HTML page. Each
+ * job is rendered as soon as its closing tag arrives, so the page costs no
+ * pass over the finished report. Jobs are split into collapsible pages of
+ * {@value #PAGE_SIZE} files, only the first page is expanded so browsers
+ * needn't lay out every job of a big batch. The batch summary arrives last
+ * and is shown above the jobs.
+ * <p>
+ * Closing the stream waits for the page to be finished and closes the target
+ * stream.
+ */
+public final class HtmlReportStream extends ConvertingReportStream {
+	/** The number of jobs on each page */
+	public static final int PAGE_SIZE = 500;
+
+	private static final String COMPLIANT = "true"; //$NON-NLS-1$
+	private static final String FAILED = "failed"; //$NON-NLS-1$
+	private static final String STYLE = "main{display:flex;flex-direction:column;font-family:sans-serif}" //$NON-NLS-1$
+			+ ".summary{order:-1}table{border-collapse:collapse;width:100%}" //$NON-NLS-1$
+			+ "th,td{text-align:left;padding:2px 6px;border-bottom:1px solid #ddd;vertical-align:top}" //$NON-NLS-1$
+			+ ".compliant td.result{color:#090}.non-compliant td.result{color:#c00}.error td.result{color:#960}" //$NON-NLS-1$
+			+ "details.page>summary{font-weight:bold;padding:4px 0}.rules ul{margin:2px 0}"; //$NON-NLS-1$
+
+	private final Writer html;
+	private final String wikiPath;
+	private long jobCount = 0;
+	private boolean isStarted = false;
+	private boolean isJobsEnded = false;
+
+	/**
+	 * @param target
+	 *            receives the HTML page
+	 * @param wikiPath
+	 *            the base of links to rule descriptions, empty for no links
+	 */
+	public HtmlReportStream(final OutputStream target, final String wikiPath) {
+		super(target, "veraPDF-html"); //$NON-NLS-1$
+		this.html = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+		this.wikiPath = (wikiPath == null) ? "" : wikiPath; //$NON-NLS-1$
+	}
+
+	@Override
+	void record(final ReportElement record) throws IOException {
+		startDocument();
+		switch (record.getName()) {
+		case "job": //$NON-NLS-1$
+			writeJob(record);
+			break;
+		case "batchSummary": //$NON-NLS-1$
+			endJobs();
+			writeSummary(record);
+			break;
+		case "buildInformation": //$NON-NLS-1$
+			writeBuildInformation(record);
+			break;
+		default:
+			break;
+		}
+		this.html.flush();
+	}
+
+	@Override
+	void endReport() throws IOException {
+		startDocument();
+		endJobs();
+		this.html.write("</main></body></html>\n"); //$NON-NLS-1$
+		this.html.flush();
+	}
+
+	private void startDocument() throws IOException {
+		if (this.isStarted) {
+			return;
+		}
+		this.isStarted = true;
+		this.html.write("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>veraPDF Report</title><style>"); //$NON-NLS-1$
+		this.html.write(STYLE);
+		this.html.write("</style></head><body><main><h1>veraPDF Report</h1>\n<section class=\"jobs\">\n"); //$NON-NLS-1$
+	}
+
+	private void writeBuildInformation(final ReportElement build) throws IOException {
+		this.html.write("<p class=\"build\">"); //$NON-NLS-1$
+		boolean isFirst = true;
+		for (ReportElement release : build.getChildren()) {
+			if (!isFirst) {
+				this.html.write(", "); //$NON-NLS-1$
+			}
+			isFirst = false;
+			escape(release.getAttribute("id")); //$NON-NLS-1$
+			this.html.write(' ');
+			escape(release.getAttribute("version")); //$NON-NLS-1$
+		}
+		this.html.write("</p>\n"); //$NON-NLS-1$
+	}
+
+	private void writeJob(final ReportElement job) throws IOException {
+		if (this.jobCount % PAGE_SIZE == 0) {
+			if (this.jobCount > 0) {
+				this.html.write("</table></details>\n"); //$NON-NLS-1$
+			}
+			this.html.write((this.jobCount == 0) ? "<details class=\"page\" open>" : "<details class=\"page\">"); //$NON-NLS-1$ //$NON-NLS-2$
+			this.html.write("<summary>Page " + (this.jobCount / PAGE_SIZE + 1) + ", files from " + (this.jobCount + 1) //$NON-NLS-1$ //$NON-NLS-2$
+					+ "</summary><table><tr><th>File</th><th>Result</th><th>Profile</th><th>Failed rules</th><th>Failed checks</th></tr>\n"); //$NON-NLS-1$
+		}
+		this.jobCount++;
+		ReportElement item = job.getChild("item"); //$NON-NLS-1$
+		ReportElement name = (item == null) ? null : item.getChild("name"); //$NON-NLS-1$
+		ReportElement validation = job.getChild("validationReport"); //$NON-NLS-1$
+		ReportElement details = (validation == null) ? null : validation.getChild("details"); //$NON-NLS-1$
+		List<String> exceptions = new ArrayList<>();
+		for (ReportElement child : job.getChildren()) {
+			ReportElement message = "taskException".equals(child.getName()) ? child.getChild("exceptionMessage") : null; //$NON-NLS-1$ //$NON-NLS-2$
+			if (message != null) {
+				exceptions.add(message.getText().trim());
+			}
+		}
+		String status;
+		String result;
+		if (!exceptions.isEmpty()) {
+			status = "error"; //$NON-NLS-1$
+			result = "ERROR"; //$NON-NLS-1$
+		} else if (validation == null) {
+			status = "processed"; //$NON-NLS-1$
+			result = "PROCESSED"; //$NON-NLS-1$
+		} else if (COMPLIANT.equals(validation.getAttribute("isCompliant"))) { //$NON-NLS-1$
+			status = "compliant"; //$NON-NLS-1$
+			result = "PASS"; //$NON-NLS-1$
+		} else {
+			status = "non-compliant"; //$NON-NLS-1$
+			result = "FAIL"; //$NON-NLS-1$
+		}
+		this.html.write("<tr class=\"" + status + "\"><td>"); //$NON-NLS-1$ //$NON-NLS-2$
+		escape((name == null) ? "" : name.getText()); //$NON-NLS-1$
+		this.html.write("</td><td class=\"result\">" + result + "</td><td>"); //$NON-NLS-1$ //$NON-NLS-2$
+		escape((validation == null) ? "" : validation.getAttribute("profileName")); //$NON-NLS-1$ //$NON-NLS-2$
+		this.html.write("</td><td>"); //$NON-NLS-1$
+		escape((details == null) ? "" : details.getAttribute("failedRules")); //$NON-NLS-1$ //$NON-NLS-2$
+		this.html.write("</td><td>"); //$NON-NLS-1$
+		escape((details == null) ? "" : details.getAttribute("failedChecks")); //$NON-NLS-1$ //$NON-NLS-2$
+		this.html.write("</td></tr>\n"); //$NON-NLS-1$
+		List<ReportElement> failedRules = new ArrayList<>();
+		if (details != null) {
+			for (ReportElement rule : details.getChildren()) {
+				if ("rule".equals(rule.getName()) && FAILED.equals(rule.getAttribute("status"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					failedRules.add(rule);
+				}
+			}
+		}
+		if (failedRules.isEmpty() && exceptions.isEmpty()) {
+			return;
+		}
+		this.html.write("<tr class=\"rules\"><td colspan=\"5\"><details><summary>"); //$NON-NLS-1$
+		this.html.write(failedRules.isEmpty() ? "Task exceptions" : failedRules.size() + " failed rule(s)"); //$NON-NLS-1$ //$NON-NLS-2$
+		this.html.write("</summary><ul>"); //$NON-NLS-1$
+		for (String exception : exceptions) {
+			this.html.write("<li>"); //$NON-NLS-1$
+			escape(exception);
+			this.html.write("</li>"); //$NON-NLS-1$
+		}
+		for (ReportElement rule : failedRules) {
+			writeRule(rule);
+		}
+		this.html.write("</ul></details></td></tr>\n"); //$NON-NLS-1$
+	}
+
+	private void writeRule(final ReportElement rule) throws IOException {
+		String specification = rule.getAttribute("specification"); //$NON-NLS-1$
+		String clause = rule.getAttribute("clause"); //$NON-NLS-1$
+		String testNumber = rule.getAttribute("testNumber"); //$NON-NLS-1$
+		this.html.write("<li>"); //$NON-NLS-1$
+		String link = ruleLink(specification, clause, testNumber);
+		if (link != null) {
+			this.html.write("<a href=\""); //$NON-NLS-1$
+			escape(link);
+			this.html.write("\">"); //$NON-NLS-1$
+		}
+		escape(specification + ' ' + clause + '-' + testNumber);
+		if (link != null) {
+			this.html.write("</a>"); //$NON-NLS-1$
+		}
+		ReportElement description = rule.getChild("description"); //$NON-NLS-1$
+		if (description != null) {
+			this.html.write(": "); //$NON-NLS-1$
+			escape(description.getText().trim());
+		}
+		this.html.write(" ("); //$NON-NLS-1$
+		escape(rule.getAttribute("failedChecks")); //$NON-NLS-1$
+		this.html.write(" failed checks)</li>"); //$NON-NLS-1$
+	}
+
+	private void writeSummary(final ReportElement summary) throws IOException {
+		this.html.write("<section class=\"summary\"><h2>Batch summary</h2><table>\n"); //$NON-NLS-1$
+		for (Map.Entry<String, String> attribute : summary.getAttributes().entrySet()) {
+			writeSummaryRow(attribute.getKey(), attribute.getValue());
+		}
+		for (ReportElement child : summary.getChildren()) {
+			String total = child.getText().trim();
+			if (!total.isEmpty()) {
+				writeSummaryRow(child.getName(), total);
+			}
+			for (Map.Entry<String, String> attribute : child.getAttributes().entrySet()) {
+				writeSummaryRow(child.getName() + ' ' + attribute.getKey(), attribute.getValue());
+			}
+		}
+		this.html.write("</table></section>\n"); //$NON-NLS-1$
+	}
+
+	private void writeSummaryRow(final String name, final String value) throws IOException {
+		this.html.write("<tr><th>"); //$NON-NLS-1$
+		escape(name);
+		this.html.write("</th><td>"); //$NON-NLS-1$
+		escape(value);
+		this.html.write("</td></tr>\n"); //$NON-NLS-1$
+	}
+
+	private void endJobs() throws IOException {
+		if (this.isJobsEnded) {
+			return;
+		}
+		if (this.jobCount > 0) {
+			this.html.write("</table></details>\n"); //$NON-NLS-1$
+		}
+		this.html.write("</section>\n"); //$NON-NLS-1$
+		this.isJobsEnded = true;
+	}
+
+	/**
+	 * @return a link to the rule's description on the validation profiles
+	 *         wiki, null if there's no wiki path or the specification isn't
+	 *         known
+	 */
+	private String ruleLink(final String specification, final String clause, final String testNumber) {
+		if (this.wikiPath.isEmpty() || specification == null || clause == null) {
+			return null;
+		}
+		String page;
+		if (specification.startsWith("ISO 19005-1")) { //$NON-NLS-1$
+			page = "PDFA-Part-1-rules"; //$NON-NLS-1$
+		} else if (specification.startsWith("ISO 19005")) { //$NON-NLS-1$
+			page = "PDFA-Parts-2-and-3-rules"; //$NON-NLS-1$
+		} else if (specification.startsWith("ISO 14289")) { //$NON-NLS-1$
+			page = "PDFUA-Part-1-rules"; //$NON-NLS-1$
+		} else {
+			return null;
+		}
+		return this.wikiPath + page + "#rule-" + clause.replace(".", "") + '-' + testNumber; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+
+	private void escape(final String value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '<':
+				this.html.write("&lt;"); //$NON-NLS-1$
+				break;
+			case '>':
+				this.html.write("&gt;"); //$NON-NLS-1$
+				break;
+			case '&':
+				this.html.write("&amp;"); //$NON-NLS-1$
+				break;
+			case '"':
+				this.html.write("&quot;"); //$NON-NLS-1$
+				break;
+			default:
+				this.html.write(c);
+			}
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Factory methods for the executors used by batch orchestration. I/O bound
+ * work, pipe pumping, discovery and report writing, runs on virtual threads
+ * when the running JVM supports them (Java 21+) and on an unbounded pool of
+ * platform threads otherwise. CPU bound validation always runs on a bounded
+ * pool of platform threads.
+ */
+public final class IoExecutors {
+	private static final Logger LOGGER = Logger.getLogger(IoExecutors.class.getCanonicalName());
+
+	private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual"); //$NON-NLS-1$
+	private static final Method BUILDER_NAME = findMethod("java.lang.Thread$Builder", "name", String.class, //$NON-NLS-1$ //$NON-NLS-2$
+			long.class);
+	private static final Method BUILDER_FACTORY = findMethod("java.lang.Thread$Builder", "factory"); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final Method THREAD_PER_TASK = findMethod(Executors.class, "newThreadPerTaskExecutor", //$NON-NLS-1$
+			ThreadFactory.class);
+
+	/**
+	 * Private constructor should never be called
+	 */
+	private IoExecutors() {
+		throw new AssertionError("Should never happen"); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return true if the running JVM supports virtual threads
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null && THREAD_PER_TASK != null;
+	}
+
+	/**
+	 * Creates an executor for I/O bound tasks that starts a new virtual thread
+	 * for every task, or falls back to a cached pool of daemon platform threads
+	 * if virtual threads aren't supported.
+	 *
+	 * @param name
+	 *            the prefix for thread names
+	 * @return a new, unbounded executor
+	 */
+	public static ExecutorService newIoExecutor(final String name) {
+		if (isVirtualThreadsSupported()) {
+			try {
+				Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), name + "-", Long.valueOf(1L)); //$NON-NLS-1$
+				ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+				return (ExecutorService) THREAD_PER_TASK.invoke(null, factory);
+			} catch (IllegalAccessException | InvocationTargetException excep) {
+				LOGGER.log(Level.FINE, "Can't create virtual thread executor, using platform threads", excep); //$NON-NLS-1$
+			}
+		}
+		return Executors.newCachedThreadPool(namedDaemonThreads(name));
+	}
+
+	/**
+	 * Creates a fixed size pool of daemon platform threads for CPU bound tasks.
+	 *
+	 * @param name
+	 *            the prefix for thread names
+	 * @param threads
+	 *            the number of threads
+	 * @return a new, bounded executor
+	 */
+	public static ExecutorService newCpuExecutor(final String name, final int threads) {
+		return Executors.newFixedThreadPool(threads, namedDaemonThreads(name));
+	}
+
+	/**
+	 * @param name
+	 *            the prefix for thread names
+	 * @return a factory for numbered daemon platform threads
+	 */
+	public static ThreadFactory namedDaemonThreads(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet()); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private static Method findMethod(final String className, final String name, final Class<?>... parameterTypes) {
+		try {
+			return findMethod(Class.forName(className), name, parameterTypes);
+		} catch (ClassNotFoundException excep) {
+			return null;
+		}
+	}
+
+	private static Method findMethod(final Class<?> type, final String name, final Class<?>... parameterTypes) {
+		try {
+			return type.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException excep) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,396 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Answers questions about the jobs of a batch from an index written by
+ * {@link JobIndexStream} alongside the report, such as which files failed a
+ * rule or how many failed their policy, without reading the report.
+ * <p>
+ * The index is memory mapped and its arrays are read in place, opening it
+ * reads only the footer so it takes the same time and heap whatever the size
+ * of the batch. Each array is mapped in segments of at most 1 GiB, so indexes
+ * of very large batches can be mapped whatever their size. The mapping is
+ * released once the index is garbage collected. Jobs are numbered from 0 in
+ * report order.
+ */
+public final class JobIndex {
+	/** The extension of an index written alongside a report */
+	public static final String EXTENSION = ".vidx"; //$NON-NLS-1$
+
+	static final byte[] MAGIC = "VPDFIDX1".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	static final int VERSION = 2;
+	static final int POLICY_FAILED = 0x80;
+	private static final int FOOTER_FIXED_BYTES = 2 * Integer.BYTES + 6 * Long.BYTES;
+	private static final Status[] STATUSES = Status.values();
+	private static final int SEGMENT_SHIFT = 30;
+
+	/**
+	 * The outcome of a job.
+	 */
+	public enum Status {
+		/** Validated and compliant */
+		COMPLIANT,
+		/** Validated and not compliant */
+		NON_COMPLIANT,
+		/** Couldn't be processed */
+		FAILED,
+		/** Processed without validation, e.g. feature extraction only */
+		NOT_VALIDATED
+	}
+
+	private final int jobCount;
+	private final int words;
+	private final Section names;
+	private final Section nameEnds;
+	private final Section offsets;
+	private final Section lengths;
+	private final Section statuses;
+	private final Section bitmaps;
+	private final List<String> ruleIds;
+	private final List<String> specifications;
+
+	private JobIndex(final FileChannel channel, final long trailer, final ByteBuffer footer, final int segmentShift)
+			throws IOException {
+		this.jobCount = footer.getInt();
+		int ruleCount = footer.getInt();
+		long[] sections = new long[6];
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = footer.getLong();
+		}
+		List<String> specs = new ArrayList<>(ruleCount);
+		List<String> ids = new ArrayList<>(ruleCount);
+		for (int i = 0; i < ruleCount; i++) {
+			specs.add(readUtf(footer));
+			ids.add(readUtf(footer));
+		}
+		this.specifications = Collections.unmodifiableList(specs);
+		this.ruleIds = Collections.unmodifiableList(ids);
+		this.words = wordsFor(this.jobCount);
+		this.names = new Section(channel, sections[0], sections[1], trailer, segmentShift);
+		this.nameEnds = new Section(channel, sections[1], sections[2], trailer, segmentShift);
+		this.offsets = new Section(channel, sections[2], sections[3], trailer, segmentShift);
+		this.lengths = new Section(channel, sections[3], sections[3] + 4L * this.jobCount, trailer, segmentShift);
+		this.statuses = new Section(channel, sections[4], sections[4] + this.jobCount, trailer, segmentShift);
+		this.bitmaps = new Section(channel, sections[5], sections[5] + 8L * this.words * ruleCount, trailer,
+				segmentShift);
+	}
+
+	/**
+	 * @param file
+	 *            an index written by {@link JobIndexStream}
+	 * @return the index, mapped into memory
+	 * @throws IOException
+	 *             if the file can't be read or isn't a complete index
+	 */
+	public static JobIndex open(final Path file) throws IOException {
+		return open(file, SEGMENT_SHIFT);
+	}
+
+	/**
+	 * Opens the index mapping it in segments of {@code 1 << segmentShift}
+	 * bytes, small segments let tests cover values that span segments.
+	 */
+	static JobIndex open(final Path file, final int segmentShift) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long trailer = size - Integer.BYTES - MAGIC.length;
+			if (trailer < MAGIC.length + Integer.BYTES + FOOTER_FIXED_BYTES) {
+				throw new IOException(file + " isn't a result index"); //$NON-NLS-1$
+			}
+			ByteBuffer header = read(channel, 0, MAGIC.length + Integer.BYTES);
+			byte[] magic = new byte[MAGIC.length];
+			header.get(magic);
+			int version = header.getInt();
+			ByteBuffer end = read(channel, trailer, Integer.BYTES + MAGIC.length);
+			int footerLength = end.getInt();
+			byte[] endMagic = new byte[MAGIC.length];
+			end.get(endMagic);
+			if (!Arrays.equals(MAGIC, magic) || !Arrays.equals(MAGIC, endMagic) || version != VERSION
+					|| footerLength < FOOTER_FIXED_BYTES || footerLength > trailer) {
+				throw new IOException(file + " isn't a complete result index"); //$NON-NLS-1$
+			}
+			try {
+				return new JobIndex(channel, trailer, read(channel, trailer - footerLength, footerLength),
+						segmentShift);
+			} catch (RuntimeException excep) {
+				throw new IOException(file + " isn't a complete result index", excep); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * @return the number of jobs in the index
+	 */
+	public int getJobCount() {
+		return this.jobCount;
+	}
+
+	/**
+	 * @return the path of the job's file
+	 */
+	public String getName(final int job) {
+		long start = (job == 0) ? 0 : this.nameEnds.getLong(job - 1);
+		byte[] name = new byte[(int) (this.nameEnds.getLong(job) - start)];
+		this.names.get(start, name);
+		return new String(name, StandardCharsets.UTF_8);
+	}
+
+	public Status getStatus(final int job) {
+		return STATUSES[this.statuses.get(job) & (POLICY_FAILED - 1)];
+	}
+
+	/**
+	 * @return true if the job has a policy report with failed checks
+	 */
+	public boolean isPolicyFailed(final int job) {
+		return (this.statuses.get(job) & POLICY_FAILED) != 0;
+	}
+
+	/**
+	 * @return where the job's element starts in the report, in bytes of the
+	 *         report before any compression or conversion
+	 */
+	public long getReportOffset(final int job) {
+		return this.offsets.getLong(job);
+	}
+
+	/**
+	 * @return the length in bytes of the job's element in the report
+	 */
+	public int getReportLength(final int job) {
+		return this.lengths.getInt(job);
+	}
+
+	/**
+	 * @return the ids of the rules that failed, the clause and test number,
+	 *         e.g. 6.1.4-1, in the order they first failed. An id is listed
+	 *         once for each specification it failed in.
+	 */
+	public List<String> getRuleIds() {
+		return this.ruleIds;
+	}
+
+	/**
+	 * @return the specification of each rule in {@link #getRuleIds()}, e.g.
+	 *         ISO 19005-1:2005, or the name of the validation profile for
+	 *         reports whose rules don't give one
+	 */
+	public List<String> getRuleSpecifications() {
+		return this.specifications;
+	}
+
+	/**
+	 * @param rule
+	 *            a rule id, e.g. 6.1.4-1, or a clause, e.g. 6.1.4, which
+	 *            matches all of the clause's rules
+	 * @return the jobs that failed the rule in any specification, in order
+	 */
+	public int[] getJobsFailing(final String rule) {
+		return getJobsFailing(null, rule);
+	}
+
+	/**
+	 * @param specification
+	 *            the rule's specification, e.g. ISO 19005-1:2005, or null for
+	 *            any
+	 * @param rule
+	 *            a rule id, e.g. 6.1.4-1, or a clause, e.g. 6.1.4, which
+	 *            matches all of the clause's rules
+	 * @return the jobs that failed the rule, in order
+	 */
+	public int[] getJobsFailing(final String specification, final String rule) {
+		long[] failing = failing(specification, rule);
+		int[] jobs = new int[count(failing)];
+		int count = 0;
+		for (int word = 0; word < failing.length; word++) {
+			for (long bits = failing[word]; bits != 0; bits &= bits - 1) {
+				jobs[count++] = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+			}
+		}
+		return jobs;
+	}
+
+	/**
+	 * @param rule
+	 *            a rule id, e.g. 6.1.4-1, or a clause, e.g. 6.1.4
+	 * @return the number of jobs that failed the rule in any specification
+	 */
+	public int countJobsFailing(final String rule) {
+		return countJobsFailing(null, rule);
+	}
+
+	/**
+	 * @param specification
+	 *            the rule's specification, or null for any
+	 * @param rule
+	 *            a rule id, e.g. 6.1.4-1, or a clause, e.g. 6.1.4
+	 * @return the number of jobs that failed the rule
+	 */
+	public int countJobsFailing(final String specification, final String rule) {
+		return count(failing(specification, rule));
+	}
+
+	/**
+	 * @return the number of jobs with the status
+	 */
+	public int countJobs(final Status status) {
+		int count = 0;
+		for (int job = 0; job < this.jobCount; job++) {
+			if (getStatus(job) == status) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of jobs that failed their policy
+	 */
+	public int countPolicyFailures() {
+		int count = 0;
+		for (int job = 0; job < this.jobCount; job++) {
+			if (isPolicyFailed(job)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the union of the bitmaps of the rules that match
+	 */
+	private long[] failing(final String specification, final String rule) {
+		long[] failing = new long[this.words];
+		for (int i = 0; i < this.ruleIds.size(); i++) {
+			if (specification != null && !specification.equals(this.specifications.get(i))) {
+				continue;
+			}
+			String id = this.ruleIds.get(i);
+			if (id.equals(rule) || (id.startsWith(rule) && id.charAt(rule.length()) == '-')) {
+				for (int word = 0; word < this.words; word++) {
+					failing[word] |= this.bitmaps.getLong((long) i * this.words + word);
+				}
+			}
+		}
+		return failing;
+	}
+
+	private static int count(final long[] bitmap) {
+		int count = 0;
+		for (long word : bitmap) {
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * @param report
+	 *            a report
+	 * @return the path of the index written alongside the report
+	 */
+	public static Path pathFor(final Path report) {
+		return report.resolveSibling(report.getFileName() + EXTENSION);
+	}
+
+	static int wordsFor(final int jobs) {
+		return (jobs + Long.SIZE - 1) / Long.SIZE;
+	}
+
+	private static String readUtf(final ByteBuffer footer) {
+		byte[] utf = new byte[footer.getShort() & 0xFFFF];
+		footer.get(utf);
+		// rule ids and specifications are ASCII, the same in modified and
+		// standard UTF-8
+		return new String(utf, StandardCharsets.UTF_8);
+	}
+
+	private static ByteBuffer read(final FileChannel channel, final long position, final int length)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * An array of the index mapped in segments. Arrays start on a multiple of
+	 * 8 bytes and segments are a power of two, so longs and ints never span
+	 * two segments, only the bytes of a name can.
+	 */
+	private static final class Section {
+		private final ByteBuffer[] segments;
+		private final int shift;
+		private final int mask;
+
+		Section(final FileChannel channel, final long start, final long end, final long limit, final int shift)
+				throws IOException {
+			if (start < 0 || end < start || end > limit) {
+				throw new IOException("Index section " + start + '-' + end + " is out of bounds"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			this.shift = shift;
+			this.mask = (1 << shift) - 1;
+			long segmentBytes = 1L << shift;
+			this.segments = new ByteBuffer[(int) ((end - start + segmentBytes - 1) >>> shift)];
+			for (int i = 0; i < this.segments.length; i++) {
+				long from = start + ((long) i << shift);
+				long length = Math.min(segmentBytes, end - from);
+				this.segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+			}
+		}
+
+		byte get(final long position) {
+			return this.segments[(int) (position >>> this.shift)].get((int) (position & this.mask));
+		}
+
+		void get(final long position, final byte[] bytes) {
+			int copied = 0;
+			while (copied < bytes.length) {
+				long at = position + copied;
+				ByteBuffer segment = this.segments[(int) (at >>> this.shift)].duplicate();
+				segment.position((int) (at & this.mask));
+				int length = Math.min(bytes.length - copied, segment.remaining());
+				segment.get(bytes, copied, length);
+				copied += length;
+			}
+		}
+
+		int getInt(final long index) {
+			long position = index * Integer.BYTES;
+			return this.segments[(int) (position >>> this.shift)].getInt((int) (position & this.mask));
+		}
+
+		long getLong(final long index) {
+			long position = index * Long.BYTES;
+			return this.segments[(int) (position >>> this.shift)].getLong((int) (position & this.mask));
+		}
+	}
+}
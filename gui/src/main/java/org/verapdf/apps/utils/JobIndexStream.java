@@ -0,0 +1,281 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link JobIndex} of a machine readable report as the report is
+ * written, so that questions such as which files failed a rule can be
+ * answered without reading the report again:
+ *
+ * <pre>
+ * file     := MAGIC version:int32 names pad nameEnds pad offsets lengths pad statuses pad bitmaps footer
+ *             footerLength:int32 MAGIC
+ * footer   := jobs:int32 rules:int32 section-start:int64{6} (specification:utf rule-id:utf){rules}
+ * </pre>
+ *
+ * Names are the UTF-8 paths of the jobs one after the other, nameEnds holds
+ * where each ends. Offsets and lengths locate each job's element in the
+ * report, in bytes of the report as written to this stream. A status is a
+ * byte, the {@link JobIndex.Status} ordinal with {@link JobIndex#POLICY_FAILED}
+ * set if the job failed its policy. There is a bitmap of jobs for each rule
+ * that failed, a bit per job. A rule is keyed by its specification as well as
+ * its clause and test number, since the same clause and test number name
+ * different rules in different parts of PDF/A and in PDF/UA, and a batch can
+ * be validated against more than one. Arrays are big endian and start on a multiple
+ * of 8 bytes so they can be mapped.
+ * <p>
+ * While the report is written each job takes two longs, an int and a byte,
+ * plus a bit for each rule that failed, names go to the index straight away.
+ */
+public final class JobIndexStream extends ConvertingReportStream {
+	private static final byte[] JOB_START = "<job>".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	private static final byte[] JOB_END = "</job>".getBytes(StandardCharsets.US_ASCII); //$NON-NLS-1$
+	private static final String TRUE = "true"; //$NON-NLS-1$
+	private static final String FAILED = "failed"; //$NON-NLS-1$
+
+	private final DataOutputStream out;
+	// job elements found in the bytes written, read by the converter thread
+	private final Object offsetsLock = new Object();
+	private long[] jobOffsets = new long[64];
+	private int[] jobLengths = new int[64];
+	private int jobsFound = 0;
+	private long position = 0;
+	private int startMatched = 0;
+	private int endMatched = 0;
+	private long lastStart = -1;
+	// the jobs converted so far
+	private long[] nameEnds = new long[64];
+	private byte[] statuses = new byte[64];
+	// keyed by the rule's specification and id
+	private final Map<List<String>, BitSet> rules = new LinkedHashMap<>();
+	private int jobs = 0;
+	private long namesLength = 0;
+	private boolean isStarted = false;
+
+	/**
+	 * @param target
+	 *            receives the index
+	 */
+	public JobIndexStream(final OutputStream target) {
+		super(target, "veraPDF-index"); //$NON-NLS-1$
+		this.out = new DataOutputStream(new BufferedOutputStream(target));
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		scan((byte) b);
+		super.write(b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		for (int i = off; i < off + len; i++) {
+			scan(b[i]);
+		}
+		super.write(b, off, len);
+	}
+
+	/**
+	 * Finds the job elements, text and attribute values can't hold a
+	 * {@code <} so the tags can't be mistaken.
+	 */
+	private void scan(final byte b) {
+		this.startMatched = match(JOB_START, this.startMatched, b);
+		if (this.startMatched == JOB_START.length) {
+			this.lastStart = this.position + 1 - JOB_START.length;
+			this.startMatched = 0;
+		}
+		this.endMatched = match(JOB_END, this.endMatched, b);
+		if (this.endMatched == JOB_END.length) {
+			jobFound(this.lastStart, (int) Math.min(this.position + 1 - this.lastStart, Integer.MAX_VALUE));
+			this.endMatched = 0;
+		}
+		this.position++;
+	}
+
+	private static int match(final byte[] tag, final int matched, final byte b) {
+		if (b == tag[matched]) {
+			return matched + 1;
+		}
+		return (b == tag[0]) ? 1 : 0;
+	}
+
+	private void jobFound(final long offset, final int length) {
+		synchronized (this.offsetsLock) {
+			if (this.jobsFound == this.jobOffsets.length) {
+				this.jobOffsets = Arrays.copyOf(this.jobOffsets, this.jobsFound * 2);
+				this.jobLengths = Arrays.copyOf(this.jobLengths, this.jobsFound * 2);
+			}
+			this.jobOffsets[this.jobsFound] = offset;
+			this.jobLengths[this.jobsFound++] = length;
+		}
+	}
+
+	@Override
+	void record(final ReportElement record) throws IOException {
+		if (!"job".equals(record.getName())) { //$NON-NLS-1$
+			return;
+		}
+		start();
+		ReportElement item = record.getChild("item"); //$NON-NLS-1$
+		ReportElement name = (item == null) ? null : item.getChild("name"); //$NON-NLS-1$
+		byte[] path = (name == null) ? new byte[0] : name.getText().getBytes(StandardCharsets.UTF_8);
+		this.out.write(path);
+		this.namesLength += path.length;
+		if (this.jobs == this.statuses.length) {
+			this.nameEnds = Arrays.copyOf(this.nameEnds, this.jobs * 2);
+			this.statuses = Arrays.copyOf(this.statuses, this.jobs * 2);
+		}
+		this.nameEnds[this.jobs] = this.namesLength;
+		int status = statusOf(record).ordinal();
+		this.statuses[this.jobs] = (byte) (isPolicyFailed(record) ? status | JobIndex.POLICY_FAILED : status);
+		ReportElement validation = record.getChild("validationReport"); //$NON-NLS-1$
+		ReportElement details = (validation == null) ? null : validation.getChild("details"); //$NON-NLS-1$
+		if (details != null) {
+			for (ReportElement rule : details.getChildren()) {
+				if ("rule".equals(rule.getName()) && FAILED.equals(rule.getAttribute("status"))) { //$NON-NLS-1$ //$NON-NLS-2$
+					String ruleId = rule.getAttribute("clause") + '-' + rule.getAttribute("testNumber"); //$NON-NLS-1$ //$NON-NLS-2$
+					List<String> key = Arrays.asList(specificationOf(rule, validation), ruleId);
+					this.rules.computeIfAbsent(key, k -> new BitSet()).set(this.jobs);
+				}
+			}
+		}
+		this.jobs++;
+	}
+
+	@Override
+	void endReport() throws IOException {
+		start();
+		long[] offsets;
+		int[] lengths;
+		synchronized (this.offsetsLock) {
+			// every job parsed was found, the report may have ended part way
+			// through another
+			offsets = Arrays.copyOf(this.jobOffsets, this.jobs);
+			lengths = Arrays.copyOf(this.jobLengths, this.jobs);
+		}
+		long written = JobIndex.MAGIC.length + Integer.BYTES + this.namesLength;
+		long[] sections = new long[6];
+		sections[0] = JobIndex.MAGIC.length + Integer.BYTES;
+		written = pad(written);
+		sections[1] = written;
+		for (int i = 0; i < this.jobs; i++) {
+			this.out.writeLong(this.nameEnds[i]);
+		}
+		written += 8L * this.jobs;
+		sections[2] = written;
+		for (int i = 0; i < this.jobs; i++) {
+			this.out.writeLong(offsets[i]);
+		}
+		written += 8L * this.jobs;
+		sections[3] = written;
+		for (int i = 0; i < this.jobs; i++) {
+			this.out.writeInt(lengths[i]);
+		}
+		written = pad(written + 4L * this.jobs);
+		sections[4] = written;
+		this.out.write(this.statuses, 0, this.jobs);
+		written = pad(written + this.jobs);
+		sections[5] = written;
+		int words = JobIndex.wordsFor(this.jobs);
+		for (BitSet jobsFailing : this.rules.values()) {
+			long[] bitmap = jobsFailing.toLongArray();
+			for (int i = 0; i < words; i++) {
+				this.out.writeLong((i < bitmap.length) ? bitmap[i] : 0);
+			}
+		}
+		ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+		DataOutputStream footer = new DataOutputStream(footerBytes);
+		footer.writeInt(this.jobs);
+		footer.writeInt(this.rules.size());
+		for (long section : sections) {
+			footer.writeLong(section);
+		}
+		for (List<String> rule : this.rules.keySet()) {
+			footer.writeUTF(rule.get(0));
+			footer.writeUTF(rule.get(1));
+		}
+		footer.flush();
+		footerBytes.writeTo(this.out);
+		this.out.writeInt(footerBytes.size());
+		this.out.write(JobIndex.MAGIC);
+		this.out.flush();
+	}
+
+	private void start() throws IOException {
+		if (!this.isStarted) {
+			this.out.write(JobIndex.MAGIC);
+			this.out.writeInt(JobIndex.VERSION);
+			this.isStarted = true;
+		}
+	}
+
+	/**
+	 * Pads what's been written to a multiple of 8 bytes.
+	 */
+	private long pad(final long written) throws IOException {
+		long padded = (written + 7) & ~7L;
+		for (long i = written; i < padded; i++) {
+			this.out.writeByte(0);
+		}
+		return padded;
+	}
+
+	private static JobIndex.Status statusOf(final ReportElement job) {
+		ReportElement validation = job.getChild("validationReport"); //$NON-NLS-1$
+		if (validation != null) {
+			return TRUE.equals(validation.getAttribute("isCompliant")) ? JobIndex.Status.COMPLIANT //$NON-NLS-1$
+					: JobIndex.Status.NON_COMPLIANT;
+		}
+		return (job.getChild("taskException") != null) ? JobIndex.Status.FAILED : JobIndex.Status.NOT_VALIDATED; //$NON-NLS-1$
+	}
+
+	/**
+	 * @return the rule's specification, e.g. ISO 19005-1:2005, or the name of
+	 *         the profile it was validated against if the rule doesn't say
+	 */
+	private static String specificationOf(final ReportElement rule, final ReportElement validation) {
+		String specification = rule.getAttribute("specification"); //$NON-NLS-1$
+		if (specification == null || specification.isEmpty()) {
+			specification = validation.getAttribute("profileName"); //$NON-NLS-1$
+		}
+		return (specification == null) ? "" : specification; //$NON-NLS-1$
+	}
+
+	private static boolean isPolicyFailed(final ReportElement job) {
+		ReportElement policy = job.getChild("policyReport"); //$NON-NLS-1$
+		if (policy == null) {
+			return false;
+		}
+		String failedChecks = policy.getAttribute("failedChecks"); //$NON-NLS-1$
+		try {
+			return failedChecks != null && Long.parseLong(failedChecks.trim()) > 0;
+		} catch (NumberFormatException excep) {
+			return false;
+		}
+	}
+}
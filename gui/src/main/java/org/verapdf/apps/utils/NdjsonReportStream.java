@@ -0,0 +1,172 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Converts a machine readable report, as it's written, to newline delimited
+ * JSON. Each job is written as a line as soon as its closing tag arrives,
+ * followed by a batch summary line once the report ends:
+ *
+ * <pre>
+ * {"buildInformation":{...}}
+ * {"job":{"item":{"size":1024,"name":"/path/file.pdf"},"validationReport":{...}}}
+ * {"batchSummary":{"totalJobs":1,...}}
+ * </pre>
+ *
+ * XML attributes and child elements become object fields, attribute values
+ * that are booleans or integers become JSON booleans and numbers. Rules,
+ * checks, fixes, errors and task exceptions are always arrays, other elements
+ * become arrays when repeated.
+ * <p>
+ * Closing the stream waits for the last line to be written and closes the
+ * target stream.
+ */
+public final class NdjsonReportStream extends ConvertingReportStream {
+	private static final String VALUE = "value"; //$NON-NLS-1$
+	private static final Set<String> ARRAYS = Collections.unmodifiableSet(new HashSet<>(
+			Arrays.asList("rule", "check", "fix", "error", "taskException"))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+	private static final Pattern INTEGER = Pattern.compile("-?(0|[1-9][0-9]{0,17})"); //$NON-NLS-1$
+
+	private final Writer json;
+
+	/**
+	 * @param target
+	 *            receives the JSON lines
+	 */
+	public NdjsonReportStream(final OutputStream target) {
+		super(target, "veraPDF-json"); //$NON-NLS-1$
+		this.json = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	void record(final ReportElement record) throws IOException {
+		this.json.write('{');
+		writeString(this.json, record.getName());
+		this.json.write(':');
+		writeValue(this.json, record);
+		this.json.write('}');
+		this.json.write('\n');
+		this.json.flush();
+	}
+
+	@Override
+	void endReport() throws IOException {
+		this.json.flush();
+	}
+
+	private static void writeValue(final Writer json, final ReportElement element) throws IOException {
+		if (element.getAttributes().isEmpty() && element.getChildren().isEmpty()) {
+			writeString(json, element.getText());
+			return;
+		}
+		json.write('{');
+		boolean isFirst = true;
+		for (Map.Entry<String, String> attribute : element.getAttributes().entrySet()) {
+			isFirst = writeName(json, attribute.getKey(), isFirst);
+			writeAttribute(json, attribute.getValue());
+		}
+		Map<String, List<ReportElement>> children = new LinkedHashMap<>();
+		for (ReportElement child : element.getChildren()) {
+			children.computeIfAbsent(child.getName(), name -> new ArrayList<>()).add(child);
+		}
+		for (Map.Entry<String, List<ReportElement>> named : children.entrySet()) {
+			isFirst = writeName(json, named.getKey(), isFirst);
+			List<ReportElement> values = named.getValue();
+			if (values.size() == 1 && !ARRAYS.contains(named.getKey())) {
+				writeValue(json, values.get(0));
+				continue;
+			}
+			json.write('[');
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) {
+					json.write(',');
+				}
+				writeValue(json, values.get(i));
+			}
+			json.write(']');
+		}
+		String text = element.getText().trim();
+		if (!text.isEmpty()) {
+			writeName(json, VALUE, isFirst);
+			writeString(json, text);
+		}
+		json.write('}');
+	}
+
+	private static boolean writeName(final Writer json, final String name, final boolean isFirst)
+			throws IOException {
+		if (!isFirst) {
+			json.write(',');
+		}
+		writeString(json, name);
+		json.write(':');
+		return false;
+	}
+
+	private static void writeAttribute(final Writer json, final String value) throws IOException {
+		if ("true".equals(value) || "false".equals(value) || INTEGER.matcher(value).matches()) { //$NON-NLS-1$ //$NON-NLS-2$
+			json.write(value);
+		} else {
+			writeString(json, value);
+		}
+	}
+
+	private static void writeString(final Writer json, final String value) throws IOException {
+		json.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				json.write("\\\""); //$NON-NLS-1$
+				break;
+			case '\\':
+				json.write("\\\\"); //$NON-NLS-1$
+				break;
+			case '\n':
+				json.write("\\n"); //$NON-NLS-1$
+				break;
+			case '\r':
+				json.write("\\r"); //$NON-NLS-1$
+				break;
+			case '\t':
+				json.write("\\t"); //$NON-NLS-1$
+				break;
+			default:
+				if (c < 0x20) {
+					json.write(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+				} else {
+					json.write(c);
+				}
+			}
+		}
+		json.write('"');
+	}
+}
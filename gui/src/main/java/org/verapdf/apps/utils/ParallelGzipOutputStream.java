@@ -0,0 +1,197 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip stream that compresses fixed size blocks in parallel, so compressing
+ * a large report doesn't hold up the thread writing it. Each block is written
+ * as a complete gzip member, the concatenated members are a valid gzip file
+ * that gzip and {@link java.util.zip.GZIPInputStream} read as one stream.
+ * Blocks are written out in order and at most two per thread are held in
+ * memory, a writer that gets ahead of the compressors waits for the oldest
+ * block.
+ * <p>
+ * {@link #flush()} writes out the blocks that are already compressed but
+ * doesn't cut the current block short, small members would cost compression.
+ * The stream isn't thread safe.
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+	/**
+	 * The default block size, 1MB.
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+	private static final int BLOCKS_PER_THREAD = 2;
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+	private final OutputStream out;
+	private final int blockSize;
+	private final int maxPending;
+	private final ExecutorService compressors;
+	private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+	private byte[] block;
+	private int count = 0;
+	private boolean hasMembers = false;
+	private boolean isClosed = false;
+
+	/**
+	 * Compresses with one thread per available processor and the default
+	 * block size.
+	 *
+	 * @param out
+	 *            receives the compressed stream, closed with this stream
+	 */
+	public ParallelGzipOutputStream(final OutputStream out) {
+		this(out, DEFAULT_BLOCK_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param out
+	 *            receives the compressed stream, closed with this stream
+	 * @param blockSize
+	 *            the number of uncompressed bytes in a block
+	 * @param threads
+	 *            the number of blocks compressed at once
+	 */
+	public ParallelGzipOutputStream(final OutputStream out, final int blockSize, final int threads) {
+		if (blockSize < 1 || threads < 1) {
+			throw new IllegalArgumentException("Block size and threads must be at least 1"); //$NON-NLS-1$
+		}
+		this.out = out;
+		this.blockSize = blockSize;
+		this.maxPending = threads * BLOCKS_PER_THREAD;
+		this.block = new byte[blockSize];
+		this.compressors = IoExecutors.newCpuExecutor("veraPDF-compress", threads); //$NON-NLS-1$
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureOpen();
+		this.block[this.count++] = (byte) b;
+		if (this.count == this.blockSize) {
+			submitBlock();
+		}
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		ensureOpen();
+		if (off < 0 || len < 0 || off + len > b.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		int offset = off;
+		int remaining = len;
+		while (remaining > 0) {
+			int chunk = Math.min(remaining, this.blockSize - this.count);
+			System.arraycopy(b, offset, this.block, this.count, chunk);
+			this.count += chunk;
+			offset += chunk;
+			remaining -= chunk;
+			if (this.count == this.blockSize) {
+				submitBlock();
+			}
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		writeCompleted();
+		this.out.flush();
+	}
+
+	/**
+	 * Compresses the last block, writes every block and closes the underlying
+	 * stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.isClosed) {
+			return;
+		}
+		this.isClosed = true;
+		try {
+			submitBlock();
+			while (!this.pending.isEmpty()) {
+				writeNext();
+			}
+			if (!this.hasMembers) {
+				// an empty gzip file still needs a member
+				this.out.write(compress(this.block, 0));
+			}
+		} finally {
+			this.compressors.shutdownNow();
+			this.out.close();
+		}
+	}
+
+	private void submitBlock() throws IOException {
+		if (this.count == 0) {
+			return;
+		}
+		final byte[] data = this.block;
+		final int length = this.count;
+		this.pending.add(this.compressors.submit(() -> compress(data, length)));
+		this.block = new byte[this.blockSize];
+		this.count = 0;
+		this.hasMembers = true;
+		while (this.pending.size() >= this.maxPending) {
+			writeNext();
+		}
+		writeCompleted();
+	}
+
+	private void writeCompleted() throws IOException {
+		while (!this.pending.isEmpty() && this.pending.peek().isDone()) {
+			writeNext();
+		}
+	}
+
+	private void writeNext() throws IOException {
+		Future<byte[]> next = this.pending.poll();
+		try {
+			this.out.write(next.get());
+		} catch (ExecutionException excep) {
+			throw new IOException("Can't compress report block", excep.getCause()); //$NON-NLS-1$
+		} catch (InterruptedException excep) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing report"); //$NON-NLS-1$
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (this.isClosed) {
+			throw new IOException("Stream closed"); //$NON-NLS-1$
+		}
+	}
+
+	private static byte[] compress(final byte[] data, final int length) throws IOException {
+		ByteArrayOutputStream member = new ByteArrayOutputStream(length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(member, GZIP_BUFFER_SIZE)) {
+			gzip.write(data, 0, length);
+		}
+		return member.toByteArray();
+	}
+}
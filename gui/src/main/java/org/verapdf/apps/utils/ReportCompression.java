@@ -0,0 +1,159 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compression applied to report output. Gzip is compressed in parallel blocks
+ * by {@link ParallelGzipOutputStream}. Zstandard needs zstd-jni on the class
+ * path, it's looked up reflectively and uses zstd's own worker threads.
+ */
+public enum ReportCompression {
+	NONE("none", ""), //$NON-NLS-1$ //$NON-NLS-2$
+	GZIP("gzip", ".gz"), //$NON-NLS-1$ //$NON-NLS-2$
+	ZSTD("zstd", ".zst"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private static final Logger LOGGER = Logger.getLogger(ReportCompression.class.getCanonicalName());
+	private static final String ZSTD_STREAM = "com.github.luben.zstd.ZstdOutputStream"; //$NON-NLS-1$
+
+	private final String option;
+	private final String extension;
+
+	ReportCompression(final String option, final String extension) {
+		this.option = option;
+		this.extension = extension;
+	}
+
+	public String getOption() {
+		return this.option;
+	}
+
+	/**
+	 * @return the file name extension for compressed reports, empty for
+	 *         {@link #NONE}
+	 */
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * @return true if the compression can be used in this JVM
+	 */
+	public boolean isAvailable() {
+		return this != ZSTD || ZstdHolder.CONSTRUCTOR != null;
+	}
+
+	/**
+	 * Wraps a report stream in a compressing stream. Closing the compressing
+	 * stream finishes the compressed data and flushes the report stream but
+	 * doesn't close it, so standard output can be compressed.
+	 *
+	 * @param os
+	 *            the report stream
+	 * @return a stream that compresses onto os, os itself for {@link #NONE}
+	 * @throws IOException
+	 *             if the compressor can't be created
+	 */
+	public OutputStream compress(final OutputStream os) throws IOException {
+		switch (this) {
+		case GZIP:
+			return new ParallelGzipOutputStream(new NonClosingOutputStream(os));
+		case ZSTD:
+			return zstd(new NonClosingOutputStream(os));
+		default:
+			return os;
+		}
+	}
+
+	/**
+	 * @param option
+	 *            a compression option value, case insensitive
+	 * @return the matching compression
+	 * @throws NoSuchElementException
+	 *             if there's no compression with that option value
+	 */
+	public static ReportCompression fromOption(final String option) {
+		for (ReportCompression compression : values()) {
+			if (compression.option.equals(option.toLowerCase(Locale.ROOT))) {
+				return compression;
+			}
+		}
+		throw new NoSuchElementException("No report compression " + option); //$NON-NLS-1$
+	}
+
+	private static OutputStream zstd(final OutputStream os) throws IOException {
+		if (ZstdHolder.CONSTRUCTOR == null) {
+			throw new IOException("zstd compression needs zstd-jni on the class path"); //$NON-NLS-1$
+		}
+		try {
+			OutputStream zstd = (OutputStream) ZstdHolder.CONSTRUCTOR.newInstance(os);
+			if (ZstdHolder.SET_WORKERS != null) {
+				ZstdHolder.SET_WORKERS.invoke(zstd, Integer.valueOf(Runtime.getRuntime().availableProcessors()));
+			}
+			return zstd;
+		} catch (InstantiationException | IllegalAccessException | InvocationTargetException excep) {
+			throw new IOException("Can't create zstd stream", excep); //$NON-NLS-1$
+		}
+	}
+
+	private static final class ZstdHolder {
+		static final Constructor<?> CONSTRUCTOR;
+		static final Method SET_WORKERS;
+
+		static {
+			Constructor<?> constructor = null;
+			Method setWorkers = null;
+			try {
+				Class<?> zstd = Class.forName(ZSTD_STREAM);
+				constructor = zstd.getConstructor(OutputStream.class);
+				setWorkers = zstd.getMethod("setWorkers", int.class); //$NON-NLS-1$
+			} catch (ClassNotFoundException | NoSuchMethodException excep) {
+				LOGGER.log(Level.FINE, "zstd compression isn't available", excep); //$NON-NLS-1$
+			}
+			CONSTRUCTOR = constructor;
+			SET_WORKERS = setWorkers;
+		}
+	}
+
+	/**
+	 * Passes writes straight through and flushes on close without closing the
+	 * stream it wraps.
+	 */
+	private static final class NonClosingOutputStream extends FilterOutputStream {
+		NonClosingOutputStream(final OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException {
+			this.out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.out.flush();
+		}
+	}
+}
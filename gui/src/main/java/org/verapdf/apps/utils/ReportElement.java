@@ -0,0 +1,97 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * An element of a machine readable report, a job, the build information or
+ * the batch summary, read in full along with its attributes and descendants.
+ */
+final class ReportElement {
+	private final String name;
+	private final Map<String, String> attributes = new LinkedHashMap<>();
+	private final List<ReportElement> children = new ArrayList<>();
+	private final StringBuilder text = new StringBuilder();
+
+	private ReportElement(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Reads the element the reader is positioned at, leaves the reader at the
+	 * element's end tag.
+	 */
+	static ReportElement read(final XMLStreamReader reader) throws XMLStreamException {
+		ReportElement element = new ReportElement(reader.getLocalName());
+		for (int i = 0; i < reader.getAttributeCount(); i++) {
+			element.attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+		}
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				element.children.add(read(reader));
+			} else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA) {
+				element.text.append(reader.getText());
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				break;
+			}
+		}
+		return element;
+	}
+
+	String getName() {
+		return this.name;
+	}
+
+	Map<String, String> getAttributes() {
+		return Collections.unmodifiableMap(this.attributes);
+	}
+
+	/**
+	 * @return the attribute's value, null if the element doesn't have it
+	 */
+	String getAttribute(final String attributeName) {
+		return this.attributes.get(attributeName);
+	}
+
+	List<ReportElement> getChildren() {
+		return Collections.unmodifiableList(this.children);
+	}
+
+	/**
+	 * @return the first child with the name, null if there isn't one
+	 */
+	ReportElement getChild(final String childName) {
+		for (ReportElement child : this.children) {
+			if (child.name.equals(childName)) {
+				return child;
+			}
+		}
+		return null;
+	}
+
+	String getText() {
+		return this.text.toString();
+	}
+}
@@ -0,0 +1,63 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.OutputStream;
+
+/**
+ * Encodings the machine readable report can be converted to as it's written.
+ */
+public enum ReportEncoding {
+	NONE(""), //$NON-NLS-1$
+	NDJSON(".json"), //$NON-NLS-1$
+	COLUMNAR(".vpc"), //$NON-NLS-1$
+	HTML(".html"); //$NON-NLS-1$
+
+	private final String extension;
+
+	private ReportEncoding(final String extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * @return the file extension for reports in this encoding, empty for
+	 *         {@link #NONE}
+	 */
+	public String getExtension() {
+		return this.extension;
+	}
+
+	/**
+	 * @param os
+	 *            receives the encoded report, closed when the returned stream
+	 *            is closed
+	 * @param wikiPath
+	 *            the base of links to rule descriptions in HTML reports
+	 * @return a stream that the machine readable report is written to, os
+	 *         itself for {@link #NONE}
+	 */
+	public OutputStream encode(final OutputStream os, final String wikiPath) {
+		switch (this) {
+		case NDJSON:
+			return new NdjsonReportStream(os);
+		case COLUMNAR:
+			return new ColumnarReportStream(os);
+		case HTML:
+			return new HtmlReportStream(os, wikiPath);
+		default:
+			return os;
+		}
+	}
+}
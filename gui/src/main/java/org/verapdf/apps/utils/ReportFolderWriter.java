@@ -0,0 +1,203 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes per file reports to disk. Each report is streamed to a temporary
+ * file next to its target, so a report is never held in memory whatever its
+ * size, and committed on a small pool of writer threads that finish the file
+ * and rename it into place, so a reader never sees a partial report. At most
+ * queueCapacity reports wait to be committed, when the queue is full the
+ * caller commits the report itself, which holds processing back to the pace
+ * of the disk.
+ * <p>
+ * A report directory is created the first time a report is written to it and
+ * remembered, later reports to the same directory don't touch the file system
+ * to check it.
+ */
+public final class ReportFolderWriter implements Closeable {
+	private static final Logger LOGGER = Logger.getLogger(ReportFolderWriter.class.getCanonicalName());
+	private static final String TEMP_SUFFIX = ".part"; //$NON-NLS-1$
+
+	private final ThreadPoolExecutor writers;
+	private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+	private final Consumer<Path> onCommit;
+	private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+	/**
+	 * @param threads
+	 *            the number of writer threads
+	 * @param queueCapacity
+	 *            the number of reports that may wait to be written
+	 * @param onCommit
+	 *            called with the path of each report once it's in place, on
+	 *            the thread that wrote it
+	 */
+	public ReportFolderWriter(final int threads, final int queueCapacity, final Consumer<Path> onCommit) {
+		this.writers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+				IoExecutors.namedDaemonThreads("veraPDF-report-writer"), //$NON-NLS-1$
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		this.onCommit = onCommit;
+	}
+
+	/**
+	 * Starts a report, the caller writes it to the report's stream and then
+	 * commits it.
+	 *
+	 * @param target
+	 *            the report's path, any existing file is replaced
+	 * @return the report being written
+	 * @throws IOException
+	 *             if the report's temporary file can't be created, or an
+	 *             earlier report couldn't be committed
+	 */
+	public Report open(final Path target) throws IOException {
+		checkFailure();
+		Path directory = target.toAbsolutePath().getParent();
+		if (!this.directories.contains(directory)) {
+			Files.createDirectories(directory);
+			this.directories.add(directory);
+		}
+		Path temp = Files.createTempFile(directory, target.getFileName().toString(), TEMP_SUFFIX);
+		try {
+			return new Report(target, temp);
+		} catch (IOException excep) {
+			Files.deleteIfExists(temp);
+			throw excep;
+		}
+	}
+
+	/**
+	 * Waits for every queued report to be written.
+	 *
+	 * @throws IOException
+	 *             if any report couldn't be written
+	 */
+	@Override
+	public void close() throws IOException {
+		this.writers.shutdown();
+		try {
+			while (!this.writers.awaitTermination(1, TimeUnit.MINUTES)) {
+				LOGGER.log(Level.INFO, "Waiting for " + this.writers.getQueue().size() + " report(s) to be written"); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		} catch (InterruptedException excep) {
+			this.writers.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing reports"); //$NON-NLS-1$
+		}
+		checkFailure();
+	}
+
+	private void checkFailure() throws IOException {
+		IOException excep = this.failure.get();
+		if (excep != null) {
+			throw new IOException("Can't write reports", excep); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * A report being streamed to its temporary file. Closing a report that
+	 * wasn't committed discards it.
+	 */
+	public final class Report implements Closeable {
+		private final Path target;
+		private final Path temp;
+		private final OutputStream stream;
+		private boolean isCommitted = false;
+
+		Report(final Path target, final Path temp) throws IOException {
+			this.target = target;
+			this.temp = temp;
+			this.stream = new BufferedOutputStream(Files.newOutputStream(temp));
+		}
+
+		/**
+		 * @return receives the report's content
+		 */
+		public OutputStream getStream() {
+			return this.stream;
+		}
+
+		/**
+		 * Queues the finished report to be renamed into place.
+		 *
+		 * @throws IOException
+		 *             if an earlier report couldn't be committed, reports
+		 *             committed after a failure are dropped
+		 */
+		public void commit() throws IOException {
+			checkFailure();
+			this.isCommitted = true;
+			ReportFolderWriter.this.writers.execute(() -> {
+				try {
+					if (ReportFolderWriter.this.failure.get() == null) {
+						finish();
+						ReportFolderWriter.this.onCommit.accept(this.target);
+					}
+				} catch (IOException excep) {
+					LOGGER.log(Level.SEVERE, "Can't write report " + this.target, excep); //$NON-NLS-1$
+					ReportFolderWriter.this.failure.compareAndSet(null, excep);
+				} finally {
+					discard();
+				}
+			});
+		}
+
+		private void finish() throws IOException {
+			this.stream.close();
+			try {
+				Files.move(this.temp, this.target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException excep) {
+				Files.move(this.temp, this.target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		private void discard() {
+			try {
+				this.stream.close();
+				Files.deleteIfExists(this.temp);
+			} catch (IOException excep) {
+				LOGGER.log(Level.FINE, "Can't delete temporary report " + this.temp, excep); //$NON-NLS-1$
+			}
+		}
+
+		@Override
+		public void close() {
+			if (!this.isCommitted) {
+				discard();
+			}
+		}
+	}
+}
@@ -0,0 +1,87 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Predicate;
+
+/**
+ * Selects one of a fixed number of disjoint shards of a batch by hashing each
+ * file's path, so separate nodes given the same paths and shard count each
+ * process their own part of the batch without talking to one another. The
+ * path is hashed as it was discovered, separators normalised, so every node
+ * must be given the same input paths for the shards to line up.
+ */
+public final class ShardSelector implements Predicate<File> {
+	/**
+	 * Selects every file.
+	 */
+	public static final ShardSelector ALL = new ShardSelector(0, 1);
+
+	private static final int FNV_OFFSET_BASIS = 0x811c9dc5;
+	private static final int FNV_PRIME = 0x01000193;
+
+	private final int index;
+	private final int count;
+
+	/**
+	 * @param index
+	 *            the shard to select, from 0 to count - 1
+	 * @param count
+	 *            the number of shards, at least 1
+	 */
+	public ShardSelector(final int index, final int count) {
+		if (count < 1 || index < 0 || index >= count) {
+			throw new IllegalArgumentException("Shard index must be from 0 to " + (count - 1) + ", was " + index); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.index = index;
+		this.count = count;
+	}
+
+	public int getIndex() {
+		return this.index;
+	}
+
+	public int getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return true if the file is in the selected shard
+	 */
+	@Override
+	public boolean test(final File file) {
+		return this.count == 1 || shardOf(file.getPath(), this.count) == this.index;
+	}
+
+	/**
+	 * @param path
+	 *            a file path
+	 * @param count
+	 *            the number of shards
+	 * @return the shard the path belongs to
+	 */
+	static int shardOf(final String path, final int count) {
+		// FNV-1a, unlike String.hashCode it spreads paths that differ only in
+		// their last characters
+		int hash = FNV_OFFSET_BASIS;
+		for (byte b : path.replace('\\', '/').getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return Math.floorMod(hash, count);
+	}
+}
@@ -0,0 +1,65 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a report to two streams at once, e.g. to its file and to a stream
+ * converting it as it's written.
+ */
+public final class TeeOutputStream extends OutputStream {
+	private final OutputStream first;
+	private final OutputStream second;
+
+	/**
+	 * @param first
+	 *            written to first, closed when this stream is closed
+	 * @param second
+	 *            written to second, closed when this stream is closed
+	 */
+	public TeeOutputStream(final OutputStream first, final OutputStream second) {
+		this.first = first;
+		this.second = second;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		this.first.write(b);
+		this.second.write(b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		this.first.write(b, off, len);
+		this.second.write(b, off, len);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		this.first.flush();
+		this.second.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.first.close();
+		} finally {
+			this.second.close();
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enforces a per job wall clock and CPU time budget on the threads running
+ * the jobs. A thread registers for the duration of a job with
+ * {@link #watch()}, when the job overruns either budget the ticket is marked
+ * expired and the thread is interrupted. Cancellation is cooperative, the job
+ * should check {@link Ticket#isExpired()} when it finishes and discard its
+ * result.
+ */
+public final class Watchdog implements Closeable {
+	private static final long CHECK_INTERVAL_MILLIS = 250L;
+
+	private final long wallNanos;
+	private final long cpuNanos;
+	private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+	private final Set<Ticket> active = ConcurrentHashMap.newKeySet();
+	private final ScheduledExecutorService checker;
+
+	/**
+	 * @param wallSeconds
+	 *            the wall clock budget for a job, 0 for no limit
+	 * @param cpuSeconds
+	 *            the CPU time budget for a job, 0 for no limit
+	 */
+	public Watchdog(final int wallSeconds, final int cpuSeconds) {
+		this.wallNanos = TimeUnit.SECONDS.toNanos(Math.max(0, wallSeconds));
+		this.cpuNanos = (this.threads.isThreadCpuTimeSupported()) ? TimeUnit.SECONDS.toNanos(Math.max(0, cpuSeconds))
+				: 0L;
+		if (isEnabled()) {
+			this.checker = Executors.newSingleThreadScheduledExecutor(IoExecutors.namedDaemonThreads("veraPDF-watchdog")); //$NON-NLS-1$
+			this.checker.scheduleWithFixedDelay(this::check, CHECK_INTERVAL_MILLIS, CHECK_INTERVAL_MILLIS,
+					TimeUnit.MILLISECONDS);
+		} else {
+			this.checker = null;
+		}
+	}
+
+	/**
+	 * @return true if either budget is set
+	 */
+	public boolean isEnabled() {
+		return this.wallNanos > 0 || this.cpuNanos > 0;
+	}
+
+	/**
+	 * Starts timing a job run by the current thread.
+	 *
+	 * @return the ticket to close when the job ends
+	 */
+	public Ticket watch() {
+		Ticket ticket = new Ticket(Thread.currentThread());
+		if (isEnabled()) {
+			this.active.add(ticket);
+		}
+		return ticket;
+	}
+
+	@Override
+	public void close() {
+		if (this.checker != null) {
+			this.checker.shutdownNow();
+		}
+		this.active.clear();
+	}
+
+	private long cpuTime(final Thread thread) {
+		return (this.cpuNanos > 0) ? this.threads.getThreadCpuTime(thread.getId()) : -1L;
+	}
+
+	private void check() {
+		long now = System.nanoTime();
+		for (Ticket ticket : this.active) {
+			boolean isWallExceeded = this.wallNanos > 0 && now - ticket.startWall > this.wallNanos;
+			long cpu = cpuTime(ticket.thread);
+			boolean isCpuExceeded = this.cpuNanos > 0 && cpu >= 0 && ticket.startCpu >= 0
+					&& cpu - ticket.startCpu > this.cpuNanos;
+			if (isWallExceeded || isCpuExceeded) {
+				ticket.expire();
+			}
+		}
+	}
+
+	/**
+	 * Tracks a single job, closing the ticket stops the watchdog timing it.
+	 */
+	public final class Ticket implements AutoCloseable {
+		final Thread thread;
+		final long startWall;
+		final long startCpu;
+		private volatile boolean isExpired = false;
+
+		Ticket(final Thread thread) {
+			this.thread = thread;
+			this.startWall = System.nanoTime();
+			this.startCpu = cpuTime(thread);
+		}
+
+		/**
+		 * @return true if the job overran its budget
+		 */
+		public boolean isExpired() {
+			return this.isExpired;
+		}
+
+		/**
+		 * Does nothing if the job closed its ticket after the check picked it,
+		 * an interrupt then would land on the thread's next job.
+		 */
+		synchronized void expire() {
+			if (!Watchdog.this.active.remove(this)) {
+				return;
+			}
+			this.isExpired = true;
+			this.thread.interrupt();
+		}
+
+		/**
+		 * Stops timing the job, must be called by the thread running the job.
+		 * Clears any interrupt raised by the watchdog so it doesn't leak into
+		 * the thread's next job.
+		 */
+		@Override
+		public synchronized void close() {
+			Watchdog.this.active.remove(this);
+			if (this.isExpired) {
+				Thread.interrupted();
+			}
+		}
+	}
+}
@@ -6,6 +6,9 @@ package org.verapdf.cli;
 import java.util.Arrays;
 import java.util.List;
 
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.processor.ProcessorResult;
+
 /**
  * @author  <a href="mailto:carl@openpreservation.org">Carl Wilson</a>
  *          <a href="https://github.com/carlwilson">carlwilson AT github</a>
@@ -30,6 +33,10 @@ public final class CliConstants {
 	public static final String EXCEP_REPORT_OVERWRITE = "Cannot delete existing report file : %s.";
 	public static final String EXCEP_VERA_BATCH = "VeraPDFException raised while processing batch";
 
+	public static final String STAGE_PROCESS = "process"; //$NON-NLS-1$
+	public static final String STAGE_POLICY = "policy"; //$NON-NLS-1$
+	public static final String STAGE_FILE = "file"; //$NON-NLS-1$
+
 	public static final String MESS_PDF_ENCRYPTED = "%s is an encrypted PDF document.";
 	public static final String MESS_PDF_NOT_VALID = "%s is not a valid PDF document.";
 	public static final String MESS_PROC_STDIN_1 = "veraPDF is processing STDIN and is expecting an EOF marker.";
@@ -75,7 +82,9 @@ public final class CliConstants {
 		/** Failed to start multiprocess */
 		FAILED_MULTIPROCESS_START(11, "Failed to start multiprocess"),
 		/** Interrupted exception */
-		INTERRUPTED_EXCEPTION(12, "Interrupted exception while processing");
+		INTERRUPTED_EXCEPTION(12, "Interrupted exception while processing"),
+		/** Processing a file exceeded the time budget */
+		TIMEOUT(13, "Processing timed out on one or more files.");
 
 		/** The numeric exit code for return to OS. */
 		public final int value;
@@ -95,6 +104,49 @@ public final class CliConstants {
 			}
 			return null;
 		}
+
+		/**
+		 * @param result
+		 *            the result of processing a single file
+		 * @return the exit code for the file, {@link #VALID} if it wasn't
+		 *         validated
+		 */
+		public static ExitCodes fromResult(final ProcessorResult result) {
+			if (!result.isPdf()) {
+				return FAILED_PARSING;
+			}
+			if (result.isEncryptedPdf()) {
+				return ENCRYPTED_FILES;
+			}
+			if (result.getValidationResult() == null) {
+				return VALID;
+			}
+			return result.getValidationResult().isCompliant() ? VALID : INVALID;
+		}
+
+		/**
+		 * @param totals
+		 *            the summary counts of a batch
+		 * @return the exit code for a batch with those counts
+		 */
+		public static ExitCodes fromTotals(final BatchTotals totals) {
+			if (totals.getVeraExceptions() > 0) {
+				return VERAPDF_EXCEPTION;
+			}
+			if (totals.getFailedParsingJobs() > 0) {
+				return FAILED_PARSING;
+			}
+			if (totals.getFailedEncryptedJobs() > 0) {
+				return ENCRYPTED_FILES;
+			}
+			if (totals.getOutOfMemory() > 0) {
+				return OOM;
+			}
+			if (totals.getNonCompliantPdfaCount() > 0) {
+				return INVALID;
+			}
+			return VALID;
+		}
 	}
 
 	public static final String NAME_STDIN = "STDIN";
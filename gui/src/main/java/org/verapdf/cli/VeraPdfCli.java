@@ -18,13 +18,20 @@
 package org.verapdf.cli;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -32,15 +39,26 @@ import org.verapdf.ReleaseDetails;
 import org.verapdf.apps.Applications;
 import org.verapdf.apps.ConfigManager;
 import org.verapdf.apps.SoftwareUpdater;
+import org.verapdf.apps.VeraAppConfig;
+import org.verapdf.apps.utils.AdmissionController;
+import org.verapdf.apps.utils.BatchCancellation;
+import org.verapdf.apps.utils.Watchdog;
 import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.cli.cluster.ShardedBatch;
 import org.verapdf.cli.commands.VeraCliArgParser;
+import org.verapdf.cli.merge.ReportMerger;
+import org.verapdf.cli.metrics.MetricsExporter;
+import org.verapdf.cli.metrics.ProcessingMetrics;
 import org.verapdf.cli.multithread.MultiThreadProcessor;
+import org.verapdf.cli.server.JobStore;
+import org.verapdf.cli.server.ValidationServer;
 import org.verapdf.core.VeraPDFException;
 import org.verapdf.pdfa.flavours.PDFAFlavour;
 import org.verapdf.pdfa.validation.profiles.ProfileDirectory;
 import org.verapdf.pdfa.validation.profiles.Profiles;
 import org.verapdf.pdfa.validation.profiles.ValidationProfile;
 import org.verapdf.processor.FeaturesPluginsLoader;
+import org.verapdf.processor.ProcessorConfig;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.ParameterException;
@@ -52,6 +70,7 @@ public final class VeraPdfCli {
 	private static final Logger logger = Logger.getLogger(VeraCliArgParser.class.getCanonicalName());
 	private static final ConfigManager configManager = Applications.createAppConfigManager();
 	private static final int MEGABYTE = (1024 * 1024);
+	private static final long SHUTDOWN_GRACE_MILLIS = 10000L;
 	private static final String FLAVOURS_HEADING = CliConstants.APP_NAME + " supported PDF/A profiles:"; //$NON-NLS-1$
 	private static final ProfileDirectory PROFILES = Profiles.getVeraProfileDirectory();
 
@@ -72,6 +91,9 @@ public final class VeraPdfCli {
 		FeaturesPluginsLoader.setBaseFolderPath(System.getProperty(Applications.APP_HOME_PROPERTY));
 		ReleaseDetails.addDetailsFromResource(
 				ReleaseDetails.APPLICATION_PROPERTIES_ROOT + "app." + ReleaseDetails.PROPERTIES_EXT); //$NON-NLS-1$
+		if (args.length > 0 && ReportMerger.COMMAND.equals(args[0])) {
+			System.exit(ReportMerger.run(Arrays.copyOfRange(args, 1, args.length)).value);
+		}
 		VeraCliArgParser cliArgParser = new VeraCliArgParser();
 		JCommander jCommander = new JCommander(cliArgParser);
 		jCommander.setProgramName(CliConstants.APP_NAME);
@@ -85,16 +107,46 @@ public final class VeraPdfCli {
 		if (cliArgParser.isHelp()) {
 			displayHelpAndExit(cliArgParser, jCommander, ExitCodes.VALID);
 		}
+		if (cliArgParser.isResume() && cliArgParser.getCheckpointDir() == null) {
+			System.err.println("--resume requires a --checkpoint directory"); //$NON-NLS-1$
+			displayHelpAndExit(cliArgParser, jCommander, ExitCodes.BAD_PARAMS);
+		}
+		if (!cliArgParser.isValidShard()) {
+			System.err.println("--shard-index must be from 0 to --shard-count - 1"); //$NON-NLS-1$
+			displayHelpAndExit(cliArgParser, jCommander, ExitCodes.BAD_PARAMS);
+		}
+		if (!cliArgParser.isValidReportEncoding()) {
+			System.err.println("--ndjson and --columnar can't be used together"); //$NON-NLS-1$
+			displayHelpAndExit(cliArgParser, jCommander, ExitCodes.BAD_PARAMS);
+		}
+		if (!cliArgParser.isValidResultIndex()) {
+			System.err.println("--resultindex needs a machine readable report written to standard output by a single process"); //$NON-NLS-1$
+			displayHelpAndExit(cliArgParser, jCommander, ExitCodes.BAD_PARAMS);
+		}
+		if (!cliArgParser.isValidReportFolder()) {
+			System.err.println("--reportfolder is written by a single process, it can't be used with --processes, --timeout, --cputimeout, --checkpoint, --compress or --policyfile"); //$NON-NLS-1$
+			displayHelpAndExit(cliArgParser, jCommander, ExitCodes.BAD_PARAMS);
+		}
+		if (!cliArgParser.isValidWorkers()) {
+			System.err.println("--workers needs positive --shardsize and --lease, and an uncompressed XML or text report written to standard output by this process"); //$NON-NLS-1$
+			displayHelpAndExit(cliArgParser, jCommander, ExitCodes.BAD_PARAMS);
+		}
 		messagesFromParser(cliArgParser);
 		if (isProcess(cliArgParser)) {
 			if (args.length == 0) {
 				jCommander.usage();
 			}
 			try {
-				if (cliArgParser.isServerMode() || cliArgParser.getNumberOfProcesses() < 2) {
+				if (cliArgParser.getHttpPort() > 0) {
+					System.exit(httpServerProcess(cliArgParser).value);
+				} else if (cliArgParser.getWorkers() > 0) {
+					System.exit(shardedProcess(cliArgParser).value);
+				} else if (cliArgParser.isServerMode() || !cliArgParser.getReportFolder().isEmpty()
+						|| !cliArgParser.isMultiProcess()) {
 					System.exit(singleThreadProcess(cliArgParser).value);
 				} else {
-					System.exit(MultiThreadProcessor.process(cliArgParser).value);
+					// time budgets and checkpoints need supervised child processes
+					System.exit(multiProcess(cliArgParser).value);
 				}
 			} catch (InterruptedException e) {
 				logger.log(Level.WARNING, "Interrupted", e);
@@ -120,31 +172,67 @@ public final class VeraPdfCli {
 		}
 	}
 
-	private static ExitCodes singleThreadProcess(VeraCliArgParser cliArgParser) throws VeraPDFException {
+	private static ExitCodes singleThreadProcess(VeraCliArgParser cliArgParser)
+			throws VeraPDFException, InterruptedException {
+		BatchCancellation cancellation = new BatchCancellation();
+		if (cliArgParser.isServerMode()) {
+			// waits on standard input between batches, there's no report to
+			// finish
+			return singleThreadProcess(cliArgParser, cancellation);
+		}
+		Thread shutdownHook = new Thread(() -> finishOnShutdown(cancellation), "veraPDF-shutdown"); //$NON-NLS-1$
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+		try {
+			return singleThreadProcess(cliArgParser, cancellation);
+		} finally {
+			cancellation.finished();
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException excep) {
+				// already shutting down, the hook is waiting for the report
+			}
+		}
+	}
+
+	/**
+	 * Stops a run interrupted by Ctrl-C or a kill signal and waits for the
+	 * report of the files that were finished to be written before the JVM
+	 * exits.
+	 */
+	private static void finishOnShutdown(BatchCancellation cancellation) {
+		cancellation.cancel();
+		try {
+			if (!cancellation.awaitFinished(SHUTDOWN_GRACE_MILLIS)) {
+				logger.log(Level.WARNING, "Report wasn't finished before shutdown"); //$NON-NLS-1$
+			}
+		} catch (InterruptedException excep) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ExitCodes singleThreadProcess(VeraCliArgParser cliArgParser, BatchCancellation cancellation)
+			throws VeraPDFException, InterruptedException {
+		ProcessingMetrics metrics = new ProcessingMetrics();
 		try (VeraPdfCliProcessor processor = VeraPdfCliProcessor.createProcessorFromArgs(cliArgParser,
-				configManager)) {
+				configManager); MetricsExporter exporter = startMetricsExporter(cliArgParser, metrics)) {
+			processor.setMetrics(metrics);
+			processor.setCancellation(cancellation);
 			// FIXME: trap policy IO Exception (deliberately left un-caught for development)
 			ExitCodes retVal = processor.processPaths(cliArgParser.getPdfPaths());
 			if (cliArgParser.isServerMode()) {
 				File tempFile = processor.getTempFile();
 				if (tempFile != null) {
-					System.out.println(tempFile.getAbsoluteFile());
+					System.out.println(frame(tempFile, retVal));
 				}
-				try (Scanner scanner = new Scanner(System.in);) {
-					while (scanner.hasNextLine()) {
-						String path = scanner.nextLine();
-						if (path != null) {
-							if (path.equals(EXIT)) {
-								break;
-							}
-							List<String> paths = new ArrayList<>();
-							paths.add(path);
-							ExitCodes exitCode = processor.processPaths(paths);
-							System.out.println(processor.getTempFile().getAbsolutePath());
-							if (exitCode.value > retVal.value) {
-								retVal = exitCode;
-							}
-						}
+				BlockingQueue<String> pending = readLines();
+				for (String path = pending.take(); !path.equals(EXIT); path = pending.take()) {
+					metrics.setQueueDepth(pending.size());
+					List<String> paths = new ArrayList<>();
+					paths.add(path);
+					ExitCodes exitCode = processor.processPaths(paths);
+					System.out.println(frame(processor.getTempFile(), exitCode));
+					if (exitCode.value > retVal.value) {
+						retVal = exitCode;
 					}
 				}
 			}
@@ -152,9 +240,103 @@ public final class VeraPdfCli {
 		}
 	}
 
+	private static ExitCodes httpServerProcess(VeraCliArgParser cliArgParser)
+			throws VeraPDFException, InterruptedException {
+		VeraAppConfig appConfig = cliArgParser.appConfig(configManager.getApplicationConfig());
+		ProcessorConfig processorConfig = cliArgParser.processorConfig(appConfig.getProcessType(),
+				configManager.getFeaturesConfig(), configManager.getPluginsCollectionConfig());
+		final ValidationServer server;
+		try {
+			File jobDir = (cliArgParser.getJobDir() != null) ? cliArgParser.getJobDir()
+					: Files.createTempDirectory("veraPDF-jobs").toFile(); //$NON-NLS-1$
+			JobStore jobStore = new JobStore(jobDir, TimeUnit.MINUTES.toMillis(cliArgParser.getJobTtl()));
+			server = ValidationServer.start(processorConfig, cliArgParser.getFormat(), cliArgParser.getHttpPort(),
+					Math.max(1, cliArgParser.getMaxConcurrency()), Math.max(1, cliArgParser.getRequestTimeout()),
+					jobStore, Math.max(1, cliArgParser.getJobQueue()),
+					new Watchdog(cliArgParser.getTimeout(), cliArgParser.getCpuTimeout()),
+					new AdmissionController(cliArgParser.getLargeFileBytes()));
+		} catch (IOException excep) {
+			logger.log(Level.SEVERE, "Can't start the HTTP validation service", excep); //$NON-NLS-1$
+			return ExitCodes.IO_EXCEPTION;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+		server.awaitShutdown();
+		return ExitCodes.VALID;
+	}
+
+	private static ExitCodes shardedProcess(VeraCliArgParser cliArgParser)
+			throws VeraPDFException, InterruptedException {
+		VeraAppConfig appConfig = cliArgParser.appConfig(configManager.getApplicationConfig());
+		ProcessorConfig processorConfig = cliArgParser.processorConfig(appConfig.getProcessType(),
+				configManager.getFeaturesConfig(), configManager.getPluginsCollectionConfig());
+		return ShardedBatch.process(cliArgParser, appConfig, processorConfig);
+	}
+
+	/**
+	 * The line a server mode child writes for each file: the path of the
+	 * temporary report, the file's exit code and the milliseconds this JVM has
+	 * spent collecting garbage so far, separated by tabs.
+	 */
+	private static String frame(File report, ExitCodes exitCode) {
+		return report.getAbsolutePath() + '\t' + exitCode.value + '\t' + gcMillis();
+	}
+
+	private static long gcMillis() {
+		long total = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			long time = collector.getCollectionTime();
+			if (time > 0) {
+				total += time;
+			}
+		}
+		return total;
+	}
+
+	/**
+	 * Reads the paths passed on standard input on a separate thread so the
+	 * number of paths waiting to be processed can be reported, the end of the
+	 * input is queued as {@link #EXIT}.
+	 */
+	private static BlockingQueue<String> readLines() {
+		BlockingQueue<String> lines = new LinkedBlockingQueue<>();
+		Thread reader = new Thread(() -> {
+			try (Scanner scanner = new Scanner(System.in)) {
+				while (scanner.hasNextLine()) {
+					lines.add(scanner.nextLine());
+				}
+			} finally {
+				lines.add(EXIT);
+			}
+		}, "veraPDF-stdin"); //$NON-NLS-1$
+		reader.setDaemon(true);
+		reader.start();
+		return lines;
+	}
+
+	private static ExitCodes multiProcess(VeraCliArgParser cliArgParser) throws InterruptedException {
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		try (MetricsExporter exporter = startMetricsExporter(cliArgParser, metrics)) {
+			return MultiThreadProcessor.process(cliArgParser,
+					cliArgParser.appConfig(configManager.getApplicationConfig()), metrics);
+		}
+	}
+
+	private static MetricsExporter startMetricsExporter(VeraCliArgParser cliArgParser, ProcessingMetrics metrics) {
+		if (cliArgParser.getMetricsPort() <= 0) {
+			return null;
+		}
+		try {
+			return MetricsExporter.start(metrics, cliArgParser.getMetricsPort());
+		} catch (IOException excep) {
+			logger.log(Level.WARNING, "Can't start metrics endpoint, continuing without metrics", excep); //$NON-NLS-1$
+			return null;
+		}
+	}
+
 	public static void displayHelpAndExit(VeraCliArgParser cliArgParser, JCommander jCommander, ExitCodes exitCode) {
 		showVersionInfo(cliArgParser.isVerbose());
 		jCommander.usage();
+		System.out.println(ReportMerger.USAGE);
 		System.exit(exitCode.value);
 	}
 
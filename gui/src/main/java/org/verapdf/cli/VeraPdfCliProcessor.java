@@ -29,7 +29,10 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,11 +41,24 @@ import javax.xml.bind.JAXBException;
 import org.verapdf.apps.ConfigManager;
 import org.verapdf.apps.VeraAppConfig;
 import org.verapdf.apps.utils.ApplicationUtils;
+import org.verapdf.apps.utils.BatchCancellation;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.apps.utils.CancellableHandler;
+import org.verapdf.apps.utils.JobIndexStream;
+import org.verapdf.apps.utils.ReportCompression;
+import org.verapdf.apps.utils.ReportEncoding;
+import org.verapdf.apps.utils.ReportFolderWriter;
+import org.verapdf.apps.utils.ShardSelector;
+import org.verapdf.apps.utils.TeeOutputStream;
 import org.verapdf.cli.CliConstants.ExitCodes;
 import org.verapdf.cli.commands.VeraCliArgParser;
+import org.verapdf.cli.metrics.MetricsHandler;
+import org.verapdf.cli.metrics.ProcessingMetrics;
 import org.verapdf.core.VeraPDFException;
 import org.verapdf.policy.PolicyChecker;
+import org.verapdf.processor.BatchProcessingHandler;
 import org.verapdf.processor.BatchProcessor;
+import org.verapdf.processor.FormatOption;
 import org.verapdf.processor.ItemProcessor;
 import org.verapdf.processor.ProcessorConfig;
 import org.verapdf.processor.ProcessorFactory;
@@ -55,25 +71,37 @@ import org.verapdf.processor.reports.ItemDetails;
  */
 final class VeraPdfCliProcessor implements Closeable {
 	private static final Logger logger = Logger.getLogger(VeraPdfCliProcessor.class.getCanonicalName());
+	private static final int REPORT_WRITER_THREADS = 2;
+	private static final int REPORT_WRITER_QUEUE = 64;
 
 	private final ConfigManager configManager;
 	private final ProcessorConfig processorConfig;
 	private final VeraAppConfig appConfig;
 	private final boolean isPolicy;
 	private final boolean isRecursive;
+	private final ShardSelector shardSelector;
+	private final ReportCompression compression;
+	private final ReportEncoding encoding;
 	private final boolean isServerMode;
 	private final File tempMrrFile;
 	private final File policyFile;
+	private final Path reportFolder;
+	private final File resultIndex;
 	private boolean isStdOut = true;
-	private boolean appendData = true;
-	private String baseDirectory = ""; //$NON-NLS-1$
 	private OutputStream os;
 	private File tempFile;
+	private ProcessingMetrics metrics;
+	private BatchCancellation cancellation = new BatchCancellation();
 
 	private VeraPdfCliProcessor(final VeraCliArgParser args, ConfigManager configManager) throws VeraPDFException {
 		this.configManager = configManager;
 		this.isPolicy = args.isPolicy();
 		this.isRecursive = args.isRecurse();
+		this.shardSelector = args.getShardSelector();
+		this.compression = args.getCompression();
+		this.encoding = args.getReportEncoding();
+		this.reportFolder = reportFolderFromArgs(args);
+		this.resultIndex = args.getResultIndex();
 		this.isServerMode = args.isServerMode();
 
 		try {
@@ -116,22 +144,86 @@ final class VeraPdfCliProcessor implements Closeable {
 			} catch (IOException e) {
 				logger.log(Level.SEVERE, "Can't create temp file", e);
 			}
-		} else {
+		} else if (this.reportFolder != null) {
 			this.os = System.out;
+		} else {
+			try {
+				this.os = this.compression.compress(System.out);
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, "Can't compress report, writing it uncompressed", e);
+				this.os = System.out;
+			}
+			this.os = this.encoding.encode(this.os, this.appConfig.getWikiPath());
+			if (this.resultIndex != null) {
+				this.os = indexed(this.os);
+			}
 		}
+		long start = System.nanoTime();
 		// If the path list is empty then process the STDIN stream
 		if (pdfPaths.isEmpty()) {
 			retStatus = processStdIn();
 		} else {
 			retStatus = processFilePaths(pdfPaths);
 		}
+		recordStage(CliConstants.STAGE_PROCESS, start);
 
 		if (this.isPolicy) {
+			start = System.nanoTime();
 			applyPolicy();
+			recordStage(CliConstants.STAGE_POLICY, start);
+		}
+		if (!this.isServerMode && this.os != System.out) {
+			// finishes the converted or compressed report
+			try {
+				this.os.close();
+			} catch (IOException e) {
+				logger.log(Level.SEVERE, "Can't finish report", e);
+				retStatus = ExitCodes.IO_EXCEPTION;
+			}
 		}
 		return retStatus;
 	}
 
+	/**
+	 * Indexes the report as it's written, the index is finished when the
+	 * report is closed. The report is written without an index if the index's
+	 * file can't be created.
+	 */
+	private OutputStream indexed(final OutputStream report) {
+		try {
+			return new TeeOutputStream(report, new JobIndexStream(new FileOutputStream(this.resultIndex)));
+		} catch (IOException e) {
+			logger.log(Level.SEVERE, "Can't create the result index, writing the report without it", e); //$NON-NLS-1$
+			return report;
+		}
+	}
+
+	void setMetrics(final ProcessingMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * @param cancellation
+	 *            stops processing early, the report then holds the files that
+	 *            were finished
+	 */
+	void setCancellation(final BatchCancellation cancellation) {
+		this.cancellation = cancellation;
+	}
+
+	/**
+	 * Counts each file the handler sees as a job when metrics are exported.
+	 */
+	private BatchProcessingHandler metered(final BatchProcessingHandler handler) {
+		return (this.metrics == null) ? handler : new MetricsHandler(handler, this.metrics);
+	}
+
+	private void recordStage(final String stage, final long start) {
+		if (this.metrics != null) {
+			this.metrics.recordStage(stage, System.nanoTime() - start);
+		}
+	}
+
 	static VeraPdfCliProcessor createProcessorFromArgs(final VeraCliArgParser args, ConfigManager config)
 			throws VeraPDFException {
 		return new VeraPdfCliProcessor(args, config);
@@ -142,26 +234,52 @@ final class VeraPdfCliProcessor implements Closeable {
 			System.out.println(messageLine);
 		}
 		ItemDetails item = ItemDetails.fromValues(CliConstants.NAME_STDIN);
-		return processStream(item, System.in);
+		if (this.metrics == null) {
+			return processStream(item, System.in);
+		}
+		long start = System.nanoTime();
+		this.metrics.jobStarted();
+		ExitCodes exitCode = ExitCodes.VERAPDF_EXCEPTION;
+		try {
+			exitCode = processStream(item, System.in);
+			return exitCode;
+		} finally {
+			this.metrics.recordStage(CliConstants.STAGE_FILE, System.nanoTime() - start);
+			this.metrics.jobFinished(exitCode);
+		}
+
+	}
 
+	private static Path reportFolderFromArgs(final VeraCliArgParser args) {
+		if (args.getReportFolder().isEmpty()) {
+			return null;
+		}
+		if (args.isServerMode() || args.isPolicy()) {
+			logger.log(Level.WARNING, "Per file reports aren't supported in server or policy mode, writing the report to standard output"); //$NON-NLS-1$
+			return null;
+		}
+		return Paths.get(args.getReportFolder()).toAbsolutePath();
 	}
 
 	private ExitCodes processFilePaths(final List<String> paths) {
+		if (this.reportFolder != null) {
+			return processToReportFolder(paths);
+		}
 		List<File> toFilter = new ArrayList<>();
 		for (String path : paths) {
 			toFilter.add(new File(path));
 		}
-		List<File> toProcess = ApplicationUtils.filterPdfFiles(toFilter, this.isRecursive);
+		List<File> toProcess = ApplicationUtils.filterPdfFiles(toFilter, this.isRecursive, this.shardSelector);
 		if (toProcess.isEmpty()) {
 			logger.log(Level.SEVERE, "There are no files to process.");
 			return ExitCodes.NO_FILES;
 		}
 		try (BatchProcessor processor = ProcessorFactory.fileBatchProcessor(this.processorConfig);
 				OutputStream reportStream = this.getReportStream()) {
-			BatchSummary summary = processor.process(toProcess,
-					ProcessorFactory.getHandler(this.appConfig.getFormat(), this.appConfig.isVerbose(), reportStream,
-							this.appConfig.getMaxFailsDisplayed(),
-							this.processorConfig.getValidatorConfig().isRecordPasses()));
+			BatchSummary summary = processor.process(this.cancellation.dispatching(toProcess),
+					new CancellableHandler(metered(ProcessorFactory.getHandler(this.appConfig.getFormat(),
+							this.appConfig.isVerbose(), reportStream, this.appConfig.getMaxFailsDisplayed(),
+							this.processorConfig.getValidatorConfig().isRecordPasses())), this.cancellation));
 			reportStream.flush();
 			return exitStatusFromSummary(summary);
 		} catch (VeraPDFException excep) {
@@ -175,6 +293,70 @@ final class VeraPdfCliProcessor implements Closeable {
 		}
 	}
 
+	/**
+	 * Processes each PDF on its own and streams its report to the report
+	 * folder, the path of each report is printed as soon as it's in place so
+	 * reports can be consumed while the batch runs.
+	 * <p>
+	 * Each argument is the base of its own PDFs' report paths, a report that
+	 * would replace one written earlier in the batch goes under a folder named
+	 * for the argument's position instead.
+	 */
+	private ExitCodes processToReportFolder(final List<String> paths) {
+		BatchTotals totals = new BatchTotals();
+		Set<Path> targets = new HashSet<>();
+		int argument = 0;
+		try (BatchProcessor processor = ProcessorFactory.fileBatchProcessor(this.processorConfig);
+				ReportFolderWriter writer = new ReportFolderWriter(REPORT_WRITER_THREADS, REPORT_WRITER_QUEUE,
+						report -> System.out.println(report))) {
+			for (String path : paths) {
+				if (this.cancellation.isCancelled()) {
+					break;
+				}
+				File root = new File(path).getAbsoluteFile();
+				Path baseDirectory = (root.isDirectory() ? root : root.getParentFile()).toPath();
+				Path argumentFolder = this.reportFolder.resolve(Integer.toString(++argument));
+				for (File pdf : this.cancellation.dispatching(ApplicationUtils
+						.filterPdfFiles(Collections.singletonList(root), this.isRecursive, this.shardSelector))) {
+					Path target = constructReportPath(pdf, baseDirectory, this.reportFolder);
+					if (!targets.add(target)) {
+						Path taken = target;
+						target = constructReportPath(pdf, baseDirectory, argumentFolder);
+						if (!targets.add(target)) {
+							throw new IOException("Report for " + pdf + " would replace " + taken //$NON-NLS-1$ //$NON-NLS-2$
+									+ " and " + target); //$NON-NLS-1$
+						}
+					}
+					try (ReportFolderWriter.Report report = writer.open(target)) {
+						try (OutputStream reportStream = this.encoding.encode(report.getStream(),
+								this.appConfig.getWikiPath())) {
+							totals.add(processor.process(Collections.singletonList(pdf),
+									new CancellableHandler(metered(ProcessorFactory.getHandler(
+											this.appConfig.getFormat(), this.appConfig.isVerbose(), reportStream,
+											this.appConfig.getMaxFailsDisplayed(),
+											this.processorConfig.getValidatorConfig().isRecordPasses())),
+											this.cancellation)));
+						}
+						report.commit();
+					}
+				}
+			}
+		} catch (VeraPDFException excep) {
+			String message = CliConstants.EXCEP_VERA_BATCH;
+			System.err.println(message);
+			logger.log(Level.SEVERE, message, excep);
+			return ExitCodes.VERAPDF_EXCEPTION;
+		} catch (IOException excep) {
+			logger.log(Level.SEVERE, "Can't write per file reports", excep); //$NON-NLS-1$
+			return ExitCodes.IO_EXCEPTION;
+		}
+		if (totals.getTotalJobs() == 0) {
+			logger.log(Level.SEVERE, "There are no files to process.");
+			return ExitCodes.NO_FILES;
+		}
+		return ExitCodes.fromTotals(totals);
+	}
+
 	private static ExitCodes exitStatusFromSummary(final BatchSummary summary) {
 		if (summary.getFailedParsingJobs() > 0) {
 			return ExitCodes.FAILED_PARSING;
@@ -263,46 +445,36 @@ final class VeraPdfCliProcessor implements Closeable {
 		}
 	}
 
-	private String constructReportPath(final String itemName) {
-		String reportPath = "";
-		if (!this.configManager.getApplicationConfig().getReportFolder().isEmpty()) {
-			Path fileAbsolutePath = Paths.get(itemName);
-			String pdfFileName = fileAbsolutePath.getFileName().toString();
-			String pdfFileDirectory = fileAbsolutePath.getParent().toString();
-			String extension = "." + this.configManager.getApplicationConfig().getFormat().toString();
-			String outputFileName = pdfFileName.replace(".pdf", extension);
-			String reportFolder = this.configManager.getApplicationConfig().getReportFolder();
-
-			if (pdfFileDirectory.length() > this.baseDirectory.length()) {
-				StringBuilder reportFolderBuilder = new StringBuilder();
-				reportFolderBuilder.append(reportFolder);
-
-				String subDirectory = pdfFileDirectory.substring(this.baseDirectory.length());
-				reportFolderBuilder.append(subDirectory);
-
-				reportFolder = reportFolderBuilder.toString();
-
-				File dir = new File(reportFolder);
-
-				if (!dir.exists()) {
-					try {
-						dir.mkdirs();
-					} catch (SecurityException ex) {
-						logger.log(Level.SEVERE, "Cannot create subdirectories the: " + ex.toString() + "\n");
-						reportFolder = this.configManager.getApplicationConfig().getReportFolder();
-					}
-				}
-			}
+	/**
+	 * @param pdf
+	 *            a PDF being processed
+	 * @param baseDirectory
+	 *            the input directory the PDF was found under
+	 * @param folder
+	 *            the folder the report hierarchy is rooted at
+	 * @return the path of the PDF's report under the folder, mirroring the
+	 *         PDF's location under the base directory
+	 */
+	private Path constructReportPath(final File pdf, final Path baseDirectory, final Path folder) {
+		Path pdfPath = pdf.getAbsoluteFile().toPath();
+		Path relative = pdfPath.startsWith(baseDirectory) ? baseDirectory.relativize(pdfPath) : pdfPath.getFileName();
+		String pdfFileName = relative.getFileName().toString();
+		int extension = pdfFileName.lastIndexOf('.');
+		String outputFileName = ((extension > 0) ? pdfFileName.substring(0, extension) : pdfFileName)
+				+ ((this.encoding != ReportEncoding.NONE) ? this.encoding.getExtension()
+						: reportExtension(this.appConfig.getFormat()));
+		return folder.resolve(relative).resolveSibling(outputFileName);
+	}
 
-			File reportFile = new File(reportFolder, outputFileName);
-			reportPath = reportFile.getAbsolutePath();
-			this.appendData = false;
-		} else if (!this.configManager.getApplicationConfig().getReportFile().isEmpty()) {
-			File reportFile = new File(this.configManager.getApplicationConfig().getReportFile());
-			reportPath = reportFile.getAbsolutePath();
-			this.appendData = true;
+	private static String reportExtension(final FormatOption format) {
+		switch (format) {
+		case TEXT:
+			return ".txt"; //$NON-NLS-1$
+		case HTML:
+			return ".html"; //$NON-NLS-1$
+		default:
+			return ".xml"; //$NON-NLS-1$
 		}
-		return reportPath;
 	}
 
 	@Override
@@ -0,0 +1,59 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+/**
+ * A transport to a coordinator in the same process, for running workers as
+ * threads and for testing the coordinator on a single machine.
+ */
+public final class LoopbackTransport implements ShardTransport {
+	private final ShardCoordinator coordinator;
+
+	public LoopbackTransport(final ShardCoordinator coordinator) {
+		this.coordinator = coordinator;
+	}
+
+	/**
+	 * { @inheritDoc }
+	 */
+	@Override
+	public ShardLease acquire(final String workerId) {
+		return this.coordinator.acquire(workerId);
+	}
+
+	/**
+	 * { @inheritDoc }
+	 */
+	@Override
+	public boolean renew(final ShardLease lease) {
+		return this.coordinator.renew(lease);
+	}
+
+	/**
+	 * { @inheritDoc }
+	 */
+	@Override
+	public boolean complete(final ShardLease lease, final ShardResult result) {
+		return this.coordinator.complete(lease, result);
+	}
+
+	/**
+	 * { @inheritDoc }
+	 */
+	@Override
+	public boolean isDone() {
+		return this.coordinator.isDone();
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A contiguous slice of a batch's files, the unit of work leased to a worker.
+ * Shards are numbered in input order so their reports can be merged back in
+ * the order the files were discovered.
+ */
+public final class Shard {
+	private final int id;
+	private final List<File> files;
+
+	Shard(final int id, final List<File> files) {
+		this.id = id;
+		this.files = Collections.unmodifiableList(new ArrayList<>(files));
+	}
+
+	/**
+	 * Splits a batch into shards of at most shardSize files, keeping the order
+	 * of the files.
+	 *
+	 * @param files
+	 *            the batch's files in input order
+	 * @param shardSize
+	 *            the maximum number of files in a shard, at least 1
+	 * @return the shards, numbered from 0
+	 */
+	public static List<Shard> partition(final List<File> files, final int shardSize) {
+		if (shardSize < 1) {
+			throw new IllegalArgumentException("Shard size must be at least 1, was " + shardSize); //$NON-NLS-1$
+		}
+		List<Shard> shards = new ArrayList<>((files.size() + shardSize - 1) / shardSize);
+		for (int from = 0; from < files.size(); from += shardSize) {
+			shards.add(new Shard(shards.size(), files.subList(from, Math.min(files.size(), from + shardSize))));
+		}
+		return shards;
+	}
+
+	public int getId() {
+		return this.id;
+	}
+
+	public List<File> getFiles() {
+		return this.files;
+	}
+
+	@Override
+	public String toString() {
+		return "Shard [id=" + this.id + ", files=" + this.files.size() + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
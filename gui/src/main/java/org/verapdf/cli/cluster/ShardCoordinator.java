@@ -0,0 +1,286 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.processor.reports.ResultStructure;
+import org.verapdf.processor.reports.multithread.MultiThreadProcessingHandler;
+
+/**
+ * Hands out the shards of a batch to workers and collects their results.
+ * <p>
+ * Each shard is leased to one worker at a time. A worker renews its lease
+ * while it works, a lease that isn't renewed in time expires and the shard
+ * goes back to the front of the queue for the next worker. A shard whose
+ * lease has expired {@link #MAX_ATTEMPTS} times is abandoned, its files are
+ * missing from the report and the batch fails. The first result handed in for
+ * a shard wins, even from an expired lease, any other lease on the shard is
+ * revoked and later results are discarded.
+ * <p>
+ * Leases only expire when the coordinator is called, by a worker or by
+ * {@link #awaitCompletion(long)}, so the coordinator needs no thread of its
+ * own.
+ */
+public final class ShardCoordinator {
+	private static final Logger logger = Logger.getLogger(ShardCoordinator.class.getCanonicalName());
+
+	/**
+	 * The number of times a shard is leased before it's abandoned.
+	 */
+	public static final int MAX_ATTEMPTS = 3;
+	private static final long MAX_WAIT_MILLIS = 1000L;
+
+	private final List<Shard> shards;
+	private final long leaseNanos;
+	private final LongSupplier nanoClock;
+	private final Deque<Shard> pending = new ArrayDeque<>();
+	private final Map<Long, ShardLease> leases = new LinkedHashMap<>();
+	private final int[] attempts;
+	private final ShardResult[] results;
+	private final boolean[] isAbandoned;
+	private int remaining;
+	private long nextLeaseId = 1;
+
+	/**
+	 * @param shards
+	 *            the batch's shards, numbered from 0 in input order
+	 * @param leaseMillis
+	 *            how long a worker may go without renewing its lease
+	 */
+	public ShardCoordinator(final List<Shard> shards, final long leaseMillis) {
+		this(shards, leaseMillis, System::nanoTime);
+	}
+
+	ShardCoordinator(final List<Shard> shards, final long leaseMillis, final LongSupplier nanoClock) {
+		if (leaseMillis < 1) {
+			throw new IllegalArgumentException("Lease time must be at least 1ms, was " + leaseMillis); //$NON-NLS-1$
+		}
+		this.shards = new ArrayList<>(shards);
+		this.leaseNanos = TimeUnit.MILLISECONDS.toNanos(leaseMillis);
+		this.nanoClock = nanoClock;
+		this.attempts = new int[shards.size()];
+		this.results = new ShardResult[shards.size()];
+		this.isAbandoned = new boolean[shards.size()];
+		this.remaining = shards.size();
+		this.pending.addAll(shards);
+	}
+
+	/**
+	 * Leases the next waiting shard to a worker.
+	 *
+	 * @param workerId
+	 *            identifies the worker in the log
+	 * @return the lease, or null if no shard is waiting
+	 */
+	public synchronized ShardLease acquire(final String workerId) {
+		long now = this.nanoClock.getAsLong();
+		expireLeases(now);
+		Shard shard = this.pending.poll();
+		if (shard == null) {
+			return null;
+		}
+		this.attempts[shard.getId()]++;
+		ShardLease lease = new ShardLease(this.nextLeaseId++, shard, workerId, now + this.leaseNanos);
+		this.leases.put(Long.valueOf(lease.getId()), lease);
+		logger.log(Level.FINE, "Leased " + shard + " to " + workerId); //$NON-NLS-1$ //$NON-NLS-2$
+		return lease;
+	}
+
+	/**
+	 * Extends a live lease by the lease time.
+	 *
+	 * @param lease
+	 *            the lease to renew
+	 * @return false if the lease has expired or was revoked
+	 */
+	public synchronized boolean renew(final ShardLease lease) {
+		long now = this.nanoClock.getAsLong();
+		expireLeases(now);
+		ShardLease live = this.leases.get(Long.valueOf(lease.getId()));
+		if (live == null) {
+			return false;
+		}
+		live.expiresAt = now + this.leaseNanos;
+		return true;
+	}
+
+	/**
+	 * Records a processed shard.
+	 *
+	 * @param lease
+	 *            the lease the shard was processed under
+	 * @param result
+	 *            the shard's reports and summary
+	 * @return true if the result was accepted, false if the shard was already
+	 *         completed or abandoned, the result's reports are then deleted
+	 */
+	public synchronized boolean complete(final ShardLease lease, final ShardResult result) {
+		Shard shard = lease.getShard();
+		int id = shard.getId();
+		this.leases.remove(Long.valueOf(lease.getId()));
+		if (this.results[id] != null || this.isAbandoned[id]) {
+			logger.log(Level.FINE, "Discarding duplicate result of " + shard + " from " + lease.getWorkerId()); //$NON-NLS-1$ //$NON-NLS-2$
+			result.deleteReports();
+			return false;
+		}
+		this.results[id] = result;
+		// a late result from an expired lease beats the retry
+		this.pending.remove(shard);
+		this.leases.values().removeIf(other -> other.getShard().getId() == id);
+		this.remaining--;
+		notifyAll();
+		return true;
+	}
+
+	/**
+	 * @return true once every shard is completed or abandoned
+	 */
+	public synchronized boolean isDone() {
+		expireLeases(this.nanoClock.getAsLong());
+		return this.remaining == 0;
+	}
+
+	/**
+	 * Waits for every shard to be completed or abandoned, expiring the leases
+	 * of workers that have gone quiet while waiting.
+	 *
+	 * @param timeoutMillis
+	 *            the maximum time to wait, 0 waits for ever
+	 * @return true if the batch is done, false if the wait timed out
+	 * @throws InterruptedException
+	 *             if interrupted while waiting
+	 */
+	public synchronized boolean awaitCompletion(final long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		long tick = Math.max(1L, Math.min(MAX_WAIT_MILLIS, TimeUnit.NANOSECONDS.toMillis(this.leaseNanos) / 4));
+		while (true) {
+			expireLeases(this.nanoClock.getAsLong());
+			if (this.remaining == 0) {
+				return true;
+			}
+			long wait = tick;
+			if (timeoutMillis > 0) {
+				long left = deadline - System.currentTimeMillis();
+				if (left <= 0) {
+					return false;
+				}
+				wait = Math.min(wait, left);
+			}
+			wait(wait);
+		}
+	}
+
+	private void expireLeases(final long now) {
+		for (Iterator<ShardLease> iter = this.leases.values().iterator(); iter.hasNext();) {
+			ShardLease lease = iter.next();
+			if (lease.expiresAt - now > 0) {
+				continue;
+			}
+			iter.remove();
+			Shard shard = lease.getShard();
+			if (this.attempts[shard.getId()] >= MAX_ATTEMPTS) {
+				logger.log(Level.SEVERE, "Abandoning " + shard + " after " + MAX_ATTEMPTS + " expired leases, last held by " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+						+ lease.getWorkerId());
+				this.isAbandoned[shard.getId()] = true;
+				this.remaining--;
+				notifyAll();
+			} else {
+				logger.log(Level.WARNING, "Lease on " + shard + " held by " + lease.getWorkerId() //$NON-NLS-1$ //$NON-NLS-2$
+						+ " expired, re-assigning the shard"); //$NON-NLS-1$
+				this.pending.addFirst(shard);
+			}
+		}
+	}
+
+	/**
+	 * @return the summary counts of every completed shard added together
+	 */
+	public synchronized BatchTotals getTotals() {
+		BatchTotals totals = new BatchTotals();
+		for (ShardResult result : this.results) {
+			if (result != null) {
+				totals.add(result.getTotals());
+			}
+		}
+		return totals;
+	}
+
+	/**
+	 * @return the shards that were abandoned
+	 */
+	public synchronized List<Shard> getAbandoned() {
+		List<Shard> abandoned = new ArrayList<>();
+		for (Shard shard : this.shards) {
+			if (this.isAbandoned[shard.getId()]) {
+				abandoned.add(shard);
+			}
+		}
+		return abandoned;
+	}
+
+	/**
+	 * @return the exit code for the batch, the most severe of the merged
+	 *         summary's outcomes and any abandoned shards
+	 */
+	public synchronized ExitCodes getExitCode() {
+		for (boolean abandoned : this.isAbandoned) {
+			if (abandoned) {
+				return ExitCodes.VERAPDF_EXCEPTION;
+			}
+		}
+		return ExitCodes.fromTotals(getTotals());
+	}
+
+	/**
+	 * Writes the reports of the completed shards as one batch report, in shard
+	 * order, deleting each shard's reports once written. The handler builds the
+	 * report's batch summary from the reports it's given.
+	 *
+	 * @param processingHandler
+	 *            the handler that writes the batch report
+	 */
+	public void writeReport(final MultiThreadProcessingHandler processingHandler) {
+		List<ShardResult> completed = new ArrayList<>(this.shards.size());
+		synchronized (this) {
+			for (ShardResult result : this.results) {
+				if (result != null) {
+					completed.add(result);
+				}
+			}
+		}
+		processingHandler.startReport();
+		for (ShardResult result : completed) {
+			for (File report : result.getReports()) {
+				processingHandler.fillReport(new ResultStructure(report));
+			}
+			result.deleteReports();
+		}
+		processingHandler.endReport();
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+/**
+ * A worker's claim on a shard. A lease expires unless the worker renews it
+ * within the coordinator's lease time, the shard is then handed to another
+ * worker. Lease ids are never reused so a worker holding an expired lease
+ * can't renew it by mistake.
+ */
+public final class ShardLease {
+	private final long id;
+	private final Shard shard;
+	private final String workerId;
+	// guarded by the coordinator
+	long expiresAt;
+
+	ShardLease(final long id, final Shard shard, final String workerId, final long expiresAt) {
+		this.id = id;
+		this.shard = shard;
+		this.workerId = workerId;
+		this.expiresAt = expiresAt;
+	}
+
+	public long getId() {
+		return this.id;
+	}
+
+	public Shard getShard() {
+		return this.shard;
+	}
+
+	public String getWorkerId() {
+		return this.workerId;
+	}
+
+	@Override
+	public String toString() {
+		return "ShardLease [id=" + this.id + ", shard=" + this.shard.getId() + ", worker=" + this.workerId + "]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+}
@@ -0,0 +1,79 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+
+import org.verapdf.apps.VeraAppConfig;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.core.VeraPDFException;
+import org.verapdf.processor.BatchProcessor;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorFactory;
+
+/**
+ * Processes a single file of a shard for a {@link ShardWorker}. A processor
+ * belongs to one worker, which closes it when it stops.
+ */
+public interface ShardProcessor extends Closeable {
+	/**
+	 * Processes a file, writing its report as a single file batch report.
+	 *
+	 * @param pdf
+	 *            the file to process
+	 * @param report
+	 *            receives the file's report
+	 * @return the summary counts of the file
+	 * @throws VeraPDFException
+	 *             if the file can't be processed at all, the worker then gives
+	 *             up its lease
+	 */
+	BatchTotals process(File pdf, OutputStream report) throws VeraPDFException;
+
+	@Override
+	default void close() throws IOException {
+		// nothing to release
+	}
+
+	/**
+	 * @param processorConfig
+	 *            the processing to apply
+	 * @param appConfig
+	 *            the report format and detail
+	 * @return a processor that runs a veraPDF batch processor, created once for
+	 *         the worker, on each file
+	 */
+	static ShardProcessor fromConfig(final ProcessorConfig processorConfig, final VeraAppConfig appConfig) {
+		BatchProcessor processor = ProcessorFactory.fileBatchProcessor(processorConfig);
+		return new ShardProcessor() {
+			@Override
+			public BatchTotals process(final File pdf, final OutputStream report) throws VeraPDFException {
+				return BatchTotals.of(processor.process(Collections.singletonList(pdf),
+						ProcessorFactory.getHandler(appConfig.getFormat(), appConfig.isVerbose(), report,
+								appConfig.getMaxFailsDisplayed(),
+								processorConfig.getValidatorConfig().isRecordPasses())));
+			}
+
+			@Override
+			public void close() throws IOException {
+				processor.close();
+			}
+		};
+	}
+}
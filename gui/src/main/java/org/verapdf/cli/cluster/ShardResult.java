@@ -0,0 +1,61 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.verapdf.apps.utils.BatchTotals;
+
+/**
+ * The outcome of a processed shard: one report file for each of the shard's
+ * files, in the shard's order, and the shard's summary counts.
+ */
+public final class ShardResult {
+	private final List<File> reports;
+	private final BatchTotals totals;
+
+	/**
+	 * @param reports
+	 *            the report of each of the shard's files, in order
+	 * @param totals
+	 *            the summary counts of the shard
+	 */
+	public ShardResult(final List<File> reports, final BatchTotals totals) {
+		this.reports = Collections.unmodifiableList(new ArrayList<>(reports));
+		this.totals = totals;
+	}
+
+	public List<File> getReports() {
+		return this.reports;
+	}
+
+	public BatchTotals getTotals() {
+		return this.totals;
+	}
+
+	/**
+	 * Deletes the shard's report files.
+	 */
+	void deleteReports() {
+		for (File report : this.reports) {
+			if (!report.delete()) {
+				report.deleteOnExit();
+			}
+		}
+	}
+}
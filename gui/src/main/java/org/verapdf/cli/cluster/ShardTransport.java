@@ -0,0 +1,70 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import java.io.IOException;
+
+/**
+ * How a worker talks to the {@link ShardCoordinator}. A network transport
+ * implements this on the worker's side and delivers each shard's report files
+ * to the coordinator's file system before completing the shard,
+ * {@link LoopbackTransport} calls a coordinator in the same process.
+ */
+public interface ShardTransport {
+	/**
+	 * Leases the next shard waiting to be processed.
+	 *
+	 * @param workerId
+	 *            identifies the worker in the coordinator's log
+	 * @return the lease, or null if no shard is waiting right now
+	 * @throws IOException
+	 *             if the coordinator can't be reached
+	 */
+	ShardLease acquire(String workerId) throws IOException;
+
+	/**
+	 * Extends a lease by the coordinator's lease time.
+	 *
+	 * @param lease
+	 *            the lease to renew
+	 * @return false if the lease has expired or the shard is done, the worker
+	 *         should then give up the shard
+	 * @throws IOException
+	 *             if the coordinator can't be reached
+	 */
+	boolean renew(ShardLease lease) throws IOException;
+
+	/**
+	 * Hands in a processed shard.
+	 *
+	 * @param lease
+	 *            the lease the shard was processed under
+	 * @param result
+	 *            the shard's reports and summary
+	 * @return true if the result was accepted, false if the shard was already
+	 *         completed by another worker and the result discarded
+	 * @throws IOException
+	 *             if the coordinator can't be reached
+	 */
+	boolean complete(ShardLease lease, ShardResult result) throws IOException;
+
+	/**
+	 * @return true once every shard is completed or abandoned, there's no more
+	 *         work to lease
+	 * @throws IOException
+	 *             if the coordinator can't be reached
+	 */
+	boolean isDone() throws IOException;
+}
@@ -0,0 +1,164 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.apps.utils.IoExecutors;
+import org.verapdf.core.VeraPDFException;
+
+/**
+ * Leases shards through a {@link ShardTransport} and processes them until the
+ * coordinator has no work left. The lease is renewed by a heartbeat while the
+ * shard's files are processed, so a single slow file doesn't let it expire. A
+ * worker that finds its lease gone drops the shard after the file in hand and
+ * leases another. A worker stops if the coordinator can't be reached or a
+ * file can't be processed at all, leaving its lease to expire so that another
+ * worker picks the shard up. The worker closes its processor when it stops.
+ */
+public final class ShardWorker implements Runnable {
+	private static final Logger logger = Logger.getLogger(ShardWorker.class.getCanonicalName());
+	private static final String REPORT_PREFIX = "veraPDF-shard"; //$NON-NLS-1$
+	private static final String REPORT_SUFFIX = ".report"; //$NON-NLS-1$
+
+	private final String id;
+	private final ShardTransport transport;
+	private final ShardProcessor processor;
+	private final long pollMillis;
+	private final long heartbeatMillis;
+
+	/**
+	 * @param id
+	 *            identifies the worker in the coordinator's log
+	 * @param transport
+	 *            the connection to the coordinator
+	 * @param processor
+	 *            processes each file
+	 * @param pollMillis
+	 *            how long to wait before asking again when no shard is
+	 *            waiting but the batch isn't done
+	 * @param heartbeatMillis
+	 *            how often the lease is renewed, well inside the coordinator's
+	 *            lease time
+	 */
+	public ShardWorker(final String id, final ShardTransport transport, final ShardProcessor processor,
+			final long pollMillis, final long heartbeatMillis) {
+		this.id = id;
+		this.transport = transport;
+		this.processor = processor;
+		this.pollMillis = pollMillis;
+		this.heartbeatMillis = Math.max(1L, heartbeatMillis);
+	}
+
+	@Override
+	public void run() {
+		ScheduledExecutorService heartbeat = Executors
+				.newSingleThreadScheduledExecutor(IoExecutors.namedDaemonThreads("veraPDF-" + this.id + "-heartbeat")); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				ShardLease lease = this.transport.acquire(this.id);
+				if (lease == null) {
+					if (this.transport.isDone()) {
+						return;
+					}
+					Thread.sleep(this.pollMillis);
+					continue;
+				}
+				ShardResult result = process(lease, heartbeat);
+				if (result != null && !this.transport.complete(lease, result)) {
+					logger.log(Level.FINE, this.id + " finished " + lease.getShard() + " after another worker"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		} catch (InterruptedException excep) {
+			Thread.currentThread().interrupt();
+		} catch (IOException excep) {
+			logger.log(Level.SEVERE, this.id + " lost the coordinator, stopping", excep); //$NON-NLS-1$
+		} catch (VeraPDFException excep) {
+			logger.log(Level.SEVERE, this.id + " can't process files, stopping", excep); //$NON-NLS-1$
+		} finally {
+			heartbeat.shutdownNow();
+			try {
+				this.processor.close();
+			} catch (IOException excep) {
+				logger.log(Level.WARNING, this.id + " can't close its processor", excep); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * @return the shard's result, or null if the lease was lost
+	 */
+	private ShardResult process(final ShardLease lease, final ScheduledExecutorService heartbeat)
+			throws IOException, VeraPDFException {
+		List<File> reports = new ArrayList<>(lease.getShard().getFiles().size());
+		BatchTotals totals = new BatchTotals();
+		boolean isDone = false;
+		AtomicBoolean isLost = new AtomicBoolean(false);
+		ScheduledFuture<?> renewal = heartbeat.scheduleWithFixedDelay(() -> renew(lease, isLost),
+				this.heartbeatMillis, this.heartbeatMillis, TimeUnit.MILLISECONDS);
+		try {
+			for (File pdf : lease.getShard().getFiles()) {
+				if (isLost.get()) {
+					logger.log(Level.WARNING, this.id + " lost its lease on " + lease.getShard()); //$NON-NLS-1$
+					return null;
+				}
+				File report = File.createTempFile(REPORT_PREFIX, REPORT_SUFFIX);
+				reports.add(report);
+				try (OutputStream os = new BufferedOutputStream(new FileOutputStream(report))) {
+					totals.add(this.processor.process(pdf, os));
+				}
+			}
+			isDone = true;
+			return new ShardResult(reports, totals);
+		} finally {
+			renewal.cancel(false);
+			if (!isDone) {
+				new ShardResult(reports, totals).deleteReports();
+			}
+		}
+	}
+
+	/**
+	 * Renews a lease from the heartbeat, a lease that can't be renewed is
+	 * given up.
+	 */
+	private void renew(final ShardLease lease, final AtomicBoolean isLost) {
+		if (isLost.get()) {
+			return;
+		}
+		try {
+			if (!this.transport.renew(lease)) {
+				isLost.set(true);
+			}
+		} catch (IOException excep) {
+			logger.log(Level.WARNING, this.id + " can't renew its lease on " + lease.getShard(), excep); //$NON-NLS-1$
+			isLost.set(true);
+		}
+	}
+}
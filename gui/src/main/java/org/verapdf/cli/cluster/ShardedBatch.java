@@ -0,0 +1,137 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.verapdf.apps.VeraAppConfig;
+import org.verapdf.apps.utils.ApplicationUtils;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.cli.commands.VeraCliArgParser;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.reports.multithread.MultiThreadProcessingHandlerImpl;
+import org.verapdf.processor.reports.multithread.writer.ReportWriter;
+
+/**
+ * Runs a batch as shards leased by a {@link ShardCoordinator} to workers in
+ * this process, over a {@link LoopbackTransport}. The merged report is written
+ * to standard output once every shard is done.
+ */
+public final class ShardedBatch {
+	private static final Logger logger = Logger.getLogger(ShardedBatch.class.getCanonicalName());
+	private static final long POLL_MILLIS = 100L;
+	// the lease is renewed several times within the lease time
+	private static final int HEARTBEATS_PER_LEASE = 4;
+
+	private ShardedBatch() {
+		// static methods only
+	}
+
+	/**
+	 * Processes the files given on the command line with the requested number
+	 * of workers.
+	 *
+	 * @param cliArgParser
+	 *            the parsed command line
+	 * @param appConfig
+	 *            the report format and detail
+	 * @param processorConfig
+	 *            the processing to apply
+	 * @return the exit code for the batch
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the workers
+	 */
+	public static ExitCodes process(final VeraCliArgParser cliArgParser, final VeraAppConfig appConfig,
+			final ProcessorConfig processorConfig) throws InterruptedException {
+		List<File> paths = new ArrayList<>();
+		for (String path : cliArgParser.getPdfPaths()) {
+			paths.add(new File(path));
+		}
+		List<File> files = ApplicationUtils.filterPdfFiles(paths, cliArgParser.isRecurse(),
+				cliArgParser.getShardSelector());
+		long leaseMillis = TimeUnit.SECONDS.toMillis(cliArgParser.getLease());
+		ShardCoordinator coordinator = new ShardCoordinator(Shard.partition(files, cliArgParser.getShardSize()),
+				leaseMillis);
+		ShardTransport transport = new LoopbackTransport(coordinator);
+		List<Thread> workers = new ArrayList<>(cliArgParser.getWorkers());
+		for (int i = 0; i < cliArgParser.getWorkers(); i++) {
+			String id = "worker-" + i; //$NON-NLS-1$
+			Thread worker = new Thread(new ShardWorker(id, transport,
+					ShardProcessor.fromConfig(processorConfig, appConfig), POLL_MILLIS,
+					leaseMillis / HEARTBEATS_PER_LEASE), "veraPDF-" + id); //$NON-NLS-1$
+			worker.start();
+			workers.add(worker);
+		}
+		boolean isDone = awaitWorkers(coordinator, workers);
+		OutputStream os = System.out;
+		coordinator.writeReport(
+				new MultiThreadProcessingHandlerImpl(ReportWriter.newInstance(os, appConfig.getFormat(), System.err)));
+		try {
+			os.flush();
+		} catch (IOException excep) {
+			logger.log(Level.SEVERE, "Can't write report", excep); //$NON-NLS-1$
+			return ExitCodes.IO_EXCEPTION;
+		}
+		if (!isDone) {
+			logger.log(Level.SEVERE, "Every worker stopped before the batch was done, files are missing from the report"); //$NON-NLS-1$
+			return ExitCodes.VERAPDF_EXCEPTION;
+		}
+		for (Shard abandoned : coordinator.getAbandoned()) {
+			logger.log(Level.SEVERE, abandoned + " was abandoned, its files are missing from the report"); //$NON-NLS-1$
+		}
+		return coordinator.getExitCode();
+	}
+
+	/**
+	 * Waits for the batch to be done, or for every worker to stop. Shards are
+	 * only leased again to a live worker so the batch can't finish without
+	 * one.
+	 */
+	private static boolean awaitWorkers(final ShardCoordinator coordinator, final List<Thread> workers)
+			throws InterruptedException {
+		try {
+			while (!coordinator.awaitCompletion(POLL_MILLIS)) {
+				if (!isAnyAlive(workers)) {
+					return coordinator.isDone();
+				}
+			}
+			for (Thread worker : workers) {
+				worker.join();
+			}
+			return true;
+		} catch (InterruptedException excep) {
+			for (Thread worker : workers) {
+				worker.interrupt();
+			}
+			throw excep;
+		}
+	}
+
+	private static boolean isAnyAlive(final List<Thread> workers) {
+		for (Thread worker : workers) {
+			if (worker.isAlive()) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -27,7 +27,11 @@ import com.beust.jcommander.ParameterException;
 import org.verapdf.apps.Applications;
 import org.verapdf.apps.ProcessType;
 import org.verapdf.apps.VeraAppConfig;
+import org.verapdf.apps.utils.AdmissionController;
 import org.verapdf.apps.utils.ApplicationUtils;
+import org.verapdf.apps.utils.ReportCompression;
+import org.verapdf.apps.utils.ReportEncoding;
+import org.verapdf.apps.utils.ShardSelector;
 import org.verapdf.core.VeraPDFException;
 import org.verapdf.features.FeatureExtractorConfig;
 import org.verapdf.metadata.fixer.FixerFactory;
@@ -94,13 +98,38 @@ public class VeraCliArgParser {
 	// final static String PROFILES_WIKI = OPTION_SEP + "profilesWiki";
 	// final static String POLICY_PROFILE = OPTION_SEP + "policyProfile";
 	// final static String REPORT_FILE = OPTION_SEP + "reportfile";
-	// final static String REPORT_FOLDER = OPTION_SEP + "reportfolder";
 	// final static String OVERWRITE_REPORT_FILE = OPTION_SEP +
 	// "overwriteReportFile";
 	final static String VALID_OFF_FLAG = FLAG_SEP + "o"; //$NON-NLS-1$
 	final static String VALID_OFF = OPTION_SEP + "off"; //$NON-NLS-1$
 	final static String NUMBER_OF_PROCESSES_FLAG = OPTION_SEP + "processes"; //$NON-NLS-1$
 	final static String VERA_PATH_FLAG = OPTION_SEP + "verapath";
+	final static String ORDERED = OPTION_SEP + "ordered"; //$NON-NLS-1$
+	final static String TIMEOUT = OPTION_SEP + "timeout"; //$NON-NLS-1$
+	final static String CPU_TIMEOUT = OPTION_SEP + "cputimeout"; //$NON-NLS-1$
+	final static String LARGE_FILE_SIZE = OPTION_SEP + "largefilesize"; //$NON-NLS-1$
+	final static String CHECKPOINT = OPTION_SEP + "checkpoint"; //$NON-NLS-1$
+	final static String RESUME = OPTION_SEP + "resume"; //$NON-NLS-1$
+	final static String SHARD_INDEX = OPTION_SEP + "shard-index"; //$NON-NLS-1$
+	final static String SHARD_COUNT = OPTION_SEP + "shard-count"; //$NON-NLS-1$
+	final static String WORKERS = OPTION_SEP + "workers"; //$NON-NLS-1$
+	final static String SHARD_SIZE = OPTION_SEP + "shardsize"; //$NON-NLS-1$
+	final static String LEASE = OPTION_SEP + "lease"; //$NON-NLS-1$
+	final static String COMPRESS = OPTION_SEP + "compress"; //$NON-NLS-1$
+	final static String REPORT_FOLDER = OPTION_SEP + "reportfolder"; //$NON-NLS-1$
+	final static String NDJSON = OPTION_SEP + "ndjson"; //$NON-NLS-1$
+	final static String COLUMNAR = OPTION_SEP + "columnar"; //$NON-NLS-1$
+	final static String RESULT_INDEX = OPTION_SEP + "resultindex"; //$NON-NLS-1$
+	final static String METRICS_PORT = OPTION_SEP + "metricsport"; //$NON-NLS-1$
+	final static String HTTP_PORT = OPTION_SEP + "httpport"; //$NON-NLS-1$
+	final static String MAX_CONCURRENCY = OPTION_SEP + "maxconcurrency"; //$NON-NLS-1$
+	final static String REQUEST_TIMEOUT = OPTION_SEP + "requesttimeout"; //$NON-NLS-1$
+	final static String JOB_DIR = OPTION_SEP + "jobdir"; //$NON-NLS-1$
+	final static String JOB_TTL = OPTION_SEP + "jobttl"; //$NON-NLS-1$
+	final static String JOB_QUEUE = OPTION_SEP + "jobqueue"; //$NON-NLS-1$
+	private final static long BYTES_PER_MB = 1024L * 1024L;
+	final static String AUTO_PROCESSES_VALUE = "auto"; //$NON-NLS-1$
+	final static int AUTO_PROCESSES = -1;
 
 	@Parameter(names = { HELP_FLAG, HELP }, description = "Shows this message and exits.", help = true)
 	private boolean help = false;
@@ -169,12 +198,6 @@ public class VeraCliArgParser {
 	// Policy Profile. Output format option will be ignored.")
 	// private String policyProfilePath = "";
 	//
-	// @Parameter(names = {
-	// REPORT_FOLDER }, description = "Sets output directory for any reports. If
-	// a directory hierarchy is being recursed, a duplicate hierarchy will be
-	// produced.")
-	// private String reportFolder = "";
-	//
 	// @Parameter(names = { REPORT_FILE }, description = "Sets output file for
 	// any reports.")
 	// private String reportFile = "";
@@ -186,12 +209,81 @@ public class VeraCliArgParser {
 	@Parameter(names = { VALID_OFF_FLAG, VALID_OFF }, description = "Turns off PDF/A validation")
 	private boolean isValidationOff = false;
 
-	@Parameter(names = {NUMBER_OF_PROCESSES_FLAG}, description = "The Number of processes which will be used.")
+	@Parameter(names = {NUMBER_OF_PROCESSES_FLAG}, description = "The Number of processes which will be used, or " + AUTO_PROCESSES_VALUE + " to adapt the number to the load of the host.", converter = ProcessesConverter.class)
 	private int numberOfProcesses = 1;
 
 	@Parameter(names = {VERA_PATH_FLAG}, description = "Path to veraPDF Cli", hidden = true, validateWith = FileValidator.class)
 	private File veraCLIPath;
 
+	@Parameter(names = { ORDERED }, description = "Writes the reports of parallel runs in input order rather than completion order.")
+	private boolean isOrdered = false;
+
+	@Parameter(names = { TIMEOUT }, description = "Sets the wall clock time in seconds allowed for processing a single file, files that overrun it are reported as timed out. 0 means no limit.")
+	private int timeout = 0;
+
+	@Parameter(names = { CPU_TIMEOUT }, description = "Sets the CPU time in seconds allowed for processing a single file, files that overrun it are reported as timed out. 0 means no limit.")
+	private int cpuTimeout = 0;
+
+	@Parameter(names = { LARGE_FILE_SIZE }, description = "Sets the size in MB from which files are processed one at a time in parallel runs. 0 processes large files like any other.")
+	private int largeFileSize = (int) (AdmissionController.DEFAULT_LARGE_FILE_BYTES / BYTES_PER_MB);
+
+	@Parameter(names = { CHECKPOINT }, description = "Records the progress of the batch in a journal in the given directory so an interrupted run can be resumed.")
+	private File checkpointDir;
+
+	@Parameter(names = { RESUME }, description = "Resumes the batch recorded in the " + CHECKPOINT + " directory, files already processed are not processed again.")
+	private boolean isResume = false;
+
+	@Parameter(names = { SHARD_INDEX }, description = "Processes only the files in the given shard, from 0 to " + SHARD_COUNT + " - 1, files are assigned to shards by a hash of their path.")
+	private int shardIndex = 0;
+
+	@Parameter(names = { SHARD_COUNT }, description = "Sets the number of shards the batch is split into for " + SHARD_INDEX + ", every node must be given the same paths.")
+	private int shardCount = 1;
+
+	@Parameter(names = { WORKERS }, description = "Splits the batch into shards leased to the given number of workers, a shard whose worker stops is handed to another worker. 0 doesn't shard the batch.")
+	private int workers = 0;
+
+	@Parameter(names = { SHARD_SIZE }, description = "Sets the number of files in each shard leased to a worker, see " + WORKERS + ".")
+	private int shardSize = 100;
+
+	@Parameter(names = { LEASE }, description = "Sets the time in seconds a worker may go without renewing the lease on its shard before the shard is handed to another worker, see " + WORKERS + ".")
+	private int lease = 60;
+
+	@Parameter(names = { COMPRESS }, description = "Compresses the report written to standard output, gzip or zstd. gzip is compressed in parallel blocks, zstd needs zstd-jni on the class path.", converter = CompressionConverter.class)
+	private ReportCompression compression = ReportCompression.NONE;
+
+	@Parameter(names = { REPORT_FOLDER }, description = "Writes one report per PDF to the given directory instead of standard output. If a directory hierarchy is being recursed, a duplicate hierarchy will be produced, under a folder named for the argument's position if two arguments hold a PDF at the same relative path.")
+	private String reportFolder = ""; //$NON-NLS-1$
+
+	@Parameter(names = { NDJSON }, description = "Writes the report to standard output as newline delimited JSON, one line per job as it completes followed by the batch summary. Overrides " + FORMAT + ".")
+	private boolean isNdjson = false;
+
+	@Parameter(names = { COLUMNAR }, description = "Writes the report to standard output as a compact columnar export for analytics, with a row per job and a row per failed rule. Overrides " + FORMAT + ".")
+	private boolean isColumnar = false;
+
+	@Parameter(names = { RESULT_INDEX }, description = "Writes an index of the results of each job to the given file alongside the report, it answers questions such as which files failed a rule without reading the report. Needs a machine readable report written by a single process.")
+	private File resultIndex;
+
+	@Parameter(names = { METRICS_PORT }, description = "Serves Prometheus metrics on the given localhost port while processing, in parallel runs the parent process also reports its concurrency level.", hidden = true)
+	private int metricsPort = 0;
+
+	@Parameter(names = { HTTP_PORT }, description = "Runs veraPDF as an HTTP validation service on the given localhost port, PDFs are POSTed to /validate.", hidden = true)
+	private int httpPort = 0;
+
+	@Parameter(names = { MAX_CONCURRENCY }, description = "Sets the maximum number of requests the HTTP validation service processes in parallel.", hidden = true)
+	private int maxConcurrency = Runtime.getRuntime().availableProcessors();
+
+	@Parameter(names = { REQUEST_TIMEOUT }, description = "Sets the time in seconds the HTTP validation service allows for a single request.", hidden = true)
+	private int requestTimeout = 300;
+
+	@Parameter(names = { JOB_DIR }, description = "Sets the directory the HTTP validation service stores asynchronous job files in, defaults to a temporary directory.", hidden = true)
+	private File jobDir;
+
+	@Parameter(names = { JOB_TTL }, description = "Sets the time in minutes finished asynchronous jobs are kept by the HTTP validation service.", hidden = true)
+	private int jobTtl = 60;
+
+	@Parameter(names = { JOB_QUEUE }, description = "Sets the maximum number of asynchronous jobs waiting to start in the HTTP validation service.", hidden = true)
+	private int jobQueue = 100;
+
 	@Parameter(description = "FILES")
 	private List<String> pdfPaths = new ArrayList<>();
 
@@ -283,7 +375,30 @@ public class VeraCliArgParser {
 	 * @return true if verbose output requested
 	 */
 	public FormatOption getFormat() {
-		return this.format;
+		// encoded reports are converted from the machine readable report
+		return (getReportEncoding() != ReportEncoding.NONE) ? FormatOption.MRR : this.format;
+	}
+
+	/**
+	 * @return the encoding the report is converted to
+	 */
+	public ReportEncoding getReportEncoding() {
+		if (this.isColumnar) {
+			return ReportEncoding.COLUMNAR;
+		}
+		if (this.isNdjson) {
+			return ReportEncoding.NDJSON;
+		}
+		// HTML is rendered as the report is written rather than transformed
+		// once it's finished
+		return (this.format == FormatOption.HTML) ? ReportEncoding.HTML : ReportEncoding.NONE;
+	}
+
+	/**
+	 * @return true unless more than one report encoding is requested
+	 */
+	public boolean isValidReportEncoding() {
+		return !(this.isNdjson && this.isColumnar);
 	}
 
 	/**
@@ -329,10 +444,247 @@ public class VeraCliArgParser {
 		return veraCLIPath;
 	}
 
+	/**
+	 * @return the number of processes to use, when adaptive the number to
+	 *         start with, one per core
+	 */
 	public int getNumberOfProcesses() {
+		if (isAutoProcesses()) {
+			return Runtime.getRuntime().availableProcessors();
+		}
 		return numberOfProcesses;
 	}
 
+	/**
+	 * @return true if the number of processes adapts to the load of the host
+	 */
+	public boolean isAutoProcesses() {
+		return this.numberOfProcesses == AUTO_PROCESSES;
+	}
+
+	/**
+	 * @return true if the reports of parallel runs are written in input order
+	 */
+	public boolean isOrdered() {
+		return this.isOrdered;
+	}
+
+	/**
+	 * @return the wall clock time in seconds allowed for a single file, 0 if
+	 *         unlimited
+	 */
+	public int getTimeout() {
+		return this.timeout;
+	}
+
+	/**
+	 * @return the CPU time in seconds allowed for a single file, 0 if
+	 *         unlimited
+	 */
+	public int getCpuTimeout() {
+		return this.cpuTimeout;
+	}
+
+	/**
+	 * @return the size in bytes from which files are processed one at a time
+	 *         in parallel runs, 0 if large files aren't treated differently
+	 */
+	public long getLargeFileBytes() {
+		return Math.max(0, this.largeFileSize) * BYTES_PER_MB;
+	}
+
+	/**
+	 * @return the directory of the checkpoint journal, null if the batch isn't
+	 *         checkpointed
+	 */
+	public File getCheckpointDir() {
+		return this.checkpointDir;
+	}
+
+	/**
+	 * @return true if the batch resumes from its checkpoint journal
+	 */
+	public boolean isResume() {
+		return this.isResume;
+	}
+
+	/**
+	 * @return the directory for per file reports, empty if the report is
+	 *         written to standard output
+	 */
+	public String getReportFolder() {
+		return this.reportFolder;
+	}
+
+	/**
+	 * @return the file the result index is written to, null if there's no
+	 *         index
+	 */
+	public File getResultIndex() {
+		return this.resultIndex;
+	}
+
+	/**
+	 * @return true unless a result index is requested for a report it can't be
+	 *         built from, one that isn't machine readable or that isn't written
+	 *         by this process as a whole
+	 */
+	public boolean isValidResultIndex() {
+		if (this.resultIndex == null) {
+			return true;
+		}
+		FormatOption reportFormat = getFormat();
+		return (reportFormat == FormatOption.MRR || reportFormat == FormatOption.XML) && !this.isServerMode
+				&& this.reportFolder.isEmpty() && !isMultiProcess();
+	}
+
+	/**
+	 * @return true if reports aren't written to a report folder, or they're
+	 *         written by this process, which doesn't start child processes,
+	 *         and there's no compression or policy, which only apply to the
+	 *         report written to standard output
+	 */
+	public boolean isValidReportFolder() {
+		return this.reportFolder.isEmpty() || (!isMultiProcess()
+				&& this.compression == ReportCompression.NONE && !isPolicy());
+	}
+
+	/**
+	 * @return the number of workers the batch's shards are leased to, 0 if the
+	 *         batch isn't sharded
+	 */
+	public int getWorkers() {
+		return this.workers;
+	}
+
+	/**
+	 * @return the number of files in each shard leased to a worker
+	 */
+	public int getShardSize() {
+		return this.shardSize;
+	}
+
+	/**
+	 * @return the time in seconds a worker may go without renewing its lease
+	 */
+	public int getLease() {
+		return this.lease;
+	}
+
+	/**
+	 * @return true if the batch isn't leased to workers, or the worker options
+	 *         are valid and the batch's report is written to standard output
+	 *         uncompressed and unconverted by this process
+	 */
+	public boolean isValidWorkers() {
+		if (this.workers == 0) {
+			return true;
+		}
+		return this.workers > 0 && this.shardSize > 0 && this.lease > 0 && !this.isServerMode
+				&& this.reportFolder.isEmpty() && this.httpPort <= 0 && !isMultiProcess()
+				&& this.resultIndex == null && this.compression == ReportCompression.NONE
+				&& getReportEncoding() == ReportEncoding.NONE;
+	}
+
+	/**
+	 * @return the compression applied to the report written to standard output
+	 */
+	public ReportCompression getCompression() {
+		return this.compression;
+	}
+
+	/**
+	 * @return true if the shard options select a valid shard
+	 */
+	public boolean isValidShard() {
+		return this.shardCount >= 1 && this.shardIndex >= 0 && this.shardIndex < this.shardCount;
+	}
+
+	/**
+	 * @return selects the files of this run's shard, every file if the batch
+	 *         isn't sharded
+	 * @throws IllegalArgumentException
+	 *             if the shard options are invalid, see {@link #isValidShard()}
+	 */
+	public ShardSelector getShardSelector() {
+		return (this.shardCount == 1) ? ShardSelector.ALL : new ShardSelector(this.shardIndex, this.shardCount);
+	}
+
+	/**
+	 * @return true if the batch runs in child processes: more than one, an
+	 *         adaptive number whatever the number of cores, or supervised ones
+	 */
+	public boolean isMultiProcess() {
+		return getNumberOfProcesses() > 1 || isAutoProcesses() || isSupervised();
+	}
+
+	/**
+	 * @return true if the batch must run in supervised child processes, for a
+	 *         per file time budget or checkpoints
+	 */
+	public boolean isSupervised() {
+		return isTimeLimited() || this.checkpointDir != null;
+	}
+
+	/**
+	 * @return true if a per file time budget is set
+	 */
+	public boolean isTimeLimited() {
+		return this.timeout > 0 || this.cpuTimeout > 0;
+	}
+
+	/**
+	 * @return the localhost port for the server mode metrics endpoint, 0 if
+	 *         metrics are disabled
+	 */
+	public int getMetricsPort() {
+		return this.metricsPort;
+	}
+
+	/**
+	 * @return the localhost port for the HTTP validation service, 0 if the
+	 *         service is disabled
+	 */
+	public int getHttpPort() {
+		return this.httpPort;
+	}
+
+	/**
+	 * @return the maximum number of requests the HTTP validation service
+	 *         processes in parallel
+	 */
+	public int getMaxConcurrency() {
+		return this.maxConcurrency;
+	}
+
+	/**
+	 * @return the time in seconds allowed for a single HTTP validation request
+	 */
+	public int getRequestTimeout() {
+		return this.requestTimeout;
+	}
+
+	/**
+	 * @return the directory for asynchronous job files, null if not set
+	 */
+	public File getJobDir() {
+		return this.jobDir;
+	}
+
+	/**
+	 * @return the time in minutes finished asynchronous jobs are kept
+	 */
+	public int getJobTtl() {
+		return this.jobTtl;
+	}
+
+	/**
+	 * @return the maximum number of asynchronous jobs waiting to start
+	 */
+	public int getJobQueue() {
+		return this.jobQueue;
+	}
+
 	/**
 	 * @return the list of file paths
 	 */
@@ -349,14 +701,6 @@ public class VeraCliArgParser {
 	//
 	// /**
 	// * @author: mancuska@digitaldocuments.org
-	// * @return folder for reports
-	// */
-	// public String getReportFolder() {
-	// return this.reportFolder;
-	// }
-	//
-	// /**
-	// * @author: mancuska@digitaldocuments.org
 	// * @return output file for report
 	// */
 	// public String getReportFile() {
@@ -375,6 +719,29 @@ public class VeraCliArgParser {
 		return this.isValidationOff | this.isPolicy();
 	}
 
+	/**
+	 * JCommander parameter converter for {@link ReportCompression}, rejects a
+	 * compression that isn't available in this JVM.
+	 */
+	public static final class CompressionConverter implements IStringConverter<ReportCompression> {
+		/**
+		 * { @inheritDoc }
+		 */
+		@Override
+		public ReportCompression convert(final String value) {
+			ReportCompression compression;
+			try {
+				compression = ReportCompression.fromOption(value);
+			} catch (NoSuchElementException e) {
+				throw new ParameterException("Illegal " + COMPRESS + " value: " + value, e);
+			}
+			if (!compression.isAvailable()) {
+				throw new ParameterException(value + " compression needs zstd-jni on the class path");
+			}
+			return compression;
+		}
+	}
+
 	/**
 	 * JCommander parameter converter for {@link FormatOption}, see
 	 * {@link IStringConverter} and {@link FormatOption#fromOption(String)}.
@@ -396,6 +763,32 @@ public class VeraCliArgParser {
 
 	}
 
+	/**
+	 * JCommander parameter converter for the number of processes, a positive
+	 * number or {@value VeraCliArgParser#AUTO_PROCESSES_VALUE}.
+	 */
+	public static final class ProcessesConverter implements IStringConverter<Integer> {
+		/**
+		 * { @inheritDoc }
+		 */
+		@Override
+		public Integer convert(final String value) {
+			if (AUTO_PROCESSES_VALUE.equalsIgnoreCase(value)) {
+				return Integer.valueOf(AUTO_PROCESSES);
+			}
+			try {
+				int processes = Integer.parseInt(value);
+				if (processes > 0) {
+					return Integer.valueOf(processes);
+				}
+			} catch (NumberFormatException e) {
+				// reported below
+			}
+			throw new ParameterException("Illegal " + NUMBER_OF_PROCESSES_FLAG + " argument: " + value);
+		}
+
+	}
+
 	/**
 	 * JCommander parameter converter for {@link PDFAFlavour}, see
 	 * {@link IStringConverter} and {@link PDFAFlavour#byFlavourId(String)}.
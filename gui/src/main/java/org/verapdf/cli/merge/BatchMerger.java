@@ -0,0 +1,43 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.merge;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import org.verapdf.apps.utils.BatchTotals;
+
+/**
+ * Merges batch reports of one format, closing the merger writes the
+ * recomputed batch summary.
+ */
+interface BatchMerger extends Closeable {
+	/**
+	 * Copies the jobs of a report into the merged report.
+	 *
+	 * @param report
+	 *            a report in the merger's format
+	 * @throws IOException
+	 *             if the report can't be read or isn't well formed, jobs read
+	 *             before the error are kept
+	 */
+	void add(File report) throws IOException;
+
+	/**
+	 * @return the counts of the jobs merged so far
+	 */
+	BatchTotals getTotals();
+}
@@ -0,0 +1,134 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.merge;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.cli.CliConstants.ExitCodes;
+
+/**
+ * What a single job's reports and task exceptions say about it, gathered from
+ * the job's elements in report order whatever format the report was read from.
+ */
+final class JobOutcome {
+	static final String EXCEPTION_MESSAGE = "exceptionMessage"; //$NON-NLS-1$
+
+	private static final String VALIDATION_REPORT = "validationReport"; //$NON-NLS-1$
+	private static final String FEATURES_REPORT = "featuresReport"; //$NON-NLS-1$
+	private static final String REPAIR_REPORT = "metadataRepairReport"; //$NON-NLS-1$
+	private static final String POLICY_REPORT = "policyReport"; //$NON-NLS-1$
+	private static final String TASK_EXCEPTION = "taskException"; //$NON-NLS-1$
+	private static final String REPAIR_FAILED = "FIX_ERROR"; //$NON-NLS-1$
+	private static final String OUT_OF_MEMORY = "OutOfMemory"; //$NON-NLS-1$
+	private static final String ENCRYPTED = "encrypt"; //$NON-NLS-1$
+	private static final int MAX_MESSAGE_CHARS = 1024;
+	private static final List<String> REPAIR_TASKS = Arrays.asList("FIX_METADATA", "METADATA"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private Boolean isCompliant;
+	private boolean hasFeatures = false;
+	private String repairStatus;
+	private int policyFailedChecks = -1;
+	private final List<String> exceptionTypes = new ArrayList<>();
+	private final List<StringBuilder> messages = new ArrayList<>();
+
+	/**
+	 * @param name
+	 *            the name of an element of the job
+	 * @param attributes
+	 *            looks up the element's attribute values, null for attributes
+	 *            the element doesn't have
+	 */
+	void observe(final String name, final Function<String, String> attributes) {
+		switch (name) {
+		case VALIDATION_REPORT:
+			this.isCompliant = Boolean.valueOf(attributes.apply("isCompliant")); //$NON-NLS-1$
+			break;
+		case FEATURES_REPORT:
+			this.hasFeatures = true;
+			break;
+		case REPAIR_REPORT:
+			this.repairStatus = attributes.apply("status"); //$NON-NLS-1$
+			break;
+		case POLICY_REPORT:
+			this.policyFailedChecks = (int) ReportMerger.parseLong(attributes.apply("failedChecks"), 0); //$NON-NLS-1$
+			break;
+		case TASK_EXCEPTION:
+			this.exceptionTypes.add(attributes.apply("type")); //$NON-NLS-1$
+			this.messages.add(new StringBuilder());
+			break;
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Adds text to the message of the last task exception observed.
+	 */
+	void appendMessage(final String text) {
+		if (this.messages.isEmpty()) {
+			return;
+		}
+		StringBuilder message = this.messages.get(this.messages.size() - 1);
+		if (message.length() < MAX_MESSAGE_CHARS) {
+			message.append(text, 0, Math.min(text.length(), MAX_MESSAGE_CHARS - message.length()));
+		}
+	}
+
+	void count(final BatchTotals totals) {
+		totals.addJob();
+		boolean isValidationFailed = false;
+		boolean isFeaturesFailed = false;
+		boolean isRepairFailed = false;
+		for (int i = 0; i < this.exceptionTypes.size(); i++) {
+			String type = this.exceptionTypes.get(i);
+			String message = this.messages.get(i).toString();
+			if ("PARSE".equals(type)) { //$NON-NLS-1$
+				if (message.toLowerCase(Locale.ROOT).contains(ENCRYPTED)) {
+					totals.addFailedEncrypted();
+				} else {
+					totals.addFailedParsing();
+				}
+			} else if ("FEATURE".equals(type)) { //$NON-NLS-1$
+				isFeaturesFailed = true;
+			} else if (REPAIR_TASKS.contains(type)) {
+				isRepairFailed = true;
+			} else {
+				isValidationFailed |= "VALIDATE".equals(type); //$NON-NLS-1$
+				if (message.contains(OUT_OF_MEMORY) || message.contains(ExitCodes.OOM.message)) {
+					totals.addOutOfMemory();
+				} else {
+					totals.addVeraException();
+				}
+			}
+		}
+		if (isValidationFailed || this.isCompliant != null) {
+			totals.addValidation(isValidationFailed, this.isCompliant != null && this.isCompliant.booleanValue());
+		}
+		if (isFeaturesFailed || this.hasFeatures) {
+			totals.addFeatures(isFeaturesFailed);
+		}
+		if (isRepairFailed || this.repairStatus != null) {
+			totals.addRepair(isRepairFailed || REPAIR_FAILED.equals(this.repairStatus));
+		}
+		if (this.policyFailedChecks >= 0) {
+			totals.addPolicy(this.policyFailedChecks == 0);
+		}
+	}
+}
@@ -0,0 +1,387 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.merge;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.verapdf.apps.utils.BatchTotals;
+
+/**
+ * Merges newline delimited JSON batch reports, as written with
+ * {@code --ndjson}, into one. Each job line is copied to the output as soon as
+ * it's been read and counted, so memory use doesn't grow with the size or
+ * number of reports.
+ * <p>
+ * As for XML reports the merged batch summary line is recomputed from the
+ * jobs, only the batch duration is taken from the input summaries and the
+ * build information line of the first report that has one is kept.
+ */
+final class NdjsonReportMerger implements BatchMerger {
+	private static final String BUILD_INFORMATION = "buildInformation"; //$NON-NLS-1$
+	private static final String JOB = "job"; //$NON-NLS-1$
+	private static final String BATCH_SUMMARY = "batchSummary"; //$NON-NLS-1$
+	private static final String DURATION = "duration"; //$NON-NLS-1$
+
+	private final Writer out;
+	private final BatchTotals totals = new BatchTotals();
+	private boolean hasBuildInformation = false;
+	private boolean hasJobs = false;
+	private boolean isClosed = false;
+	private long start = Long.MAX_VALUE;
+	private long finish = Long.MIN_VALUE;
+
+	/**
+	 * @param os
+	 *            receives the merged report, not closed by the merger
+	 */
+	NdjsonReportMerger(final OutputStream os) {
+		this.out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void add(final File report) throws IOException {
+		try (InputStream is = Files.newInputStream(report.toPath())) {
+			add(is);
+		}
+	}
+
+	/**
+	 * Copies the jobs of a report into the merged report.
+	 *
+	 * @param report
+	 *            a newline delimited JSON report, not closed by the merger
+	 * @throws IOException
+	 *             if the report can't be read or a line isn't a JSON object,
+	 *             lines read before the error are kept
+	 */
+	void add(final InputStream report) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(report, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			Map<String, Object> record = JsonLine.parse(line);
+			if (record.containsKey(JOB)) {
+				copyJob(line, record.get(JOB));
+			} else if (record.containsKey(BUILD_INFORMATION) && !this.hasBuildInformation && !this.hasJobs) {
+				this.hasBuildInformation = true;
+				writeLine(line);
+			} else if (record.containsKey(BATCH_SUMMARY)) {
+				readDuration(record.get(BATCH_SUMMARY));
+			}
+		}
+	}
+
+	@Override
+	public BatchTotals getTotals() {
+		return this.totals;
+	}
+
+	private void copyJob(final String line, final Object job) throws IOException {
+		JobOutcome outcome = new JobOutcome();
+		observe(outcome, JOB, job);
+		this.hasJobs = true;
+		writeLine(line);
+		outcome.count(this.totals);
+	}
+
+	/**
+	 * Walks a job the way the XML elements it was converted from are read,
+	 * objects are elements with their scalar fields as attributes, arrays are
+	 * repeated elements and text only elements are plain strings.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void observe(final JobOutcome outcome, final String name, final Object value) {
+		if (value instanceof Map) {
+			Map<String, Object> element = (Map<String, Object>) value;
+			outcome.observe(name, attribute -> {
+				Object field = element.get(attribute);
+				return (field instanceof String) ? (String) field : null;
+			});
+			for (Map.Entry<String, Object> field : element.entrySet()) {
+				observe(outcome, field.getKey(), field.getValue());
+			}
+		} else if (value instanceof List) {
+			for (Object item : (List<Object>) value) {
+				observe(outcome, name, item);
+			}
+		} else {
+			outcome.observe(name, attribute -> null);
+			if (JobOutcome.EXCEPTION_MESSAGE.equals(name) && value != null) {
+				outcome.appendMessage((String) value);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void readDuration(final Object summary) {
+		if (!(summary instanceof Map)) {
+			return;
+		}
+		Object duration = ((Map<String, Object>) summary).get(DURATION);
+		if (duration instanceof Map) {
+			Map<String, Object> fields = (Map<String, Object>) duration;
+			this.start = Math.min(this.start, ReportMerger.parseLong(asString(fields.get("start")), Long.MAX_VALUE)); //$NON-NLS-1$
+			this.finish = Math.max(this.finish, ReportMerger.parseLong(asString(fields.get("finish")), Long.MIN_VALUE)); //$NON-NLS-1$
+		}
+	}
+
+	private static String asString(final Object value) {
+		return (value instanceof String) ? (String) value : null;
+	}
+
+	private void writeLine(final String line) throws IOException {
+		this.out.write(line);
+		this.out.write('\n');
+	}
+
+	/**
+	 * Writes the recomputed batch summary line.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.isClosed) {
+			return;
+		}
+		this.isClosed = true;
+		BatchTotals sum = this.totals;
+		StringBuilder line = new StringBuilder("{\"" + BATCH_SUMMARY + "\":{"); //$NON-NLS-1$ //$NON-NLS-2$
+		fields(line, "totalJobs", sum.getTotalJobs(), "failedToParse", sum.getFailedParsingJobs(), "encrypted", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				sum.getFailedEncryptedJobs(), "outOfMemory", sum.getOutOfMemory(), "veraExceptions", //$NON-NLS-1$ //$NON-NLS-2$
+				sum.getVeraExceptions());
+		line.append(",\"validationReports\":{"); //$NON-NLS-1$
+		fields(line, "compliant", sum.getCompliantPdfaCount(), "nonCompliant", sum.getNonCompliantPdfaCount(), //$NON-NLS-1$ //$NON-NLS-2$
+				"failedJobs", sum.getFailedValidationJobs(), "value", String.valueOf(sum.getValidationJobs())); //$NON-NLS-1$ //$NON-NLS-2$
+		line.append("},\"featureReports\":{"); //$NON-NLS-1$
+		fields(line, "failedJobs", sum.getFailedFeaturesJobs(), "value", String.valueOf(sum.getFeaturesJobs())); //$NON-NLS-1$ //$NON-NLS-2$
+		line.append("},\"repairReports\":{"); //$NON-NLS-1$
+		fields(line, "failedJobs", sum.getFailedRepairJobs(), "value", String.valueOf(sum.getRepairJobs())); //$NON-NLS-1$ //$NON-NLS-2$
+		line.append('}');
+		if (sum.getPolicyJobs() > 0) {
+			line.append(",\"policyReports\":{"); //$NON-NLS-1$
+			fields(line, "nonCompliant", sum.getPolicyNonCompliantJobs(), "value", //$NON-NLS-1$ //$NON-NLS-2$
+					String.valueOf(sum.getPolicyJobs()));
+			line.append('}');
+		}
+		if (this.start <= this.finish) {
+			line.append(",\"" + DURATION + "\":{"); //$NON-NLS-1$ //$NON-NLS-2$
+			fields(line, "start", this.start, "finish", this.finish, "value", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					ReportMerger.formatDuration(this.finish - this.start));
+			line.append('}');
+		}
+		line.append("}}"); //$NON-NLS-1$
+		writeLine(line.toString());
+		this.out.flush();
+	}
+
+	/**
+	 * Appends name and value pairs, numbers as JSON numbers and strings,
+	 * which are only ever digits and punctuation here, quoted.
+	 */
+	private static void fields(final StringBuilder line, final Object... fields) {
+		for (int i = 0; i < fields.length; i += 2) {
+			if (i > 0) {
+				line.append(',');
+			}
+			line.append('"').append(fields[i]).append("\":"); //$NON-NLS-1$
+			Object value = fields[i + 1];
+			if (value instanceof String) {
+				line.append('"').append(value).append('"');
+			} else {
+				line.append(value);
+			}
+		}
+	}
+
+	/**
+	 * Parses a single line of JSON. Strings are unescaped, numbers, booleans
+	 * are kept as their literal text and null as null, which is all the
+	 * counting needs.
+	 */
+	static final class JsonLine {
+		private final String text;
+		private int pos = 0;
+
+		private JsonLine(final String text) {
+			this.text = text;
+		}
+
+		@SuppressWarnings("unchecked")
+		static Map<String, Object> parse(final String line) throws IOException {
+			JsonLine parser = new JsonLine(line);
+			Object value = parser.value();
+			parser.skipWhitespace();
+			if (!(value instanceof Map) || parser.pos != line.length()) {
+				throw new IOException("Report line isn't a JSON object"); //$NON-NLS-1$
+			}
+			return (Map<String, Object>) value;
+		}
+
+		private Object value() throws IOException {
+			skipWhitespace();
+			char c = peek();
+			switch (c) {
+			case '{':
+				return object();
+			case '[':
+				return array();
+			case '"':
+				return string();
+			default:
+				int begin = this.pos;
+				while (this.pos < this.text.length() && ",}] \t\r\n".indexOf(this.text.charAt(this.pos)) < 0) { //$NON-NLS-1$
+					this.pos++;
+				}
+				String literal = this.text.substring(begin, this.pos);
+				if (literal.isEmpty()) {
+					throw error();
+				}
+				return "null".equals(literal) ? null : literal; //$NON-NLS-1$
+			}
+		}
+
+		private Map<String, Object> object() throws IOException {
+			Map<String, Object> object = new LinkedHashMap<>();
+			this.pos++;
+			skipWhitespace();
+			if (peek() == '}') {
+				this.pos++;
+				return object;
+			}
+			while (true) {
+				skipWhitespace();
+				String name = string();
+				skipWhitespace();
+				expect(':');
+				object.put(name, value());
+				skipWhitespace();
+				if (peek() == '}') {
+					this.pos++;
+					return object;
+				}
+				expect(',');
+			}
+		}
+
+		private List<Object> array() throws IOException {
+			List<Object> array = new ArrayList<>();
+			this.pos++;
+			skipWhitespace();
+			if (peek() == ']') {
+				this.pos++;
+				return array;
+			}
+			while (true) {
+				array.add(value());
+				skipWhitespace();
+				if (peek() == ']') {
+					this.pos++;
+					return array;
+				}
+				expect(',');
+			}
+		}
+
+		private String string() throws IOException {
+			expect('"');
+			StringBuilder string = new StringBuilder();
+			while (true) {
+				char c = next();
+				if (c == '"') {
+					return string.toString();
+				}
+				if (c != '\\') {
+					string.append(c);
+					continue;
+				}
+				char escaped = next();
+				switch (escaped) {
+				case 'n':
+					string.append('\n');
+					break;
+				case 'r':
+					string.append('\r');
+					break;
+				case 't':
+					string.append('\t');
+					break;
+				case 'b':
+					string.append('\b');
+					break;
+				case 'f':
+					string.append('\f');
+					break;
+				case 'u':
+					if (this.pos + 4 > this.text.length()) {
+						throw error();
+					}
+					try {
+						string.append((char) Integer.parseInt(this.text.substring(this.pos, this.pos + 4), 16));
+					} catch (NumberFormatException excep) {
+						throw error();
+					}
+					this.pos += 4;
+					break;
+				default:
+					string.append(escaped);
+				}
+			}
+		}
+
+		private void skipWhitespace() {
+			while (this.pos < this.text.length() && Character.isWhitespace(this.text.charAt(this.pos))) {
+				this.pos++;
+			}
+		}
+
+		private void expect(final char c) throws IOException {
+			if (next() != c) {
+				throw error();
+			}
+		}
+
+		private char peek() throws IOException {
+			if (this.pos >= this.text.length()) {
+				throw error();
+			}
+			return this.text.charAt(this.pos);
+		}
+
+		private char next() throws IOException {
+			char c = peek();
+			this.pos++;
+			return c;
+		}
+
+		private IOException error() {
+			return new IOException("Malformed JSON at column " + this.pos); //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,431 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.merge;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.cli.CliConstants.ExitCodes;
+
+/**
+ * Merges machine readable batch reports into one report, for batches that
+ * were split across runs or nodes. Reports are read one at a time as a stream
+ * of StAX events and each job is copied to the output as soon as it's been
+ * read, so memory use doesn't grow with the size or number of reports.
+ * <p>
+ * The merged batch summary is recomputed from the jobs rather than added up
+ * from the input summaries: validation, feature extraction, metadata repair
+ * and policy outcomes are counted from each job's reports and task
+ * exceptions. Only the batch duration is taken from the input summaries, from
+ * the earliest start to the latest finish. The build information of the first
+ * report that has one is kept.
+ * <p>
+ * The merge sub-command also takes newline delimited JSON reports, written
+ * with {@code --ndjson}, and merges them into a JSON report. The format is
+ * taken from the first report and all reports must be in that format; HTML
+ * and columnar reports can't be merged.
+ */
+public final class ReportMerger implements BatchMerger {
+	private static final Logger logger = Logger.getLogger(ReportMerger.class.getCanonicalName());
+
+	/**
+	 * The CLI sub-command that merges reports.
+	 */
+	public static final String COMMAND = "merge"; //$NON-NLS-1$
+
+	/**
+	 * How the merge sub-command is used, shown with the CLI help.
+	 */
+	public static final String USAGE = "Usage: verapdf " + COMMAND + " REPORT...\n" //$NON-NLS-1$ //$NON-NLS-2$
+			+ "  Merges machine readable XML reports, or newline delimited JSON reports written with --ndjson,\n" //$NON-NLS-1$
+			+ "  into one report with a recomputed batch summary, written to standard output. All reports\n" //$NON-NLS-1$
+			+ "  must be in the format of the first, HTML and columnar reports can't be merged."; //$NON-NLS-1$
+
+	private static final String ENCODING = "utf-8"; //$NON-NLS-1$
+	private static final String REPORT = "report"; //$NON-NLS-1$
+	private static final String BUILD_INFORMATION = "buildInformation"; //$NON-NLS-1$
+	private static final String JOBS = "jobs"; //$NON-NLS-1$
+	private static final String JOB = "job"; //$NON-NLS-1$
+	private static final String BATCH_SUMMARY = "batchSummary"; //$NON-NLS-1$
+	private static final String DURATION = "duration"; //$NON-NLS-1$
+
+	private final Writer out;
+	private final XMLEventWriter writer;
+	private final XMLEventFactory events = XMLEventFactory.newInstance();
+	private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+	private final BatchTotals totals = new BatchTotals();
+	private boolean hasBuildInformation = false;
+	private boolean hasJobs = false;
+	private boolean isClosed = false;
+	private long start = Long.MAX_VALUE;
+	private long finish = Long.MIN_VALUE;
+
+	/**
+	 * Starts the merged report.
+	 *
+	 * @param os
+	 *            receives the merged report, not closed by the merger
+	 * @throws IOException
+	 *             if the report can't be started
+	 */
+	public ReportMerger(final OutputStream os) throws IOException {
+		this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		this.out = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+		try {
+			this.writer = XMLOutputFactory.newInstance().createXMLEventWriter(this.out);
+			this.writer.add(this.events.createStartDocument(ENCODING, "1.0")); //$NON-NLS-1$
+			newLine();
+			this.writer.add(this.events.createStartElement("", "", REPORT)); //$NON-NLS-1$ //$NON-NLS-2$
+			newLine();
+		} catch (XMLStreamException excep) {
+			throw new IOException("Can't start merged report", excep); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Merges the reports and writes the merged report.
+	 *
+	 * @param reports
+	 *            the reports to merge, in order, all XML or all newline
+	 *            delimited JSON as the first report is
+	 * @param os
+	 *            receives the merged report
+	 * @return the exit code for the merged batch, {@link ExitCodes#IO_EXCEPTION}
+	 *         if any report couldn't be read, its remaining jobs are then
+	 *         missing from the merged report
+	 */
+	public static ExitCodes merge(final List<File> reports, final OutputStream os) {
+		ExitCodes exitCode = ExitCodes.VALID;
+		try (BatchMerger merger = isNdjson(reports) ? new NdjsonReportMerger(os) : new ReportMerger(os)) {
+			for (File report : reports) {
+				try {
+					merger.add(report);
+				} catch (IOException excep) {
+					logger.log(Level.SEVERE, "Can't merge report " + report.getAbsolutePath(), excep); //$NON-NLS-1$
+					exitCode = ExitCodes.IO_EXCEPTION;
+				}
+			}
+			merger.close();
+			logger.log(Level.INFO, "Merged " + reports.size() + " report(s): " + merger.getTotals()); //$NON-NLS-1$ //$NON-NLS-2$
+			return (exitCode == ExitCodes.VALID) ? ExitCodes.fromTotals(merger.getTotals()) : exitCode;
+		} catch (IOException excep) {
+			logger.log(Level.SEVERE, "Can't write merged report", excep); //$NON-NLS-1$
+			return ExitCodes.IO_EXCEPTION;
+		}
+	}
+
+	/**
+	 * Runs the merge sub-command, the merged report is written to standard
+	 * output.
+	 *
+	 * @param args
+	 *            the paths of the reports to merge, after the sub-command
+	 * @return the exit code for the merged batch
+	 */
+	public static ExitCodes run(final String[] args) {
+		if (args.length == 0) {
+			System.err.println(USAGE);
+			return ExitCodes.BAD_PARAMS;
+		}
+		List<File> reports = new ArrayList<>(args.length);
+		for (String path : args) {
+			File report = new File(path);
+			if (!report.isFile()) {
+				System.err.println("Report " + path + " doesn't exist"); //$NON-NLS-1$ //$NON-NLS-2$
+				return ExitCodes.BAD_PARAMS;
+			}
+			reports.add(report);
+		}
+		ExitCodes exitCode = merge(reports, System.out);
+		System.out.flush();
+		return exitCode;
+	}
+
+	/**
+	 * Tells newline delimited JSON from XML by the first character of the first
+	 * report that isn't white space, an unreadable report is taken to be XML
+	 * and fails when it's merged.
+	 */
+	static boolean isNdjson(final List<File> reports) {
+		if (reports.isEmpty()) {
+			return false;
+		}
+		try (InputStream is = new BufferedInputStream(new FileInputStream(reports.get(0)))) {
+			int c;
+			do {
+				c = is.read();
+			} while (c >= 0 && Character.isWhitespace(c));
+			return c == '{';
+		} catch (IOException excep) {
+			logger.log(Level.FINE, "Can't read report format", excep); //$NON-NLS-1$
+			return false;
+		}
+	}
+
+	/**
+	 * Copies the jobs of a report into the merged report.
+	 *
+	 * @param report
+	 *            a machine readable report
+	 * @throws IOException
+	 *             if the report can't be read or isn't well formed, jobs read
+	 *             before the error are kept
+	 */
+	@Override
+	public void add(final File report) throws IOException {
+		try (InputStream is = new BufferedInputStream(new FileInputStream(report))) {
+			add(is);
+		}
+	}
+
+	/**
+	 * Copies the jobs of a report into the merged report.
+	 *
+	 * @param report
+	 *            a machine readable report, not closed by the merger
+	 * @throws IOException
+	 *             if the report can't be read or isn't well formed, jobs read
+	 *             before the error are kept
+	 */
+	public void add(final InputStream report) throws IOException {
+		XMLEventReader reader = null;
+		try {
+			reader = this.inputFactory.createXMLEventReader(report);
+			while (reader.hasNext()) {
+				XMLEvent event = reader.nextEvent();
+				if (!event.isStartElement()) {
+					continue;
+				}
+				String name = event.asStartElement().getName().getLocalPart();
+				if (JOB.equals(name)) {
+					copyJob(reader, event.asStartElement());
+				} else if (BUILD_INFORMATION.equals(name) && !this.hasBuildInformation && !this.hasJobs) {
+					this.hasBuildInformation = true;
+					copy(reader, event);
+					newLine();
+				} else if (BATCH_SUMMARY.equals(name)) {
+					readDuration(reader);
+				}
+			}
+		} catch (XMLStreamException excep) {
+			throw new IOException("Can't read report", excep); //$NON-NLS-1$
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (XMLStreamException excep) {
+					logger.log(Level.FINE, "Can't close report reader", excep); //$NON-NLS-1$
+				}
+			}
+		}
+	}
+
+	@Override
+	public BatchTotals getTotals() {
+		return this.totals;
+	}
+
+	/**
+	 * Copies a job once it has been read in full, so a report that breaks off
+	 * part way through a job doesn't leave a broken job in the merged report.
+	 */
+	private void copyJob(final XMLEventReader reader, final StartElement job) throws XMLStreamException {
+		JobOutcome outcome = new JobOutcome();
+		List<XMLEvent> jobEvents = new ArrayList<>();
+		jobEvents.add(job);
+		int depth = 1;
+		boolean isMessage = false;
+		while (depth > 0) {
+			XMLEvent event = reader.nextEvent();
+			jobEvents.add(event);
+			if (event.isStartElement()) {
+				depth++;
+				StartElement element = event.asStartElement();
+				outcome.observe(element.getName().getLocalPart(), name -> attribute(element, name));
+				isMessage = JobOutcome.EXCEPTION_MESSAGE.equals(element.getName().getLocalPart());
+			} else if (event.isEndElement()) {
+				depth--;
+				isMessage = false;
+			} else if (isMessage && event.isCharacters()) {
+				outcome.appendMessage(event.asCharacters().getData());
+			}
+		}
+		if (!this.hasJobs) {
+			this.hasJobs = true;
+			this.writer.add(this.events.createStartElement("", "", JOBS)); //$NON-NLS-1$ //$NON-NLS-2$
+			newLine();
+		}
+		for (XMLEvent event : jobEvents) {
+			this.writer.add(event);
+		}
+		newLine();
+		outcome.count(this.totals);
+	}
+
+	private void copy(final XMLEventReader reader, final XMLEvent start) throws XMLStreamException {
+		this.writer.add(start);
+		int depth = 1;
+		while (depth > 0) {
+			XMLEvent event = reader.nextEvent();
+			this.writer.add(event);
+			if (event.isStartElement()) {
+				depth++;
+			} else if (event.isEndElement()) {
+				depth--;
+			}
+		}
+	}
+
+	private void readDuration(final XMLEventReader reader) throws XMLStreamException {
+		int depth = 1;
+		while (depth > 0) {
+			XMLEvent event = reader.nextEvent();
+			if (event.isStartElement()) {
+				depth++;
+				StartElement element = event.asStartElement();
+				if (depth == 2 && DURATION.equals(element.getName().getLocalPart())) {
+					long durationStart = longAttribute(element, "start", Long.MAX_VALUE); //$NON-NLS-1$
+					long durationFinish = longAttribute(element, "finish", Long.MIN_VALUE); //$NON-NLS-1$
+					this.start = Math.min(this.start, durationStart);
+					this.finish = Math.max(this.finish, durationFinish);
+				}
+			} else if (event.isEndElement()) {
+				depth--;
+			}
+		}
+	}
+
+	/**
+	 * Ends the jobs and writes the recomputed batch summary.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (this.isClosed) {
+			return;
+		}
+		this.isClosed = true;
+		try {
+			if (this.hasJobs) {
+				this.writer.add(this.events.createEndElement("", "", JOBS)); //$NON-NLS-1$ //$NON-NLS-2$
+				newLine();
+			}
+			writeSummary();
+			this.writer.add(this.events.createEndElement("", "", REPORT)); //$NON-NLS-1$ //$NON-NLS-2$
+			newLine();
+			this.writer.add(this.events.createEndDocument());
+			this.writer.close();
+			this.out.flush();
+		} catch (XMLStreamException excep) {
+			throw new IOException("Can't end merged report", excep); //$NON-NLS-1$
+		}
+	}
+
+	private void writeSummary() throws XMLStreamException {
+		BatchTotals sum = this.totals;
+		startElement(BATCH_SUMMARY, "totalJobs", sum.getTotalJobs(), "failedToParse", sum.getFailedParsingJobs(), //$NON-NLS-1$ //$NON-NLS-2$
+				"encrypted", sum.getFailedEncryptedJobs(), "outOfMemory", sum.getOutOfMemory(), "veraExceptions", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				sum.getVeraExceptions());
+		startElement("validationReports", "compliant", sum.getCompliantPdfaCount(), "nonCompliant", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				sum.getNonCompliantPdfaCount(), "failedJobs", sum.getFailedValidationJobs()); //$NON-NLS-1$
+		endElement("validationReports", sum.getValidationJobs()); //$NON-NLS-1$
+		startElement("featureReports", "failedJobs", sum.getFailedFeaturesJobs()); //$NON-NLS-1$ //$NON-NLS-2$
+		endElement("featureReports", sum.getFeaturesJobs()); //$NON-NLS-1$
+		startElement("repairReports", "failedJobs", sum.getFailedRepairJobs()); //$NON-NLS-1$ //$NON-NLS-2$
+		endElement("repairReports", sum.getRepairJobs()); //$NON-NLS-1$
+		if (sum.getPolicyJobs() > 0) {
+			startElement("policyReports", "nonCompliant", sum.getPolicyNonCompliantJobs()); //$NON-NLS-1$ //$NON-NLS-2$
+			endElement("policyReports", sum.getPolicyJobs()); //$NON-NLS-1$
+		}
+		if (this.start <= this.finish) {
+			startElement(DURATION, "start", this.start, "finish", this.finish); //$NON-NLS-1$ //$NON-NLS-2$
+			this.writer.add(this.events.createCharacters(formatDuration(this.finish - this.start)));
+			this.writer.add(this.events.createEndElement("", "", DURATION)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		this.writer.add(this.events.createEndElement("", "", BATCH_SUMMARY)); //$NON-NLS-1$ //$NON-NLS-2$
+		newLine();
+	}
+
+	private void startElement(final String name, final Object... attributes) throws XMLStreamException {
+		List<Attribute> list = new ArrayList<>(attributes.length / 2);
+		for (int i = 0; i < attributes.length; i += 2) {
+			list.add(this.events.createAttribute((String) attributes[i], String.valueOf(attributes[i + 1])));
+		}
+		this.writer.add(this.events.createStartElement(new QName(name), list.iterator(), Collections.emptyIterator()));
+	}
+
+	private void endElement(final String name, final int count) throws XMLStreamException {
+		this.writer.add(this.events.createCharacters(String.valueOf(count)));
+		this.writer.add(this.events.createEndElement("", "", name)); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	private void newLine() throws XMLStreamException {
+		this.writer.add(this.events.createCharacters("\n")); //$NON-NLS-1$
+	}
+
+	static String formatDuration(final long millis) {
+		long hours = TimeUnit.MILLISECONDS.toHours(millis);
+		long minutes = TimeUnit.MILLISECONDS.toMinutes(millis) % 60;
+		long seconds = TimeUnit.MILLISECONDS.toSeconds(millis) % 60;
+		return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d", Long.valueOf(hours), Long.valueOf(minutes), //$NON-NLS-1$
+				Long.valueOf(seconds), Long.valueOf(millis % 1000));
+	}
+
+	private static long longAttribute(final StartElement element, final String name, final long defaultValue) {
+		return parseLong(attribute(element, name), defaultValue);
+	}
+
+	private static String attribute(final StartElement element, final String name) {
+		Attribute attribute = element.getAttributeByName(new QName(name));
+		return (attribute == null) ? null : attribute.getValue();
+	}
+
+	static long parseLong(final String value, final long defaultValue) {
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException excep) {
+			return defaultValue;
+		}
+	}
+}
@@ -0,0 +1,73 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Cumulative latency histogram with fixed bucket boundaries, rendered in the
+ * Prometheus histogram layout. Observations are lock free so that the
+ * processing thread never waits on a metrics scrape.
+ */
+final class LatencyHistogram {
+	/** Upper bucket boundaries in seconds, the implicit last bucket is +Inf. */
+	static final double[] DEFAULT_BOUNDS = { 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300 };
+
+	private final double[] bounds;
+	private final AtomicLongArray buckets;
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong sumNanos = new AtomicLong();
+
+	LatencyHistogram() {
+		this(DEFAULT_BOUNDS);
+	}
+
+	LatencyHistogram(final double[] bounds) {
+		this.bounds = Arrays.copyOf(bounds, bounds.length);
+		this.buckets = new AtomicLongArray(bounds.length + 1);
+	}
+
+	void observe(final long nanos) {
+		double seconds = nanos / 1e9;
+		int index = 0;
+		while (index < this.bounds.length && seconds > this.bounds[index]) {
+			index++;
+		}
+		this.buckets.incrementAndGet(index);
+		this.count.incrementAndGet();
+		this.sumNanos.addAndGet(nanos);
+	}
+
+	long getCount() {
+		return this.count.get();
+	}
+
+	void write(final StringBuilder out, final String name, final String labels) {
+		String prefix = labels.isEmpty() ? "" : labels + ","; //$NON-NLS-1$
+		long cumulative = 0;
+		for (int i = 0; i < this.bounds.length; i++) {
+			cumulative += this.buckets.get(i);
+			out.append(name).append("_bucket{").append(prefix).append("le=\"").append(this.bounds[i]) //$NON-NLS-1$ //$NON-NLS-2$
+					.append("\"} ").append(cumulative).append('\n'); //$NON-NLS-1$
+		}
+		cumulative += this.buckets.get(this.bounds.length);
+		out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		String suffix = labels.isEmpty() ? " " : "{" + labels + "} "; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		out.append(name).append("_sum").append(suffix).append(this.sumNanos.get() / 1e9).append('\n'); //$NON-NLS-1$
+		out.append(name).append("_count").append(suffix).append(this.count.get()).append('\n'); //$NON-NLS-1$
+	}
+}
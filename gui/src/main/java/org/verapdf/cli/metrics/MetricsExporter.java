@@ -0,0 +1,112 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal HTTP endpoint, bound to the loopback interface only, that serves a
+ * {@link ProcessingMetrics} instance in the Prometheus text format at
+ * {@value #METRICS_PATH}.
+ */
+public final class MetricsExporter implements Closeable {
+	private static final Logger logger = Logger.getLogger(MetricsExporter.class.getCanonicalName());
+
+	public static final String METRICS_PATH = "/metrics"; //$NON-NLS-1$
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8"; //$NON-NLS-1$
+
+	private final HttpServer server;
+	private final ExecutorService executor;
+
+	private MetricsExporter(final HttpServer server, final ExecutorService executor) {
+		this.server = server;
+		this.executor = executor;
+	}
+
+	/**
+	 * Starts serving the passed metrics on the loopback interface.
+	 *
+	 * @param metrics
+	 *            the metrics to publish
+	 * @param port
+	 *            the TCP port to bind to, 0 picks a free port
+	 * @return the running exporter, close it to stop serving
+	 * @throws IOException
+	 *             when the port can't be bound
+	 */
+	public static MetricsExporter start(final ProcessingMetrics metrics, final int port) throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext(METRICS_PATH, new MetricsHandler(metrics));
+		ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "veraPDF-metrics"); //$NON-NLS-1$
+			thread.setDaemon(true);
+			return thread;
+		});
+		server.setExecutor(executor);
+		server.start();
+		logger.log(Level.INFO, "Serving metrics on http://{0}:{1}{2}", new Object[] { //$NON-NLS-1$
+				server.getAddress().getHostString(), String.valueOf(server.getAddress().getPort()), METRICS_PATH });
+		return new MetricsExporter(server, executor);
+	}
+
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	@Override
+	public void close() {
+		this.server.stop(0);
+		this.executor.shutdownNow();
+	}
+
+	private static final class MetricsHandler implements HttpHandler {
+		private final ProcessingMetrics metrics;
+
+		MetricsHandler(final ProcessingMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		@Override
+		public void handle(final HttpExchange exchange) throws IOException {
+			try {
+				if (!"GET".equals(exchange.getRequestMethod())) { //$NON-NLS-1$
+					exchange.sendResponseHeaders(405, -1);
+					return;
+				}
+				byte[] body = this.metrics.toPrometheusText().getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE); //$NON-NLS-1$
+				exchange.sendResponseHeaders(200, body.length);
+				try (OutputStream os = exchange.getResponseBody()) {
+					os.write(body);
+				}
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+}
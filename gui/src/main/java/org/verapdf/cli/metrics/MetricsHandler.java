@@ -0,0 +1,86 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.metrics;
+
+import java.io.IOException;
+
+import org.verapdf.cli.CliConstants;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.core.VeraPDFException;
+import org.verapdf.processor.BatchProcessingHandler;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.BatchSummary;
+import org.verapdf.processor.reports.ItemDetails;
+
+/**
+ * Passes the batch processor's callbacks on to the report handler and counts
+ * each file of the batch as a job, with its outcome and the time it took as
+ * the {@link CliConstants#STAGE_FILE} stage.
+ */
+public final class MetricsHandler implements BatchProcessingHandler {
+	private final BatchProcessingHandler handler;
+	private final ProcessingMetrics metrics;
+	private long itemStart = -1L;
+
+	public MetricsHandler(final BatchProcessingHandler handler, final ProcessingMetrics metrics) {
+		this.handler = handler;
+		this.metrics = metrics;
+	}
+
+	@Override
+	public void handleBatchStart(final ProcessorConfig config) {
+		this.handler.handleBatchStart(config);
+	}
+
+	@Override
+	public void handleItemStart(final ItemDetails itemDetails) {
+		finished(ExitCodes.VERAPDF_EXCEPTION);
+		this.itemStart = System.nanoTime();
+		this.metrics.jobStarted();
+		this.handler.handleItemStart(itemDetails);
+	}
+
+	@Override
+	public void handleResult(final ProcessorResult result) throws VeraPDFException {
+		finished(ExitCodes.fromResult(result));
+		this.handler.handleResult(result);
+	}
+
+	@Override
+	public void handleBatchEnd(final BatchSummary summary) throws VeraPDFException {
+		finished(ExitCodes.VERAPDF_EXCEPTION);
+		this.handler.handleBatchEnd(summary);
+	}
+
+	@Override
+	public void close() throws IOException {
+		finished(ExitCodes.VERAPDF_EXCEPTION);
+		this.handler.close();
+	}
+
+	/**
+	 * Ends the file in progress, if any. A file that never got a result is
+	 * counted as failed.
+	 */
+	private void finished(final ExitCodes exitCode) {
+		if (this.itemStart < 0) {
+			return;
+		}
+		this.metrics.recordStage(CliConstants.STAGE_FILE, System.nanoTime() - this.itemStart);
+		this.metrics.jobFinished(exitCode);
+		this.itemStart = -1L;
+	}
+}
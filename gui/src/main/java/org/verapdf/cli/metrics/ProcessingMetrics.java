@@ -0,0 +1,167 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.verapdf.cli.CliConstants.ExitCodes;
+
+/**
+ * Thread safe holder of the processing counters, gauges and stage latencies
+ * of a long running veraPDF CLI instance, see {@link MetricsExporter} for the
+ * HTTP endpoint that publishes them.
+ */
+public final class ProcessingMetrics {
+	private static final String PREFIX = "verapdf_"; //$NON-NLS-1$
+
+	private final AtomicLong jobsProcessed = new AtomicLong();
+	private final Map<ExitCodes, AtomicLong> failures = new EnumMap<>(ExitCodes.class);
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger queueDepth = new AtomicInteger();
+	private final AtomicInteger concurrency = new AtomicInteger();
+	private final ConcurrentMap<String, LatencyHistogram> stages = new ConcurrentHashMap<>();
+	private final MemoryMXBean memoryMan = ManagementFactory.getMemoryMXBean();
+
+	public ProcessingMetrics() {
+		for (ExitCodes code : ExitCodes.values()) {
+			if (code != ExitCodes.VALID) {
+				this.failures.put(code, new AtomicLong());
+			}
+		}
+	}
+
+	/**
+	 * Marks the start of a job, the job is counted as in flight until
+	 * {@link #jobFinished(ExitCodes)} is called.
+	 */
+	public void jobStarted() {
+		this.inFlight.incrementAndGet();
+	}
+
+	/**
+	 * Marks the end of a job started with {@link #jobStarted()}.
+	 *
+	 * @param exitCode
+	 *            the job's result, anything other than
+	 *            {@link ExitCodes#VALID} is counted as a failure
+	 */
+	public void jobFinished(final ExitCodes exitCode) {
+		this.inFlight.decrementAndGet();
+		this.jobsProcessed.incrementAndGet();
+		AtomicLong failureCount = exitCode == null ? null : this.failures.get(exitCode);
+		if (failureCount != null) {
+			failureCount.incrementAndGet();
+		}
+	}
+
+	public void setQueueDepth(final int depth) {
+		this.queueDepth.set(depth);
+	}
+
+	/**
+	 * @param level
+	 *            the number of jobs allowed to run in parallel
+	 */
+	public void setConcurrency(final int level) {
+		this.concurrency.set(level);
+	}
+
+	public int getConcurrency() {
+		return this.concurrency.get();
+	}
+
+	/**
+	 * Records the time taken by a single pass through a processing stage.
+	 *
+	 * @param stage
+	 *            the stage name, used as the {@code stage} label value
+	 * @param nanos
+	 *            the elapsed time in nanoseconds
+	 */
+	public void recordStage(final String stage, final long nanos) {
+		LatencyHistogram histogram = this.stages.get(stage);
+		if (histogram == null) {
+			LatencyHistogram created = new LatencyHistogram();
+			histogram = this.stages.putIfAbsent(stage, created);
+			if (histogram == null) {
+				histogram = created;
+			}
+		}
+		histogram.observe(nanos);
+	}
+
+	public long getJobsProcessed() {
+		return this.jobsProcessed.get();
+	}
+
+	public long getFailures(final ExitCodes exitCode) {
+		AtomicLong failureCount = this.failures.get(exitCode);
+		return failureCount == null ? 0 : failureCount.get();
+	}
+
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 * @return the current metric values in the Prometheus text exposition
+	 *         format, version 0.0.4
+	 */
+	public String toPrometheusText() {
+		StringBuilder out = new StringBuilder();
+		header(out, "jobs_processed_total", "counter", "Number of jobs processed."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		out.append(PREFIX).append("jobs_processed_total ").append(this.jobsProcessed.get()).append('\n'); //$NON-NLS-1$
+
+		header(out, "job_failures_total", "counter", "Number of jobs that failed, by CLI exit code."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (Map.Entry<ExitCodes, AtomicLong> entry : this.failures.entrySet()) {
+			out.append(PREFIX).append("job_failures_total{exit_code=\"").append(entry.getKey().name()) //$NON-NLS-1$
+					.append("\"} ").append(entry.getValue().get()).append('\n'); //$NON-NLS-1$
+		}
+
+		header(out, "jobs_in_flight", "gauge", "Number of jobs currently being processed."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		out.append(PREFIX).append("jobs_in_flight ").append(this.inFlight.get()).append('\n'); //$NON-NLS-1$
+
+		header(out, "queue_depth", "gauge", "Number of jobs waiting to be processed."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		out.append(PREFIX).append("queue_depth ").append(this.queueDepth.get()).append('\n'); //$NON-NLS-1$
+
+		header(out, "concurrency", "gauge", "Number of jobs allowed to run in parallel."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		out.append(PREFIX).append("concurrency ").append(this.concurrency.get()).append('\n'); //$NON-NLS-1$
+
+		header(out, "stage_duration_seconds", "histogram", "Time spent in each processing stage."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		for (Map.Entry<String, LatencyHistogram> entry : this.stages.entrySet()) {
+			entry.getValue().write(out, PREFIX + "stage_duration_seconds", "stage=\"" + entry.getKey() + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+
+		MemoryUsage heap = this.memoryMan.getHeapMemoryUsage();
+		header(out, "heap_used_bytes", "gauge", "Java heap in use."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		out.append(PREFIX).append("heap_used_bytes ").append(heap.getUsed()).append('\n'); //$NON-NLS-1$
+		header(out, "heap_max_bytes", "gauge", "Maximum Java heap, -1 if undefined."); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		out.append(PREFIX).append("heap_max_bytes ").append(heap.getMax()).append('\n'); //$NON-NLS-1$
+		return out.toString();
+	}
+
+	private static void header(final StringBuilder out, final String name, final String type, final String help) {
+		out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n'); //$NON-NLS-1$
+		out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n'); //$NON-NLS-1$
+	}
+}
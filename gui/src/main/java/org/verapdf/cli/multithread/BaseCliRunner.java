@@ -6,46 +6,110 @@ import org.verapdf.processor.reports.ResultStructure;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Queue;
-import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static java.util.stream.Collectors.toList;
 
-public class BaseCliRunner implements Runnable {
+/**
+ * Drives a single veraPDF child process running in server mode. The runner
+ * doesn't own a thread, a {@link PipeMultiplexer} pumps its standard output
+ * and every complete line, the path of a temporary report followed by the
+ * exit code for the file and the child's garbage collection time, is handed
+ * to {@link #onFrame(String)} which passes the next file to the child.
+ * <p>
+ * The runner supervises its child: if the child dies while processing a file
+ * a new child is started and the file retried once before it's quarantined.
+ * A child that overruns the per file wall clock or CPU time budget is killed
+ * and replaced without retrying, the file is reported as timed out.
+ * <p>
+ * One runner per batch is the large file lane, the only runner that takes
+ * files from the large file queue, see {@link BatchQueue}. A runner retired
+ * by the {@link ConcurrencyController} stops its child once the current file
+ * is done.
+ */
+public class BaseCliRunner {
     private static final Logger LOGGER = Logger.getLogger(BaseCliRunner.class.getCanonicalName());
 
+    private static final int MAX_RETRIES = 1;
+    private static final long CPU_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
     private final String veraPDFStarterPath;
 
-    private final Queue<File> filesToProcess;
+    private final BatchQueue filesToProcess;
+    private final boolean isLargeFileLane;
     private final List<String> veraPDFParameters;
 
     private Process process;
 
     private OutputStream out;
 
-    private Scanner reportScanner;
+    private InputStream in;
+
+    private LineFrameDecoder decoder;
+
+    private boolean isExitRequested = false;
+
+    private BatchItem current;
 
     private MultiThreadProcessor multiThreadProcessor;
 
-    BaseCliRunner(MultiThreadProcessor multiThreadProcessor, String veraPDFStarterPath, List<String> veraPDFParameters, Queue<File> filesToProcess) {
+    private final long wallBudgetNanos;
+    private final long cpuBudgetNanos;
+    private long itemStartWall;
+    private long itemStartCpu;
+    private long nextCpuCheck;
+    private boolean isTimedOut = false;
+    private boolean isRetiring = false;
+    private long childGcMillis = 0;
+
+    BaseCliRunner(MultiThreadProcessor multiThreadProcessor, String veraPDFStarterPath, List<String> veraPDFParameters,
+                  BatchQueue filesToProcess, boolean isLargeFileLane, int timeoutSeconds, int cpuTimeoutSeconds) {
         this.multiThreadProcessor = multiThreadProcessor;
         this.filesToProcess = filesToProcess;
+        this.isLargeFileLane = isLargeFileLane;
         this.veraPDFStarterPath = veraPDFStarterPath;
         this.veraPDFParameters = veraPDFParameters;
+        this.wallBudgetNanos = TimeUnit.SECONDS.toNanos(Math.max(0, timeoutSeconds));
+        this.cpuBudgetNanos = ProcessTree.isSupported() ? TimeUnit.SECONDS.toNanos(Math.max(0, cpuTimeoutSeconds)) : 0L;
+    }
+
+    /**
+     * Starts the child process with the next queued file.
+     *
+     * @return true if the process started, otherwise the failure has already
+     *         been reported to the {@link MultiThreadProcessor}
+     */
+    boolean start() {
+        this.current = poll();
+        if (this.current == null) {
+            this.multiThreadProcessor.countDown(CliConstants.ExitCodes.VALID);
+            return false;
+        }
+        if (!launch(this.current)) {
+            this.multiThreadProcessor.notStarted(this.current);
+            this.current = null;
+            this.multiThreadProcessor.countDown(CliConstants.ExitCodes.FAILED_MULTIPROCESS_START);
+            return false;
+        }
+        if (this.isLargeFileLane) {
+            filesToProcess.laneStarted();
+        }
+        return true;
     }
 
-    @Override
-    public void run() {
+    private boolean launch(BatchItem item) {
         List<String> command = new LinkedList<>();
 
         command.add(veraPDFStarterPath);
         command.addAll(veraPDFParameters);
-        command.add(filesToProcess.poll().getAbsolutePath());
+        command.add(item.getFile().getAbsolutePath());
 
         command = command.stream().map(parameter -> {
             if (parameter.isEmpty()) {
@@ -62,45 +126,276 @@ public class BaseCliRunner implements Runnable {
             this.process = pb.start();
 
             this.out = process.getOutputStream();
-            reportScanner = new Scanner(process.getInputStream());
-
-        } catch (Exception e) {
+            this.in = process.getInputStream();
+            this.decoder = new LineFrameDecoder(Charset.defaultCharset());
+            this.isExitRequested = false;
+            this.isTimedOut = false;
+            this.childGcMillis = 0;
+            startClock();
+            return true;
+        } catch (IOException | RuntimeException e) {
             LOGGER.log(Level.SEVERE, "Exception in process", e);
+            return false;
         }
-        while (reportScanner.hasNextLine()) {
-            multiThreadProcessor.write(getData());
+    }
 
-            File file = filesToProcess.poll();
+    /**
+     * Reads whatever the child has written to its standard output without
+     * blocking and dispatches any complete frames.
+     *
+     * @param buffer
+     *            scratch buffer, shared between runners
+     * @return true if any bytes were read
+     * @throws IOException
+     *             if the pipe can't be read
+     */
+    boolean pump(byte[] buffer) throws IOException {
+        int available = this.in.available();
+        if (available <= 0) {
+            return false;
+        }
+        int read = this.in.read(buffer, 0, Math.min(available, buffer.length));
+        if (read > 0) {
+            this.decoder.decode(buffer, 0, read, this::onFrame);
+        }
+        return read != 0;
+    }
 
-            if (file != null) {
-                validateFile(file);
-            } else {
-                closeProcess();
+    /**
+     * @return true once the child has exited and its output has been drained,
+     *         the exit code has then been reported to the
+     *         {@link MultiThreadProcessor}. A child that dies while processing
+     *         a file is replaced, see {@link #recover(int)}.
+     */
+    boolean isFinished() {
+        try {
+            if (this.process.isAlive() || this.in.available() > 0) {
+                return false;
             }
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Child output closed", e);
+        }
+        // any unterminated frame is the truncated output of a child that died
+        int exitValue = exitValue();
+        if (!this.isExitRequested && this.current != null && recover(exitValue)) {
+            return false;
+        }
+        finish(exitValue);
+        return true;
+    }
+
+    /**
+     * Kills the child if it has overrun the time budget for the current file,
+     * the file is reported as timed out once the child has exited.
+     *
+     * @param now
+     *            the current {@link System#nanoTime()}
+     * @return true if the child was killed
+     */
+    boolean checkTimeout(long now) {
+        if (this.isExitRequested || this.isTimedOut || this.current == null) {
+            return false;
+        }
+        String budget = null;
+        if (this.wallBudgetNanos > 0 && now - this.itemStartWall > this.wallBudgetNanos) {
+            budget = "wall clock";
+        } else if (this.cpuBudgetNanos > 0 && now >= this.nextCpuCheck) {
+            this.nextCpuCheck = now + CPU_CHECK_INTERVAL_NANOS;
+            long cpu = ProcessTree.cpuNanos(this.process);
+            if (cpu >= 0 && this.itemStartCpu >= 0 && cpu - this.itemStartCpu > this.cpuBudgetNanos) {
+                budget = "CPU time";
+            }
+        }
+        if (budget == null) {
+            return false;
+        }
+        LOGGER.log(Level.WARNING, "veraPDF child process exceeded the " + budget + " budget processing "
+                + this.current.getFile().getAbsolutePath() + ", killing it");
+        this.isTimedOut = true;
+        ProcessTree.destroyForcibly(this.process);
+        return true;
+    }
+
+    /**
+     * Stops the child once it has finished the current file, used to lower
+     * the number of running processes.
+     */
+    void retire() {
+        this.isRetiring = true;
+    }
+
+    boolean isRetiring() {
+        return this.isRetiring;
+    }
+
+    boolean isLargeFileLane() {
+        return this.isLargeFileLane;
+    }
+
+    /**
+     * Kills the child, used when the multiplexer stops before the child exits.
+     */
+    void destroy() {
+        this.process.destroy();
+        this.isExitRequested = true;
+        finish(exitValue());
+    }
+
+    /**
+     * Replaces a child that died while processing the current file. The file
+     * is retried once with a fresh child, if that child dies too the file is
+     * quarantined and the fresh child moves on to the next queued file.
+     *
+     * @return true if a replacement child is running
+     */
+    private boolean recover(int exitValue) {
+        BatchItem failed = this.current;
+        String path = failed.getFile().getAbsolutePath();
+        if (this.isTimedOut) {
+            this.multiThreadProcessor.timedOut(failed);
+            return next();
+        }
+        if (failed.incrementFailures() <= MAX_RETRIES) {
+            LOGGER.log(Level.WARNING, "veraPDF child process exited with code " + exitValue + " while processing "
+                    + path + ", retrying with a new process");
+            return relaunch();
+        }
+        LOGGER.log(Level.SEVERE, "veraPDF child process exited with code " + exitValue + " on every attempt at "
+                + path + ", quarantining the file");
+        this.multiThreadProcessor.quarantine(failed, CliConstants.ExitCodes.fromValue(exitValue));
+        return next();
+    }
+
+    /**
+     * Starts a replacement child with the next queued file.
+     *
+     * @return true if a replacement child is running
+     */
+    private boolean next() {
+        this.current = this.isRetiring ? null : poll();
+        if (this.current == null) {
+            // nothing left to hand a new child, the runner is done
+            this.isExitRequested = true;
+            return false;
         }
+        return relaunch();
     }
 
-    private boolean closeProcess() {
-        boolean isClosed = false;
+    /**
+     * Starts a replacement child with the current file. If no child can be
+     * started the file is reported as failed, so it isn't lost with the
+     * runner.
+     *
+     * @return true if a replacement child is running
+     */
+    private boolean relaunch() {
+        if (launch(this.current)) {
+            return true;
+        }
+        this.multiThreadProcessor.notStarted(this.current);
+        this.current = null;
+        this.isExitRequested = true;
+        return false;
+    }
+
+    private int exitValue() {
         try {
-            this.out.write(VeraPdfCli.EXIT.getBytes());
-            this.out.write("\n".getBytes());
-            this.out.flush();
+            return this.process.exitValue();
+        } catch (IllegalThreadStateException e) {
+            return CliConstants.ExitCodes.INTERRUPTED_EXCEPTION.value;
+        }
+    }
+
+    private BatchItem poll() {
+        BatchItem item = filesToProcess.poll(this.isLargeFileLane);
+        if (item != null) {
+            this.multiThreadProcessor.started(item);
+        }
+        return item;
+    }
+
+    private void onFrame(String frame) {
+        if (this.isExitRequested) {
+            return;
+        }
+        String[] fields = frame.split("\t");
+        multiThreadProcessor.write(this.current, new ResultStructure(new File(fields[0])), exitCode(fields));
+        childGc(fields);
+
+        this.current = this.isRetiring ? null : poll();
+
+        if (this.current != null) {
+            validateFile(this.current.getFile());
+        } else {
+            closeProcess();
+        }
+    }
+
+    /**
+     * @return the exit code that follows the report path, null if the frame
+     *         doesn't carry a veraPDF exit code
+     */
+    private static CliConstants.ExitCodes exitCode(String[] fields) {
+        if (fields.length < 2) {
+            return null;
+        }
+        try {
+            return CliConstants.ExitCodes.fromValue(Integer.parseInt(fields[1].trim()));
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.FINE, "Malformed exit code in frame: " + fields[1], e);
+            return null;
+        }
+    }
 
-            process.waitFor();
+    /**
+     * Passes on the garbage collection time the child reports, a running
+     * total for the child's JVM, as the increase since its last frame.
+     */
+    private void childGc(String[] fields) {
+        if (fields.length < 3) {
+            return;
+        }
+        try {
+            long total = Long.parseLong(fields[2].trim());
+            if (total > this.childGcMillis) {
+                this.multiThreadProcessor.childGc(total - this.childGcMillis);
+                this.childGcMillis = total;
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.FINE, "Malformed GC time in frame: " + fields[2], e);
+        }
+    }
 
-            isClosed = true;
+    private void finish(int exitValue) {
+        if (this.isLargeFileLane) {
+            filesToProcess.laneEnded();
+        }
+        if (!this.isExitRequested) {
+            LOGGER.log(Level.WARNING, "veraPDF child process exited unexpectedly with code " + exitValue);
+        }
+        this.multiThreadProcessor.countDown(CliConstants.ExitCodes.fromValue(exitValue));
+    }
 
+    private void closeProcess() {
+        this.isExitRequested = true;
+        try {
+            this.out.write(VeraPdfCli.EXIT.getBytes());
+            this.out.write("\n".getBytes());
+            this.out.flush();
+            this.out.close();
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Can't close process", e);
-        } catch (InterruptedException e) {
-            LOGGER.log(Level.SEVERE, "Process interrupted exception", e);
         }
-        this.multiThreadProcessor.countDown(CliConstants.ExitCodes.fromValue(process.exitValue()));
-        return isClosed;
+    }
+
+    private void startClock() {
+        this.itemStartWall = System.nanoTime();
+        this.itemStartCpu = (this.cpuBudgetNanos > 0) ? ProcessTree.cpuNanos(this.process) : -1L;
+        this.nextCpuCheck = this.itemStartWall + CPU_CHECK_INTERVAL_NANOS;
     }
 
     private void validateFile(File file) {
+        startClock();
         try {
             this.out.write(file.getAbsolutePath().getBytes());
             this.out.write("\n".getBytes());
@@ -109,8 +404,4 @@ public class BaseCliRunner implements Runnable {
             LOGGER.log(Level.SEVERE, "Can't pass new file to validate", e);
         }
     }
-
-    private ResultStructure getData() {
-        return new ResultStructure(new File(reportScanner.nextLine()));
-    }
 }
@@ -0,0 +1,54 @@
+package org.verapdf.cli.multithread;
+
+import java.io.File;
+
+/**
+ * A file queued for a child process together with its position in the input.
+ */
+final class BatchItem {
+	private final File file;
+	private final long index;
+	private int failures = 0;
+	private long startNanos = -1L;
+
+	BatchItem(File file, long index) {
+		this.file = file;
+		this.index = index;
+	}
+
+	File getFile() {
+		return this.file;
+	}
+
+	long getIndex() {
+		return this.index;
+	}
+
+	/**
+	 * Records when the file was first handed to a child process.
+	 *
+	 * @param nanos
+	 *            the {@link System#nanoTime()} the file was taken from the
+	 *            queue
+	 */
+	void started(long nanos) {
+		this.startNanos = nanos;
+	}
+
+	/**
+	 * @return the {@link System#nanoTime()} the file was first handed to a
+	 *         child process, negative if it never was
+	 */
+	long getStartNanos() {
+		return this.startNanos;
+	}
+
+	/**
+	 * Records that a child process died while processing the file.
+	 *
+	 * @return the number of times a child has died on the file
+	 */
+	int incrementFailures() {
+		return ++this.failures;
+	}
+}
@@ -0,0 +1,79 @@
+package org.verapdf.cli.multithread;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The files waiting for a child process. Files at or above the large file
+ * size wait in a separate queue that the large file lane, a single child,
+ * takes from, so at most one large file is processed at a time. The lane takes
+ * ordinary files once no large file is waiting. Once the ordinary files are
+ * taken and no lane is running, because it was never started or has ended,
+ * any child takes the large files so none are left behind.
+ */
+final class BatchQueue {
+	private final Queue<BatchItem> files = new ConcurrentLinkedQueue<>();
+	private final Queue<BatchItem> largeFiles = new ConcurrentLinkedQueue<>();
+	private final long largeFileBytes;
+	private final AtomicInteger lanes = new AtomicInteger();
+
+	/**
+	 * @param largeFileBytes
+	 *            the size in bytes from which files take the large file lane,
+	 *            0 to disable the lane
+	 */
+	BatchQueue(long largeFileBytes) {
+		this.largeFileBytes = largeFileBytes;
+	}
+
+	void add(BatchItem item) {
+		if (this.largeFileBytes > 0 && item.getFile().length() >= this.largeFileBytes) {
+			this.largeFiles.add(item);
+		} else {
+			this.files.add(item);
+		}
+	}
+
+	/**
+	 * @param isLargeFileLane
+	 *            true if the caller is the large file lane
+	 * @return the next file for the caller, null if there's none left
+	 */
+	BatchItem poll(boolean isLargeFileLane) {
+		if (isLargeFileLane) {
+			BatchItem item = this.largeFiles.poll();
+			if (item != null) {
+				return item;
+			}
+		}
+		BatchItem item = this.files.poll();
+		if (item == null && this.lanes.get() == 0) {
+			item = this.largeFiles.poll();
+		}
+		return item;
+	}
+
+	/**
+	 * Records that a large file lane's child has started.
+	 */
+	void laneStarted() {
+		this.lanes.incrementAndGet();
+	}
+
+	/**
+	 * Records that a large file lane's runner has finished, its large files
+	 * are then open to every child.
+	 */
+	void laneEnded() {
+		this.lanes.decrementAndGet();
+	}
+
+	int size() {
+		return this.files.size() + this.largeFiles.size();
+	}
+
+	int largeFileCount() {
+		return this.largeFiles.size();
+	}
+}
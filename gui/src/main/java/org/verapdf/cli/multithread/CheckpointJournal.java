@@ -0,0 +1,337 @@
+package org.verapdf.cli.multithread;
+
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.cli.merge.ReportMerger;
+import org.verapdf.processor.FormatOption;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the progress of a batch so an interrupted run can be resumed. The
+ * journal directory holds two append only files:
+ * <ul>
+ * <li>{@value #SPOOL_NAME}: the report of every completed file, one after
+ * another;</li>
+ * <li>{@value #JOURNAL_NAME}: a header naming the report format followed by a
+ * line per completed file with its input position, the batch exit code so
+ * far, the offset and length of its report in the spool and its path.</li>
+ * </ul>
+ * The journaled exit code is only what was known when the file completed, a
+ * child's invalid files reach it when the child exits, so a resumed batch
+ * recounts its completed files from their spooled reports.
+ * A file's report is written to the spool before its journal line so the
+ * journal never refers to a report that isn't there. Both files are forced to
+ * disk every {@value #SYNC_EVERY} files or {@value #SYNC_INTERVAL_SECONDS}
+ * seconds. When reopened for a resume, a torn last line and any spooled
+ * report without a journal line are cut off.
+ */
+final class CheckpointJournal implements Closeable {
+	static final String JOURNAL_NAME = "journal"; //$NON-NLS-1$
+	static final String SPOOL_NAME = "reports.spool"; //$NON-NLS-1$
+	private static final String HEADER_PREFIX = "# veraPDF checkpoint 1 format="; //$NON-NLS-1$
+	private static final int SYNC_EVERY = 100;
+	private static final int SYNC_INTERVAL_SECONDS = 10;
+	private static final char SEPARATOR = '\t';
+	private static final String RESTORED_PREFIX = "veraPDF-resumed"; //$NON-NLS-1$
+	private static final String TEXT_PASS = "PASS "; //$NON-NLS-1$
+	private static final String TEXT_FAIL = "FAIL "; //$NON-NLS-1$
+	private static final String TEXT_ERROR = "ERROR "; //$NON-NLS-1$
+
+	private final FileChannel journal;
+	private final FileChannel spool;
+	private final File spoolFile;
+	private final FormatOption format;
+	private final Map<String, Entry> completed;
+	private int unsynced = 0;
+	private long lastSync = System.nanoTime();
+
+	/**
+	 * A completed file recorded in the journal.
+	 */
+	static final class Entry {
+		final long index;
+		final long offset;
+		final long length;
+		final String path;
+
+		Entry(long index, long offset, long length, String path) {
+			this.index = index;
+			this.offset = offset;
+			this.length = length;
+			this.path = path;
+		}
+	}
+
+	private CheckpointJournal(File journalFile, File spoolFile, FormatOption format, Map<String, Entry> completed,
+			long journalEnd, long spoolEnd) throws IOException {
+		this.spoolFile = spoolFile;
+		this.format = format;
+		this.completed = completed;
+		this.journal = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.spool = FileChannel.open(spoolFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.READ);
+		this.journal.truncate(journalEnd);
+		this.journal.position(journalEnd);
+		this.spool.truncate(spoolEnd);
+		this.spool.position(spoolEnd);
+	}
+
+	/**
+	 * Opens the journal in a directory.
+	 *
+	 * @param dir
+	 *            the journal directory, created if missing
+	 * @param format
+	 *            the report format of the batch
+	 * @param isResume
+	 *            true to continue the journal, false to start afresh
+	 * @return the open journal
+	 * @throws IOException
+	 *             if the journal can't be read or written, or was written for
+	 *             another report format
+	 */
+	static CheckpointJournal open(File dir, FormatOption format, boolean isResume) throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("Can't create checkpoint directory " + dir.getAbsolutePath());
+		}
+		File journalFile = new File(dir, JOURNAL_NAME);
+		File spoolFile = new File(dir, SPOOL_NAME);
+		String header = HEADER_PREFIX + format.name() + '\n';
+		if (!isResume || !journalFile.isFile()) {
+			CheckpointJournal created = new CheckpointJournal(journalFile, spoolFile, format, new LinkedHashMap<>(), 0,
+					0);
+			created.journal.write(ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)));
+			created.journal.force(true);
+			return created;
+		}
+		Map<String, Entry> completed = new LinkedHashMap<>();
+		long spoolLength = spoolFile.length();
+		long journalEnd = 0;
+		long spoolEnd = 0;
+		try (InputStream in = new BufferedInputStream(new FileInputStream(journalFile))) {
+			String line = readLine(in);
+			if (line == null || !(line + '\n').equals(header)) {
+				throw new IOException("Checkpoint journal " + journalFile.getAbsolutePath()
+						+ " wasn't written for " + format.name() + " reports");
+			}
+			journalEnd = line.getBytes(StandardCharsets.UTF_8).length + 1;
+			while ((line = readLine(in)) != null) {
+				Entry entry = parse(line);
+				if (entry == null || entry.offset + entry.length > spoolLength) {
+					break;
+				}
+				completed.put(entry.path, entry);
+				journalEnd += line.getBytes(StandardCharsets.UTF_8).length + 1;
+				spoolEnd = Math.max(spoolEnd, entry.offset + entry.length);
+			}
+		}
+		return new CheckpointJournal(journalFile, spoolFile, format, completed, journalEnd, spoolEnd);
+	}
+
+	/**
+	 * @return the files completed before the journal was reopened, by
+	 *         absolute path in completion order
+	 */
+	Map<String, Entry> getCompleted() {
+		return Collections.unmodifiableMap(this.completed);
+	}
+
+	/**
+	 * Counts the jobs in the spooled reports of the files completed before the
+	 * journal was reopened.
+	 *
+	 * @return the totals of the completed files
+	 * @throws IOException
+	 *             if a spooled report can't be read
+	 */
+	BatchTotals countCompleted() throws IOException {
+		BatchTotals totals = new BatchTotals();
+		try (ReportMerger counter = new ReportMerger(new Discard())) {
+			for (Entry entry : this.completed.values()) {
+				File report = restore(entry);
+				try {
+					if (this.format == FormatOption.TEXT) {
+						countText(report, totals);
+					} else {
+						counter.add(report);
+					}
+				} finally {
+					report.delete();
+				}
+			}
+			totals.add(counter.getTotals());
+		}
+		return totals;
+	}
+
+	/**
+	 * Counts the lines of a text report, a line per job starting with its
+	 * outcome.
+	 */
+	private static void countText(File report, BatchTotals totals) throws IOException {
+		try (InputStream in = new BufferedInputStream(new FileInputStream(report))) {
+			String line;
+			while ((line = readLine(in)) != null) {
+				if (line.startsWith(TEXT_PASS) || line.startsWith(TEXT_FAIL)) {
+					totals.addJob();
+					totals.addValidation(false, line.startsWith(TEXT_PASS));
+				} else if (line.startsWith(TEXT_ERROR)) {
+					totals.addJob();
+					totals.addVeraException();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Spools a completed file's report and records it in the journal.
+	 *
+	 * @param item
+	 *            the completed file
+	 * @param exitCode
+	 *            the batch exit code so far
+	 * @param report
+	 *            the file's report
+	 * @throws IOException
+	 *             if the journal can't be written
+	 */
+	void record(BatchItem item, ExitCodes exitCode, File report) throws IOException {
+		long offset = this.spool.position();
+		try (FileChannel in = FileChannel.open(report.toPath(), StandardOpenOption.READ)) {
+			long size = in.size();
+			long copied = 0;
+			while (copied < size) {
+				copied += in.transferTo(copied, size - copied, this.spool);
+			}
+		}
+		long length = this.spool.position() - offset;
+		String path = item.getFile().getAbsolutePath();
+		String line = String.valueOf(item.getIndex()) + SEPARATOR + exitCode.value + SEPARATOR + offset + SEPARATOR
+				+ length + SEPARATOR + path + '\n';
+		this.journal.write(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+		this.unsynced++;
+		if (this.unsynced >= SYNC_EVERY
+				|| System.nanoTime() - this.lastSync > TimeUnit.SECONDS.toNanos(SYNC_INTERVAL_SECONDS)) {
+			sync();
+		}
+	}
+
+	/**
+	 * Copies a spooled report to a temporary file so it can be merged again,
+	 * the copy is deleted when the journal is closed if it's still there.
+	 *
+	 * @param entry
+	 *            a completed file
+	 * @return the temporary copy of its report
+	 * @throws IOException
+	 *             if the spool can't be read
+	 */
+	File restore(Entry entry) throws IOException {
+		File copy = File.createTempFile(RESTORED_PREFIX, null, this.spoolFile.getParentFile());
+		try (FileChannel out = new FileOutputStream(copy).getChannel()) {
+			long copied = 0;
+			while (copied < entry.length) {
+				copied += this.spool.transferTo(entry.offset + copied, entry.length - copied, out);
+			}
+		}
+		return copy;
+	}
+
+	private void sync() throws IOException {
+		this.spool.force(false);
+		this.journal.force(false);
+		this.unsynced = 0;
+		this.lastSync = System.nanoTime();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			sync();
+		} finally {
+			this.journal.close();
+			this.spool.close();
+			deleteRestored();
+		}
+	}
+
+	private void deleteRestored() {
+		File[] restored = this.spoolFile.getParentFile()
+				.listFiles((dir, name) -> name.startsWith(RESTORED_PREFIX));
+		if (restored != null) {
+			for (File copy : restored) {
+				copy.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return a journal entry, null if the line is malformed
+	 */
+	private static Entry parse(String line) {
+		String[] fields = line.split(String.valueOf(SEPARATOR), 5);
+		if (fields.length != 5) {
+			return null;
+		}
+		try {
+			// the exit code is checked but not kept, see the class comment
+			Integer.parseInt(fields[1]);
+			return new Entry(Long.parseLong(fields[0]), Long.parseLong(fields[2]), Long.parseLong(fields[3]),
+					fields[4]);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the next line without its terminator, null at the end of the
+	 *         stream or if the last line is torn
+	 */
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int read;
+		while ((read = in.read()) != -1) {
+			if (read == '\n') {
+				return new String(line.toByteArray(), StandardCharsets.UTF_8);
+			}
+			line.write(read);
+		}
+		return null;
+	}
+
+	/**
+	 * Drops the merged report, only its counts are wanted.
+	 */
+	private static final class Discard extends OutputStream {
+		Discard() {
+			super();
+		}
+
+		@Override
+		public void write(int b) {
+			// dropped
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			// dropped
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package org.verapdf.cli.multithread;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.verapdf.cli.metrics.ProcessingMetrics;
+
+/**
+ * Decides how many child processes run at once. A fixed controller keeps the
+ * number the operator chose. An adaptive controller starts at one process per
+ * core and every {@value #SAMPLE_INTERVAL_SECONDS} seconds adjusts the level
+ * by additive increase, multiplicative decrease:
+ * <ul>
+ * <li>the level is cut by a quarter when the host is oversubscribed, its run
+ * queue is longer than {@value #MAX_LOAD_PER_CORE} per core, free physical
+ * memory is below {@value #MIN_FREE_MEMORY} or the child processes spend more
+ * than {@value #MAX_GC_FRACTION} of their time collecting garbage;</li>
+ * <li>the level drops back by one when the last increase didn't raise the
+ * throughput, files completed per second, and stays there for
+ * {@value #PLATEAU_SAMPLES} samples;</li>
+ * <li>otherwise the level grows by one while there's idle CPU and memory to
+ * spare.</li>
+ * </ul>
+ * The level is only read and changed by the {@link PipeMultiplexer} loop.
+ */
+final class ConcurrencyController {
+	private static final Logger LOGGER = Logger.getLogger(ConcurrencyController.class.getCanonicalName());
+
+	static final int SAMPLE_INTERVAL_SECONDS = 5;
+	static final double MAX_LOAD_PER_CORE = 1.25;
+	static final double MIN_FREE_MEMORY = 0.10;
+	static final double MAX_GC_FRACTION = 0.10;
+	static final int PLATEAU_SAMPLES = 6;
+	private static final double MAX_CPU_FOR_GROWTH = 0.85;
+	private static final double MIN_FREE_MEMORY_FOR_GROWTH = 0.20;
+	private static final double MIN_THROUGHPUT_GAIN = 1.02;
+	private static final double DECREASE_FACTOR = 0.75;
+
+	private final boolean isAdaptive;
+	private final int maxLevel;
+	private final HostLoad host;
+	private final ProcessingMetrics metrics;
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong childGcMillis = new AtomicLong();
+
+	private int level;
+	private long lastSampleNanos;
+	private long lastCompleted = 0;
+	private double lastThroughput = -1;
+	private boolean isProbing = false;
+	private int plateau = 0;
+
+	private ConcurrencyController(boolean isAdaptive, int level, int maxLevel, HostLoad host,
+			ProcessingMetrics metrics) {
+		this.isAdaptive = isAdaptive;
+		this.level = level;
+		this.maxLevel = maxLevel;
+		this.host = host;
+		this.metrics = metrics;
+		this.lastSampleNanos = System.nanoTime();
+		this.metrics.setConcurrency(level);
+	}
+
+	/**
+	 * @return a controller that keeps the given level
+	 */
+	static ConcurrencyController fixed(int level, ProcessingMetrics metrics) {
+		return new ConcurrencyController(false, level, level, null, metrics);
+	}
+
+	/**
+	 * @return a controller that adapts the level to the host's load, starting
+	 *         at {@code initial}
+	 */
+	static ConcurrencyController adaptive(int initial, int maxLevel, ProcessingMetrics metrics) {
+		LOGGER.log(Level.INFO, "Adaptive concurrency: starting with " + initial + " processes, at most " + maxLevel);
+		return new ConcurrencyController(true, initial, maxLevel, new HostLoad(), metrics);
+	}
+
+	int getLevel() {
+		return this.level;
+	}
+
+	/**
+	 * Records that a file's report has been received, may be called from any
+	 * thread.
+	 */
+	void completed() {
+		this.completed.incrementAndGet();
+	}
+
+	/**
+	 * Records garbage collection time reported by a child process, may be
+	 * called from any thread.
+	 *
+	 * @param millis
+	 *            the increase in the child's garbage collection time
+	 */
+	void childGc(long millis) {
+		this.childGcMillis.addAndGet(millis);
+	}
+
+	/**
+	 * Samples the host once the sample interval has passed and adjusts the
+	 * level.
+	 *
+	 * @param now
+	 *            the current {@link System#nanoTime()}
+	 * @return the level to run at
+	 */
+	int update(long now) {
+		long elapsed = now - this.lastSampleNanos;
+		if (!this.isAdaptive || elapsed < TimeUnit.SECONDS.toNanos(SAMPLE_INTERVAL_SECONDS)) {
+			return this.level;
+		}
+		long done = this.completed.get();
+		double throughput = (done - this.lastCompleted) / (elapsed / 1e9);
+		this.lastCompleted = done;
+		this.lastSampleNanos = now;
+		return adjust(throughput, this.host.sample(this.childGcMillis.get(), this.level));
+	}
+
+	/**
+	 * Moves the level for the throughput and host load observed over the last
+	 * interval.
+	 *
+	 * @return the level to run at
+	 */
+	int adjust(double throughput, HostLoad.Sample sample) {
+		int next = next(throughput, sample);
+		if (next != this.level) {
+			LOGGER.log(Level.INFO, String.format("Concurrency %d -> %d (%.2f files/s, %s)", //$NON-NLS-1$
+					Integer.valueOf(this.level), Integer.valueOf(next), Double.valueOf(throughput), sample));
+			this.level = next;
+			this.metrics.setConcurrency(next);
+		}
+		return this.level;
+	}
+
+	private int next(double throughput, HostLoad.Sample sample) {
+		boolean wasProbing = this.isProbing;
+		double previous = this.lastThroughput;
+		this.isProbing = false;
+		this.lastThroughput = throughput;
+		if (isOversubscribed(sample)) {
+			this.plateau = PLATEAU_SAMPLES;
+			return Math.max(1, (int) (this.level * DECREASE_FACTOR));
+		}
+		if (wasProbing && previous >= 0 && throughput < previous * MIN_THROUGHPUT_GAIN) {
+			this.plateau = PLATEAU_SAMPLES;
+			return Math.max(1, this.level - 1);
+		}
+		if (this.plateau > 0) {
+			this.plateau--;
+			return this.level;
+		}
+		if (this.level < this.maxLevel && hasSpareCapacity(sample)) {
+			this.isProbing = true;
+			return this.level + 1;
+		}
+		return this.level;
+	}
+
+	private static boolean isOversubscribed(HostLoad.Sample sample) {
+		return sample.loadPerCore > MAX_LOAD_PER_CORE
+				|| (sample.freeMemory >= 0 && sample.freeMemory < MIN_FREE_MEMORY)
+				|| sample.gcFraction > MAX_GC_FRACTION;
+	}
+
+	private static boolean hasSpareCapacity(HostLoad.Sample sample) {
+		return (sample.cpuLoad < 0 || sample.cpuLoad < MAX_CPU_FOR_GROWTH)
+				&& (sample.freeMemory < 0 || sample.freeMemory >= MIN_FREE_MEMORY_FOR_GROWTH);
+	}
+}
@@ -0,0 +1,108 @@
+package org.verapdf.cli.multithread;
+
+import org.verapdf.processor.FormatOption;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Writes a stand-in for the report a child process would have written for a
+ * file it couldn't finish, so that the file still appears in the merged report.
+ * Text reports get a single ERROR line, every other format a machine readable
+ * report with one job that failed with a task exception.
+ */
+final class FailureReport {
+	private static final String ENCODING = "utf-8";
+
+	private FailureReport() {
+		throw new AssertionError("Should never happen");
+	}
+
+	/**
+	 * @param format
+	 *            the report format the children were asked for
+	 * @param pdf
+	 *            the file that couldn't be processed
+	 * @param isOutOfMemory
+	 *            true if the child ran out of memory
+	 * @param message
+	 *            why the file couldn't be processed
+	 * @return a temporary file holding the report
+	 * @throws IOException
+	 *             if the report can't be written
+	 */
+	static File write(FormatOption format, File pdf, boolean isOutOfMemory, String message) throws IOException {
+		File report = Files.createTempFile("failedReport", ".xml").toFile();
+		try (OutputStream os = new FileOutputStream(report)) {
+			if (format == FormatOption.TEXT) {
+				os.write(("ERROR " + pdf.getAbsolutePath() + " " + message + "\n").getBytes(StandardCharsets.UTF_8));
+			} else {
+				writeXml(os, pdf, isOutOfMemory, message);
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Can't write failure report", e);
+		}
+		return report;
+	}
+
+	private static void writeXml(OutputStream os, File pdf, boolean isOutOfMemory, String message)
+			throws XMLStreamException, IOException {
+		Writer writer = new OutputStreamWriter(os, StandardCharsets.UTF_8);
+		XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(writer);
+		xml.writeStartDocument(ENCODING, "1.0");
+		xml.writeStartElement("report");
+		xml.writeStartElement("jobs");
+		xml.writeStartElement("job");
+		xml.writeStartElement("item");
+		xml.writeAttribute("size", String.valueOf(pdf.length()));
+		xml.writeStartElement("name");
+		xml.writeCharacters(pdf.getAbsolutePath());
+		xml.writeEndElement();
+		xml.writeEndElement();
+		xml.writeStartElement("taskException");
+		xml.writeAttribute("type", "VALIDATE");
+		xml.writeAttribute("isExecuted", "true");
+		xml.writeAttribute("isSuccess", "false");
+		xml.writeStartElement("exceptionMessage");
+		xml.writeCharacters(message);
+		xml.writeEndElement();
+		xml.writeEndElement();
+		xml.writeEndElement();
+		xml.writeEndElement();
+		xml.writeStartElement("batchSummary");
+		xml.writeAttribute("totalJobs", "1");
+		xml.writeAttribute("failedToParse", "0");
+		xml.writeAttribute("encrypted", "0");
+		xml.writeAttribute("outOfMemory", isOutOfMemory ? "1" : "0");
+		xml.writeAttribute("veraExceptions", isOutOfMemory ? "0" : "1");
+		writeSummary(xml, "validationReports", true);
+		writeSummary(xml, "featureReports", false);
+		writeSummary(xml, "repairReports", false);
+		xml.writeEndElement();
+		xml.writeEndElement();
+		xml.writeEndDocument();
+		xml.close();
+		writer.flush();
+	}
+
+	private static void writeSummary(XMLStreamWriter xml, String name, boolean isValidation)
+			throws XMLStreamException {
+		xml.writeStartElement(name);
+		if (isValidation) {
+			xml.writeAttribute("compliant", "0");
+			xml.writeAttribute("nonCompliant", "0");
+		}
+		xml.writeAttribute("failedJobs", isValidation ? "1" : "0");
+		xml.writeCharacters("0");
+		xml.writeEndElement();
+	}
+}
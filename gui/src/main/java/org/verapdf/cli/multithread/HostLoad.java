@@ -0,0 +1,101 @@
+package org.verapdf.cli.multithread;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Samples the load of the host: CPU use, run queue length, free physical
+ * memory and the time the child processes spend collecting garbage, which
+ * they report with each file. This JVM only relays reports, its own garbage
+ * collection says nothing about the load. The CPU and memory
+ * figures come from the {@code com.sun.management} extension of the
+ * {@link OperatingSystemMXBean}, looked up reflectively, and are reported as
+ * unknown on JVMs without it.
+ */
+final class HostLoad {
+	private static final Method CPU_LOAD = findMethod("getSystemCpuLoad"); //$NON-NLS-1$
+	private static final Method FREE_MEMORY = findMethod("getFreePhysicalMemorySize"); //$NON-NLS-1$
+	private static final Method TOTAL_MEMORY = findMethod("getTotalPhysicalMemorySize"); //$NON-NLS-1$
+
+	private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+	private final int cores = Runtime.getRuntime().availableProcessors();
+	private long lastGcMillis = 0;
+	private long lastSampleNanos = System.nanoTime();
+
+	/**
+	 * A snapshot of the host's load, a figure that can't be read is -1.
+	 */
+	static final class Sample {
+		final double cpuLoad;
+		final double loadPerCore;
+		final double freeMemory;
+		final double gcFraction;
+
+		/**
+		 * @param cpuLoad
+		 *            the share of the host's CPU in use, 0 to 1
+		 * @param loadPerCore
+		 *            the system load average divided by the number of cores
+		 * @param freeMemory
+		 *            the share of physical memory that's free, 0 to 1
+		 * @param gcFraction
+		 *            the share of the child processes' wall clock time spent
+		 *            in garbage collection since the last sample
+		 */
+		Sample(double cpuLoad, double loadPerCore, double freeMemory, double gcFraction) {
+			this.cpuLoad = cpuLoad;
+			this.loadPerCore = loadPerCore;
+			this.freeMemory = freeMemory;
+			this.gcFraction = gcFraction;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("cpu %.2f, load/core %.2f, free memory %.2f, gc %.2f", //$NON-NLS-1$
+					Double.valueOf(this.cpuLoad), Double.valueOf(this.loadPerCore), Double.valueOf(this.freeMemory),
+					Double.valueOf(this.gcFraction));
+		}
+	}
+
+	/**
+	 * @param childGcMillis
+	 *            the garbage collection time reported by the child processes
+	 *            so far
+	 * @param children
+	 *            the number of child processes running
+	 */
+	Sample sample(long childGcMillis, int children) {
+		long now = System.nanoTime();
+		double elapsedMillis = (now - this.lastSampleNanos) / 1_000_000.0 * Math.max(1, children);
+		double gcFraction = (elapsedMillis > 0) ? (childGcMillis - this.lastGcMillis) / elapsedMillis : -1;
+		this.lastGcMillis = childGcMillis;
+		this.lastSampleNanos = now;
+		double loadAverage = this.os.getSystemLoadAverage();
+		double loadPerCore = loadAverage < 0 ? -1 : loadAverage / this.cores;
+		double total = invoke(TOTAL_MEMORY);
+		double free = invoke(FREE_MEMORY);
+		double freeMemory = (total > 0 && free >= 0) ? free / total : -1;
+		return new Sample(invoke(CPU_LOAD), loadPerCore, freeMemory, gcFraction);
+	}
+
+	private double invoke(Method method) {
+		if (method == null) {
+			return -1;
+		}
+		try {
+			Number value = (Number) method.invoke(this.os);
+			return value.doubleValue() < 0 || Double.isNaN(value.doubleValue()) ? -1 : value.doubleValue();
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return -1;
+		}
+	}
+
+	private static Method findMethod(String name) {
+		try {
+			return Class.forName("com.sun.management.OperatingSystemMXBean").getMethod(name); //$NON-NLS-1$
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
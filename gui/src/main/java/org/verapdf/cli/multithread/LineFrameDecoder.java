@@ -0,0 +1,55 @@
+package org.verapdf.cli.multithread;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Splits the bytes read from a child process' standard output into newline
+ * terminated frames, a trailing carriage return is dropped. Bytes are buffered
+ * until a frame is complete, so a frame may span any number of reads.
+ */
+final class LineFrameDecoder {
+	private static final int INITIAL_CAPACITY = 256;
+
+	private final Charset charset;
+	private byte[] pending = new byte[INITIAL_CAPACITY];
+	private int length = 0;
+
+	LineFrameDecoder(Charset charset) {
+		this.charset = charset;
+	}
+
+	void decode(byte[] bytes, int offset, int count, Consumer<String> frames) {
+		int start = offset;
+		int end = offset + count;
+		for (int i = offset; i < end; i++) {
+			if (bytes[i] == '\n') {
+				append(bytes, start, i - start);
+				emit(frames);
+				start = i + 1;
+			}
+		}
+		append(bytes, start, end - start);
+	}
+
+	private void append(byte[] bytes, int offset, int count) {
+		if (count == 0) {
+			return;
+		}
+		if (this.length + count > this.pending.length) {
+			this.pending = Arrays.copyOf(this.pending, Math.max(this.pending.length * 2, this.length + count));
+		}
+		System.arraycopy(bytes, offset, this.pending, this.length, count);
+		this.length += count;
+	}
+
+	private void emit(Consumer<String> frames) {
+		int end = this.length;
+		if (end > 0 && this.pending[end - 1] == '\r') {
+			end--;
+		}
+		this.length = 0;
+		frames.accept(new String(this.pending, 0, end, this.charset));
+	}
+}
@@ -1,10 +1,16 @@
 package org.verapdf.cli.multithread;
 
 import org.verapdf.apps.Applications;
+import org.verapdf.apps.VeraAppConfig;
 import org.verapdf.apps.utils.ApplicationUtils;
+import org.verapdf.apps.utils.IoExecutors;
+import org.verapdf.apps.utils.ReportCompression;
+import org.verapdf.apps.utils.ReportEncoding;
+import org.verapdf.apps.utils.ShardSelector;
 import org.verapdf.cli.CliConstants;
 import org.verapdf.cli.CliConstants.ExitCodes;
 import org.verapdf.cli.commands.VeraCliArgParser;
+import org.verapdf.cli.metrics.ProcessingMetrics;
 import org.verapdf.processor.FormatOption;
 import org.verapdf.processor.reports.ResultStructure;
 import org.verapdf.processor.reports.multithread.MultiThreadProcessingHandler;
@@ -13,12 +19,15 @@ import org.verapdf.processor.reports.multithread.writer.ReportWriter;
 
 import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Queue;
+import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -27,46 +36,160 @@ public class MultiThreadProcessor {
 
 	private static final int DEFAULT_BUFFER_SIZE = 512;
 	private static final int COEFFICIENT_BUFFER_SIZE = 1024;
+	private static final int REORDER_WINDOW = 1024;
+	private static final int MAX_PROCESSES_PER_CORE = 2;
 
-	private final Queue<File> filesToProcess;
+	private final BatchQueue filesToProcess;
 
 	private int filesQuantity;
+	private final boolean isOrdered;
 
 	private File veraPDFStarterPath;
 	private List<String> veraPDFParameters;
 	private OutputStream os;
+	// true if the report stream must be closed to finish the report
+	private boolean isFinishedOnClose = false;
 	private OutputStream errorStream;
 
 	private ReportWriter reportWriter;
 	private MultiThreadProcessingHandler processingHandler;
 
-	private boolean isFirstReport = true;
+	private ResultMerger merger;
+	private final FormatOption outputFormat;
+	private final List<File> quarantined = new ArrayList<>();
+	private final List<File> timedOut = new ArrayList<>();
+	private final int timeoutSeconds;
+	private final int cpuTimeoutSeconds;
 
-	private ExitCodes currentExitCode = ExitCodes.VALID;
-	private CountDownLatch latch;
+	private final ProcessingMetrics metrics;
+	private ConcurrencyController controller;
+	private boolean isSpawnFailed = false;
+	private CheckpointJournal journal;
+	// cleared by the merger thread when the journal can't be written, the
+	// journal stays open for the main thread to replay the resumed reports
+	private volatile boolean isCheckpointing = true;
+	private final Map<Long, CheckpointJournal.Entry> resumed = new LinkedHashMap<>();
+	private ExitCodes resumedExitCode = ExitCodes.VALID;
 
-	private MultiThreadProcessor(VeraCliArgParser cliArgParser) {
-		this.os = new BufferedOutputStream(System.out, DEFAULT_BUFFER_SIZE * COEFFICIENT_BUFFER_SIZE);
+	// raised by the pipe and main threads, read by the merger thread
+	private final AtomicReference<ExitCodes> currentExitCode = new AtomicReference<>(ExitCodes.VALID);
+
+	private MultiThreadProcessor(VeraCliArgParser cliArgParser, VeraAppConfig appConfig, ProcessingMetrics metrics)
+			throws InterruptedException {
+		this.metrics = metrics;
+		this.os = openReportStream(cliArgParser.getCompression(), cliArgParser.getReportEncoding(),
+				appConfig.getWikiPath());
 
 		this.errorStream = new BufferedOutputStream(System.err, DEFAULT_BUFFER_SIZE);
 
 		this.veraPDFStarterPath = getVeraPdfStarterFile(cliArgParser);
 		this.veraPDFParameters = VeraCliArgParser.getBaseVeraPDFParameters(cliArgParser);
-		this.filesToProcess = new ConcurrentLinkedQueue<>();
-		this.filesToProcess.addAll(getFiles(cliArgParser.getPdfPaths(), cliArgParser.isRecurse()));
-		this.filesQuantity = filesToProcess.size();
+		this.filesToProcess = new BatchQueue(cliArgParser.getLargeFileBytes());
+		this.isOrdered = cliArgParser.isOrdered();
+		this.timeoutSeconds = cliArgParser.getTimeout();
+		this.cpuTimeoutSeconds = cliArgParser.getCpuTimeout();
+		this.outputFormat = getOutputFormat(cliArgParser.getFormat().getOption());
+		this.journal = openJournal(cliArgParser.getCheckpointDir(), cliArgParser.isResume());
+		Map<String, CheckpointJournal.Entry> completed = (this.journal == null) ? Collections.emptyMap()
+				: new LinkedHashMap<>(this.journal.getCompleted());
+		long index = 0;
+		for (File file : getFiles(cliArgParser.getPdfPaths(), cliArgParser.isRecurse(),
+				cliArgParser.getShardSelector(), this.isOrdered)) {
+			CheckpointJournal.Entry done = completed.remove(file.getAbsolutePath());
+			if (done != null) {
+				this.resumed.put(Long.valueOf(index++), done);
+			} else {
+				this.filesToProcess.add(new BatchItem(file, index++));
+			}
+		}
+		// completed files that are no longer found stay in the report
+		for (CheckpointJournal.Entry done : completed.values()) {
+			this.resumed.put(Long.valueOf(index++), done);
+		}
+		this.filesQuantity = filesToProcess.size() + this.resumed.size();
+		if (!this.resumed.isEmpty()) {
+			this.resumedExitCode = recountResumed();
+			LOGGER.log(Level.INFO, "Resuming batch, " + this.resumed.size() + " of " + this.filesQuantity
+					+ " file(s) already processed");
+		}
 
-		FormatOption outputFormat = getOutputFormat(cliArgParser.getFormat().getOption());
 		this.reportWriter = ReportWriter.newInstance(os, outputFormat, errorStream);
 		this.processingHandler = new MultiThreadProcessingHandlerImpl(reportWriter);
 	}
 
-	public static ExitCodes process(VeraCliArgParser cliArgParser) throws InterruptedException {
-		MultiThreadProcessor processor = new MultiThreadProcessor(cliArgParser);
-		if (processor.currentExitCode != ExitCodes.VALID) {
-			return processor.currentExitCode;
+	/**
+	 * Supervises the queued files without discovering them or starting the
+	 * children, for tests.
+	 */
+	MultiThreadProcessor(BatchQueue filesToProcess, ResultMerger merger, FormatOption outputFormat,
+			ProcessingMetrics metrics) {
+		this.filesToProcess = filesToProcess;
+		this.merger = merger;
+		this.outputFormat = outputFormat;
+		this.metrics = metrics;
+		this.isOrdered = false;
+		this.timeoutSeconds = 0;
+		this.cpuTimeoutSeconds = 0;
+		this.controller = ConcurrencyController.fixed(1, metrics);
+	}
+
+	/**
+	 * Processes the files given on the command line with child processes.
+	 *
+	 * @param cliArgParser
+	 *            the parsed command line
+	 * @param appConfig
+	 *            the loaded application config, its wiki path is used for
+	 *            reports rendered as HTML
+	 * @param metrics
+	 *            receives the concurrency level and queue depth
+	 * @return the most severe exit code of the batch
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the children
+	 */
+	public static ExitCodes process(VeraCliArgParser cliArgParser, VeraAppConfig appConfig,
+			ProcessingMetrics metrics) throws InterruptedException {
+		MultiThreadProcessor processor = new MultiThreadProcessor(cliArgParser, appConfig, metrics);
+		if (processor.currentExitCode.get() != ExitCodes.VALID) {
+			return processor.currentExitCode.get();
+		}
+		return processor.startProcesses(cliArgParser.getNumberOfProcesses(), cliArgParser.isAutoProcesses());
+	}
+
+	private OutputStream openReportStream(ReportCompression compression, ReportEncoding encoding, String wikiPath) {
+		OutputStream report = null;
+		if (compression != ReportCompression.NONE) {
+			try {
+				report = compression.compress(System.out);
+				this.isFinishedOnClose = true;
+			} catch (IOException e) {
+				LOGGER.log(Level.SEVERE, "Can't compress report, writing it uncompressed", e);
+			}
+		}
+		if (report == null) {
+			report = new BufferedOutputStream(System.out, DEFAULT_BUFFER_SIZE * COEFFICIENT_BUFFER_SIZE);
+		}
+		if (encoding != ReportEncoding.NONE) {
+			// the report writer writes the machine readable report, converted as it's written
+			this.isFinishedOnClose = true;
+			return encoding.encode(report, wikiPath);
+		}
+		return report;
+	}
+
+	/**
+	 * Finishes a compressed or converted report.
+	 */
+	private void finishReportStream() {
+		if (!this.isFinishedOnClose) {
+			return;
+		}
+		try {
+			this.os.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Can't finish report", e);
+			countDown(ExitCodes.IO_EXCEPTION);
 		}
-		return processor.startProcesses(cliArgParser.getNumberOfProcesses());
 	}
 
 	private File getVeraPdfStarterFile(VeraCliArgParser cliArgParser) {
@@ -79,7 +202,7 @@ public class MultiThreadProcessor {
 				}
 			} catch (IllegalStateException e) {
 				LOGGER.log(Level.SEVERE, "Can't obtain veraPDF CLI script path", e);
-				this.currentExitCode = ExitCodes.FAILED_MULTIPROCESS_START;
+				countDown(ExitCodes.FAILED_MULTIPROCESS_START);
 			}
 		}
 		return veraPDFPath;
@@ -89,47 +212,315 @@ public class MultiThreadProcessor {
 		return FormatOption.fromOption(outputFormat);
 	}
 
-	public synchronized void write(ResultStructure result) {
-		if (isFirstReport) {
-			processingHandler.startReport();
-			processingHandler.fillReport(result);
-			isFirstReport = false;
-		} else {
-			processingHandler.fillReport(result);
+	private CheckpointJournal openJournal(File checkpointDir, boolean isResume) {
+		if (checkpointDir == null) {
+			return null;
+		}
+		try {
+			return CheckpointJournal.open(checkpointDir, this.outputFormat, isResume);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Can't open checkpoint journal in " + checkpointDir.getAbsolutePath(), e);
+			countDown(ExitCodes.IO_EXCEPTION);
+			return null;
 		}
+	}
 
-		this.filesQuantity--;
+	/**
+	 * Works out the exit code of the files completed before the batch was
+	 * resumed from their reports, the exit code journaled with them misses the
+	 * outcomes of children that were still running.
+	 */
+	private ExitCodes recountResumed() {
+		try {
+			return ExitCodes.fromTotals(this.journal.countCompleted());
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Can't read checkpointed reports", e);
+			return ExitCodes.IO_EXCEPTION;
+		}
+	}
 
-		if (filesQuantity == 0) {
-			processingHandler.endReport();
+	/**
+	 * Records a completed file in the checkpoint journal, a journal that can't
+	 * be written is abandoned and the batch carries on without checkpoints.
+	 * Runs on the merger thread, see {@link ResultMerger#submit(long,
+	 * ResultStructure, Runnable)}, so copying and syncing reports doesn't hold
+	 * up the pipe thread.
+	 */
+	private void checkpoint(BatchItem item, File report) {
+		if (this.journal == null || !this.isCheckpointing) {
+			return;
+		}
+		try {
+			this.journal.record(item, this.currentExitCode.get(), report);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Can't write checkpoint journal, continuing without checkpoints", e);
+			this.isCheckpointing = false;
 		}
 	}
 
-	private List<File> getFiles(List<String> pdfPaths, boolean isRecurse) {
-		List<File> toFilter = new ArrayList<>(pdfPaths.size());
-		pdfPaths.forEach(path -> toFilter.add(new File(path)));
+	private void closeJournal() {
+		if (this.journal == null) {
+			return;
+		}
+		try {
+			this.journal.close();
+		} catch (IOException e) {
+			LOGGER.log(Level.WARNING, "Can't close checkpoint journal", e);
+		}
+		this.journal = null;
+	}
 
-		return ApplicationUtils.filterPdfFiles(toFilter, isRecurse);
+	/**
+	 * Merges the reports of the files completed before the batch was resumed.
+	 */
+	private void replayResumed() {
+		for (Map.Entry<Long, CheckpointJournal.Entry> done : this.resumed.entrySet()) {
+			long index = done.getKey().longValue();
+			try {
+				this.merger.submit(index, new ResultStructure(this.journal.restore(done.getValue())));
+			} catch (IOException e) {
+				LOGGER.log(Level.SEVERE, "Can't restore checkpointed report for " + done.getValue().path, e);
+				this.merger.skip(index);
+			}
+		}
+	}
+
+	/**
+	 * Queues a child's report for merging into the batch report, returns
+	 * without waiting for the report to be written.
+	 *
+	 * @param item
+	 *            the file the report is for
+	 * @param result
+	 *            the child's report
+	 * @param exitCode
+	 *            the child's exit code for the file, null if it didn't report
+	 *            one
+	 */
+	void write(BatchItem item, ResultStructure result, ExitCodes exitCode) {
+		this.controller.completed();
+		finished(item, (exitCode == null) ? ExitCodes.VALID : exitCode);
+		this.merger.submit(item.getIndex(), result, () -> checkpoint(item, result.getReportFile()));
+	}
+
+	/**
+	 * Records a file that killed a child process on every attempt. A failure
+	 * report is merged in place of the child's report so the file still
+	 * appears in the batch report.
+	 *
+	 * @param item
+	 *            the quarantined file
+	 * @param cause
+	 *            the exit code of the last child to die on the file, null if
+	 *            it isn't a veraPDF exit code
+	 */
+	void quarantine(BatchItem item, ExitCodes cause) {
+		this.quarantined.add(item.getFile());
+		boolean isOutOfMemory = cause == ExitCodes.OOM;
+		ExitCodes exitCode = isOutOfMemory ? ExitCodes.OOM : ExitCodes.VERAPDF_EXCEPTION;
+		fail(item, exitCode, isOutOfMemory, "veraPDF process terminated while processing the file: " + exitCode.message);
 	}
 
-	private ExitCodes startProcesses(int numberOfProcesses) throws InterruptedException {
+	/**
+	 * Records a file whose child process was killed for overrunning the time
+	 * budget, a failure report is merged in place of the child's report.
+	 *
+	 * @param item
+	 *            the timed out file
+	 */
+	void timedOut(BatchItem item) {
+		this.timedOut.add(item.getFile());
+		fail(item, ExitCodes.TIMEOUT, false, "veraPDF process killed after exceeding the time budget for the file: "
+				+ ExitCodes.TIMEOUT.message);
+	}
+
+	/**
+	 * Records a file no child process could be started for, a failure report
+	 * is merged in place of the child's report.
+	 *
+	 * @param item
+	 *            the file that wasn't processed
+	 */
+	void notStarted(BatchItem item) {
+		fail(item, ExitCodes.FAILED_MULTIPROCESS_START, false,
+				"veraPDF process couldn't be started to process the file: "
+						+ ExitCodes.FAILED_MULTIPROCESS_START.message);
+	}
+
+	/**
+	 * Records time a child process spent collecting garbage.
+	 *
+	 * @param millis
+	 *            the increase in the child's garbage collection time
+	 */
+	void childGc(long millis) {
+		this.controller.childGc(millis);
+	}
+
+	/**
+	 * Records that a child process has been handed a file.
+	 *
+	 * @param item
+	 *            the file taken from the queue
+	 */
+	void started(BatchItem item) {
+		item.started(System.nanoTime());
+		this.metrics.jobStarted();
+		this.metrics.setQueueDepth(this.filesToProcess.size());
+	}
+
+	private void finished(BatchItem item, ExitCodes exitCode) {
+		if (item.getStartNanos() < 0) {
+			// failed before a child was handed the file
+			this.metrics.jobStarted();
+		} else {
+			this.metrics.recordStage(CliConstants.STAGE_FILE, System.nanoTime() - item.getStartNanos());
+		}
+		this.metrics.jobFinished(exitCode);
+	}
+
+	private void fail(BatchItem item, ExitCodes exitCode, boolean isOutOfMemory, String message) {
+		this.controller.completed();
+		finished(item, exitCode);
+		countDown(exitCode);
+		try {
+			File report = FailureReport.write(this.outputFormat, item.getFile(), isOutOfMemory, message);
+			this.merger.submit(item.getIndex(), new ResultStructure(report), () -> checkpoint(item, report));
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Can't write failure report for " + item.getFile().getAbsolutePath(), e);
+			this.merger.skip(item.getIndex());
+		}
+	}
+
+	/**
+	 * Finds the PDF files of the selected shard under each path, keeping the
+	 * order of the paths. When sorted the files found under each path are
+	 * sorted so that the input order doesn't depend on the order the file
+	 * system lists directories.
+	 */
+	private static List<File> getFiles(List<String> pdfPaths, boolean isRecurse, ShardSelector selector,
+			boolean isSorted)
+			throws InterruptedException {
+		ExecutorService discovery = IoExecutors.newIoExecutor("veraPDF-discovery");
+		try {
+			List<Future<List<File>>> found = new ArrayList<>(pdfPaths.size());
+			for (String path : pdfPaths) {
+				found.add(discovery.submit(() -> ApplicationUtils
+						.filterPdfFiles(Collections.singletonList(new File(path)), isRecurse, selector)));
+			}
+			List<File> files = new ArrayList<>();
+			for (Future<List<File>> pathFiles : found) {
+				List<File> toAdd = pathFiles.get();
+				if (isSorted) {
+					toAdd = new ArrayList<>(toAdd);
+					Collections.sort(toAdd);
+				}
+				files.addAll(toAdd);
+			}
+			return files;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			discovery.shutdown();
+		}
+	}
+
+	private ExitCodes startProcesses(int numberOfProcesses, boolean isAdaptive) throws InterruptedException {
 		int processesQuantity = Math.min(numberOfProcesses, filesToProcess.size());
-		latch = new CountDownLatch(processesQuantity);
-		ExecutorService executor = Executors.newFixedThreadPool(processesQuantity);
+		if (filesToProcess.largeFileCount() > 0) {
+			LOGGER.log(Level.INFO, filesToProcess.largeFileCount() + " large file(s) will be processed one at a time");
+		}
+		this.metrics.setQueueDepth(filesToProcess.size());
+		countDown(this.resumedExitCode);
+		controller = isAdaptive && processesQuantity > 0
+				? ConcurrencyController.adaptive(processesQuantity,
+						Math.min(numberOfProcesses * MAX_PROCESSES_PER_CORE, filesToProcess.size()), this.metrics)
+				: ConcurrencyController.fixed(processesQuantity, this.metrics);
+		merger = new ResultMerger(processingHandler, filesQuantity, isOrdered ? REORDER_WINDOW : 0);
+		merger.start();
+		PipeMultiplexer multiplexer = new PipeMultiplexer(controller, () -> spawn(false));
+		boolean hasLargeFileLane = false;
 		for (int i = 0; i < processesQuantity; i++) {
-			BaseCliRunner veraPDFRunner = new BaseCliRunner(this, veraPDFStarterPath.getAbsolutePath(), veraPDFParameters, filesToProcess);
-			executor.submit(veraPDFRunner);
+			// the first runner that starts serves the large file lane
+			BaseCliRunner veraPDFRunner = spawn(!hasLargeFileLane);
+			if (veraPDFRunner != null) {
+				multiplexer.register(veraPDFRunner);
+				hasLargeFileLane = true;
+			}
+		}
+		ExecutorService executor = IoExecutors.newIoExecutor("veraPDF-pipes");
+		Future<?> pipes = executor.submit(multiplexer);
+		replayResumed();
+		try {
+			pipes.get();
+		} catch (InterruptedException e) {
+			pipes.cancel(true);
+			throw e;
+		} catch (ExecutionException e) {
+			LOGGER.log(Level.SEVERE, "Child process supervision failed", e.getCause());
+			countDown(ExitCodes.VERAPDF_EXCEPTION);
+		} finally {
+			executor.shutdown();
 		}
-		latch.await();
-		return this.currentExitCode;
+		// files still queued once children can't be started are reported as
+		// failed rather than left out of the report
+		for (BatchItem item = filesToProcess.poll(true); item != null; item = filesToProcess.poll(true)) {
+			notStarted(item);
+		}
+		merger.close();
+		finishReportStream();
+		closeJournal();
+		reportFailed(this.quarantined, " file(s) quarantined after crashing veraPDF twice:");
+		reportFailed(this.timedOut, " file(s) timed out:");
+		return this.currentExitCode.get();
 	}
 
-	public void countDown(ExitCodes exitCode) {
-		if (exitCode != null && exitCode.value > this.currentExitCode.value) {
-			this.currentExitCode = exitCode;
+	private static void reportFailed(List<File> failed, String description) {
+		if (failed.isEmpty()) {
+			return;
 		}
-		if (this.latch != null) {
-			this.latch.countDown();
+		StringBuilder message = new StringBuilder();
+		message.append(failed.size()).append(description);
+		for (File file : failed) {
+			message.append(System.lineSeparator()).append("  ").append(file.getAbsolutePath());
+		}
+		LOGGER.log(Level.SEVERE, message.toString());
+	}
+
+	/**
+	 * Starts a child process with the next queued file.
+	 *
+	 * @return the started runner, null if there's no file left or children
+	 *         can't be started
+	 */
+	private BaseCliRunner spawn(boolean isLargeFileLane) {
+		if (this.isSpawnFailed || filesToProcess.size() == 0) {
+			return null;
+		}
+		BaseCliRunner veraPDFRunner = new BaseCliRunner(this, veraPDFStarterPath.getAbsolutePath(), veraPDFParameters,
+				filesToProcess, isLargeFileLane, this.timeoutSeconds, this.cpuTimeoutSeconds);
+		if (veraPDFRunner.start()) {
+			return veraPDFRunner;
+		}
+		// either the queue is empty or children can't be launched, the queue
+		// only shrinks so there's no point trying again
+		this.isSpawnFailed = true;
+		return null;
+	}
+
+	/**
+	 * Records the exit code of a child process that has finished.
+	 *
+	 * @param exitCode
+	 *            the child's exit code, null if it isn't a veraPDF exit code
+	 */
+	public void countDown(ExitCodes exitCode) {
+		if (exitCode != null) {
+			this.currentExitCode.accumulateAndGet(exitCode,
+					(current, candidate) -> (candidate.value > current.value) ? candidate : current);
 		}
 	}
 }
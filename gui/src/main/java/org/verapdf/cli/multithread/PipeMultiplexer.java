@@ -0,0 +1,117 @@
+package org.verapdf.cli.multithread;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Services the pipes of every child process from a single loop. Each pass
+ * reads whatever is available from each child's standard output without
+ * blocking, when a pass makes no progress the loop backs off exponentially
+ * up to {@value #MAX_BACKOFF_MILLIS}ms. Every pass also acts as the watchdog
+ * for the per file time budget, see {@link BaseCliRunner#checkTimeout(long)}.
+ * Each pass also runs the {@link ConcurrencyController}, starting or retiring
+ * children to follow its level. The loop ends once every child has exited.
+ */
+final class PipeMultiplexer implements Runnable {
+	private static final Logger LOGGER = Logger.getLogger(PipeMultiplexer.class.getCanonicalName());
+
+	private static final int BUFFER_SIZE = 8192;
+	private static final long MIN_BACKOFF_MILLIS = 1;
+	private static final long MAX_BACKOFF_MILLIS = 16;
+
+	private final List<BaseCliRunner> runners = new ArrayList<>();
+	private final ConcurrencyController controller;
+	private final Supplier<BaseCliRunner> spawner;
+
+	/**
+	 * @param controller
+	 *            decides how many children run at once
+	 * @param spawner
+	 *            starts a new child with the next queued file, returns null
+	 *            if none could be started
+	 */
+	PipeMultiplexer(ConcurrencyController controller, Supplier<BaseCliRunner> spawner) {
+		this.controller = controller;
+		this.spawner = spawner;
+	}
+
+	/**
+	 * Registers a started runner, must be called before the loop is run.
+	 */
+	void register(BaseCliRunner runner) {
+		this.runners.add(runner);
+	}
+
+	@Override
+	public void run() {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long backoff = MIN_BACKOFF_MILLIS;
+		try {
+			while (!this.runners.isEmpty()) {
+				boolean progress = false;
+				long now = System.nanoTime();
+				scale(this.controller.update(now));
+				for (Iterator<BaseCliRunner> iter = this.runners.iterator(); iter.hasNext();) {
+					BaseCliRunner runner = iter.next();
+					if (pump(runner, buffer) || runner.checkTimeout(now)) {
+						progress = true;
+					} else if (runner.isFinished()) {
+						iter.remove();
+						progress = true;
+					}
+				}
+				if (progress) {
+					backoff = MIN_BACKOFF_MILLIS;
+				} else {
+					TimeUnit.MILLISECONDS.sleep(backoff);
+					backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			for (BaseCliRunner runner : this.runners) {
+				runner.destroy();
+			}
+			this.runners.clear();
+		}
+	}
+
+	private void scale(int level) {
+		int active = 0;
+		for (BaseCliRunner runner : this.runners) {
+			if (!runner.isRetiring()) {
+				active++;
+			}
+		}
+		while (active < level) {
+			BaseCliRunner runner = this.spawner.get();
+			if (runner == null) {
+				break;
+			}
+			this.runners.add(runner);
+			active++;
+		}
+		for (int i = this.runners.size() - 1; i >= 0 && active > level; i--) {
+			BaseCliRunner runner = this.runners.get(i);
+			if (!runner.isRetiring() && !runner.isLargeFileLane()) {
+				runner.retire();
+				active--;
+			}
+		}
+	}
+
+	private static boolean pump(BaseCliRunner runner, byte[] buffer) {
+		try {
+			return runner.pump(buffer);
+		} catch (IOException e) {
+			LOGGER.log(Level.FINE, "Can't read child process output", e);
+			return false;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package org.verapdf.cli.multithread;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Reads the CPU time used by a child process and its descendants and kills
+ * them, the veraPDF starter script may run the JVM as a child of the shell.
+ * The ProcessHandle API is looked up reflectively so the application still
+ * runs on Java 8, where CPU time isn't available, only wall clock budgets
+ * apply and only the child itself can be killed.
+ */
+final class ProcessTree {
+	private static final Method TO_HANDLE = findMethod(Process.class, "toHandle"); //$NON-NLS-1$
+	private static final Method INFO = findMethod("java.lang.ProcessHandle", "info"); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final Method DESCENDANTS = findMethod("java.lang.ProcessHandle", "descendants"); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final Method TOTAL_CPU = findMethod("java.lang.ProcessHandle$Info", "totalCpuDuration"); //$NON-NLS-1$ //$NON-NLS-2$
+	private static final Method DESTROY = findMethod("java.lang.ProcessHandle", "destroyForcibly"); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private ProcessTree() {
+		throw new AssertionError("Should never happen");
+	}
+
+	/**
+	 * @return true if the running JVM can report the CPU time of processes
+	 */
+	static boolean isSupported() {
+		return TO_HANDLE != null && INFO != null && DESCENDANTS != null && TOTAL_CPU != null;
+	}
+
+	/**
+	 * @param process
+	 *            a child process
+	 * @return the CPU time in nanoseconds used by the process and its
+	 *         descendants, -1 if it can't be read
+	 */
+	static long cpuNanos(Process process) {
+		if (!isSupported()) {
+			return -1L;
+		}
+		try {
+			Object handle = TO_HANDLE.invoke(process);
+			long total = handleCpuNanos(handle);
+			if (total < 0) {
+				return -1L;
+			}
+			Stream<?> descendants = (Stream<?>) DESCENDANTS.invoke(handle);
+			for (Iterator<?> iter = descendants.iterator(); iter.hasNext();) {
+				total += Math.max(0L, handleCpuNanos(iter.next()));
+			}
+			return total;
+		} catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+			return -1L;
+		}
+	}
+
+	/**
+	 * Forcibly kills a child process and its descendants.
+	 *
+	 * @param process
+	 *            a child process
+	 */
+	static void destroyForcibly(Process process) {
+		if (TO_HANDLE != null && DESCENDANTS != null && DESTROY != null) {
+			try {
+				Stream<?> descendants = (Stream<?>) DESCENDANTS.invoke(TO_HANDLE.invoke(process));
+				for (Iterator<?> iter = descendants.iterator(); iter.hasNext();) {
+					DESTROY.invoke(iter.next());
+				}
+			} catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+				// fall back to killing the child alone
+			}
+		}
+		process.destroyForcibly();
+	}
+
+	private static long handleCpuNanos(Object handle) throws IllegalAccessException, InvocationTargetException {
+		Optional<?> duration = (Optional<?>) TOTAL_CPU.invoke(INFO.invoke(handle));
+		return duration.isPresent() ? ((Duration) duration.get()).toNanos() : -1L;
+	}
+
+	private static Method findMethod(String className, String name) {
+		try {
+			return findMethod(Class.forName(className), name);
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static Method findMethod(Class<?> clazz, String name) {
+		try {
+			return clazz.getMethod(name);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
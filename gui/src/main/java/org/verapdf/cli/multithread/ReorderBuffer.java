@@ -0,0 +1,102 @@
+package org.verapdf.cli.multithread;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Re-sequences items that arrive out of order back into index order. Items
+ * are held until every item with a lower index has been emitted. At most
+ * {@code capacity} items are held in memory. When the window overflows
+ * because a slow item holds up the head, the highest held items are moved to
+ * a {@link SpillFile} if one was supplied, otherwise the gap at the head is
+ * skipped and the missing item is emitted as soon as it arrives.
+ * <p>
+ * Not thread safe, only the merger's writer thread uses it.
+ *
+ * @param <T>
+ *            the type of item being re-sequenced
+ */
+final class ReorderBuffer<T> {
+	private final int capacity;
+	private final SpillFile<T> spill;
+	private final TreeMap<Long, T> pending = new TreeMap<>();
+	private long next = 0;
+
+	ReorderBuffer(int capacity) {
+		this(capacity, null);
+	}
+
+	ReorderBuffer(int capacity, SpillFile<T> spill) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1, capacity=" + capacity);
+		}
+		this.capacity = capacity;
+		this.spill = spill;
+	}
+
+	/**
+	 * Adds an item and emits every item that is now in sequence.
+	 */
+	void add(long index, T item, Consumer<T> out) throws IOException {
+		if (index < this.next) {
+			out.accept(item);
+			return;
+		}
+		this.pending.put(Long.valueOf(index), item);
+		emitReady(out);
+		while (this.pending.size() > this.capacity) {
+			if (this.spill != null) {
+				Map.Entry<Long, T> last = this.pending.pollLastEntry();
+				this.spill.put(last.getKey().longValue(), last.getValue());
+			} else {
+				this.next = this.pending.firstKey().longValue();
+				emitReady(out);
+			}
+		}
+	}
+
+	/**
+	 * Emits every held item in index order, used once no more items will
+	 * arrive.
+	 */
+	void drain(Consumer<T> out) throws IOException {
+		while (!this.pending.isEmpty() || (this.spill != null && !this.spill.isEmpty())) {
+			long first = this.pending.isEmpty() ? Long.MAX_VALUE : this.pending.firstKey().longValue();
+			if (this.spill != null && !this.spill.isEmpty()) {
+				first = Math.min(first, this.spill.firstIndex());
+			}
+			this.next = first;
+			emitReady(out);
+		}
+	}
+
+	/**
+	 * @return the number of items held in memory
+	 */
+	int size() {
+		return this.pending.size();
+	}
+
+	/**
+	 * @return the number of items spilled to disk
+	 */
+	int spilled() {
+		return (this.spill == null) ? 0 : this.spill.size();
+	}
+
+	private void emitReady(Consumer<T> out) throws IOException {
+		while (true) {
+			T item = this.pending.remove(Long.valueOf(this.next));
+			if (item == null && this.spill != null) {
+				item = this.spill.remove(this.next);
+			}
+			if (item == null) {
+				return;
+			}
+			this.next++;
+			out.accept(item);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package org.verapdf.cli.multithread;
+
+import org.verapdf.processor.reports.ResultStructure;
+import org.verapdf.processor.reports.multithread.MultiThreadProcessingHandler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Merges child process reports into the batch report on a single writer
+ * thread. Producers add results to a lock free queue and return immediately,
+ * so they never wait while the writer re-parses and writes a child's report.
+ * When a reorder window is set results are written in input order, see
+ * {@link ReorderBuffer}, otherwise in the order they arrive. Results held
+ * back beyond the window are spilled to a temporary file.
+ * <p>
+ * A result can carry a task, such as checkpointing it, that the writer runs
+ * when it takes the result off the queue, keeping slow I/O off the producers'
+ * threads.
+ */
+final class ResultMerger {
+	private static final Logger LOGGER = Logger.getLogger(ResultMerger.class.getCanonicalName());
+	private static final String SKIPPED_PATH = "";
+	// placeholder for a result that won't arrive, holds its place in the input order
+	private static final ResultStructure SKIPPED = new ResultStructure(new File(SKIPPED_PATH));
+
+	private final MultiThreadProcessingHandler processingHandler;
+	private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+	private final SpillFile<ResultStructure> spill;
+	private final ReorderBuffer<ResultStructure> reorderBuffer;
+	private final Thread writer;
+	private volatile boolean isClosed = false;
+
+	private int remaining;
+	private boolean isStarted = false;
+
+	/**
+	 * @param processingHandler
+	 *            the handler that writes the batch report
+	 * @param expected
+	 *            the number of results in the batch, the report is ended once
+	 *            they've all been written
+	 * @param reorderWindow
+	 *            the maximum number of results held in memory to restore
+	 *            input order, 0 writes results in the order they arrive
+	 */
+	ResultMerger(MultiThreadProcessingHandler processingHandler, int expected, int reorderWindow) {
+		this.processingHandler = processingHandler;
+		this.remaining = expected;
+		if (reorderWindow > 0) {
+			this.spill = new SpillFile<>(
+					result -> (result == SKIPPED) ? SKIPPED_PATH : result.getReportFile().getAbsolutePath(),
+					path -> SKIPPED_PATH.equals(path) ? SKIPPED : new ResultStructure(new File(path)));
+			this.reorderBuffer = new ReorderBuffer<>(reorderWindow, this.spill);
+		} else {
+			this.spill = null;
+			this.reorderBuffer = null;
+		}
+		this.writer = new Thread(this::drain, "veraPDF-merger");
+		this.writer.setDaemon(true);
+	}
+
+	void start() {
+		this.writer.start();
+	}
+
+	/**
+	 * Queues a result for writing, never blocks.
+	 *
+	 * @param index
+	 *            the position of the result's file in the input
+	 * @param result
+	 *            the child's report
+	 */
+	void submit(long index, ResultStructure result) {
+		submit(index, result, null);
+	}
+
+	/**
+	 * Queues a result for writing, never blocks.
+	 *
+	 * @param index
+	 *            the position of the result's file in the input
+	 * @param result
+	 *            the child's report
+	 * @param onTaken
+	 *            run on the writer thread when the result is taken off the
+	 *            queue, before it's written or held back, may be null
+	 */
+	void submit(long index, ResultStructure result, Runnable onTaken) {
+		this.queue.add(new Entry(index, result, onTaken));
+		LockSupport.unpark(this.writer);
+	}
+
+	/**
+	 * Records that a result will never arrive, so the report can still end and
+	 * later results in input order aren't held back waiting for it.
+	 *
+	 * @param index
+	 *            the position of the missing result's file in the input
+	 */
+	void skip(long index) {
+		submit(index, SKIPPED);
+	}
+
+	/**
+	 * Writes every queued result, ends the report and waits for the writer
+	 * thread to finish.
+	 */
+	void close() throws InterruptedException {
+		this.isClosed = true;
+		LockSupport.unpark(this.writer);
+		this.writer.join();
+	}
+
+	private void drain() {
+		while (true) {
+			Entry entry = this.queue.poll();
+			if (entry != null) {
+				entry.taken();
+				if (this.reorderBuffer != null) {
+					reorder(entry);
+				} else {
+					write(entry.result);
+				}
+			} else if (this.isClosed) {
+				if (this.queue.isEmpty()) {
+					break;
+				}
+			} else {
+				LockSupport.park(this);
+			}
+		}
+		if (this.reorderBuffer != null) {
+			try {
+				this.reorderBuffer.drain(this::write);
+				this.spill.close();
+			} catch (IOException e) {
+				LOGGER.log(Level.SEVERE, "Can't read reordered results back from disk", e);
+			}
+		}
+		if (this.isStarted && this.remaining > 0) {
+			LOGGER.log(Level.WARNING, this.remaining + " file(s) missing from the report");
+			endReport();
+		}
+	}
+
+	private void reorder(Entry entry) {
+		try {
+			this.reorderBuffer.add(entry.index, entry.result, this::write);
+		} catch (IOException e) {
+			LOGGER.log(Level.SEVERE, "Can't spill reordered results to disk, writing out of order", e);
+			write(entry.result);
+		}
+	}
+
+	private void write(ResultStructure result) {
+		if (result != SKIPPED) {
+			try {
+				if (!this.isStarted) {
+					this.processingHandler.startReport();
+					this.isStarted = true;
+				}
+				this.processingHandler.fillReport(result);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.SEVERE, "Can't merge child report", e);
+			}
+		}
+		this.remaining--;
+		if (this.remaining == 0 && this.isStarted) {
+			endReport();
+		}
+	}
+
+	private void endReport() {
+		try {
+			this.processingHandler.endReport();
+		} catch (RuntimeException e) {
+			LOGGER.log(Level.SEVERE, "Can't end report", e);
+		}
+	}
+
+	private static final class Entry {
+		final long index;
+		final ResultStructure result;
+		private final Runnable onTaken;
+
+		Entry(long index, ResultStructure result, Runnable onTaken) {
+			this.index = index;
+			this.result = result;
+			this.onTaken = onTaken;
+		}
+
+		void taken() {
+			if (this.onTaken == null) {
+				return;
+			}
+			try {
+				this.onTaken.run();
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.SEVERE, "Task for queued result failed", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package org.verapdf.cli.multithread;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Temporary file holding indexed items evicted from a {@link ReorderBuffer}.
+ * Items are appended as an index and an encoded string, only the file offset
+ * of each item is kept in memory.
+ *
+ * @param <T>
+ *            the type of item spilled
+ */
+final class SpillFile<T> implements Closeable {
+	private final Function<T, String> encoder;
+	private final Function<String, T> decoder;
+	private final TreeMap<Long, Long> offsets = new TreeMap<>();
+	private File file;
+	private RandomAccessFile data;
+
+	SpillFile(Function<T, String> encoder, Function<String, T> decoder) {
+		this.encoder = encoder;
+		this.decoder = decoder;
+	}
+
+	void put(long index, T item) throws IOException {
+		if (this.data == null) {
+			this.file = File.createTempFile("veraPDF-reorder", ".spill");
+			this.file.deleteOnExit();
+			this.data = new RandomAccessFile(this.file, "rw");
+		}
+		long offset = this.data.length();
+		this.data.seek(offset);
+		this.data.writeLong(index);
+		this.data.writeUTF(this.encoder.apply(item));
+		this.offsets.put(Long.valueOf(index), Long.valueOf(offset));
+	}
+
+	/**
+	 * @return the item with the given index, or null if it wasn't spilled
+	 */
+	T remove(long index) throws IOException {
+		Long offset = this.offsets.remove(Long.valueOf(index));
+		if (offset == null) {
+			return null;
+		}
+		this.data.seek(offset.longValue());
+		if (this.data.readLong() != index) {
+			throw new IOException("Corrupt reorder spill file " + this.file);
+		}
+		return this.decoder.apply(this.data.readUTF());
+	}
+
+	boolean isEmpty() {
+		return this.offsets.isEmpty();
+	}
+
+	int size() {
+		return this.offsets.size();
+	}
+
+	long firstIndex() {
+		return this.offsets.firstKey().longValue();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.offsets.clear();
+		if (this.data != null) {
+			this.data.close();
+			this.data = null;
+			if (!this.file.delete()) {
+				this.file.deleteOnExit();
+			}
+		}
+	}
+}
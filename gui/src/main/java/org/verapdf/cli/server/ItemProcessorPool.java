@@ -0,0 +1,89 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.verapdf.cli.CliConstants;
+import org.verapdf.processor.ItemProcessor;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorFactory;
+
+/**
+ * Fixed size pool of {@link ItemProcessor} instances created up front from a
+ * single {@link ProcessorConfig}. An instance is only ever used by one thread
+ * at a time, between {@link #take()} and {@link #release(ItemProcessor)}.
+ */
+public final class ItemProcessorPool implements Closeable {
+	private static final Logger logger = Logger.getLogger(ItemProcessorPool.class.getCanonicalName());
+
+	private final BlockingQueue<ItemProcessor> idle;
+	private final List<ItemProcessor> processors;
+
+	public ItemProcessorPool(final ProcessorConfig config, final int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("Pool size must be at least 1, size=" + size); //$NON-NLS-1$
+		}
+		this.idle = new ArrayBlockingQueue<>(size);
+		List<ItemProcessor> created = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			ItemProcessor processor = ProcessorFactory.createProcessor(config);
+			created.add(processor);
+			this.idle.add(processor);
+		}
+		this.processors = Collections.unmodifiableList(created);
+	}
+
+	/**
+	 * @return an idle processor, waiting for one to be released if necessary
+	 * @throws InterruptedException
+	 *             when interrupted while waiting
+	 */
+	public ItemProcessor take() throws InterruptedException {
+		return this.idle.take();
+	}
+
+	/**
+	 * Returns a processor obtained from {@link #take()} to the pool.
+	 */
+	public void release(final ItemProcessor processor) {
+		if (processor != null && !this.idle.offer(processor)) {
+			throw new IllegalStateException("Released a processor that doesn't belong to this pool"); //$NON-NLS-1$
+		}
+	}
+
+	public int size() {
+		return this.processors.size();
+	}
+
+	@Override
+	public void close() {
+		for (ItemProcessor processor : this.processors) {
+			try {
+				processor.close();
+			} catch (IOException excep) {
+				logger.log(Level.FINER, CliConstants.EXCEP_PROCESSOR_CLOSE, excep);
+			}
+		}
+	}
+}
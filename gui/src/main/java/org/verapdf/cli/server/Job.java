@@ -0,0 +1,147 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+import java.io.File;
+
+import org.verapdf.cli.CliConstants.ExitCodes;
+
+/**
+ * An asynchronous validation job, tracked from submission through to the
+ * eviction of its report from the {@link JobStore}.
+ */
+public final class Job implements Comparable<Job> {
+	public enum Status {
+		QUEUED, RUNNING, DONE, FAILED;
+
+		public boolean isFinished() {
+			return this == DONE || this == FAILED;
+		}
+	}
+
+	private final String id;
+	private final String name;
+	private final JobPriority priority;
+	private final long sequence;
+	private final long submitted;
+	private final File pdfFile;
+	private final File reportFile;
+	private volatile Status status = Status.QUEUED;
+	private volatile ExitCodes exitCode;
+	private volatile String message;
+	private volatile long finished;
+
+	Job(final String id, final String name, final JobPriority priority, final long sequence, final File pdfFile,
+			final File reportFile) {
+		this.id = id;
+		this.name = name;
+		this.priority = priority;
+		this.sequence = sequence;
+		this.submitted = System.currentTimeMillis();
+		this.pdfFile = pdfFile;
+		this.reportFile = reportFile;
+	}
+
+	public String getId() {
+		return this.id;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public JobPriority getPriority() {
+		return this.priority;
+	}
+
+	public Status getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @return the outcome of a finished job, null until the job finishes
+	 */
+	public ExitCodes getExitCode() {
+		return this.exitCode;
+	}
+
+	/**
+	 * @return the reason a job failed, null unless the job has failed
+	 */
+	public String getMessage() {
+		return this.message;
+	}
+
+	public long getSubmitted() {
+		return this.submitted;
+	}
+
+	/**
+	 * @return the time the job finished, 0 until the job finishes
+	 */
+	public long getFinished() {
+		return this.finished;
+	}
+
+	File getPdfFile() {
+		return this.pdfFile;
+	}
+
+	File getReportFile() {
+		return this.reportFile;
+	}
+
+	void started() {
+		this.status = Status.RUNNING;
+	}
+
+	void completed(final ExitCodes code, final long when) {
+		this.exitCode = code;
+		this.finished = when;
+		this.status = Status.DONE;
+	}
+
+	void failed(final ExitCodes code, final String reason, final long when) {
+		this.exitCode = code;
+		this.message = reason;
+		this.finished = when;
+		this.status = Status.FAILED;
+	}
+
+	/**
+	 * Orders jobs by priority and then by submission order.
+	 */
+	@Override
+	public int compareTo(final Job other) {
+		int byPriority = this.priority.compareTo(other.priority);
+		return (byPriority != 0) ? byPriority : Long.compare(this.sequence, other.sequence);
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		return obj instanceof Job && this.id.equals(((Job) obj).id);
+	}
+
+	@Override
+	public int hashCode() {
+		return this.id.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "Job [id=" + this.id + ", name=" + this.name + ", priority=" + this.priority + ", status=" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ this.status + "]"; //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+/**
+ * Scheduling priority of an asynchronous validation job, jobs with a higher
+ * priority are always started before queued jobs with a lower one.
+ */
+public enum JobPriority {
+	HIGH, NORMAL, LOW;
+
+	/**
+	 * Jobs submitted without an explicit priority that are no larger than
+	 * this are treated as interactive and run at {@link #NORMAL} priority,
+	 * larger or unknown sized jobs run at {@link #LOW} priority.
+	 */
+	public static final long SMALL_JOB_BYTES = 10L * 1024L * 1024L;
+
+	/**
+	 * @param value
+	 *            a priority name, case insensitive
+	 * @return the matching priority
+	 * @throws IllegalArgumentException
+	 *             if value doesn't name a priority
+	 */
+	public static JobPriority fromValue(final String value) {
+		for (JobPriority priority : values()) {
+			if (priority.name().equalsIgnoreCase(value)) {
+				return priority;
+			}
+		}
+		throw new IllegalArgumentException("Unknown job priority: " + value); //$NON-NLS-1$
+	}
+
+	/**
+	 * @param size
+	 *            the size of the submitted PDF in bytes, negative if unknown
+	 * @return the default priority for a job of that size
+	 */
+	public static JobPriority fromSize(final long size) {
+		return (size >= 0 && size <= SMALL_JOB_BYTES) ? NORMAL : LOW;
+	}
+}
@@ -0,0 +1,213 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBException;
+
+import org.verapdf.apps.utils.AdmissionController;
+import org.verapdf.apps.utils.IoExecutors;
+import org.verapdf.apps.utils.Watchdog;
+import org.verapdf.cli.CliConstants;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.processor.ItemProcessor;
+import org.verapdf.processor.ProcessorFactory;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.ItemDetails;
+
+/**
+ * Runs asynchronous validation jobs. Submitted PDFs are spooled to the
+ * {@link JobStore} and wait in a bounded priority queue until a worker and an
+ * {@link ItemProcessor} from the shared pool are free, the MRR report is
+ * written back to the store when the job finishes. A {@link Watchdog} cancels
+ * jobs that overrun the per job time budget, they fail as timed out. Jobs
+ * start only once the {@link AdmissionController} finds heap room for them.
+ */
+public final class JobService implements Closeable {
+	private static final Logger logger = Logger.getLogger(JobService.class.getCanonicalName());
+	private static final String REPORT_TEMP_EXT = ".tmp"; //$NON-NLS-1$
+
+	private final ItemProcessorPool pool;
+	private final JobStore store;
+	private final BlockingQueue<Job> queue = new PriorityBlockingQueue<>();
+	private final Semaphore capacity;
+	private final ExecutorService workers;
+	private final Watchdog watchdog;
+	private final AdmissionController admission;
+
+	/**
+	 * @param pool
+	 *            the processors used to run jobs
+	 * @param store
+	 *            the store that holds job files
+	 * @param queueCapacity
+	 *            the maximum number of jobs waiting to start
+	 * @param workerCount
+	 *            the number of jobs run in parallel
+	 * @param watchdog
+	 *            enforces the time budget of each job, closed with the
+	 *            service
+	 * @param admission
+	 *            holds jobs back until the heap has room for them
+	 */
+	public JobService(final ItemProcessorPool pool, final JobStore store, final int queueCapacity,
+			final int workerCount, final Watchdog watchdog, final AdmissionController admission) {
+		this.pool = pool;
+		this.watchdog = watchdog;
+		this.admission = admission;
+		this.store = store;
+		this.capacity = new Semaphore(queueCapacity);
+		this.workers = IoExecutors.newCpuExecutor("veraPDF-job", workerCount); //$NON-NLS-1$
+		for (int i = 0; i < workerCount; i++) {
+			this.workers.execute(this::runJobs);
+		}
+	}
+
+	/**
+	 * Spools a PDF to the store and queues a job to validate it.
+	 *
+	 * @param name
+	 *            the item name used in the report
+	 * @param priority
+	 *            the job's priority
+	 * @param pdf
+	 *            the PDF to validate, read fully before this method returns
+	 * @return the queued job or null if the queue is full
+	 * @throws IOException
+	 *             if the PDF can't be spooled to the store
+	 */
+	public Job submit(final String name, final JobPriority priority, final InputStream pdf) throws IOException {
+		if (!this.capacity.tryAcquire()) {
+			return null;
+		}
+		Job job = this.store.create(name, priority);
+		try {
+			Files.copy(pdf, job.getPdfFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException excep) {
+			this.store.remove(job);
+			this.capacity.release();
+			throw excep;
+		}
+		this.queue.add(job);
+		return job;
+	}
+
+	public JobStore getStore() {
+		return this.store;
+	}
+
+	public int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	@Override
+	public void close() {
+		this.workers.shutdownNow();
+		this.watchdog.close();
+	}
+
+	private void runJobs() {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				Job job = this.queue.take();
+				this.capacity.release();
+				run(job);
+			}
+		} catch (InterruptedException excep) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void run(final Job job) throws InterruptedException {
+		AdmissionController.Permit permit = this.admission.admit(job.getPdfFile().length());
+		job.started();
+		ItemProcessor processor;
+		try {
+			processor = this.pool.take();
+		} catch (InterruptedException excep) {
+			permit.close();
+			throw excep;
+		}
+		Watchdog.Ticket ticket = this.watchdog.watch();
+		try (InputStream toProcess = new FileInputStream(job.getPdfFile())) {
+			ProcessorResult result = processor.process(ItemDetails.fromValues(job.getName()), toProcess);
+			if (ticket.isExpired()) {
+				timedOut(job);
+				return;
+			}
+			ExitCodes exitCode = ExitCodes.fromResult(result);
+			if (exitCode == ExitCodes.FAILED_PARSING || exitCode == ExitCodes.ENCRYPTED_FILES) {
+				job.failed(exitCode, ValidationServer.parsingMessage(result, job.getName()),
+						System.currentTimeMillis());
+				return;
+			}
+			writeReport(result, job.getReportFile());
+			job.completed(exitCode, System.currentTimeMillis());
+		} catch (IOException | RuntimeException excep) {
+			if (ticket.isExpired()) {
+				// the processor gave up when the watchdog interrupted it
+				timedOut(job);
+			} else if (excep instanceof IOException) {
+				logger.log(Level.WARNING, "I/O exception running job " + job.getId(), excep); //$NON-NLS-1$
+				job.failed(ExitCodes.IO_EXCEPTION, excep.getMessage(), System.currentTimeMillis());
+			} else {
+				logger.log(Level.WARNING, CliConstants.EXCEP_VERA_BATCH, excep);
+				job.failed(ExitCodes.VERAPDF_EXCEPTION, excep.getMessage(), System.currentTimeMillis());
+			}
+		} catch (JAXBException excep) {
+			logger.log(Level.WARNING, CliConstants.EXCEP_REPORT_MARSHAL, excep);
+			job.failed(ExitCodes.JAXB_EXCEPTION, excep.getMessage(), System.currentTimeMillis());
+		} finally {
+			ticket.close();
+			this.pool.release(processor);
+			permit.close();
+			JobStore.delete(job.getPdfFile());
+		}
+	}
+
+	private static void timedOut(final Job job) {
+		logger.log(Level.WARNING, "Job " + job.getId() + " exceeded its time budget"); //$NON-NLS-1$ //$NON-NLS-2$
+		job.failed(ExitCodes.TIMEOUT, ExitCodes.TIMEOUT.message, System.currentTimeMillis());
+	}
+
+	private static void writeReport(final ProcessorResult result, final File reportFile)
+			throws IOException, JAXBException {
+		File temp = new File(reportFile.getParentFile(), reportFile.getName() + REPORT_TEMP_EXT);
+		try (OutputStream os = new FileOutputStream(temp)) {
+			ProcessorFactory.resultToXml(result, os, true);
+		}
+		try {
+			Files.move(temp.toPath(), reportFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException excep) {
+			Files.move(temp.toPath(), reportFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
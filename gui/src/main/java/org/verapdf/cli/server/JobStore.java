@@ -0,0 +1,151 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.verapdf.apps.utils.IoExecutors;
+
+/**
+ * On-disk store for asynchronous jobs. The uploaded PDF and the report of each
+ * job are kept as files in a single directory, finished jobs are evicted along
+ * with their files once they are older than the store's time to live.
+ */
+public final class JobStore implements Closeable {
+	private static final Logger logger = Logger.getLogger(JobStore.class.getCanonicalName());
+	private static final String PDF_EXT = ".pdf"; //$NON-NLS-1$
+	private static final String REPORT_EXT = ".xml"; //$NON-NLS-1$
+	private static final long MIN_SWEEP_MILLIS = 1000L;
+
+	private final File directory;
+	private final long ttlMillis;
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+	private final AtomicLong sequence = new AtomicLong();
+	private ScheduledExecutorService sweeper;
+
+	/**
+	 * @param directory
+	 *            the directory that holds job files, created if necessary
+	 * @param ttlMillis
+	 *            how long a finished job is kept
+	 * @throws IOException
+	 *             if the directory can't be created
+	 */
+	public JobStore(final File directory, final long ttlMillis) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Can't create job store directory " + directory.getAbsolutePath()); //$NON-NLS-1$
+		}
+		this.directory = directory;
+		this.ttlMillis = ttlMillis;
+	}
+
+	/**
+	 * Starts periodically evicting expired jobs on a daemon thread.
+	 */
+	public synchronized void startEviction() {
+		if (this.sweeper != null) {
+			return;
+		}
+		this.sweeper = Executors.newSingleThreadScheduledExecutor(IoExecutors.namedDaemonThreads("veraPDF-jobstore")); //$NON-NLS-1$
+		long period = Math.max(MIN_SWEEP_MILLIS, this.ttlMillis / 4);
+		this.sweeper.scheduleWithFixedDelay(() -> evictExpired(System.currentTimeMillis()), period, period,
+				TimeUnit.MILLISECONDS);
+	}
+
+	public File getDirectory() {
+		return this.directory;
+	}
+
+	Job create(final String name, final JobPriority priority) {
+		String id = UUID.randomUUID().toString();
+		Job job = new Job(id, name, priority, this.sequence.incrementAndGet(), new File(this.directory, id + PDF_EXT),
+				new File(this.directory, id + REPORT_EXT));
+		this.jobs.put(id, job);
+		return job;
+	}
+
+	/**
+	 * @param id
+	 *            a job id
+	 * @return the job with that id, or null if it's unknown or was evicted
+	 */
+	public Job get(final String id) {
+		return this.jobs.get(id);
+	}
+
+	public int size() {
+		return this.jobs.size();
+	}
+
+	void remove(final Job job) {
+		this.jobs.remove(job.getId());
+		deleteFiles(job);
+	}
+
+	/**
+	 * Evicts every finished job that finished more than the time to live
+	 * before now.
+	 *
+	 * @param now
+	 *            the current time in milliseconds
+	 * @return the number of jobs evicted
+	 */
+	int evictExpired(final long now) {
+		int evicted = 0;
+		for (Iterator<Job> iter = this.jobs.values().iterator(); iter.hasNext();) {
+			Job job = iter.next();
+			if (job.getStatus().isFinished() && now - job.getFinished() > this.ttlMillis) {
+				iter.remove();
+				deleteFiles(job);
+				evicted++;
+			}
+		}
+		if (evicted > 0) {
+			logger.log(Level.FINE, "Evicted {0} expired jobs", Integer.valueOf(evicted)); //$NON-NLS-1$
+		}
+		return evicted;
+	}
+
+	@Override
+	public synchronized void close() {
+		if (this.sweeper != null) {
+			this.sweeper.shutdownNow();
+			this.sweeper = null;
+		}
+	}
+
+	static void deleteFiles(final Job job) {
+		delete(job.getPdfFile());
+		delete(job.getReportFile());
+	}
+
+	static void delete(final File file) {
+		if (file.exists() && !file.delete()) {
+			logger.log(Level.FINE, "Can''t delete job file {0}", file.getAbsolutePath()); //$NON-NLS-1$
+		}
+	}
+}
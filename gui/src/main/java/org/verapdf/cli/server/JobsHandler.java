@@ -0,0 +1,173 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * REST handler for asynchronous jobs:
+ * <ul>
+ * <li>{@code POST /jobs?name=&priority=} submits a PDF and returns 202 with
+ * the job's status, or 503 if the queue is full</li>
+ * <li>{@code GET /jobs/<id>} returns the job's status as JSON</li>
+ * <li>{@code GET /jobs/<id>/report} returns the MRR report of a finished job,
+ * 409 if the job hasn't finished yet</li>
+ * </ul>
+ * Unknown and evicted jobs are reported as 404.
+ */
+final class JobsHandler implements HttpHandler {
+	private static final Logger logger = Logger.getLogger(JobsHandler.class.getCanonicalName());
+
+	static final String JOBS_PATH = "/jobs"; //$NON-NLS-1$
+	static final String REPORT_PATH = "/report"; //$NON-NLS-1$
+	private static final String GET = "GET"; //$NON-NLS-1$
+	private static final String POST = "POST"; //$NON-NLS-1$
+
+	private final JobService service;
+
+	JobsHandler(final JobService service) {
+		this.service = service;
+	}
+
+	@Override
+	public void handle(final HttpExchange exchange) throws IOException {
+		try {
+			String path = exchange.getRequestURI().getPath().substring(JOBS_PATH.length());
+			if (path.isEmpty() || "/".equals(path)) { //$NON-NLS-1$
+				if (checkMethod(exchange, POST)) {
+					submit(exchange);
+				}
+				return;
+			}
+			boolean isReport = path.endsWith(REPORT_PATH);
+			String id = path.substring(1, isReport ? path.length() - REPORT_PATH.length() : path.length());
+			Job job = this.service.getStore().get(id);
+			if (job == null) {
+				ValidationServer.sendText(exchange, 404, "Unknown job: " + id); //$NON-NLS-1$
+			} else if (checkMethod(exchange, GET)) {
+				if (isReport) {
+					sendReport(exchange, job);
+				} else {
+					sendJson(exchange, 200, toJson(job));
+				}
+			}
+		} catch (IOException | RuntimeException excep) {
+			logger.log(Level.WARNING, "Exception handling job request", excep); //$NON-NLS-1$
+			throw excep;
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void submit(final HttpExchange exchange) throws IOException {
+		Map<String, String> params = ValidationServer.parseQuery(exchange.getRequestURI().getRawQuery());
+		JobPriority priority;
+		try {
+			priority = params.containsKey("priority") ? JobPriority.fromValue(params.get("priority")) //$NON-NLS-1$ //$NON-NLS-2$
+					: JobPriority.fromSize(ValidationServer.contentLength(exchange));
+		} catch (IllegalArgumentException excep) {
+			ValidationServer.sendText(exchange, 400, excep.getMessage());
+			return;
+		}
+		String name = params.containsKey("name") ? params.get("name") : ValidationServer.DEFAULT_ITEM_NAME; //$NON-NLS-1$ //$NON-NLS-2$
+		Job job = this.service.submit(name, priority, exchange.getRequestBody());
+		if (job == null) {
+			exchange.getResponseHeaders().set("Retry-After", "5"); //$NON-NLS-1$ //$NON-NLS-2$
+			ValidationServer.sendText(exchange, 503, "Job queue full, try again later."); //$NON-NLS-1$
+			return;
+		}
+		exchange.getResponseHeaders().set("Location", JOBS_PATH + "/" + job.getId()); //$NON-NLS-1$ //$NON-NLS-2$
+		sendJson(exchange, 202, toJson(job));
+	}
+
+	private static void sendReport(final HttpExchange exchange, final Job job) throws IOException {
+		if (!job.getStatus().isFinished()) {
+			ValidationServer.sendText(exchange, 409, "Job " + job.getId() + " is " + job.getStatus()); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		exchange.getResponseHeaders().set(ValidationServer.STATUS_HEADER, job.getExitCode().name());
+		if (job.getStatus() == Job.Status.FAILED) {
+			ValidationServer.sendText(exchange, 422, String.valueOf(job.getMessage()));
+			return;
+		}
+		File report = job.getReportFile();
+		exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8"); //$NON-NLS-1$ //$NON-NLS-2$
+		exchange.sendResponseHeaders(200, report.length());
+		try (OutputStream os = exchange.getResponseBody()) {
+			Files.copy(report.toPath(), os);
+		}
+	}
+
+	private static boolean checkMethod(final HttpExchange exchange, final String method) throws IOException {
+		if (method.equals(exchange.getRequestMethod())) {
+			return true;
+		}
+		exchange.getResponseHeaders().set("Allow", method); //$NON-NLS-1$
+		ValidationServer.sendText(exchange, 405, "Only " + method + " is supported."); //$NON-NLS-1$ //$NON-NLS-2$
+		return false;
+	}
+
+	private static void sendJson(final HttpExchange exchange, final int status, final String json)
+			throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8"); //$NON-NLS-1$ //$NON-NLS-2$
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	static String toJson(final Job job) {
+		StringBuilder json = new StringBuilder("{"); //$NON-NLS-1$
+		appendField(json, "id", job.getId()).append(','); //$NON-NLS-1$
+		appendField(json, "name", job.getName()).append(','); //$NON-NLS-1$
+		appendField(json, "status", job.getStatus().name()).append(','); //$NON-NLS-1$
+		appendField(json, "priority", job.getPriority().name()).append(','); //$NON-NLS-1$
+		json.append("\"submitted\":").append(job.getSubmitted()); //$NON-NLS-1$
+		if (job.getStatus().isFinished()) {
+			json.append(",\"finished\":").append(job.getFinished()).append(','); //$NON-NLS-1$
+			appendField(json, "exitCode", job.getExitCode().name()); //$NON-NLS-1$
+			if (job.getMessage() != null) {
+				appendField(json.append(','), "message", job.getMessage()); //$NON-NLS-1$
+			}
+		}
+		return json.append('}').toString();
+	}
+
+	private static StringBuilder appendField(final StringBuilder json, final String name, final String value) {
+		json.append('"').append(name).append("\":\""); //$NON-NLS-1$
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", Integer.valueOf(c))); //$NON-NLS-1$
+			} else {
+				json.append(c);
+			}
+		}
+		return json.append('"');
+	}
+}
@@ -0,0 +1,491 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.xml.bind.JAXBException;
+
+import org.verapdf.apps.utils.AdmissionController;
+import org.verapdf.apps.utils.IoExecutors;
+import org.verapdf.apps.utils.NdjsonReportStream;
+import org.verapdf.apps.utils.ReportEncoding;
+import org.verapdf.apps.utils.Watchdog;
+import org.verapdf.cli.CliConstants;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.core.VeraPDFException;
+import org.verapdf.processor.BatchProcessingHandler;
+import org.verapdf.processor.FormatOption;
+import org.verapdf.processor.ItemProcessor;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorFactory;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.ItemDetails;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP validation service built on the JDK's HTTP server. A PDF POSTed to
+ * {@value #VALIDATE_PATH} is streamed to one of a pool of
+ * {@link ItemProcessor}s and the report is returned in the response body.
+ * <p>
+ * Query parameters:
+ * <ul>
+ * <li>{@code name}: the item name used in the report, defaults to
+ * {@value #DEFAULT_ITEM_NAME}</li>
+ * <li>{@code format}: {@code mrr}, {@code xml}, {@code text} or {@code json},
+ * defaults to the format the server was started with. {@code text} is the
+ * library's text report for the file, {@code json} is the machine readable
+ * report converted by {@link NdjsonReportStream}, one line for each part of
+ * the result.</li>
+ * </ul>
+ * At most {@code maxConcurrency} requests are processed at once and as many
+ * again may wait for a processor, further requests are refused with a 503.
+ * Requests that take longer than the timeout are abandoned with a 504.
+ * Requests only start once the {@link AdmissionController} finds heap room
+ * for them.
+ * <p>
+ * When started with a {@link JobStore} the server also accepts asynchronous
+ * jobs under {@value JobsHandler#JOBS_PATH}, see {@link JobsHandler}.
+ */
+public final class ValidationServer implements Closeable {
+	private static final Logger logger = Logger.getLogger(ValidationServer.class.getCanonicalName());
+
+	public static final String VALIDATE_PATH = "/validate"; //$NON-NLS-1$
+	static final String FORMAT_JSON = "json"; //$NON-NLS-1$
+	public static final String STATUS_HEADER = "X-veraPDF-Status"; //$NON-NLS-1$
+	static final String DEFAULT_ITEM_NAME = "upload.pdf"; //$NON-NLS-1$
+	private static final int QUEUED_PER_PROCESSOR = 1;
+	private static final int SHUTDOWN_DELAY_SECONDS = 1;
+
+	private final HttpServer server;
+	private final ExecutorService httpExecutor;
+	private final ExecutorService workers;
+	private final ItemProcessorPool pool;
+	private final Semaphore slots;
+	private final long timeoutMillis;
+	private final FormatOption defaultFormat;
+	private final ProcessorConfig config;
+	private final JobService jobService;
+	private final AdmissionController admission;
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	private ValidationServer(final ProcessorConfig config, final FormatOption defaultFormat, final int port,
+			final int maxConcurrency, final int timeoutSeconds, final JobStore jobStore, final int queueCapacity,
+			final Watchdog jobWatchdog, final AdmissionController admission) throws IOException {
+		this.defaultFormat = defaultFormat;
+		this.config = config;
+		this.admission = admission;
+		this.timeoutMillis = TimeUnit.SECONDS.toMillis(timeoutSeconds);
+		this.pool = new ItemProcessorPool(config, maxConcurrency);
+		this.slots = new Semaphore(maxConcurrency * (1 + QUEUED_PER_PROCESSOR));
+		this.workers = IoExecutors.newCpuExecutor("veraPDF-validate", maxConcurrency); //$NON-NLS-1$
+		this.httpExecutor = IoExecutors.newIoExecutor("veraPDF-http"); //$NON-NLS-1$
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.server.createContext(VALIDATE_PATH, new ValidateHandler());
+		if (jobStore != null) {
+			this.jobService = new JobService(this.pool, jobStore, queueCapacity, maxConcurrency, jobWatchdog,
+					admission);
+			this.server.createContext(JobsHandler.JOBS_PATH, new JobsHandler(this.jobService));
+			jobStore.startEviction();
+		} else {
+			this.jobService = null;
+			jobWatchdog.close();
+		}
+		this.server.setExecutor(this.httpExecutor);
+	}
+
+	/**
+	 * Starts a validation server bound to the loopback interface.
+	 *
+	 * @param config
+	 *            the processor configuration used for every request
+	 * @param defaultFormat
+	 *            the report format used when a request doesn't specify one
+	 * @param port
+	 *            the TCP port to bind to, 0 picks a free port
+	 * @param maxConcurrency
+	 *            the number of requests processed in parallel
+	 * @param timeoutSeconds
+	 *            the time allowed to process a single request
+	 * @return the running server
+	 * @throws IOException
+	 *             when the port can't be bound
+	 */
+	public static ValidationServer start(final ProcessorConfig config, final FormatOption defaultFormat,
+			final int port, final int maxConcurrency, final int timeoutSeconds) throws IOException {
+		return start(config, defaultFormat, port, maxConcurrency, timeoutSeconds, null, 0);
+	}
+
+	/**
+	 * Starts a validation server bound to the loopback interface that also
+	 * accepts asynchronous jobs.
+	 *
+	 * @param config
+	 *            the processor configuration used for every request
+	 * @param defaultFormat
+	 *            the report format used when a request doesn't specify one
+	 * @param port
+	 *            the TCP port to bind to, 0 picks a free port
+	 * @param maxConcurrency
+	 *            the number of requests processed in parallel
+	 * @param timeoutSeconds
+	 *            the time allowed to process a single synchronous request
+	 * @param jobStore
+	 *            the store for asynchronous jobs, null disables them
+	 * @param queueCapacity
+	 *            the maximum number of asynchronous jobs waiting to start
+	 * @return the running server
+	 * @throws IOException
+	 *             when the port can't be bound
+	 */
+	public static ValidationServer start(final ProcessorConfig config, final FormatOption defaultFormat,
+			final int port, final int maxConcurrency, final int timeoutSeconds, final JobStore jobStore,
+			final int queueCapacity) throws IOException {
+		return start(config, defaultFormat, port, maxConcurrency, timeoutSeconds, jobStore, queueCapacity,
+				new Watchdog(0, 0), new AdmissionController(AdmissionController.DEFAULT_LARGE_FILE_BYTES));
+	}
+
+	/**
+	 * Starts a validation server bound to the loopback interface that also
+	 * accepts asynchronous jobs, each job limited by a time budget. Requests
+	 * and jobs start only once the heap has room for them.
+	 *
+	 * @param config
+	 *            the processor configuration used for every request
+	 * @param defaultFormat
+	 *            the report format used when a request doesn't specify one
+	 * @param port
+	 *            the TCP port to bind to, 0 picks a free port
+	 * @param maxConcurrency
+	 *            the number of requests processed in parallel
+	 * @param timeoutSeconds
+	 *            the time allowed to process a single synchronous request
+	 * @param jobStore
+	 *            the store for asynchronous jobs, null disables them
+	 * @param queueCapacity
+	 *            the maximum number of asynchronous jobs waiting to start
+	 * @param jobWatchdog
+	 *            enforces the time budget of asynchronous jobs, closed with
+	 *            the server
+	 * @param admission
+	 *            holds requests and jobs back until the heap has room for
+	 *            them
+	 * @return the running server
+	 * @throws IOException
+	 *             when the port can't be bound
+	 */
+	public static ValidationServer start(final ProcessorConfig config, final FormatOption defaultFormat,
+			final int port, final int maxConcurrency, final int timeoutSeconds, final JobStore jobStore,
+			final int queueCapacity, final Watchdog jobWatchdog, final AdmissionController admission)
+			throws IOException {
+		ValidationServer validationServer = new ValidationServer(config, defaultFormat, port, maxConcurrency,
+				timeoutSeconds, jobStore, queueCapacity, jobWatchdog, admission);
+		validationServer.server.start();
+		logger.log(Level.INFO, "veraPDF validation service listening on http://{0}:{1}{2}", new Object[] { //$NON-NLS-1$
+				validationServer.server.getAddress().getHostString(), String.valueOf(validationServer.getPort()),
+				VALIDATE_PATH });
+		return validationServer;
+	}
+
+	public int getPort() {
+		return this.server.getAddress().getPort();
+	}
+
+	/**
+	 * Blocks until the server has been closed.
+	 *
+	 * @throws InterruptedException
+	 *             when interrupted while waiting
+	 */
+	public void awaitShutdown() throws InterruptedException {
+		this.stopped.await();
+	}
+
+	@Override
+	public void close() {
+		if (this.stopped.getCount() == 0) {
+			return;
+		}
+		this.server.stop(SHUTDOWN_DELAY_SECONDS);
+		this.httpExecutor.shutdownNow();
+		this.workers.shutdownNow();
+		if (this.jobService != null) {
+			this.jobService.close();
+			this.jobService.getStore().close();
+		}
+		this.pool.close();
+		this.stopped.countDown();
+	}
+
+	static Map<String, String> parseQuery(final String rawQuery) throws UnsupportedEncodingException {
+		Map<String, String> params = new HashMap<>();
+		if (rawQuery == null || rawQuery.isEmpty()) {
+			return params;
+		}
+		for (String pair : rawQuery.split("&")) { //$NON-NLS-1$
+			int split = pair.indexOf('=');
+			String key = split < 0 ? pair : pair.substring(0, split);
+			String value = split < 0 ? "" : pair.substring(split + 1); //$NON-NLS-1$
+			params.put(URLDecoder.decode(key, "UTF-8"), URLDecoder.decode(value, "UTF-8")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return params;
+	}
+
+	static void sendText(final HttpExchange exchange, final int status, final String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8"); //$NON-NLS-1$ //$NON-NLS-2$
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	/**
+	 * @return the request's Content-Length, -1 if absent or malformed
+	 */
+	static long contentLength(final HttpExchange exchange) {
+		String length = exchange.getRequestHeaders().getFirst("Content-Length"); //$NON-NLS-1$
+		if (length == null) {
+			return -1L;
+		}
+		try {
+			return Long.parseLong(length.trim());
+		} catch (NumberFormatException excep) {
+			return -1L;
+		}
+	}
+
+	private static boolean isSupported(final FormatOption format) {
+		return format == FormatOption.MRR || format == FormatOption.XML || format == FormatOption.TEXT;
+	}
+
+	/**
+	 * @return the report encoding a {@code format} parameter asks for,
+	 *         {@link ReportEncoding#NDJSON} for {@value #FORMAT_JSON}
+	 */
+	static ReportEncoding encodingFor(final String format) {
+		return FORMAT_JSON.equalsIgnoreCase(format) ? ReportEncoding.NDJSON : ReportEncoding.NONE;
+	}
+
+	static String parsingMessage(final ProcessorResult result, final String name) {
+		return String.format((result.isPdf()) ? CliConstants.MESS_PDF_ENCRYPTED : CliConstants.MESS_PDF_NOT_VALID,
+				name);
+	}
+
+	private void sendResult(final HttpExchange exchange, final ItemDetails item, final ProcessorResult result,
+			final FormatOption format, final ReportEncoding encoding)
+			throws IOException, JAXBException, VeraPDFException {
+		ExitCodes exitCode = ExitCodes.fromResult(result);
+		exchange.getResponseHeaders().set(STATUS_HEADER, exitCode.name());
+		if (exitCode == ExitCodes.FAILED_PARSING || exitCode == ExitCodes.ENCRYPTED_FILES) {
+			sendText(exchange, 422, parsingMessage(result, item.getName()));
+			return;
+		}
+		// written before the headers are sent so a failure can still be
+		// answered with an error status
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+		String contentType;
+		if (encoding == ReportEncoding.NDJSON) {
+			try (OutputStream json = new NdjsonReportStream(report)) {
+				ProcessorFactory.resultToXml(result, json, false);
+			}
+			contentType = "application/x-ndjson; charset=utf-8"; //$NON-NLS-1$
+		} else if (format == FormatOption.TEXT) {
+			writeText(item, result, report);
+			contentType = "text/plain; charset=utf-8"; //$NON-NLS-1$
+		} else {
+			ProcessorFactory.resultToXml(result, report, true);
+			contentType = "application/xml; charset=utf-8"; //$NON-NLS-1$
+		}
+		exchange.getResponseHeaders().set("Content-Type", contentType); //$NON-NLS-1$
+		exchange.sendResponseHeaders(200, report.size());
+		try (OutputStream os = exchange.getResponseBody()) {
+			report.writeTo(os);
+		}
+	}
+
+	/**
+	 * Writes the library's text report for a single result. The batch is never
+	 * ended, the batch summary of a single file adds nothing to its report.
+	 */
+	private void writeText(final ItemDetails item, final ProcessorResult result, final OutputStream report)
+			throws IOException, VeraPDFException {
+		try (BatchProcessingHandler handler = ProcessorFactory.getHandler(FormatOption.TEXT, false, report,
+				this.config.getValidatorConfig().getMaxFails(),
+				this.config.getValidatorConfig().isRecordPasses())) {
+			handler.handleBatchStart(this.config);
+			handler.handleItemStart(item);
+			handler.handleResult(result);
+		}
+	}
+
+	private final class ValidateHandler implements HttpHandler {
+		ValidateHandler() {
+			super();
+		}
+
+		@Override
+		public void handle(final HttpExchange exchange) throws IOException {
+			try {
+				if (!"POST".equals(exchange.getRequestMethod())) { //$NON-NLS-1$
+					exchange.getResponseHeaders().set("Allow", "POST"); //$NON-NLS-1$ //$NON-NLS-2$
+					sendText(exchange, 405, "Only POST is supported."); //$NON-NLS-1$
+					return;
+				}
+				Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+				FormatOption format = ValidationServer.this.defaultFormat;
+				ReportEncoding encoding = encodingFor(params.get("format")); //$NON-NLS-1$
+				if (encoding == ReportEncoding.NDJSON) {
+					format = FormatOption.MRR;
+				} else if (params.containsKey("format")) { //$NON-NLS-1$
+					try {
+						format = FormatOption.fromOption(params.get("format")); //$NON-NLS-1$
+					} catch (NoSuchElementException excep) {
+						format = null;
+					}
+				}
+				if (format == null || !isSupported(format)) {
+					sendText(exchange, 400, "Unsupported report format: " + params.get("format")); //$NON-NLS-1$ //$NON-NLS-2$
+					return;
+				}
+				String name = params.containsKey("name") ? params.get("name") : DEFAULT_ITEM_NAME; //$NON-NLS-1$ //$NON-NLS-2$
+				process(exchange, ItemDetails.fromValues(name), format, encoding);
+			} catch (IOException | RuntimeException excep) {
+				logger.log(Level.WARNING, "Exception handling validation request", excep); //$NON-NLS-1$
+				throw excep;
+			} finally {
+				exchange.close();
+			}
+		}
+
+		private void process(final HttpExchange exchange, final ItemDetails item, final FormatOption format,
+				final ReportEncoding encoding) throws IOException {
+			if (!ValidationServer.this.slots.tryAcquire()) {
+				exchange.getResponseHeaders().set("Retry-After", "1"); //$NON-NLS-1$ //$NON-NLS-2$
+				sendText(exchange, 503, "Server busy, try again later."); //$NON-NLS-1$
+				return;
+			}
+			ValidationTask task = new ValidationTask(item, exchange.getRequestBody(), contentLength(exchange));
+			Future<ProcessorResult> future;
+			try {
+				future = ValidationServer.this.workers.submit(task);
+			} catch (RejectedExecutionException excep) {
+				ValidationServer.this.slots.release();
+				sendText(exchange, 503, "Server shutting down."); //$NON-NLS-1$
+				return;
+			}
+			try {
+				ProcessorResult result = future.get(ValidationServer.this.timeoutMillis, TimeUnit.MILLISECONDS);
+				sendResult(exchange, item, result, format, encoding);
+			} catch (TimeoutException excep) {
+				cancel(task, future);
+				exchange.getResponseHeaders().set(STATUS_HEADER, ExitCodes.TIMEOUT.name());
+				sendText(exchange, 504, "Validation timed out."); //$NON-NLS-1$
+			} catch (InterruptedException excep) {
+				cancel(task, future);
+				Thread.currentThread().interrupt();
+				sendText(exchange, 503, "Server shutting down."); //$NON-NLS-1$
+			} catch (ExecutionException excep) {
+				logger.log(Level.WARNING, CliConstants.EXCEP_VERA_BATCH, excep.getCause());
+				exchange.getResponseHeaders().set(STATUS_HEADER, ExitCodes.VERAPDF_EXCEPTION.name());
+				sendText(exchange, 500, "Processing failed: " + excep.getCause()); //$NON-NLS-1$
+			} catch (JAXBException | VeraPDFException excep) {
+				logger.log(Level.SEVERE, CliConstants.EXCEP_REPORT_MARSHAL, excep);
+				exchange.getResponseHeaders().set(STATUS_HEADER, ExitCodes.VERAPDF_EXCEPTION.name());
+				sendText(exchange, 500, CliConstants.EXCEP_REPORT_MARSHAL);
+			}
+		}
+
+		/**
+		 * A task cancelled before it started never runs, so its slot is given
+		 * back here rather than by the task.
+		 */
+		private void cancel(final ValidationTask task, final Future<ProcessorResult> future) {
+			future.cancel(true);
+			if (task.abandon()) {
+				ValidationServer.this.slots.release();
+			}
+		}
+	}
+
+	private final class ValidationTask implements Callable<ProcessorResult> {
+		private final ItemDetails item;
+		private final InputStream toProcess;
+		private final long size;
+		private final AtomicBoolean isClaimed = new AtomicBoolean(false);
+
+		ValidationTask(final ItemDetails item, final InputStream toProcess, final long size) {
+			this.item = item;
+			this.toProcess = toProcess;
+			this.size = size;
+		}
+
+		/**
+		 * @return true if the task hadn't started, it then never will and
+		 *         won't release its slot
+		 */
+		boolean abandon() {
+			return this.isClaimed.compareAndSet(false, true);
+		}
+
+		@Override
+		public ProcessorResult call() throws InterruptedException {
+			if (!this.isClaimed.compareAndSet(false, true)) {
+				throw new CancellationException();
+			}
+			ItemProcessor processor = null;
+			AdmissionController.Permit permit = null;
+			try {
+				permit = ValidationServer.this.admission.admit(this.size);
+				processor = ValidationServer.this.pool.take();
+				return processor.process(this.item, this.toProcess);
+			} finally {
+				ValidationServer.this.pool.release(processor);
+				if (permit != null) {
+					permit.close();
+				}
+				ValidationServer.this.slots.release();
+			}
+		}
+	}
+}
@@ -20,6 +20,7 @@ import org.verapdf.apps.ConfigManager;
 import org.verapdf.apps.ProcessType;
 import org.verapdf.apps.VeraAppConfig;
 import org.verapdf.apps.utils.ApplicationUtils;
+import org.verapdf.apps.utils.JobIndex;
 import org.verapdf.gui.utils.*;
 import org.verapdf.pdfa.flavours.PDFAFlavour;
 import org.verapdf.pdfa.validation.profiles.Profiles;
@@ -87,6 +88,7 @@ class CheckerPanel extends JPanel {
 	private JButton viewXML;
 	private JButton saveHTML;
 	private JButton viewHTML;
+	private JButton viewResults;
 
 	private DropTarget targetPDF;
 	private DropTarget targetPolicy;
@@ -94,6 +96,7 @@ class CheckerPanel extends JPanel {
 	private transient Path profilePath;
 
 	private JProgressBar progressBar;
+	private ResultsPanel resultsPanel = new ResultsPanel();
 	transient ValidateWorker validateWorker;
 
 	CheckerPanel(final ConfigManager config) throws IOException {
@@ -116,6 +119,11 @@ class CheckerPanel extends JPanel {
 		this.execute.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(final ActionEvent e) {
+				if (isValidating()) {
+					CheckerPanel.this.validateWorker.cancelValidation();
+					CheckerPanel.this.execute.setEnabled(false);
+					return;
+				}
 				try {
 					changeConfig();
 					ValidationProfile customProfile = null;
@@ -128,15 +136,22 @@ class CheckerPanel extends JPanel {
 					CheckerPanel.this.validateWorker = new ValidateWorker(CheckerPanel.this,
 							CheckerPanel.this.pdfsToProcess, CheckerPanel.config, customProfile,
 							CheckerPanel.this.policy);
+					CheckerPanel.this.progressBar.setIndeterminate(true);
+					CheckerPanel.this.progressBar.setStringPainted(false);
 					CheckerPanel.this.progressBar.setVisible(true);
 					CheckerPanel.this.resultLabel.setVisible(false);
 					setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
-					CheckerPanel.this.execute.setEnabled(false);
+					CheckerPanel.this.execute.setText(GUIConstants.CANCEL);
 					CheckerPanel.this.isValidationErrorOccurred = false;
 					CheckerPanel.this.viewXML.setEnabled(false);
 					CheckerPanel.this.saveXML.setEnabled(false);
 					CheckerPanel.this.viewHTML.setEnabled(false);
 					CheckerPanel.this.saveHTML.setEnabled(false);
+					CheckerPanel.this.viewResults.setEnabled(false);
+					CheckerPanel.this.resultsPanel.clear();
+					if (CheckerPanel.this.pdfsToProcess.size() > 1) {
+						CheckerPanel.this.resultsPanel.showDialog(CheckerPanel.this);
+					}
 					CheckerPanel.this.validateWorker.execute();
 				} catch (IllegalArgumentException | JAXBException | IOException excep) {
 					DialogUtils.errorDialog(CheckerPanel.this, excep.getMessage(), logger, excep);
@@ -195,6 +210,13 @@ class CheckerPanel extends JPanel {
 				}
 			}
 		});
+
+		this.viewResults.addActionListener(new ActionListener() {
+			@Override
+			public void actionPerformed(final ActionEvent e) {
+				CheckerPanel.this.resultsPanel.showDialog(CheckerPanel.this);
+			}
+		});
 	}
 
 	private void initGui() throws IOException {
@@ -418,6 +440,10 @@ class CheckerPanel extends JPanel {
 		this.viewXML.setEnabled(false);
 		reports.add(this.viewXML);
 
+		this.viewResults = new JButton(GUIConstants.VIEW_RESULTS_BUTTON_TEXT);
+		this.viewResults.setEnabled(false);
+		reports.add(this.viewResults);
+
 		LogoPanel htmlLogo = new LogoPanel(GUIConstants.HTML_LOGO_NAME, reports.getBackground(),
 				GUIConstants.HTML_LOGO_BORDER_WIDTH);
 		reports.add(htmlLogo);
@@ -429,6 +455,9 @@ class CheckerPanel extends JPanel {
 		this.viewHTML = new JButton(GUIConstants.VIEW_HTML_REPORT_BUTTON_TEXT);
 		this.viewHTML.setEnabled(false);
 		reports.add(this.viewHTML);
+
+		// the row of HTML report buttons is one shorter
+		reports.add(Box.createGlue());
 	}
 
 	private void setupProfileButton(final GridBagLayout gbl, final GridBagConstraints gbc) {
@@ -522,29 +551,49 @@ class CheckerPanel extends JPanel {
 
 	}
 
+	private boolean isValidating() {
+		return this.validateWorker != null && !this.validateWorker.isDone();
+	}
+
+	void showProgress(ValidationProgress progress) {
+		if (progress.getTotal() > 0) {
+			this.progressBar.setIndeterminate(false);
+			this.progressBar.setMaximum(progress.getTotal());
+			this.progressBar.setValue(progress.getCompleted());
+		}
+		this.progressBar.setStringPainted(true);
+		this.progressBar.setString(progress.getMessage());
+		this.resultsPanel.addResults(progress.getResults());
+	}
+
 	void validationEnded(File xmlReportFile, File htmlReportFile) {
 
 		setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
 		this.progressBar.setVisible(false);
+		this.execute.setText(GUIConstants.VALIDATE_BUTTON_TEXT);
 		this.execute.setEnabled(true);
+		this.resultsPanel.refresh();
 
 		if (!this.isValidationErrorOccurred) {
 			try {
 				ValidateWorker.ValidateWorkerSummary result = this.validateWorker.get();
-				if (!result.getBatchSummary().isMultiJob()) {
-					if (result.getBatchSummary().getFailedParsingJobs() == 1) {
+				if (result.isCancelled()) {
+					setResultMessage(GUIConstants.VALIDATION_CANCELLED + getBatchResultMessage(result),
+							GUIConstants.BEFORE_VALIDATION_COLOR);
+				} else if (!result.isMultiJob()) {
+					if (result.getTotals().getFailedParsingJobs() == 1) {
 						setResultMessage(GUIConstants.ERROR_IN_PARSING, GUIConstants.VALIDATION_FAILED_COLOR);
-					} else if (result.getBatchSummary().getFailedEncryptedJobs() == 1) {
+					} else if (result.getTotals().getFailedEncryptedJobs() == 1) {
 						setResultMessage(GUIConstants.ENCRYPTED_PDF, GUIConstants.VALIDATION_FAILED_COLOR);
 					} else if (result.isPolicyApplied() && result.getPolicyNonCompliantJobCount() > 0) {
 						setResultMessage(GUIConstants.POLICY_FALSE, GUIConstants.VALIDATION_FAILED_COLOR);
-					} else if (result.getBatchSummary().getValidationSummary().getCompliantPdfaCount() > 0) {
+					} else if (result.getTotals().getCompliantPdfaCount() > 0) {
 						setResultMessage(GUIConstants.VALIDATION_OK, GUIConstants.VALIDATION_SUCCESS_COLOR);
-					} else if (result.getBatchSummary().getValidationSummary().getNonCompliantPdfaCount() > 0) {
+					} else if (result.getTotals().getNonCompliantPdfaCount() > 0) {
 						setResultMessage(GUIConstants.VALIDATION_FALSE, GUIConstants.VALIDATION_FAILED_COLOR);
-					} else if (result.getBatchSummary().getValidationSummary().getFailedJobCount() == 1) {
+					} else if (result.getTotals().getFailedValidationJobs() == 1) {
 						setResultMessage(GUIConstants.ERROR_IN_VALIDATING, GUIConstants.VALIDATION_FAILED_COLOR);
-					} else if (result.getBatchSummary().getFeaturesSummary().getTotalJobCount() > 0) {
+					} else if (result.getTotals().getFeaturesJobs() > 0) {
 						setResultMessage(GUIConstants.FEATURES_GENERATED_CORRECT,
 								GUIConstants.VALIDATION_SUCCESS_COLOR);
 					} else {
@@ -561,10 +610,11 @@ class CheckerPanel extends JPanel {
 				if (xmlReportFile != null) {
 					this.saveXML.setEnabled(true);
 					this.viewXML.setEnabled(true);
+					this.viewResults.setEnabled(true);
 				}
 
 				if (htmlReportFile != null
-						&& !(result.getBatchSummary().isMultiJob() && this.ProcessTypes.getSelectedItem() == ProcessType.EXTRACT)) {
+						&& !(result.isMultiJob() && this.ProcessTypes.getSelectedItem() == ProcessType.EXTRACT)) {
 					this.saveHTML.setEnabled(true);
 					this.viewHTML.setEnabled(true);
 				}
@@ -580,19 +630,20 @@ class CheckerPanel extends JPanel {
 	private static String getBatchResultMessage(ValidateWorker.ValidateWorkerSummary result) {
 		String divisor = ", "; //$NON-NLS-1$
 		StringBuilder sb = new StringBuilder(
-				String.format("Items processed: %d", result.getBatchSummary().getTotalJobs())); //$NON-NLS-1$
-		String end = String.format("%s Parsing Error: %d", divisor, result.getBatchSummary().getFailedParsingJobs()); //$NON-NLS-1$
-		if (result.getBatchSummary().getValidationSummary().getTotalJobCount() > 0) {
+				String.format("Items processed: %d", result.getTotals().getTotalJobs())); //$NON-NLS-1$
+		String end = String.format("%s Parsing Error: %d", divisor, result.getTotals().getFailedParsingJobs()); //$NON-NLS-1$
+		if (result.getTotals().getValidationJobs() > 0) {
 			end = String.format("%sValid: %d%sInvalid: %d%sError: %d", divisor, //$NON-NLS-1$
-					result.getBatchSummary().getValidationSummary().getCompliantPdfaCount(), divisor,
-					result.getBatchSummary().getValidationSummary().getNonCompliantPdfaCount(), divisor,
-					result.getBatchSummary().getValidationSummary().getFailedJobCount());
+					result.getTotals().getCompliantPdfaCount(), divisor,
+					result.getTotals().getNonCompliantPdfaCount(), divisor,
+					result.getTotals().getFailedValidationJobs());
 			sb.append(end);
 		}
-		if (result.getBatchSummary().getFeaturesSummary().getSuccessfulJobCount() > 0) {
+		int featuresGenerated = result.getTotals().getFeaturesJobs() - result.getTotals().getFailedFeaturesJobs();
+		if (featuresGenerated > 0) {
 			String old_end = end;
 			end = String.format("%sFeatures generated: %d%s", divisor, //$NON-NLS-1$
-					result.getBatchSummary().getFeaturesSummary().getSuccessfulJobCount(), old_end);
+					featuresGenerated, old_end);
 			sb.append(end);
 		}
 		if (result.getPolicyNonCompliantJobCount() > 0) {
@@ -674,6 +725,7 @@ class CheckerPanel extends JPanel {
 			this.viewXML.setEnabled(false);
 			this.saveHTML.setEnabled(false);
 			this.viewHTML.setEnabled(false);
+			this.viewResults.setEnabled(false);
 
 			switch (extensions[0]) {
 				case GUIConstants.PDF:
@@ -736,6 +788,7 @@ class CheckerPanel extends JPanel {
 				}
 
 				try {
+					boolean isSaved = true;
 					try {
 						Files.copy(report.toPath(), temp.toPath());
 					} catch (FileAlreadyExistsException excep) {
@@ -743,10 +796,14 @@ class CheckerPanel extends JPanel {
 						logger.log(Level.FINE, message, excep);
 						int resultOption = JOptionPane.showConfirmDialog(CheckerPanel.this,
 								message, GUIConstants.TITLE_OVERWRITE, JOptionPane.YES_NO_OPTION);
-						if (resultOption == JOptionPane.YES_OPTION) {
+						isSaved = resultOption == JOptionPane.YES_OPTION;
+						if (isSaved) {
 							Files.copy(report.toPath(), temp.toPath(), StandardCopyOption.REPLACE_EXISTING);
 						}
 					}
+					if (isSaved) {
+						saveResultIndex(report, temp);
+					}
 				} catch (IOException excep) {
 					String message = String.format(GUIConstants.IOEXCEP_SAVING_REPORT, extension.toUpperCase());
 					DialogUtils.errorDialog(CheckerPanel.this, message, logger, excep);
@@ -755,6 +812,17 @@ class CheckerPanel extends JPanel {
 		}
 	}
 
+	/**
+	 * Copies the result index of the report, if it has one, to sit alongside
+	 * the saved report.
+	 */
+	private static void saveResultIndex(File report, File saved) throws IOException {
+		Path index = JobIndex.pathFor(report.toPath());
+		if (Files.isRegularFile(index)) {
+			Files.copy(index, JobIndex.pathFor(saved.toPath()), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
 	private void changeConfig() throws JAXBException, IOException {
 		if (!this.chooseFlavour.getSelectedItem().equals(GUIConstants.CUSTOM_PROFILE_COMBOBOX_TEXT)) {
 			this.profilePath = FileSystems.getDefault().getPath(emptyString);
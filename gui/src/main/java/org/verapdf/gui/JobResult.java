@@ -0,0 +1,199 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import org.verapdf.pdfa.flavours.PDFAFlavour;
+import org.verapdf.pdfa.results.TestAssertion;
+import org.verapdf.pdfa.results.ValidationResult;
+import org.verapdf.pdfa.validation.profiles.RuleId;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.BatchSummary;
+import org.verapdf.processor.reports.ValidationBatchSummary;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The outcome of a single file of a batch, a row of the results table.
+ */
+final class JobResult {
+	enum Status {
+		COMPLIANT("Compliant"), //$NON-NLS-1$
+		NON_COMPLIANT("Not compliant"), //$NON-NLS-1$
+		FAILED("Failed"), //$NON-NLS-1$
+		PROCESSED("Processed"); //$NON-NLS-1$
+
+		private final String label;
+
+		Status(final String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return true if the file failed to process or isn't compliant
+		 */
+		boolean isFailure() {
+			return this == FAILED || this == NON_COMPLIANT;
+		}
+
+		@Override
+		public String toString() {
+			return this.label;
+		}
+	}
+
+	private final String name;
+	private final Status status;
+	private final String flavour;
+	private final List<String> failedRules;
+	private final long durationMillis;
+
+	JobResult(final String name, final Status status, final long durationMillis) {
+		this(name, status, null, Collections.<String>emptyList(), durationMillis);
+	}
+
+	/**
+	 * @param flavour
+	 *            the id of the flavour the file was validated against, or null
+	 *            if it wasn't validated
+	 * @param failedRules
+	 *            the ids of the rules the file failed
+	 */
+	JobResult(final String name, final Status status, final String flavour, final List<String> failedRules,
+			final long durationMillis) {
+		this.name = name;
+		this.status = status;
+		this.flavour = flavour;
+		this.failedRules = failedRules;
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * @param name
+	 *            the path of the file
+	 * @param status
+	 *            the file's status
+	 * @param result
+	 *            the result of processing the file, null if there's none
+	 * @param durationMillis
+	 *            the milliseconds spent processing the file
+	 * @return the file's outcome, with the flavour and failed rules of its
+	 *         validation if it was validated
+	 */
+	static JobResult of(final String name, final Status status, final ProcessorResult result,
+			final long durationMillis) {
+		ValidationResult validationResult = (result == null) ? null : result.getValidationResult();
+		if (validationResult == null) {
+			return new JobResult(name, status, durationMillis);
+		}
+		PDFAFlavour flavour = validationResult.getPDFAFlavour();
+		return new JobResult(name, status, (flavour == null) ? null : flavour.getId(),
+				failedRulesOf(validationResult), durationMillis);
+	}
+
+	/**
+	 * @return the path of the file
+	 */
+	String getName() {
+		return this.name;
+	}
+
+	Status getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @return the id of the flavour the file was validated against, or null if
+	 *         it wasn't validated
+	 */
+	String getFlavour() {
+		return this.flavour;
+	}
+
+	/**
+	 * @return the ids of the rules the file failed, each once in the order
+	 *         they were first failed
+	 */
+	List<String> getFailedRules() {
+		return this.failedRules;
+	}
+
+	/**
+	 * @return the milliseconds spent processing the file
+	 */
+	long getDurationMillis() {
+		return this.durationMillis;
+	}
+
+	/**
+	 * @param result
+	 *            the result of processing a file
+	 * @return the file's status
+	 */
+	static Status statusOf(final ProcessorResult result) {
+		if (!result.isPdf() || result.isEncryptedPdf()) {
+			return Status.FAILED;
+		}
+		ValidationResult validationResult = result.getValidationResult();
+		if (validationResult == null) {
+			return Status.PROCESSED;
+		}
+		return validationResult.isCompliant() ? Status.COMPLIANT : Status.NON_COMPLIANT;
+	}
+
+	/**
+	 * @param summary
+	 *            the summary of a batch of a single file
+	 * @return the file's status
+	 */
+	static Status statusOf(final BatchSummary summary) {
+		if (summary.getFailedParsingJobs() > 0 || summary.getFailedEncryptedJobs() > 0
+				|| summary.getOutOfMemory() > 0 || summary.getVeraExceptions() > 0) {
+			return Status.FAILED;
+		}
+		ValidationBatchSummary validation = summary.getValidationSummary();
+		if (validation == null || validation.getTotalJobCount() == 0) {
+			return Status.PROCESSED;
+		}
+		if (validation.getFailedJobCount() > 0) {
+			return Status.FAILED;
+		}
+		return (validation.getCompliantPdfaCount() > 0) ? Status.COMPLIANT : Status.NON_COMPLIANT;
+	}
+
+	/**
+	 * @param rule
+	 *            a rule of a validation profile
+	 * @return the rule's id as the reports show it, the clause and the test
+	 *         number, e.g. 6.1.4-1
+	 */
+	static String ruleIdOf(final RuleId rule) {
+		return rule.getClause() + "-" + rule.getTestNumber(); //$NON-NLS-1$
+	}
+
+	private static List<String> failedRulesOf(final ValidationResult validationResult) {
+		Set<String> failed = new LinkedHashSet<>();
+		for (TestAssertion assertion : validationResult.getTestAssertions()) {
+			if (assertion.getStatus() == TestAssertion.Status.FAILED) {
+				failed.add(ruleIdOf(assertion.getRuleId()));
+			}
+		}
+		return failed.isEmpty() ? Collections.<String>emptyList()
+				: Collections.unmodifiableList(new ArrayList<>(failed));
+	}
+}
@@ -124,6 +124,7 @@ public class PDFValidationApplication extends JFrame {
 					Builder confBuilder = Builder.fromConfig(configManager.getApplicationConfig());
 					confBuilder.wikiPath(PDFValidationApplication.this.settingsPanel.getProfilesWikiPath());
 					confBuilder.maxFails(PDFValidationApplication.this.settingsPanel.getFailedChecksDisplayNumber());
+					confBuilder.concurrency(PDFValidationApplication.this.settingsPanel.getConcurrency());
 					confBuilder.fixerFolder(
 							PDFValidationApplication.this.settingsPanel.getFixMetadataDirectory().toString());
 					try {
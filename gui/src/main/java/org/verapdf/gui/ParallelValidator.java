@@ -0,0 +1,349 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import org.verapdf.apps.VeraAppConfig;
+import org.verapdf.apps.utils.BatchCancellation;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.apps.utils.IoExecutors;
+import org.verapdf.cli.merge.ReportMerger;
+import org.verapdf.core.VeraPDFException;
+import org.verapdf.processor.BatchProcessingHandler;
+import org.verapdf.processor.BatchProcessor;
+import org.verapdf.processor.FormatOption;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorFactory;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.BatchSummary;
+import org.verapdf.processor.reports.ItemDetails;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates the files of a batch on a fixed number of threads and merges
+ * their reports into one machine readable report, in the order the files
+ * were given.
+ * <p>
+ * Each file is processed as a batch of its own by its thread's processor, so
+ * that its report and summary come from the library just as they would for
+ * the whole batch. Each report is spooled to a temporary file, those of files
+ * that finish ahead of an earlier, slower file wait to be merged, a thread
+ * won't start a file more than {@link #WINDOW_PER_THREAD} files per thread
+ * ahead of the next to be merged so only a bounded number ever wait. Reports
+ * are merged by one thread at a time, outside the lock the threads claim files
+ * under. An instance validates a single batch.
+ */
+final class ParallelValidator {
+	static final int WINDOW_PER_THREAD = 4;
+	// holds the place of a file that was cancelled part way through
+	private static final Merge SKIPPED = new Merge(null, null, null);
+
+	private final ProcessorConfig config;
+	private final VeraAppConfig appConfig;
+	private final boolean isRecordPasses;
+	private final int threads;
+	private final Object lock = new Object();
+	private final Map<Integer, Merge> pending = new HashMap<>();
+	private int next = 0;
+	private int merged = 0;
+	private boolean isMerging = false;
+	private boolean isStopped = false;
+
+	/**
+	 * @param threads
+	 *            the number of files validated at once
+	 */
+	ParallelValidator(final ProcessorConfig config, final VeraAppConfig appConfig, final boolean isRecordPasses,
+			final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed, threads=" + threads); //$NON-NLS-1$
+		}
+		this.config = config;
+		this.appConfig = appConfig;
+		this.isRecordPasses = isRecordPasses;
+		this.threads = threads;
+	}
+
+	/**
+	 * Validates the files and writes the merged report.
+	 *
+	 * @param pdfs
+	 *            the files to validate
+	 * @param report
+	 *            receives the merged report, not closed
+	 * @param tracker
+	 *            told about each file as it starts and finishes
+	 * @param cancellation
+	 *            stops the batch early, the report then holds the files that
+	 *            were finished
+	 * @return the totals of the batch
+	 * @throws VeraPDFException
+	 *             if a file couldn't be processed, the remaining files are
+	 *             abandoned
+	 * @throws IOException
+	 *             if the report couldn't be written
+	 * @throws InterruptedException
+	 *             if interrupted while waiting for the threads, they're
+	 *             interrupted in turn
+	 */
+	BatchTotals validate(final List<File> pdfs, final OutputStream report, final ProgressTracker tracker,
+			final BatchCancellation cancellation) throws VeraPDFException, IOException, InterruptedException {
+		BatchTotals totals = new BatchTotals();
+		ExecutorService executor = IoExecutors.newCpuExecutor("veraPDF-validator", this.threads); //$NON-NLS-1$
+		cancellation.onCancel(this::stop);
+		try (ReportMerger merger = new ReportMerger(report)) {
+			tracker.batchStarted();
+			List<Future<Void>> workers = new ArrayList<>(this.threads);
+			for (int i = 0; i < this.threads; i++) {
+				workers.add(executor.submit(() -> {
+					work(pdfs, merger, totals, tracker, cancellation);
+					return null;
+				}));
+			}
+			for (Future<Void> worker : workers) {
+				waitFor(worker);
+			}
+			merger.close();
+			tracker.batchFinished();
+			return totals;
+		} finally {
+			stop();
+			executor.shutdownNow();
+			executor.awaitTermination(1, TimeUnit.MINUTES);
+			discardPending();
+		}
+	}
+
+	private void work(final List<File> pdfs, final ReportMerger merger, final BatchTotals totals,
+			final ProgressTracker tracker, final BatchCancellation cancellation)
+			throws VeraPDFException, IOException, InterruptedException {
+		try (BatchProcessor processor = ProcessorFactory.fileBatchProcessor(this.config)) {
+			for (int index = claim(pdfs.size()); index >= 0; index = claim(pdfs.size())) {
+				File pdf = pdfs.get(index);
+				tracker.itemStarted(pdf.getPath());
+				long started = System.nanoTime();
+				File spool = File.createTempFile("veraPDF-job", ".mrr"); //$NON-NLS-1$ //$NON-NLS-2$
+				BatchSummary summary;
+				ResultCapture capture;
+				try (BatchCancellation.Section section = cancellation.enter();
+						OutputStream os = new BufferedOutputStream(new FileOutputStream(spool))) {
+					capture = new ResultCapture(ProcessorFactory.getHandler(FormatOption.MRR,
+							this.appConfig.isVerbose(), os, this.appConfig.getMaxFailsDisplayed(), this.isRecordPasses));
+					summary = processor.process(Collections.singletonList(pdf), capture);
+				} catch (VeraPDFException | IOException | RuntimeException excep) {
+					delete(spool);
+					if (!cancellation.isCancelled()) {
+						throw excep;
+					}
+					// the file was interrupted, it's left out of the report
+					finished(index, SKIPPED, merger, totals, tracker);
+					continue;
+				}
+				JobResult result = JobResult.of(pdf.getPath(), JobResult.statusOf(summary), capture.result,
+						TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+				finished(index, new Merge(spool, summary, result), merger, totals, tracker);
+			}
+		} catch (VeraPDFException | IOException | InterruptedException | RuntimeException excep) {
+			stop();
+			throw excep;
+		}
+	}
+
+	/**
+	 * @return the index of the next file to validate, or -1 if there are no
+	 *         more or the batch has been stopped
+	 */
+	private int claim(final int size) throws InterruptedException {
+		synchronized (this.lock) {
+			if (this.isStopped || this.next >= size) {
+				return -1;
+			}
+			int index = this.next++;
+			while (!this.isStopped && index - this.merged >= this.threads * WINDOW_PER_THREAD) {
+				this.lock.wait();
+			}
+			return this.isStopped ? -1 : index;
+		}
+	}
+
+	/**
+	 * Queues the file's report to be merged. If no other thread is merging
+	 * this thread merges it, and those of any later files that were waiting
+	 * on it or arrive while it merges.
+	 */
+	private void finished(final int index, final Merge merge, final ReportMerger merger, final BatchTotals totals,
+			final ProgressTracker tracker) throws IOException {
+		synchronized (this.lock) {
+			this.pending.put(Integer.valueOf(index), merge);
+			if (this.isMerging) {
+				return;
+			}
+			this.isMerging = true;
+		}
+		try {
+			for (List<Merge> ready = takeReady(); !ready.isEmpty(); ready = takeReady()) {
+				for (Merge next : ready) {
+					if (next != SKIPPED) {
+						merger.add(next.report);
+						delete(next.report);
+						totals.add(next.summary);
+						tracker.itemFinished(next.result);
+					}
+				}
+				synchronized (this.lock) {
+					this.merged += ready.size();
+					this.lock.notifyAll();
+				}
+			}
+		} finally {
+			synchronized (this.lock) {
+				this.isMerging = false;
+			}
+		}
+	}
+
+	/**
+	 * @return the reports that can be merged next, in order, empty if the
+	 *         next report isn't ready
+	 */
+	private List<Merge> takeReady() {
+		List<Merge> ready = new ArrayList<>();
+		synchronized (this.lock) {
+			for (Merge next = this.pending.remove(Integer.valueOf(this.merged)); next != null; next = this.pending
+					.remove(Integer.valueOf(this.merged + ready.size()))) {
+				ready.add(next);
+			}
+			if (ready.isEmpty()) {
+				// checked under the lock, a report that arrives later is merged
+				// by the thread that queues it
+				this.isMerging = false;
+			}
+		}
+		return ready;
+	}
+
+	/**
+	 * Deletes the spooled reports of files a stopped batch never merged.
+	 */
+	private void discardPending() {
+		synchronized (this.lock) {
+			for (Merge merge : this.pending.values()) {
+				if (merge != SKIPPED) {
+					delete(merge.report);
+				}
+			}
+			this.pending.clear();
+		}
+	}
+
+	private static void delete(final File report) {
+		if (!report.delete() && report.exists()) {
+			report.deleteOnExit();
+		}
+	}
+
+	private void stop() {
+		synchronized (this.lock) {
+			this.isStopped = true;
+			this.lock.notifyAll();
+		}
+	}
+
+	private static void waitFor(final Future<Void> worker)
+			throws VeraPDFException, IOException, InterruptedException {
+		try {
+			worker.get();
+		} catch (ExecutionException excep) {
+			Throwable cause = excep.getCause();
+			if (cause instanceof VeraPDFException) {
+				throw (VeraPDFException) cause;
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	private static final class Merge {
+		final File report;
+		final BatchSummary summary;
+		final JobResult result;
+
+		Merge(final File report, final BatchSummary summary, final JobResult result) {
+			this.report = report;
+			this.summary = summary;
+			this.result = result;
+		}
+	}
+
+	/**
+	 * Keeps the file's result for its row of the results table, the summary
+	 * only has the counts.
+	 */
+	private static final class ResultCapture implements BatchProcessingHandler {
+		private final BatchProcessingHandler handler;
+		ProcessorResult result = null;
+
+		ResultCapture(final BatchProcessingHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void handleBatchStart(final ProcessorConfig processorConfig) {
+			this.handler.handleBatchStart(processorConfig);
+		}
+
+		@Override
+		public void handleItemStart(final ItemDetails itemDetails) {
+			this.handler.handleItemStart(itemDetails);
+		}
+
+		@Override
+		public void handleResult(final ProcessorResult processorResult) throws VeraPDFException {
+			this.handler.handleResult(processorResult);
+			this.result = processorResult;
+		}
+
+		@Override
+		public void handleBatchEnd(final BatchSummary summary) throws VeraPDFException {
+			this.handler.handleBatchEnd(summary);
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.handler.close();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import org.verapdf.core.VeraPDFException;
+import org.verapdf.processor.BatchProcessingHandler;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.BatchSummary;
+import org.verapdf.processor.reports.ItemDetails;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passes the batch processor's callbacks on to the report handler and tells a
+ * {@link ProgressTracker} about each file as it goes, the library's batch
+ * processor has no other way of reporting progress.
+ */
+final class ProgressHandler implements BatchProcessingHandler {
+	private final BatchProcessingHandler handler;
+	private final ProgressTracker tracker;
+	private String itemName = null;
+	private long itemStarted = 0;
+
+	ProgressHandler(final BatchProcessingHandler handler, final ProgressTracker tracker) {
+		this.handler = handler;
+		this.tracker = tracker;
+	}
+
+	@Override
+	public void handleBatchStart(final ProcessorConfig config) {
+		this.handler.handleBatchStart(config);
+		this.tracker.batchStarted();
+	}
+
+	@Override
+	public void handleItemStart(final ItemDetails itemDetails) {
+		this.handler.handleItemStart(itemDetails);
+		this.itemName = itemDetails.getName();
+		this.itemStarted = System.nanoTime();
+		this.tracker.itemStarted(this.itemName);
+	}
+
+	@Override
+	public void handleResult(final ProcessorResult result) throws VeraPDFException {
+		this.handler.handleResult(result);
+		this.tracker.itemFinished(JobResult.of(this.itemName, JobResult.statusOf(result), result,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.itemStarted)));
+	}
+
+	@Override
+	public void handleBatchEnd(final BatchSummary summary) throws VeraPDFException {
+		this.handler.handleBatchEnd(summary);
+		this.tracker.batchFinished();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.handler.close();
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Counts the files of a batch as they're processed, from one thread or many,
+ * and publishes a {@link ValidationProgress} at most once every
+ * {@link #PUBLISH_INTERVAL_MILLIS} so that a large batch of small files
+ * doesn't flood the event dispatch thread. The results of the files finished
+ * since the last snapshot travel with it.
+ */
+final class ProgressTracker {
+	static final long PUBLISH_INTERVAL_MILLIS = 250;
+
+	private final int total;
+	private final Consumer<ValidationProgress> listener;
+	private final LongSupplier clock;
+	private final long interval;
+	private long started;
+	private long lastPublished;
+	private int completed = 0;
+	private int failed = 0;
+	private String currentFile = null;
+	private List<JobResult> results = new ArrayList<>();
+
+	ProgressTracker(final int total, final Consumer<ValidationProgress> listener) {
+		this(total, listener, System::nanoTime, PUBLISH_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * @param clock
+	 *            supplies the current time in nanoseconds
+	 * @param intervalMillis
+	 *            the minimum milliseconds between published snapshots
+	 */
+	ProgressTracker(final int total, final Consumer<ValidationProgress> listener, final LongSupplier clock,
+			final long intervalMillis) {
+		this.total = total;
+		this.listener = listener;
+		this.clock = clock;
+		this.interval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+		this.started = clock.getAsLong();
+		this.lastPublished = this.started;
+	}
+
+	synchronized void batchStarted() {
+		this.started = this.clock.getAsLong();
+		publish(true);
+	}
+
+	/**
+	 * @param name
+	 *            the path of the file that's started
+	 */
+	synchronized void itemStarted(final String name) {
+		this.currentFile = new File(name).getName();
+		publish(false);
+	}
+
+	synchronized void itemFinished(final JobResult result) {
+		this.completed++;
+		if (result.getStatus().isFailure()) {
+			this.failed++;
+		}
+		this.results.add(result);
+		publish(false);
+	}
+
+	synchronized void batchFinished() {
+		this.currentFile = null;
+		publish(true);
+	}
+
+	private void publish(final boolean isForced) {
+		long now = this.clock.getAsLong();
+		if (!isForced && now - this.lastPublished < this.interval) {
+			return;
+		}
+		this.lastPublished = now;
+		List<JobResult> finished = this.results.isEmpty() ? Collections.<JobResult>emptyList()
+				: Collections.unmodifiableList(this.results);
+		this.results = new ArrayList<>();
+		this.listener.accept(new ValidationProgress(this.total, this.completed, this.failed, this.currentFile,
+				TimeUnit.NANOSECONDS.toMillis(now - this.started), finished));
+	}
+}
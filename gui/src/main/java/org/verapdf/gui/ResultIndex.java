@@ -0,0 +1,491 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The results of a batch kept on disk, so that the results table can show a
+ * batch of any size in a fixed amount of memory.
+ * <p>
+ * Each file has a fixed length record holding its status, flavour, duration
+ * and where its path and failed rules are in a second, data, file. Flavours
+ * and rules are stored as numbers, there are few of them and their ids are
+ * kept in memory. Records are read a page at a time along with the page's
+ * data, and only the pages read last are kept. An index isn't thread safe,
+ * the results table uses it on the event dispatch thread.
+ */
+final class ResultIndex implements Closeable {
+	static final int PAGE_ROWS = 256;
+	static final int CACHED_PAGES = 32;
+	static final int SORT_RUN_ROWS = 8192;
+
+	/**
+	 * What rows can be sorted by.
+	 */
+	enum Key {
+		NAME, STATUS, FLAVOUR, FAILED_RULES, DURATION
+	}
+
+	// data offset, path length, failed rule count, duration, status, flavour
+	private static final int RECORD_BYTES = 8 + 4 + 4 + 4 + 1 + 2;
+	private static final short NO_FLAVOUR = -1;
+	private static final JobResult.Status[] STATUSES = JobResult.Status.values();
+
+	private final File recordsFile;
+	private final File dataFile;
+	private final DataOutputStream records;
+	private final DataOutputStream data;
+	private final FileChannel recordsChannel;
+	private final FileChannel dataChannel;
+	private final int pageRows;
+	private final int runRows;
+	private final PageCache pages;
+	private final List<String> flavours = new ArrayList<>();
+	private final Map<String, Integer> flavourIds = new HashMap<>();
+	private final List<String> rules = new ArrayList<>();
+	private final Map<String, Integer> ruleIds = new HashMap<>();
+	private int size = 0;
+	private long dataSize = 0;
+	private boolean isFlushed = true;
+
+	/**
+	 * @param recordsFile
+	 *            receives the records, deleted when the index is closed
+	 * @param dataFile
+	 *            receives the paths and failed rules, deleted when the index
+	 *            is closed
+	 * @param pageRows
+	 *            the number of records read at once
+	 * @param cachedPages
+	 *            the number of pages kept
+	 * @param runRows
+	 *            the number of paths sorted in memory at once
+	 */
+	ResultIndex(final File recordsFile, final File dataFile, final int pageRows, final int cachedPages,
+			final int runRows) throws IOException {
+		this.recordsFile = recordsFile;
+		this.dataFile = dataFile;
+		this.pageRows = pageRows;
+		this.runRows = runRows;
+		this.pages = new PageCache(cachedPages);
+		this.records = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(recordsFile)));
+		this.data = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dataFile)));
+		this.recordsChannel = new RandomAccessFile(recordsFile, "r").getChannel(); //$NON-NLS-1$
+		this.dataChannel = new RandomAccessFile(dataFile, "r").getChannel(); //$NON-NLS-1$
+	}
+
+	/**
+	 * @return an empty index in temporary files
+	 */
+	static ResultIndex create() throws IOException {
+		File recordsFile = File.createTempFile("veraPDF-results", ".idx"); //$NON-NLS-1$ //$NON-NLS-2$
+		recordsFile.deleteOnExit();
+		File dataFile = File.createTempFile("veraPDF-results", ".dat"); //$NON-NLS-1$ //$NON-NLS-2$
+		dataFile.deleteOnExit();
+		return new ResultIndex(recordsFile, dataFile, PAGE_ROWS, CACHED_PAGES, SORT_RUN_ROWS);
+	}
+
+	/**
+	 * Adds the result of a file as the next row.
+	 */
+	void add(final JobResult result) throws IOException {
+		byte[] name = result.getName().getBytes(StandardCharsets.UTF_8);
+		List<String> failedRules = result.getFailedRules();
+		this.records.writeLong(this.dataSize);
+		this.records.writeInt(name.length);
+		this.records.writeInt(failedRules.size());
+		this.records.writeInt((int) Math.min(result.getDurationMillis(), Integer.MAX_VALUE));
+		this.records.writeByte(result.getStatus().ordinal());
+		this.records.writeShort(
+				(result.getFlavour() == null) ? NO_FLAVOUR : idOf(result.getFlavour(), this.flavours, this.flavourIds));
+		this.data.write(name);
+		for (String rule : failedRules) {
+			this.data.writeInt(idOf(rule, this.rules, this.ruleIds));
+		}
+		this.dataSize += name.length + 4L * failedRules.size();
+		// the last page may have been read before this row was added
+		this.pages.remove(Integer.valueOf(this.size / this.pageRows));
+		this.size++;
+		this.isFlushed = false;
+	}
+
+	int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return the ids of the flavours of the results, in the order they were
+	 *         first seen
+	 */
+	List<String> getFlavours() {
+		return Collections.unmodifiableList(this.flavours);
+	}
+
+	/**
+	 * @return the ids of the rules failed, in the order they were first seen
+	 */
+	List<String> getRules() {
+		return Collections.unmodifiableList(this.rules);
+	}
+
+	/**
+	 * @param row
+	 *            the row, in the order the results were added
+	 * @return the row's result
+	 */
+	JobResult get(final int row) throws IOException {
+		return page(row / this.pageRows).get(row % this.pageRows);
+	}
+
+	/**
+	 * Finds the rows whose results match, reading the index once in order.
+	 *
+	 * @param status
+	 *            the status to match, or null for any
+	 * @param flavour
+	 *            the flavour id to match, or null for any
+	 * @param rule
+	 *            the id of a rule the file must have failed, or null for any
+	 * @return the rows that match, in order
+	 */
+	int[] select(final JobResult.Status status, final String flavour, final String rule) throws IOException {
+		Integer flavourId = (flavour == null) ? null : this.flavourIds.get(flavour);
+		Integer ruleId = (rule == null) ? null : this.ruleIds.get(rule);
+		if ((flavour != null && flavourId == null) || (rule != null && ruleId == null)) {
+			return new int[0];
+		}
+		int[] selected = new int[this.size];
+		int count = 0;
+		for (int first = 0; first < this.size; first += this.pageRows) {
+			Page page = read(first / this.pageRows);
+			for (int i = 0; i < page.rows; i++) {
+				if ((status == null || page.status(i) == status)
+						&& (flavourId == null || page.flavour(i) == flavourId.intValue())
+						&& (ruleId == null || page.hasFailed(i, ruleId.intValue()))) {
+					selected[count++] = first + i;
+				}
+			}
+		}
+		return Arrays.copyOf(selected, count);
+	}
+
+	/**
+	 * Sorts rows, rows that are equal stay in the order they were added.
+	 *
+	 * @param rows
+	 *            the rows to sort, sorted in place
+	 * @param key
+	 *            what to sort by
+	 * @param isAscending
+	 *            false to sort in descending order
+	 */
+	void sort(final int[] rows, final Key key, final boolean isAscending) throws IOException {
+		Arrays.sort(rows);
+		if (key == Key.NAME) {
+			sortByName(rows, isAscending);
+			return;
+		}
+		// the key and the row packed in a long sort by key, then by row
+		long[] keyed = new long[rows.length];
+		int[] flavourRanks = flavourRanks();
+		Page page = null;
+		for (int i = 0; i < rows.length; i++) {
+			int pageIndex = rows[i] / this.pageRows;
+			if (page == null || page.index != pageIndex) {
+				page = read(pageIndex);
+			}
+			long value = page.key(rows[i] % this.pageRows, key, flavourRanks);
+			keyed[i] = ((isAscending ? value : -value) << 32) | rows[i];
+		}
+		Arrays.sort(keyed);
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = (int) keyed[i];
+		}
+	}
+
+	/**
+	 * Sorts runs of rows by path in memory, then merges the runs reading a
+	 * path at a time, so only a run's paths are held at once.
+	 */
+	private void sortByName(final int[] rows, final boolean isAscending) throws IOException {
+		int sign = isAscending ? 1 : -1;
+		List<Cursor> runs = new ArrayList<>();
+		for (int start = 0; start < rows.length; start += this.runRows) {
+			int end = Math.min(start + this.runRows, rows.length);
+			Named[] run = new Named[end - start];
+			for (int i = start; i < end; i++) {
+				run[i - start] = new Named(get(rows[i]).getName(), rows[i]);
+			}
+			Arrays.sort(run, (first, second) -> first.compareTo(second, sign));
+			for (int i = start; i < end; i++) {
+				rows[i] = run[i - start].row;
+			}
+			runs.add(new Cursor(start, end, run[0]));
+		}
+		if (runs.size() < 2) {
+			return;
+		}
+		PriorityQueue<Cursor> heads = new PriorityQueue<>(runs.size(),
+				(first, second) -> first.head.compareTo(second.head, sign));
+		heads.addAll(runs);
+		int[] merged = new int[rows.length];
+		int count = 0;
+		while (!heads.isEmpty()) {
+			Cursor cursor = heads.poll();
+			merged[count++] = cursor.head.row;
+			if (++cursor.next < cursor.end) {
+				cursor.head = new Named(readName(rows[cursor.next]), rows[cursor.next]);
+				heads.add(cursor);
+			}
+		}
+		System.arraycopy(merged, 0, rows, 0, rows.length);
+	}
+
+	/**
+	 * Reads a row's path without going through the page cache.
+	 */
+	private String readName(final int row) throws IOException {
+		flush();
+		ByteBuffer record = ByteBuffer.allocate(12);
+		readFully(this.recordsChannel, record, (long) row * RECORD_BYTES);
+		ByteBuffer name = ByteBuffer.allocate(record.getInt(8));
+		readFully(this.dataChannel, name, record.getLong(0));
+		return new String(name.array(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.pages.clear();
+		try (DataOutputStream recordsStream = this.records;
+				DataOutputStream dataStream = this.data;
+				FileChannel recordsIn = this.recordsChannel;
+				FileChannel dataIn = this.dataChannel) {
+			// closes them all
+		} finally {
+			this.recordsFile.delete();
+			this.dataFile.delete();
+		}
+	}
+
+	private Page page(final int index) throws IOException {
+		Integer key = Integer.valueOf(index);
+		Page page = this.pages.get(key);
+		if (page == null) {
+			page = read(index);
+			this.pages.put(key, page);
+		}
+		return page;
+	}
+
+	private Page read(final int index) throws IOException {
+		flush();
+		int first = index * this.pageRows;
+		int rows = Math.min(this.pageRows, this.size - first);
+		ByteBuffer pageRecords = ByteBuffer.allocate(rows * RECORD_BYTES);
+		readFully(this.recordsChannel, pageRecords, (long) first * RECORD_BYTES);
+		long dataStart = pageRecords.getLong(0);
+		int last = (rows - 1) * RECORD_BYTES;
+		long dataEnd = pageRecords.getLong(last) + pageRecords.getInt(last + 8) + 4L * pageRecords.getInt(last + 12);
+		ByteBuffer pageData = ByteBuffer.allocate((int) (dataEnd - dataStart));
+		readFully(this.dataChannel, pageData, dataStart);
+		return new Page(index, rows, pageRecords, pageData, dataStart);
+	}
+
+	private void flush() throws IOException {
+		if (!this.isFlushed) {
+			this.records.flush();
+			this.data.flush();
+			this.isFlushed = true;
+		}
+	}
+
+	private static int idOf(final String value, final List<String> values, final Map<String, Integer> ids) {
+		Integer id = ids.get(value);
+		if (id == null) {
+			id = Integer.valueOf(values.size());
+			values.add(value);
+			ids.put(value, id);
+		}
+		return id.intValue();
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Result index ends early at " + (position + buffer.position())); //$NON-NLS-1$
+			}
+		}
+		buffer.flip();
+	}
+
+	/**
+	 * The records of a page of rows and the data they point to.
+	 */
+	private final class Page {
+		final int index;
+		final int rows;
+		private final ByteBuffer pageRecords;
+		private final ByteBuffer pageData;
+		private final long dataStart;
+
+		Page(final int index, final int rows, final ByteBuffer pageRecords, final ByteBuffer pageData,
+				final long dataStart) {
+			this.index = index;
+			this.rows = rows;
+			this.pageRecords = pageRecords;
+			this.pageData = pageData;
+			this.dataStart = dataStart;
+		}
+
+		JobResult.Status status(final int row) {
+			return STATUSES[this.pageRecords.get(row * RECORD_BYTES + 20)];
+		}
+
+		int flavour(final int row) {
+			return this.pageRecords.getShort(row * RECORD_BYTES + 21);
+		}
+
+		boolean hasFailed(final int row, final int rule) {
+			int rulesStart = ruleStart(row);
+			for (int i = 0; i < this.pageRecords.getInt(row * RECORD_BYTES + 12); i++) {
+				if (this.pageData.getInt(rulesStart + 4 * i) == rule) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		long key(final int row, final Key key, final int[] flavourRanks) {
+			switch (key) {
+				case STATUS:
+					return this.pageRecords.get(row * RECORD_BYTES + 20);
+				case FLAVOUR:
+					// files that weren't validated come first
+					int flavour = flavour(row);
+					return (flavour == NO_FLAVOUR) ? -1 : flavourRanks[flavour];
+				case FAILED_RULES:
+					return this.pageRecords.getInt(row * RECORD_BYTES + 12);
+				default:
+					return this.pageRecords.getInt(row * RECORD_BYTES + 16);
+			}
+		}
+
+		JobResult get(final int row) {
+			int record = row * RECORD_BYTES;
+			int nameStart = (int) (this.pageRecords.getLong(record) - this.dataStart);
+			String name = new String(this.pageData.array(), nameStart, this.pageRecords.getInt(record + 8),
+					StandardCharsets.UTF_8);
+			int ruleCount = this.pageRecords.getInt(record + 12);
+			List<String> failedRules = new ArrayList<>(ruleCount);
+			int rulesStart = ruleStart(row);
+			for (int i = 0; i < ruleCount; i++) {
+				failedRules.add(ResultIndex.this.rules.get(this.pageData.getInt(rulesStart + 4 * i)));
+			}
+			int flavour = flavour(row);
+			return new JobResult(name, status(row),
+					(flavour == NO_FLAVOUR) ? null : ResultIndex.this.flavours.get(flavour), failedRules,
+					this.pageRecords.getInt(record + 16));
+		}
+
+		private int ruleStart(final int row) {
+			int record = row * RECORD_BYTES;
+			return (int) (this.pageRecords.getLong(record) - this.dataStart) + this.pageRecords.getInt(record + 8);
+		}
+	}
+
+	/**
+	 * @return the position of each flavour when they're sorted by id
+	 */
+	private int[] flavourRanks() {
+		List<String> sorted = new ArrayList<>(this.flavours);
+		Collections.sort(sorted);
+		int[] ranks = new int[this.flavours.size()];
+		for (int i = 0; i < ranks.length; i++) {
+			ranks[i] = sorted.indexOf(this.flavours.get(i));
+		}
+		return ranks;
+	}
+
+	/**
+	 * A row and its path.
+	 */
+	private static final class Named {
+		final String name;
+		final int row;
+
+		Named(final String name, final int row) {
+			this.name = name;
+			this.row = row;
+		}
+
+		int compareTo(final Named other, final int sign) {
+			int compared = sign * String.CASE_INSENSITIVE_ORDER.compare(this.name, other.name);
+			return (compared != 0) ? compared : Integer.compare(this.row, other.row);
+		}
+	}
+
+	/**
+	 * The next row of a sorted run.
+	 */
+	private static final class Cursor {
+		int next;
+		final int end;
+		Named head;
+
+		Cursor(final int next, final int end, final Named head) {
+			this.next = next;
+			this.end = end;
+			this.head = head;
+		}
+	}
+
+	/**
+	 * Keeps the pages read last.
+	 */
+	private static final class PageCache extends LinkedHashMap<Integer, Page> {
+		private static final long serialVersionUID = 5925306317702514861L;
+		private final int capacity;
+
+		PageCache(final int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Integer, Page> eldest) {
+			return size() > this.capacity;
+		}
+	}
+}
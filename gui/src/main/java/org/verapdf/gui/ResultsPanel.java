@@ -0,0 +1,365 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Frame;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.swing.JComboBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumn;
+
+import org.verapdf.gui.utils.GUIConstants;
+
+/**
+ * Table of the results of a batch, filled in as each file finishes and shown
+ * in a dialog that doesn't block the main window.
+ * <p>
+ * The results are kept in a {@link ResultIndex} on disk and the table only
+ * reads the rows it shows, so it opens at once and takes the same memory
+ * whatever the size of the batch. Clicking a column heading sorts by it, the
+ * combo boxes above the table filter the rows.
+ */
+class ResultsPanel extends JPanel {
+	private static final long serialVersionUID = 2803395284561702264L;
+	private static final Logger logger = Logger.getLogger(ResultsPanel.class.getCanonicalName());
+
+	private final ResultsModel model = new ResultsModel();
+	private final JTable table = new JTable(this.model);
+	private final JComboBox<Object> statusFilter = new JComboBox<>();
+	private final JComboBox<String> flavourFilter = new JComboBox<>();
+	private final JComboBox<String> ruleFilter = new JComboBox<>();
+	private JDialog dialog;
+
+	ResultsPanel() {
+		super(new BorderLayout());
+		setPreferredSize(
+				new Dimension(GUIConstants.PREFERRED_RESULTS_SIZE_WIDTH, GUIConstants.PREFERRED_RESULTS_SIZE_HEIGHT));
+		this.statusFilter.addItem(GUIConstants.RESULTS_FILTER_ANY);
+		for (JobResult.Status status : JobResult.Status.values()) {
+			this.statusFilter.addItem(status);
+		}
+		this.flavourFilter.addItem(GUIConstants.RESULTS_FILTER_ANY);
+		this.ruleFilter.addItem(GUIConstants.RESULTS_FILTER_ANY);
+		JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEADING));
+		addFilter(filters, GUIConstants.RESULTS_FILTER_STATUS, this.statusFilter);
+		addFilter(filters, GUIConstants.RESULTS_FILTER_FLAVOUR, this.flavourFilter);
+		addFilter(filters, GUIConstants.RESULTS_FILTER_RULE, this.ruleFilter);
+		add(filters, BorderLayout.NORTH);
+
+		this.table.setFillsViewportHeight(true);
+		this.table.getColumnModel().getColumn(0).setPreferredWidth(GUIConstants.RESULTS_NAME_COLUMN_WIDTH);
+		this.table.getTableHeader().setReorderingAllowed(false);
+		this.table.getTableHeader().addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(final MouseEvent e) {
+				int column = ResultsPanel.this.table.columnAtPoint(e.getPoint());
+				if (column >= 0) {
+					ResultsPanel.this.model.sortBy(ResultsPanel.this.table.convertColumnIndexToModel(column));
+					updateView();
+				}
+			}
+		});
+		add(new JScrollPane(this.table), BorderLayout.CENTER);
+	}
+
+	private void addFilter(final JPanel filters, final String label, final JComboBox<?> filter) {
+		filter.setPreferredSize(new Dimension(GUIConstants.RESULTS_FILTER_COMBO_BOX_WIDTH,
+				filter.getPreferredSize().height));
+		filter.addActionListener(e -> updateView());
+		filters.add(new JLabel(label));
+		filters.add(filter);
+	}
+
+	void showDialog(Component parent) {
+		Frame owner = parent instanceof Frame ? (Frame) parent
+				: (Frame) SwingUtilities.getAncestorOfClass(Frame.class, parent);
+		if (this.dialog == null || this.dialog.getOwner() != owner) {
+			this.dialog = new JDialog(owner, false);
+			this.dialog.add(this);
+			this.dialog.pack();
+			this.dialog.setTitle(GUIConstants.RESULTS_TITLE);
+			this.dialog.setLocation(GUIConstants.RESULTS_DIALOG_COORD_X, GUIConstants.RESULTS_DIALOG_COORD_Y);
+		}
+		this.dialog.setVisible(true);
+	}
+
+	/**
+	 * Empties the table ready for a new batch.
+	 *
+	 * @throws IOException
+	 *             if the files for the batch's results couldn't be created
+	 */
+	void clear() throws IOException {
+		this.model.reset(ResultIndex.create());
+		this.flavourFilter.setSelectedIndex(0);
+		this.ruleFilter.setSelectedIndex(0);
+		while (this.flavourFilter.getItemCount() > 1) {
+			this.flavourFilter.removeItemAt(1);
+		}
+		while (this.ruleFilter.getItemCount() > 1) {
+			this.ruleFilter.removeItemAt(1);
+		}
+		this.statusFilter.setSelectedIndex(0);
+	}
+
+	void addResults(List<JobResult> results) {
+		if (results.isEmpty()) {
+			return;
+		}
+		this.model.add(results);
+		ResultIndex index = this.model.index;
+		if (index != null) {
+			addChoices(this.flavourFilter, index.getFlavours());
+			addChoices(this.ruleFilter, index.getRules());
+		}
+	}
+
+	/**
+	 * Sorts and filters the rows again, rows added while the table was sorted
+	 * or filtered are at its end until then.
+	 */
+	void refresh() {
+		updateView();
+	}
+
+	private void updateView() {
+		Object status = this.statusFilter.getSelectedItem();
+		Object flavour = this.flavourFilter.getSelectedItem();
+		Object rule = this.ruleFilter.getSelectedItem();
+		this.model.filter((status instanceof JobResult.Status) ? (JobResult.Status) status : null,
+				(this.flavourFilter.getSelectedIndex() > 0) ? (String) flavour : null,
+				(this.ruleFilter.getSelectedIndex() > 0) ? (String) rule : null);
+		for (int i = 0; i < this.table.getColumnCount(); i++) {
+			TableColumn column = this.table.getColumnModel().getColumn(i);
+			column.setHeaderValue(this.model.getColumnName(column.getModelIndex()));
+		}
+		this.table.getTableHeader().repaint();
+	}
+
+	/**
+	 * Adds the ids that aren't yet choices, keeping the choices after "any"
+	 * sorted.
+	 */
+	private static void addChoices(final JComboBox<String> filter, final List<String> ids) {
+		// ids are only ever added to the end of the list
+		for (int i = filter.getItemCount() - 1; i < ids.size(); i++) {
+			String id = ids.get(i);
+			int position = 1;
+			while (position < filter.getItemCount() && filter.getItemAt(position).compareTo(id) < 0) {
+				position++;
+			}
+			filter.insertItemAt(id, position);
+		}
+	}
+
+	private static final class ResultsModel extends AbstractTableModel {
+		private static final long serialVersionUID = -1390406155425325316L;
+		private static final String[] COLUMNS = { "File", "Result", "Flavour", "Failed rules", "Seconds" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		private static final ResultIndex.Key[] KEYS = { ResultIndex.Key.NAME, ResultIndex.Key.STATUS,
+				ResultIndex.Key.FLAVOUR, ResultIndex.Key.FAILED_RULES, ResultIndex.Key.DURATION };
+		private static final String ASCENDING = " \u25B2"; //$NON-NLS-1$
+		private static final String DESCENDING = " \u25BC"; //$NON-NLS-1$
+
+		ResultIndex index = null;
+		private JobResult.Status status = null;
+		private String flavour = null;
+		private String rule = null;
+		private int sortColumn = -1;
+		private boolean isAscending = true;
+		// the index's rows shown when sorted or filtered, null shows them all
+		private int[] view = null;
+		private int viewSize = 0;
+		// the cells of a row are asked for one after the other
+		private int lastRow = -1;
+		private JobResult lastResult = null;
+		private boolean isReadErrorLogged = false;
+
+		ResultsModel() {
+			super();
+		}
+
+		void reset(final ResultIndex newIndex) {
+			close();
+			this.index = newIndex;
+			this.status = null;
+			this.flavour = null;
+			this.rule = null;
+			this.sortColumn = -1;
+			this.isAscending = true;
+			this.view = null;
+			this.viewSize = 0;
+			this.isReadErrorLogged = false;
+			fireTableDataChanged();
+		}
+
+		void add(final List<JobResult> results) {
+			if (this.index == null) {
+				return;
+			}
+			int first = getRowCount();
+			try {
+				for (JobResult result : results) {
+					if (this.view != null && matches(result)) {
+						if (this.viewSize == this.view.length) {
+							this.view = Arrays.copyOf(this.view, Math.max(16, this.viewSize * 2));
+						}
+						this.view[this.viewSize++] = this.index.size();
+					}
+					this.index.add(result);
+				}
+			} catch (IOException excep) {
+				readFailed(excep);
+			}
+			if (getRowCount() > first) {
+				fireTableRowsInserted(first, getRowCount() - 1);
+			}
+		}
+
+		void sortBy(final int column) {
+			this.isAscending = (column != this.sortColumn) || !this.isAscending;
+			this.sortColumn = column;
+		}
+
+		void filter(final JobResult.Status newStatus, final String newFlavour, final String newRule) {
+			this.status = newStatus;
+			this.flavour = newFlavour;
+			this.rule = newRule;
+			this.lastRow = -1;
+			if (this.index == null) {
+				return;
+			}
+			try {
+				if (this.status == null && this.flavour == null && this.rule == null && this.sortColumn < 0) {
+					this.view = null;
+				} else {
+					int[] rows = this.index.select(this.status, this.flavour, this.rule);
+					if (this.sortColumn >= 0) {
+						this.index.sort(rows, KEYS[this.sortColumn], this.isAscending);
+					}
+					this.view = rows;
+					this.viewSize = rows.length;
+				}
+			} catch (IOException excep) {
+				readFailed(excep);
+				this.view = new int[0];
+				this.viewSize = 0;
+			}
+			fireTableDataChanged();
+		}
+
+		private boolean matches(final JobResult result) {
+			return (this.status == null || this.status == result.getStatus())
+					&& (this.flavour == null || this.flavour.equals(result.getFlavour()))
+					&& (this.rule == null || result.getFailedRules().contains(this.rule));
+		}
+
+		private void close() {
+			this.lastRow = -1;
+			this.lastResult = null;
+			if (this.index != null) {
+				try {
+					this.index.close();
+				} catch (IOException excep) {
+					logger.log(Level.FINE, "Can't remove the results of the last batch", excep); //$NON-NLS-1$
+				}
+				this.index = null;
+			}
+		}
+
+		private void readFailed(final IOException excep) {
+			// a failing disk would otherwise log for every cell
+			if (!this.isReadErrorLogged) {
+				logger.log(Level.WARNING, GUIConstants.RESULTS_READ_ERROR, excep);
+				this.isReadErrorLogged = true;
+			}
+		}
+
+		@Override
+		public int getRowCount() {
+			if (this.index == null) {
+				return 0;
+			}
+			return (this.view == null) ? this.index.size() : this.viewSize;
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+
+		@Override
+		public String getColumnName(int column) {
+			if (column != this.sortColumn) {
+				return COLUMNS[column];
+			}
+			return COLUMNS[column] + (this.isAscending ? ASCENDING : DESCENDING);
+		}
+
+		@Override
+		public Class<?> getColumnClass(int column) {
+			switch (column) {
+				case 3:
+					return Integer.class;
+				case 4:
+					return Double.class;
+				default:
+					return String.class;
+			}
+		}
+
+		@Override
+		public Object getValueAt(int row, int column) {
+			if (row != this.lastRow) {
+				try {
+					this.lastResult = this.index.get((this.view == null) ? row : this.view[row]);
+					this.lastRow = row;
+				} catch (IOException excep) {
+					readFailed(excep);
+					return null;
+				}
+			}
+			JobResult result = this.lastResult;
+			switch (column) {
+				case 0:
+					return result.getName();
+				case 1:
+					return result.getStatus().toString();
+				case 2:
+					return result.getFlavour();
+				case 3:
+					return Integer.valueOf(result.getFailedRules().size());
+				default:
+					return Double.valueOf(result.getDurationMillis() / 1000.0);
+			}
+		}
+	}
+}
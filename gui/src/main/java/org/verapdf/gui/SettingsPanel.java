@@ -35,7 +35,9 @@ import javax.swing.JFileChooser;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JSpinner;
 import javax.swing.JTextField;
+import javax.swing.SpinnerNumberModel;
 import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 
@@ -60,6 +62,7 @@ class SettingsPanel extends JPanel {
 	JTextField fixMetadataFolder;
 	JFileChooser folderChooser;
 	private JTextField profilesWikiPath;
+	private JSpinner concurrency;
 
 	SettingsPanel() throws IOException {
 		setBorder(new EmptyBorder(GUIConstants.EMPTY_BORDER_INSETS, GUIConstants.EMPTY_BORDER_INSETS,
@@ -67,7 +70,7 @@ class SettingsPanel extends JPanel {
 		setLayout(new BorderLayout());
 
 		JPanel panel = new JPanel();
-		panel.setLayout(new GridLayout(6, 2));
+		panel.setLayout(new GridLayout(7, 2));
 
 		panel.add(new JLabel(GUIConstants.DISPLAY_PASSED_RULES));
 		this.hidePassedRules = new JCheckBox();
@@ -151,6 +154,15 @@ class SettingsPanel extends JPanel {
 		this.profilesWikiPath = new JTextField(GUIConstants.SETTINGS_DIALOG_MAX_CHARS_TEXTFIELD);
 		panel.add(this.profilesWikiPath);
 
+		panel.add(new JLabel(GUIConstants.CONCURRENCY_SETTING));
+		this.concurrency = new JSpinner(new SpinnerNumberModel(1, 1, GUIConstants.MAX_CONCURRENCY, 1));
+		this.concurrency.setToolTipText(GUIConstants.CONCURRENCY_SETTING_TIP);
+		JPanel panel5 = new JPanel();
+		panel5.setLayout(null);
+		this.concurrency.setBounds(0, 0, 65, 23);
+		panel5.add(this.concurrency);
+		panel.add(panel5);
+
 		add(panel, BorderLayout.CENTER);
 
 		this.okButton = new JButton(GUIConstants.OK);
@@ -211,6 +223,9 @@ class SettingsPanel extends JPanel {
 
 		this.profilesWikiPath.setText(settings.getApplicationConfig().getWikiPath());
 
+		int concurrent = settings.getApplicationConfig().getConcurrency();
+		this.concurrency.setValue(Integer.valueOf(Math.min(Math.max(concurrent, 1), GUIConstants.MAX_CONCURRENCY)));
+
 		Frame owner;
 		if (parent instanceof Frame) {
 			owner = (Frame) parent;
@@ -294,6 +309,10 @@ class SettingsPanel extends JPanel {
 		return this.profilesWikiPath.getText();
 	}
 
+	int getConcurrency() {
+		return ((Number) this.concurrency.getValue()).intValue();
+	}
+
 	private static final char[] FORBIDDEN_SYMBOLS_IN_FILE_NAME = new char[] { '\\', '/', ':', '*', '?', '\"', '<', '>',
 			'|', '+', '\0', '%' };
 
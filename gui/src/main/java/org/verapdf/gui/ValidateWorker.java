@@ -18,6 +18,13 @@ import org.verapdf.apps.ConfigManager;
 import org.verapdf.apps.ProcessType;
 import org.verapdf.apps.VeraAppConfig;
 import org.verapdf.apps.utils.ApplicationUtils;
+import org.verapdf.apps.utils.BatchCancellation;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.apps.utils.CancellableHandler;
+import org.verapdf.apps.utils.HtmlReportStream;
+import org.verapdf.apps.utils.JobIndex;
+import org.verapdf.apps.utils.JobIndexStream;
+import org.verapdf.apps.utils.TeeOutputStream;
 import org.verapdf.component.AuditDuration;
 import org.verapdf.core.VeraPDFException;
 import org.verapdf.features.FeatureExtractorConfig;
@@ -31,17 +38,14 @@ import org.verapdf.processor.reports.FeaturesBatchSummary;
 import org.verapdf.processor.reports.MetadataRepairBatchSummary;
 import org.verapdf.processor.reports.ValidationBatchSummary;
 import org.verapdf.report.HTMLReport;
-import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import javax.swing.*;
 import javax.xml.parsers.*;
 import javax.xml.transform.TransformerException;
-import javax.xml.xpath.XPath;
-import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
-import javax.xml.xpath.XPathFactory;
 import java.io.*;
+import java.nio.file.Files;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Objects;
@@ -53,13 +57,15 @@ import java.util.logging.Logger;
  *
  * @author Maksim Bezrukov
  */
-class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, Integer> {
+class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, ValidationProgress> {
 	private static final Logger logger = Logger.getLogger(ValidateWorker.class.getCanonicalName());
 
 	private static final String ERROR_IN_OPEN_STREAMS = "Can't open stream from PDF file or can't open stream to temporary XML report file"; //$NON-NLS-1$
 	private static final String ERROR_IN_PROCESSING = "Error during the processing"; //$NON-NLS-1$
 	private static final String ERROR_IN_CREATING_TEMP_FILE = "Can't create temporary file for XML report"; //$NON-NLS-1$
 	private static final String ERROR_IN_OBTAINING_POLICY_FEATURES = "Can't obtain enabled features from policy files"; //$NON-NLS-1$
+	private static final String ERROR_IN_INDEXING = "Can't index the XML report, it's written without a result index"; //$NON-NLS-1$
+	private static final String ERROR_IN_STREAMING_HTML = "Can't render HTML report while validating, it will be transformed from the XML report"; //$NON-NLS-1$
 
 	private List<File> pdfs;
 	private ValidationProfile customProfile;
@@ -69,6 +75,7 @@ class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, I
 	private File xmlReport = null;
 	private File htmlReport = null;
 	private ValidateWorkerSummary validateWorkerSummary = null;
+	private final BatchCancellation cancellation = new BatchCancellation();
 
 	ValidateWorker(CheckerPanel parent, List<File> pdfs, ConfigManager configManager, ValidationProfile customProfile,
 	               File policy) {
@@ -117,31 +124,72 @@ class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, I
 					                              this.configManager.getPluginsCollectionConfig(),
 					                              this.configManager.getFixerConfig(), tasks,
 					                              this.customProfile, veraAppConfig.getFixesFolder());
-			try (BatchProcessor processor = ProcessorFactory.fileBatchProcessor(resultConfig)) {
+			// policy results are only added once the batch is finished, so
+			// the HTML report can't be rendered while it runs
+			OutputStream htmlStream = isPolicy ? null : openStreamingHtmlReport();
+			// nor can the result index, it's built from the finished report
+			OutputStream indexStream = isPolicy ? null : openResultIndex();
+			try {
+				OutputStream reportStream = (htmlStream == null) ? mrrReport : new TeeOutputStream(mrrReport, htmlStream);
+				if (indexStream != null) {
+					reportStream = new TeeOutputStream(reportStream, indexStream);
+				}
+				ProgressTracker tracker = new ProgressTracker(this.pdfs.size(), this::publish);
 				VeraAppConfig applicationConfig = this.configManager.getApplicationConfig();
-				BatchSummary batchSummary = processor.process(this.pdfs,
-						ProcessorFactory.getHandler(FormatOption.MRR, applicationConfig.isVerbose(), mrrReport,
-								applicationConfig.getMaxFailsDisplayed(), validatorConfig.isRecordPasses()));
-				validateWorkerSummary = new ValidateWorkerSummary(batchSummary);
+				int concurrency = Math.min(applicationConfig.getConcurrency(), this.pdfs.size());
+				if (concurrency > 1) {
+					BatchTotals totals = new ParallelValidator(resultConfig, applicationConfig,
+							validatorConfig.isRecordPasses(), concurrency).validate(this.pdfs, reportStream, tracker,
+									this.cancellation);
+					validateWorkerSummary = new ValidateWorkerSummary(totals, true);
+				} else {
+					validateWorkerSummary = processSequentially(resultConfig, applicationConfig,
+							validatorConfig.isRecordPasses(), reportStream, tracker);
+				}
+				reportStream.flush();
+				validateWorkerSummary.setCancelled(this.cancellation.isCancelled());
 				if (isPolicy) {
 					applyPolicy();
-					validateWorkerSummary.setPolicyNonCompliantJobCount(countFailedPolicyJobs(xmlReport));
+					validateWorkerSummary.setPolicyNonCompliantJobCount(countFailedPolicyJobs());
 				}
+			} finally {
+				finishStreamingHtmlReport(htmlStream);
+				finishResultIndex(indexStream);
 			}
 		} catch (IOException e) {
 			logger.log(Level.SEVERE, ERROR_IN_OPEN_STREAMS, e);
 			this.parent.handleValidationError(ERROR_IN_OPEN_STREAMS + ": ", e); //$NON-NLS-1$
-		} catch (VeraPDFException | XPathExpressionException | ParserConfigurationException | SAXException  e) {
+		} catch (VeraPDFException e) {
+			logger.log(Level.SEVERE, ERROR_IN_PROCESSING, e);
+			this.parent.handleValidationError(ERROR_IN_PROCESSING + ": ", e); //$NON-NLS-1$
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 			logger.log(Level.SEVERE, ERROR_IN_PROCESSING, e);
 			this.parent.handleValidationError(ERROR_IN_PROCESSING + ": ", e); //$NON-NLS-1$
 		}
-		if (this.validateWorkerSummary != null) {
+		if (this.validateWorkerSummary == null) {
+			// a partly rendered HTML report isn't offered
+			this.htmlReport = null;
+		} else if (this.htmlReport == null) {
 			writeHtmlReport();
 		}
 
 		return validateWorkerSummary;
 	}
 
+	private ValidateWorkerSummary processSequentially(ProcessorConfig resultConfig, VeraAppConfig applicationConfig,
+	                                                  boolean isRecordPasses, OutputStream reportStream,
+	                                                  ProgressTracker tracker) throws VeraPDFException, IOException {
+		try (BatchProcessor processor = ProcessorFactory.fileBatchProcessor(resultConfig)) {
+			BatchSummary batchSummary = processor.process(this.cancellation.dispatching(this.pdfs),
+					new ProgressHandler(new CancellableHandler(
+							ProcessorFactory.getHandler(FormatOption.MRR, applicationConfig.isVerbose(), reportStream,
+									applicationConfig.getMaxFailsDisplayed(), isRecordPasses),
+							this.cancellation), tracker));
+			return new ValidateWorkerSummary(BatchTotals.of(batchSummary), batchSummary.isMultiJob());
+		}
+	}
+
 	private void applyPolicy() throws IOException, VeraPDFException {
 		File tempMrrFile = this.xmlReport;
 		this.xmlReport = File.createTempFile("veraPDF-tempXMLReport", ".xml"); //$NON-NLS-1$ //$NON-NLS-2$
@@ -158,11 +206,84 @@ class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, I
 		}
 	}
 
+	/**
+	 * Stops validating, the files already started are interrupted and the
+	 * reports hold the files that were finished.
+	 */
+	void cancelValidation() {
+		this.cancellation.cancel();
+	}
+
+	@Override
+	protected void process(List<ValidationProgress> chunks) {
+		// each snapshot carries the results of the files finished since the
+		// one before, the counts of the latest are the ones shown
+		for (ValidationProgress progress : chunks) {
+			this.parent.showProgress(progress);
+		}
+	}
+
 	@Override
 	protected void done() {
 		this.parent.validationEnded(this.xmlReport, this.htmlReport);
 	}
 
+	/**
+	 * Starts rendering the HTML report from the XML report as it's written,
+	 * returns null if the HTML report's temporary file can't be created, the
+	 * report is then transformed once the batch is finished.
+	 */
+	private OutputStream openStreamingHtmlReport() {
+		try {
+			this.htmlReport = File.createTempFile("veraPDF-tempHTMLReport", ".html"); //$NON-NLS-1$ //$NON-NLS-2$
+			this.htmlReport.deleteOnExit();
+			return new HtmlReportStream(new FileOutputStream(this.htmlReport),
+					this.configManager.getApplicationConfig().getWikiPath());
+		} catch (IOException excep) {
+			logger.log(Level.WARNING, ERROR_IN_STREAMING_HTML, excep);
+			this.htmlReport = null;
+			return null;
+		}
+	}
+
+	/**
+	 * Starts indexing the XML report as it's written, returns null if the
+	 * index's file can't be created, the report is then written without one.
+	 */
+	private OutputStream openResultIndex() {
+		File index = JobIndex.pathFor(this.xmlReport.toPath()).toFile();
+		index.deleteOnExit();
+		try {
+			return new JobIndexStream(new FileOutputStream(index));
+		} catch (IOException excep) {
+			logger.log(Level.WARNING, ERROR_IN_INDEXING, excep);
+			return null;
+		}
+	}
+
+	private static void finishResultIndex(OutputStream indexStream) {
+		if (indexStream == null) {
+			return;
+		}
+		try {
+			indexStream.close();
+		} catch (IOException excep) {
+			logger.log(Level.WARNING, ERROR_IN_INDEXING, excep);
+		}
+	}
+
+	private void finishStreamingHtmlReport(OutputStream htmlStream) {
+		if (htmlStream == null) {
+			return;
+		}
+		try {
+			htmlStream.close();
+		} catch (IOException excep) {
+			logger.log(Level.WARNING, ERROR_IN_STREAMING_HTML, excep);
+			this.htmlReport = null;
+		}
+	}
+
 	private void writeHtmlReport() {
 		final String extension = "html";
 		final String ext = "." + extension;
@@ -172,7 +293,7 @@ class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, I
 			try (InputStream xmlStream = new FileInputStream(this.xmlReport);
 				 OutputStream htmlStream = new FileOutputStream(this.htmlReport)) {
 					HTMLReport.writeHTMLReport(xmlStream, htmlStream,
-					                           this.validateWorkerSummary.getBatchSummary().isMultiJob(),
+					                           this.validateWorkerSummary.isMultiJob(),
 					                           this.configManager.getApplicationConfig().getWikiPath(), true);
 
 			} catch (IOException | TransformerException excep) {
@@ -191,31 +312,42 @@ class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, I
 		}
 	}
 
-	private int countFailedPolicyJobs(File xmlReport) throws XPathExpressionException,
-	                                                         ParserConfigurationException,
-	                                                         IOException, SAXException {
-		DocumentBuilder documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-		Document document = documentBuilder.parse(xmlReport);
-		XPath path = XPathFactory.newInstance().newXPath();
-		int failedPolicyJobsCount = ((Number) path.evaluate("count(//policyReport[@failedChecks > 0])",
-		                                                    document, XPathConstants.NUMBER)).intValue();
-		return failedPolicyJobsCount;
+	/**
+	 * Indexes the report once the policy results are in it and counts the jobs
+	 * that failed the policy.
+	 */
+	private int countFailedPolicyJobs() throws IOException {
+		File index = JobIndex.pathFor(this.xmlReport.toPath()).toFile();
+		index.deleteOnExit();
+		try (OutputStream indexStream = new JobIndexStream(new FileOutputStream(index))) {
+			Files.copy(this.xmlReport.toPath(), indexStream);
+		}
+		return JobIndex.open(index.toPath()).countPolicyFailures();
 	}
+
 	public class ValidateWorkerSummary {
-		private BatchSummary batchSummary;
+		private BatchTotals totals;
+		private boolean isMultiJob;
 		private int policyNonCompliantJobCount = -1;
+		private boolean isCancelled = false;
 
-		public ValidateWorkerSummary(BatchSummary batchSummary, int policyNonCompliantJobCount) {
-			this.batchSummary = batchSummary;
+		public ValidateWorkerSummary(BatchTotals totals, boolean isMultiJob, int policyNonCompliantJobCount) {
+			this.totals = totals;
+			this.isMultiJob = isMultiJob;
 			this.policyNonCompliantJobCount = policyNonCompliantJobCount;
 		}
 
-		public ValidateWorkerSummary(BatchSummary batchSummary) {
-			this.batchSummary = batchSummary;
+		public ValidateWorkerSummary(BatchTotals totals, boolean isMultiJob) {
+			this.totals = totals;
+			this.isMultiJob = isMultiJob;
 		}
 
-		public BatchSummary getBatchSummary() {
-			return this.batchSummary;
+		public BatchTotals getTotals() {
+			return this.totals;
+		}
+
+		public boolean isMultiJob() {
+			return this.isMultiJob;
 		}
 
 		public int getPolicyNonCompliantJobCount() {
@@ -226,6 +358,14 @@ class ValidateWorker extends SwingWorker<ValidateWorker.ValidateWorkerSummary, I
 			this.policyNonCompliantJobCount = failedPolicyJobs;
 		}
 
+		public boolean isCancelled() {
+			return this.isCancelled;
+		}
+
+		public void setCancelled(boolean isCancelled) {
+			this.isCancelled = isCancelled;
+		}
+
 		public boolean isPolicyApplied(){
 			return policyNonCompliantJobCount >= 0;
 		}
@@ -0,0 +1,139 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import org.verapdf.gui.utils.GUIConstants;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An immutable snapshot of a running validation, published by the
+ * {@link ValidateWorker} to update the progress bar.
+ */
+final class ValidationProgress {
+	private final int total;
+	private final int completed;
+	private final int failed;
+	private final String currentFile;
+	private final long elapsedMillis;
+	private final List<JobResult> results;
+
+	ValidationProgress(final int total, final int completed, final int failed, final String currentFile,
+			final long elapsedMillis, final List<JobResult> results) {
+		this.total = total;
+		this.completed = completed;
+		this.failed = failed;
+		this.currentFile = currentFile;
+		this.elapsedMillis = elapsedMillis;
+		this.results = results;
+	}
+
+	/**
+	 * @return the number of files in the batch
+	 */
+	int getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * @return the number of files that have been processed
+	 */
+	int getCompleted() {
+		return this.completed;
+	}
+
+	/**
+	 * @return the number of processed files that couldn't be parsed, were
+	 *         encrypted or weren't compliant
+	 */
+	int getFailed() {
+		return this.failed;
+	}
+
+	/**
+	 * @return the name of the file being processed, or null if there isn't one
+	 */
+	String getCurrentFile() {
+		return this.currentFile;
+	}
+
+	/**
+	 * @return the milliseconds since the batch started
+	 */
+	long getElapsedMillis() {
+		return this.elapsedMillis;
+	}
+
+	/**
+	 * @return the results of the files finished since the previous snapshot
+	 */
+	List<JobResult> getResults() {
+		return this.results;
+	}
+
+	/**
+	 * @return the average number of files processed a second, 0 until a file
+	 *         has been processed
+	 */
+	double getFilesPerSecond() {
+		if (this.completed == 0 || this.elapsedMillis <= 0) {
+			return 0;
+		}
+		return this.completed * 1000.0 / this.elapsedMillis;
+	}
+
+	/**
+	 * @return an estimate of the milliseconds until the batch is finished
+	 *         based on the average rate so far, or -1 if there's no estimate
+	 *         yet
+	 */
+	long getRemainingMillis() {
+		double rate = getFilesPerSecond();
+		if (rate <= 0) {
+			return -1;
+		}
+		return (long) (Math.max(this.total - this.completed, 0) * 1000 / rate);
+	}
+
+	/**
+	 * @return the progress as a one line message for the progress bar
+	 */
+	String getMessage() {
+		if (this.completed == 0 && this.currentFile == null) {
+			return GUIConstants.PROGRESS_STARTING;
+		}
+		StringBuilder message = new StringBuilder(
+				String.format(GUIConstants.PROGRESS_FILES, this.completed, this.total, this.failed));
+		double rate = getFilesPerSecond();
+		if (rate > 0) {
+			message.append(String.format(GUIConstants.PROGRESS_RATE, rate));
+		}
+		long remaining = getRemainingMillis();
+		if (remaining > 0) {
+			long seconds = TimeUnit.MILLISECONDS.toSeconds(remaining);
+			message.append(String.format(GUIConstants.PROGRESS_REMAINING, seconds / 60, seconds % 60));
+		}
+		if (this.currentFile != null) {
+			message.append(String.format(GUIConstants.PROGRESS_CURRENT, this.currentFile));
+		}
+		return message.toString();
+	}
+
+	@Override
+	public String toString() {
+		return getMessage();
+	}
+}
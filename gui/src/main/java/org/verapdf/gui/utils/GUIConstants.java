@@ -67,6 +67,12 @@ public final class GUIConstants {
 	public static final String CHOOSE_PROFILE_BUTTON_TEXT = "Choose Profile";
 	public static final String CHOOSE_POLICY_BUTTON_TEXT = "Choose Policy";
 	public static final String POLICY_TITLE = "Policy Creator";
+	public static final String RESULTS_TITLE = "Results";
+	public static final String RESULTS_FILTER_STATUS = "Result:";
+	public static final String RESULTS_FILTER_FLAVOUR = "Flavour:";
+	public static final String RESULTS_FILTER_RULE = "Failed rule:";
+	public static final String RESULTS_FILTER_ANY = "Any";
+	public static final String RESULTS_READ_ERROR = "Can't read the results of the batch";
 	public static final String CHOOSEN_PROFILE_TEXTFIELD_DEFAULT_TEXT = "Please, specify validation profile";
 	public static final String CUSTOM_PROFILE_COMBOBOX_TEXT = "Custom profile";
 	public static final String AUTO_FLAVOUR_COMBOBOX_TEXT = "Auto-detect";
@@ -79,11 +85,13 @@ public final class GUIConstants {
 	public static final String VALIDATE_BUTTON_TEXT = "Execute";
 	public static final String VALIDATION_OK = "PDF file is compliant with Validation Profile requirements";
 	public static final String VALIDATION_FALSE = "PDF file is not compliant with Validation Profile requirements";
+	public static final String VALIDATION_CANCELLED = "Cancelled, the reports hold the files finished. ";
 	public static final String POLICY_FALSE = "PDF file is not compliant with Policy requirements";
 	public static final String SAVE_REPORT_BUTTON_TEXT = "Save XML";
 	public static final String VIEW_REPORT_BUTTON_TEXT = "View XML";
 	public static final String SAVE_HTML_REPORT_BUTTON_TEXT = "Save HTML";
 	public static final String VIEW_HTML_REPORT_BUTTON_TEXT = "View HTML";
+	public static final String VIEW_RESULTS_BUTTON_TEXT = "View Results";
 	public static final String REPORT = "Report";
 	public static final String ERROR_SAVING_REPORT = "Unresolvable problem occured when saving the %S report.";
 	public static final String IOEXCEP_OPENING_REPORT = "IOException when opening the %S report.";
@@ -103,6 +111,11 @@ public final class GUIConstants {
 	public static final String ERROR_INVALID_EXT = "Chosen file extension can only be %s.";
 	public static final String ERROR_SINGLE_FILE = "Error! You can only choose a single %s.";
 	public static final String ERROR_NO_VALIDATION = "Error! Validation doesn't appear to have run and has returned a null report.";
+	public static final String PROGRESS_STARTING = "Starting...";
+	public static final String PROGRESS_FILES = "%d of %d files, %d failed";
+	public static final String PROGRESS_RATE = ", %.1f files/s";
+	public static final String PROGRESS_REMAINING = ", about %d:%02d left";
+	public static final String PROGRESS_CURRENT = ": %s";
 	public static final String WARN_FILE_EXISTS = "Overwrite existing file %s?.";
 	public static final String TITLE_OVERWRITE = "Confirm Overwrite";
 	public static final String PROCESSING_TYPE = " Report type:   ";
@@ -119,6 +132,8 @@ public final class GUIConstants {
 	public static final String FIX_METADATA_PREFIX_LABEL_TEXT = "Save repaired files with prefix:";
 	public static final String SELECTED_PATH_FOR_FIXER_TOOLTIP = "Select a folder for saving repaired files to. If not set then they'll be saved next to the original.";
 	public static final String SELECTED_PROFILES_WIKI_PATH = "Validation Profiles wiki root:";
+	public static final String CONCURRENCY_SETTING = "Files validated in parallel:";
+	public static final String CONCURRENCY_SETTING_TIP = "Each file validated at once needs its own share of memory";
 	public static final String CHECK_FOR_UPDATES_TEXT = "Check for Updates...";
 
 	public static final int EMPTY_BORDER_INSETS = 5;
@@ -136,6 +151,7 @@ public final class GUIConstants {
 	public static final int SETTINGS_DIALOG_COORD_X = 150;
 	public static final int SETTINGS_DIALOG_COORD_Y = 150;
 	public static final int SETTINGS_DIALOG_MAX_CHARS_TEXTFIELD = 19;
+	public static final int MAX_CONCURRENCY = 64;
 	public static final int PREFERRED_WIDTH = 450;
 	public static final int PREFERRED_SIZE_WIDTH = 450;
 	public static final int PREFERRED_SIZE_HEIGHT = 200;
@@ -250,7 +266,7 @@ public final class GUIConstants {
 	public static final int REPORT_PANEL_CONSTRAINT_GRID_HEIGHT = 1;
 
 	public static final int REPORT_PANEL_LINES_NUMBER = 2;
-	public static final int REPORT_PANEL_COLUMNS_NUMBER = 3;
+	public static final int REPORT_PANEL_COLUMNS_NUMBER = 4;
 
 	public static final double SCALE = 0.6;
 	public static final double CONSORTIUM_FONT_SCALE = 1.3;
@@ -269,6 +285,13 @@ public final class GUIConstants {
 	public static final int PREFERRED_POLICY_WINDOW_ELEMENT_HEIGHT = 25;
 	public static final int POLICY_PANEL_PREFERRED_COMBO_BOX_WIDTH = PREFERRED_POLICY_SIZE_WIDTH / 4;
 
+	public static final int PREFERRED_RESULTS_SIZE_WIDTH = 700;
+	public static final int PREFERRED_RESULTS_SIZE_HEIGHT = 300;
+	public static final int RESULTS_DIALOG_COORD_X = 150;
+	public static final int RESULTS_DIALOG_COORD_Y = 150;
+	public static final int RESULTS_NAME_COLUMN_WIDTH = 400;
+	public static final int RESULTS_FILTER_COMBO_BOX_WIDTH = 120;
+
 	private GUIConstants() {
 		// Disable default constructor
 	}
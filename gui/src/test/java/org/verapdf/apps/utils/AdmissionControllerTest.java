@@ -0,0 +1,148 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class AdmissionControllerTest {
+	private static final long MB = 1024L * 1024L;
+
+	@Test
+	public final void testEstimateScalesWithSize() {
+		AdmissionController controller = new AdmissionController(new FixedHeap(1024 * MB, 0),
+				Collections.emptyList(), 0);
+		assertEquals(AdmissionController.MIN_ESTIMATE_BYTES, controller.estimate(-1));
+		assertEquals(AdmissionController.MIN_ESTIMATE_BYTES, controller.estimate(1));
+		assertEquals((long) (10 * MB * AdmissionController.DEFAULT_HEAP_PER_BYTE), controller.estimate(10 * MB));
+	}
+
+	@Test
+	public final void testLoneJobIsAlwaysAdmitted() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(new FixedHeap(64 * MB, 60 * MB),
+				Collections.emptyList(), 0);
+		try (AdmissionController.Permit permit = controller.admit(100 * MB)) {
+			assertTrue(controller.headroom() < 0);
+		}
+	}
+
+	@Test
+	public final void testJobWaitsForHeadroom() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(new FixedHeap(256 * MB, 0),
+				Collections.emptyList(), 0);
+		AdmissionController.Permit first = controller.admit(20 * MB);
+		CountDownLatch admitted = admit(controller, 10 * MB);
+		assertFalse(admitted.await(300, TimeUnit.MILLISECONDS));
+		first.close();
+		assertTrue(admitted.await(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public final void testSmallJobsRunTogether() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(new FixedHeap(1024 * MB, 0),
+				Collections.emptyList(), 0);
+		try (AdmissionController.Permit first = controller.admit(MB);
+				AdmissionController.Permit second = controller.admit(MB)) {
+			assertTrue(controller.headroom() > 0);
+		}
+	}
+
+	@Test
+	public final void testLargeFilesTakeSingleLane() throws InterruptedException {
+		AdmissionController controller = new AdmissionController(new FixedHeap(1024 * MB, 0),
+				Collections.emptyList(), 2 * MB);
+		assertTrue(controller.isLarge(2 * MB));
+		assertFalse(controller.isLarge(MB));
+		AdmissionController.Permit first = controller.admit(2 * MB);
+		CountDownLatch admitted = admit(controller, 3 * MB);
+		assertFalse(admitted.await(300, TimeUnit.MILLISECONDS));
+		try (AdmissionController.Permit small = controller.admit(MB)) {
+			// ordinary files don't wait for the lane
+		}
+		first.close();
+		assertTrue(admitted.await(10, TimeUnit.SECONDS));
+	}
+
+	private static CountDownLatch admit(final AdmissionController controller, final long size) {
+		CountDownLatch admitted = new CountDownLatch(1);
+		Thread thread = new Thread(() -> {
+			try (AdmissionController.Permit permit = controller.admit(size)) {
+				admitted.countDown();
+			} catch (InterruptedException excep) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		thread.setDaemon(true);
+		thread.start();
+		return admitted;
+	}
+
+	private static final class FixedHeap implements MemoryMXBean {
+		private final long max;
+		private final long used;
+
+		FixedHeap(final long max, final long used) {
+			this.max = max;
+			this.used = used;
+		}
+
+		@Override
+		public MemoryUsage getHeapMemoryUsage() {
+			return new MemoryUsage(0, this.used, this.max, this.max);
+		}
+
+		@Override
+		public MemoryUsage getNonHeapMemoryUsage() {
+			return new MemoryUsage(0, 0, 0, -1);
+		}
+
+		@Override
+		public int getObjectPendingFinalizationCount() {
+			return 0;
+		}
+
+		@Override
+		public boolean isVerbose() {
+			return false;
+		}
+
+		@Override
+		public void setVerbose(final boolean value) {
+			// not used
+		}
+
+		@Override
+		public void gc() {
+			// not used
+		}
+
+		@Override
+		public ObjectName getObjectName() {
+			return null;
+		}
+	}
+}
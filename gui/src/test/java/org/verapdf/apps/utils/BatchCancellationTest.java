@@ -0,0 +1,99 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class BatchCancellationTest {
+
+	@Test
+	public final void testDispatchingStopsOnCancel() {
+		BatchCancellation cancellation = new BatchCancellation();
+		List<String> dispatched = new ArrayList<>();
+		for (String item : cancellation.dispatching(Arrays.asList("a", "b", "c", "d"))) { //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			dispatched.add(item);
+			if (dispatched.size() == 2) {
+				cancellation.cancel();
+			}
+		}
+		assertEquals(Arrays.asList("a", "b"), dispatched); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public final void testInterruptsOnlyInsideSection() throws Exception {
+		BatchCancellation cancellation = new BatchCancellation();
+		CountDownLatch entered = new CountDownLatch(1);
+		AtomicBoolean isInterrupted = new AtomicBoolean();
+		AtomicBoolean isClearedOnClose = new AtomicBoolean();
+		Thread worker = new Thread(() -> {
+			try (BatchCancellation.Section section = cancellation.enter()) {
+				entered.countDown();
+				Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+			} catch (InterruptedException excep) {
+				isInterrupted.set(true);
+			}
+			isClearedOnClose.set(!Thread.currentThread().isInterrupted());
+		});
+		worker.start();
+		assertTrue(entered.await(5, TimeUnit.SECONDS));
+		cancellation.cancel();
+		worker.join(TimeUnit.SECONDS.toMillis(5));
+		assertFalse(worker.isAlive());
+		assertTrue(isInterrupted.get());
+		assertTrue(isClearedOnClose.get());
+		// nothing is in a section now, the test thread isn't touched
+		assertFalse(Thread.currentThread().isInterrupted());
+	}
+
+	@Test
+	public final void testSectionAfterCancelIsInterrupted() {
+		BatchCancellation cancellation = new BatchCancellation();
+		cancellation.cancel();
+		try (BatchCancellation.Section section = cancellation.enter()) {
+			assertTrue(Thread.currentThread().isInterrupted());
+		}
+		assertFalse(Thread.interrupted());
+	}
+
+	@Test
+	public final void testListenersAndFinish() throws InterruptedException {
+		BatchCancellation cancellation = new BatchCancellation();
+		AtomicInteger calls = new AtomicInteger();
+		cancellation.onCancel(calls::incrementAndGet);
+		cancellation.cancel();
+		cancellation.cancel();
+		assertEquals(1, calls.get());
+		// a listener added late runs straight away
+		cancellation.onCancel(calls::incrementAndGet);
+		assertEquals(2, calls.get());
+		assertTrue(cancellation.isCancelled());
+		assertFalse(cancellation.awaitFinished(10));
+		cancellation.finished();
+		assertTrue(cancellation.awaitFinished(10));
+	}
+}
@@ -0,0 +1,144 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColumnarReportStreamTest {
+	private static final String PROFILE = "PDF/A-1B validation profile"; //$NON-NLS-1$
+	private static final String SPECIFICATION = "ISO 19005-1:2005"; //$NON-NLS-1$
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testRoundTrip() throws IOException {
+		StringBuilder report = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<report>"); //$NON-NLS-1$
+		report.append("<buildInformation><releaseDetails id=\"core\" version=\"1.15.0\"/></buildInformation><jobs>"); //$NON-NLS-1$
+		report.append(job("/batch/a.pdf", 0)).append(job("/batch/ab.pdf", 2)); //$NON-NLS-1$ //$NON-NLS-2$
+		report.append("<job><item size=\"5\"><name>/batch/broken.pdf</name></item><taskException type=\"VALIDATE\">") //$NON-NLS-1$
+				.append("<exceptionMessage>Couldn't parse stream</exceptionMessage></taskException></job>"); //$NON-NLS-1$
+		report.append("</jobs><batchSummary totalJobs=\"3\"><validationReports compliant=\"1\" nonCompliant=\"1\">2</validationReports></batchSummary></report>"); //$NON-NLS-1$
+		ColumnarReport columnar = ColumnarReport.open(export(report.toString()));
+
+		assertEquals(3, columnar.getJobCount());
+		assertEquals(2, columnar.getFailureCount());
+		assertEquals("3", columnar.getSummary().get("totalJobs")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1", columnar.getSummary().get("validationReports.nonCompliant")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("1.15.0", columnar.getSummary().get("release.core")); //$NON-NLS-1$ //$NON-NLS-2$
+
+		List<ColumnarReport.Job> jobs = new ArrayList<>();
+		columnar.readJobs(jobs::add);
+		assertEquals(3, jobs.size());
+		assertEquals("/batch/a.pdf", jobs.get(0).getPath()); //$NON-NLS-1$
+		assertEquals(Boolean.TRUE, jobs.get(0).isCompliant());
+		assertEquals(PROFILE, jobs.get(0).getProfile());
+		assertEquals(250, jobs.get(0).getDurationMillis());
+		assertEquals("/batch/ab.pdf", jobs.get(1).getPath()); //$NON-NLS-1$
+		assertEquals(Boolean.FALSE, jobs.get(1).isCompliant());
+		assertEquals(2, jobs.get(1).getFailedRules());
+		assertEquals(11, jobs.get(1).getFailedChecks());
+		assertNull(jobs.get(2).isCompliant());
+		assertEquals("Couldn't parse stream", jobs.get(2).getException()); //$NON-NLS-1$
+
+		List<ColumnarReport.Failure> failures = new ArrayList<>();
+		columnar.readFailures(failures::add);
+		assertEquals(1, failures.get(0).getJob());
+		assertEquals(SPECIFICATION + " 6.1.1-1", failures.get(0).getRuleId()); //$NON-NLS-1$
+		assertEquals("6.1.2", failures.get(1).getClause()); //$NON-NLS-1$
+		// rule ids are dictionary encoded
+		assertEquals(2, columnar.getRuleIds().size());
+	}
+
+	@Test
+	public final void testRowGroups() throws IOException {
+		int jobCount = ColumnarReportStream.ROW_GROUP_SIZE + 1000;
+		Path file = this.tempFolder.newFile("groups.vpc").toPath(); //$NON-NLS-1$
+		try (OutputStream os = new ColumnarReportStream(Files.newOutputStream(file))) {
+			os.write("<report><jobs>".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+			for (int i = 0; i < jobCount; i++) {
+				os.write(job("/batch/dir" + (i / 100) + "/file" + i + ".pdf", 1).getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			os.write("</jobs><batchSummary totalJobs=\"1\"/></report>".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+		}
+		ColumnarReport columnar = ColumnarReport.open(file);
+		long[] count = new long[1];
+		columnar.readJobs(job -> {
+			assertEquals("/batch/dir" + (job.getIndex() / 100) + "/file" + job.getIndex() + ".pdf", job.getPath()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			count[0]++;
+		});
+		assertEquals(jobCount, count[0]);
+		count[0] = 0;
+		columnar.readFailures(failure -> {
+			assertEquals(count[0]++, failure.getJob());
+		});
+		assertEquals(jobCount, count[0]);
+		// front coded, dictionary encoded and deflated
+		assertTrue(Files.size(file) < jobCount * 8L);
+	}
+
+	@Test
+	public final void testNotAReport() throws IOException {
+		Path file = this.tempFolder.newFile("empty.vpc").toPath(); //$NON-NLS-1$
+		try (OutputStream os = new ColumnarReportStream(Files.newOutputStream(file))) {
+			// nothing processed
+		}
+		assertEquals(0, Files.size(file));
+		try {
+			ColumnarReport.open(file);
+		} catch (IOException excep) {
+			// expected
+			return;
+		}
+		fail("Expected an empty file to be rejected"); //$NON-NLS-1$
+	}
+
+	private Path export(final String report) throws IOException {
+		Path file = this.tempFolder.newFile().toPath();
+		try (OutputStream os = new ColumnarReportStream(Files.newOutputStream(file))) {
+			os.write(report.getBytes(StandardCharsets.UTF_8));
+		}
+		return file;
+	}
+
+	private static String job(final String name, final int failedRules) {
+		StringBuilder job = new StringBuilder("<job><item size=\"1024\"><name>").append(name).append("</name></item>"); //$NON-NLS-1$ //$NON-NLS-2$
+		job.append("<validationReport profileName=\"").append(PROFILE).append("\" isCompliant=\"") //$NON-NLS-1$ //$NON-NLS-2$
+				.append(failedRules == 0).append("\"><details passedRules=\"100\" failedRules=\"").append(failedRules) //$NON-NLS-1$ //$NON-NLS-2$
+				.append("\" passedChecks=\"1000\" failedChecks=\"").append(failedRules * 5 + (failedRules > 1 ? 1 : 0)) //$NON-NLS-1$
+				.append("\">"); //$NON-NLS-1$
+		for (int i = 1; i <= failedRules; i++) {
+			job.append("<rule specification=\"").append(SPECIFICATION).append("\" clause=\"6.1.").append(i) //$NON-NLS-1$ //$NON-NLS-2$
+					.append("\" testNumber=\"1\" status=\"failed\" failedChecks=\"5\"><description>A rule</description></rule>"); //$NON-NLS-1$
+		}
+		job.append("</details></validationReport><duration start=\"1000\" finish=\"1250\">00:00:00.250</duration></job>"); //$NON-NLS-1$
+		return job.toString();
+	}
+}
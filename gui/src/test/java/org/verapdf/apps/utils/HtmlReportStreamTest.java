@@ -0,0 +1,83 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class HtmlReportStreamTest {
+	private static final String WIKI = "https://example.org/wiki/"; //$NON-NLS-1$
+
+	@Test
+	public final void testRendersJobsAndSummary() throws IOException {
+		String html = render(2, "<batchSummary totalJobs=\"2\"/>"); //$NON-NLS-1$
+		assertTrue(html.startsWith("<!DOCTYPE html>")); //$NON-NLS-1$
+		assertTrue(html.trim().endsWith("</html>")); //$NON-NLS-1$
+		assertTrue(html.contains("<td>/batch/a&lt;0&gt;.pdf</td><td class=\"result\">PASS</td>")); //$NON-NLS-1$
+		assertTrue(html.contains("<td>/batch/a&lt;1&gt;.pdf</td><td class=\"result\">FAIL</td>")); //$NON-NLS-1$
+		assertTrue(html.contains("<a href=\"" + WIKI + "PDFA-Part-1-rules#rule-612-1\">")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(html.contains("<tr><th>totalJobs</th><td>2</td></tr>")); //$NON-NLS-1$
+		// the summary follows the jobs it summarises
+		assertTrue(html.indexOf("class=\"summary\"") > html.indexOf("class=\"jobs\"")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public final void testPages() throws IOException {
+		String html = render(HtmlReportStream.PAGE_SIZE + 1, ""); //$NON-NLS-1$
+		assertEquals(2, count(html, "<details class=\"page\"")); //$NON-NLS-1$
+		// only the first page is expanded
+		assertEquals(1, count(html, "<details class=\"page\" open>")); //$NON-NLS-1$
+		assertEquals(count(html, "<details class=\"page\""), count(html, "</table></details>")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(html.contains("class=\"summary\"")); //$NON-NLS-1$
+	}
+
+	private static String render(final int jobs, final String summary) throws IOException {
+		ByteArrayOutputStream html = new ByteArrayOutputStream();
+		try (OutputStream os = new HtmlReportStream(html, WIKI)) {
+			StringBuilder report = new StringBuilder("<report><jobs>"); //$NON-NLS-1$
+			for (int i = 0; i < jobs; i++) {
+				boolean isCompliant = i % 2 == 0;
+				report.append("<job><item size=\"1\"><name>/batch/a&lt;").append(i).append("&gt;.pdf</name></item>") //$NON-NLS-1$ //$NON-NLS-2$
+						.append("<validationReport profileName=\"PDF/A-1B\" isCompliant=\"").append(isCompliant) //$NON-NLS-1$
+						.append("\"><details failedRules=\"").append(isCompliant ? 0 : 1).append("\" failedChecks=\"2\">"); //$NON-NLS-1$ //$NON-NLS-2$
+				if (!isCompliant) {
+					report.append("<rule specification=\"ISO 19005-1:2005\" clause=\"6.1.2\" testNumber=\"1\" status=\"failed\" failedChecks=\"2\">") //$NON-NLS-1$
+							.append("<description>Header</description></rule>"); //$NON-NLS-1$
+				}
+				report.append("</details></validationReport></job>"); //$NON-NLS-1$
+			}
+			report.append("</jobs>").append(summary).append("</report>"); //$NON-NLS-1$ //$NON-NLS-2$
+			os.write(report.toString().getBytes(StandardCharsets.UTF_8));
+		}
+		return new String(html.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static int count(final String html, final String toFind) {
+		int count = 0;
+		for (int i = html.indexOf(toFind); i >= 0; i = html.indexOf(toFind, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+}
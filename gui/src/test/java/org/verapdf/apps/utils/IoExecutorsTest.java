@@ -0,0 +1,52 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class IoExecutorsTest {
+
+	@Test
+	public final void testIoExecutorRunsTasks() throws Exception {
+		ExecutorService executor = IoExecutors.newIoExecutor("io-test"); //$NON-NLS-1$
+		try {
+			Thread thread = executor.submit(() -> Thread.currentThread()).get(10, TimeUnit.SECONDS);
+			assertTrue(thread.getName().startsWith("io-test-")); //$NON-NLS-1$
+			assertTrue(thread.isDaemon());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public final void testCpuExecutorIsBounded() throws Exception {
+		ExecutorService executor = IoExecutors.newCpuExecutor("cpu-test", 1); //$NON-NLS-1$
+		try {
+			Thread first = executor.submit(() -> Thread.currentThread()).get(10, TimeUnit.SECONDS);
+			Thread second = executor.submit(() -> Thread.currentThread()).get(10, TimeUnit.SECONDS);
+			assertEquals(first, second);
+			assertEquals("cpu-test-1", first.getName()); //$NON-NLS-1$
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class JobIndexTest {
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testQueries() throws IOException {
+		StringBuilder report = new StringBuilder("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<report><jobs>"); //$NON-NLS-1$
+		report.append(job("/batch/a.pdf", "")); //$NON-NLS-1$ //$NON-NLS-2$
+		report.append(job("/batch/b.pdf", "6.1.1-1")); //$NON-NLS-1$ //$NON-NLS-2$
+		report.append("<job><item size=\"5\"><name>/batch/broken.pdf</name></item><taskException type=\"VALIDATE\">") //$NON-NLS-1$
+				.append("<exceptionMessage>Couldn't parse stream</exceptionMessage></taskException></job>"); //$NON-NLS-1$
+		report.append(job("/batch/\u00e9t\u00e9.pdf", "6.1.1-2", "6.1.4-1")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		report.append("</jobs><batchSummary totalJobs=\"4\"/></report>"); //$NON-NLS-1$
+		JobIndex index = JobIndex.open(export(report.toString()));
+
+		assertEquals(4, index.getJobCount());
+		assertEquals("/batch/b.pdf", index.getName(1)); //$NON-NLS-1$
+		assertEquals("/batch/\u00e9t\u00e9.pdf", index.getName(3)); //$NON-NLS-1$
+		assertEquals(JobIndex.Status.COMPLIANT, index.getStatus(0));
+		assertEquals(JobIndex.Status.NON_COMPLIANT, index.getStatus(1));
+		assertEquals(JobIndex.Status.FAILED, index.getStatus(2));
+		assertEquals(2, index.countJobs(JobIndex.Status.NON_COMPLIANT));
+		assertEquals(Arrays.asList("6.1.1-1", "6.1.1-2", "6.1.4-1"), index.getRuleIds()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+		assertArrayEquals(new int[] { 3 }, index.getJobsFailing("6.1.4")); //$NON-NLS-1$
+		assertArrayEquals(new int[] { 1, 3 }, index.getJobsFailing("6.1.1")); //$NON-NLS-1$
+		assertArrayEquals(new int[] { 1 }, index.getJobsFailing("6.1.1-1")); //$NON-NLS-1$
+		// a clause doesn't match the clauses it prefixes
+		assertEquals(0, index.countJobsFailing("6.1")); //$NON-NLS-1$
+		assertEquals(0, index.countJobsFailing("6.2.1")); //$NON-NLS-1$
+		assertEquals(0, index.countPolicyFailures());
+	}
+
+	@Test
+	public final void testRulesBySpecification() throws IOException {
+		String report = "<report><jobs>" //$NON-NLS-1$
+				+ job("/batch/a.pdf", "6.1.1-1") //$NON-NLS-1$ //$NON-NLS-2$
+				+ job("/batch/b.pdf", "6.1.1-1").replace("ISO 19005-1:2005", "ISO 19005-2:2011") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ "</jobs></report>"; //$NON-NLS-1$
+		JobIndex index = JobIndex.open(export(report));
+		assertEquals(Arrays.asList("6.1.1-1", "6.1.1-1"), index.getRuleIds()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Arrays.asList("ISO 19005-1:2005", "ISO 19005-2:2011"), index.getRuleSpecifications()); //$NON-NLS-1$ //$NON-NLS-2$
+		assertArrayEquals(new int[] { 0, 1 }, index.getJobsFailing("6.1.1-1")); //$NON-NLS-1$
+		assertArrayEquals(new int[] { 1 }, index.getJobsFailing("ISO 19005-2:2011", "6.1.1")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(1, index.countJobsFailing("ISO 19005-1:2005", "6.1.1-1")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(0, index.countJobsFailing("ISO 14289-1:2014", "6.1.1-1")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public final void testSmallSegments() throws IOException {
+		StringBuilder report = new StringBuilder("<report><jobs>"); //$NON-NLS-1$
+		for (int i = 0; i < 100; i++) {
+			report.append(job("/batch/a-rather-long-directory-name/file" + i + ".pdf", "6.1.1-" + (i % 3 + 1))); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		report.append("</jobs></report>"); //$NON-NLS-1$
+		Path file = export(report.toString());
+		// 16 byte segments, names and bitmaps span many of them
+		JobIndex index = JobIndex.open(file, 4);
+		JobIndex whole = JobIndex.open(file);
+		assertEquals(100, index.getJobCount());
+		for (int i = 0; i < 100; i++) {
+			assertEquals("/batch/a-rather-long-directory-name/file" + i + ".pdf", index.getName(i)); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(whole.getReportOffset(i), index.getReportOffset(i));
+			assertEquals(whole.getReportLength(i), index.getReportLength(i));
+		}
+		assertEquals(34, index.countJobsFailing("6.1.1-1")); //$NON-NLS-1$
+		assertArrayEquals(whole.getJobsFailing("6.1.1-3"), index.getJobsFailing("6.1.1-3")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(100, index.countJobs(JobIndex.Status.NON_COMPLIANT));
+	}
+
+	@Test
+	public final void testReportOffsets() throws IOException {
+		String first = job("/batch/a.pdf", "6.1.1-1"); //$NON-NLS-1$ //$NON-NLS-2$
+		String second = job("/batch/\u00e9t\u00e9.pdf", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		String report = "<report><jobs>" + first + second + "</jobs></report>"; //$NON-NLS-1$ //$NON-NLS-2$
+		byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+		Path file = this.tempFolder.newFile().toPath();
+		try (OutputStream os = new JobIndexStream(Files.newOutputStream(file))) {
+			// the tags are split across writes
+			int split = report.indexOf("</job>") + 3; //$NON-NLS-1$
+			os.write(bytes, 0, split);
+			for (int i = split; i < split + 10; i++) {
+				os.write(bytes[i]);
+			}
+			os.write(bytes, split + 10, bytes.length - split - 10);
+		}
+		JobIndex index = JobIndex.open(file);
+		assertEquals(first, slice(bytes, index, 0));
+		assertEquals(second, slice(bytes, index, 1));
+	}
+
+	@Test
+	public final void testPolicyFailures() throws IOException {
+		String policy = "<policyReport passedChecks=\"0\" failedChecks=\"1\"><failedChecks><check status=\"failed\"/></failedChecks></policyReport>"; //$NON-NLS-1$
+		String report = "<report><jobs>" //$NON-NLS-1$
+				+ job("/batch/a.pdf", "").replace("</job>", policy + "</job>") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ job("/batch/b.pdf", "").replace("</job>", "<policyReport passedChecks=\"1\" failedChecks=\"0\"/></job>") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+				+ "</jobs></report>"; //$NON-NLS-1$
+		JobIndex index = JobIndex.open(export(report));
+		assertEquals(1, index.countPolicyFailures());
+		assertTrue(index.isPolicyFailed(0));
+		assertFalse(index.isPolicyFailed(1));
+		// the policy flag doesn't change the validation status
+		assertEquals(JobIndex.Status.COMPLIANT, index.getStatus(0));
+	}
+
+	@Test
+	public final void testNotAnIndex() throws IOException {
+		Path file = this.tempFolder.newFile("empty.vidx").toPath(); //$NON-NLS-1$
+		try (OutputStream os = new JobIndexStream(Files.newOutputStream(file))) {
+			// nothing processed
+		}
+		try {
+			JobIndex.open(file);
+		} catch (IOException excep) {
+			// expected
+			return;
+		}
+		fail("Expected an empty file to be rejected"); //$NON-NLS-1$
+	}
+
+	private Path export(final String report) throws IOException {
+		Path file = this.tempFolder.newFile().toPath();
+		try (OutputStream os = new JobIndexStream(Files.newOutputStream(file))) {
+			os.write(report.getBytes(StandardCharsets.UTF_8));
+		}
+		return file;
+	}
+
+	private static String slice(final byte[] report, final JobIndex index, final int job) {
+		return new String(report, (int) index.getReportOffset(job), index.getReportLength(job), StandardCharsets.UTF_8);
+	}
+
+	private static String job(final String name, final String... failedRules) {
+		boolean isCompliant = failedRules.length == 1 && failedRules[0].isEmpty();
+		StringBuilder job = new StringBuilder("<job><item size=\"1024\"><name>").append(name).append("</name></item>"); //$NON-NLS-1$ //$NON-NLS-2$
+		job.append("<validationReport profileName=\"PDF/A-1B validation profile\" isCompliant=\"").append(isCompliant).append("\"><details>"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (!isCompliant) {
+			for (String rule : failedRules) {
+				String[] parts = rule.split("-"); //$NON-NLS-1$
+				job.append("<rule specification=\"ISO 19005-1:2005\" clause=\"").append(parts[0]).append("\" testNumber=\"").append(parts[1]) //$NON-NLS-1$ //$NON-NLS-2$
+						.append("\" status=\"failed\" failedChecks=\"1\"><description>A rule</description></rule>"); //$NON-NLS-1$
+			}
+		}
+		job.append("<rule clause=\"6.2.1\" testNumber=\"1\" status=\"passed\" passedChecks=\"1\"/>"); //$NON-NLS-1$
+		job.append("</details></validationReport></job>"); //$NON-NLS-1$
+		return job.toString();
+	}
+}
@@ -0,0 +1,97 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class NdjsonReportStreamTest {
+	private static final String BUILD = "<buildInformation><releaseDetails id=\"core\" version=\"1.15.0\"/></buildInformation>"; //$NON-NLS-1$
+	private static final String SUMMARY = "<batchSummary totalJobs=\"2\" failedToParse=\"0\"><validationReports compliant=\"1\" nonCompliant=\"1\" failedJobs=\"0\">2</validationReports></batchSummary>"; //$NON-NLS-1$
+
+	@Test
+	public final void testJobLinesAndSummaryTrailer() throws IOException {
+		String report = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<report>" + BUILD + "<jobs>" //$NON-NLS-1$ //$NON-NLS-2$
+				+ job("/a.pdf", true) + job("/b.pdf", false) + "</jobs>" + SUMMARY + "</report>\n"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		String[] lines = convert(report).split("\n"); //$NON-NLS-1$
+		assertEquals(4, lines.length);
+		assertEquals("{\"buildInformation\":{\"releaseDetails\":{\"id\":\"core\",\"version\":\"1.15.0\"}}}", lines[0]); //$NON-NLS-1$
+		assertEquals("{\"job\":{\"item\":{\"size\":10,\"name\":\"/a.pdf\"},\"validationReport\":{\"isCompliant\":true," //$NON-NLS-1$
+				+ "\"details\":{\"failedRules\":0}}}}", lines[1]); //$NON-NLS-1$
+		assertTrue(lines[2].contains("\"rule\":[{\"clause\":\"6.1.2\",\"status\":\"failed\",\"description\":\"A \\\"quoted\\\"\\nline\"}]")); //$NON-NLS-1$
+		assertEquals("{\"batchSummary\":{\"totalJobs\":2,\"failedToParse\":0,\"validationReports\":{\"compliant\":1,\"nonCompliant\":1,\"failedJobs\":0,\"value\":\"2\"}}}", //$NON-NLS-1$
+				lines[3]);
+	}
+
+	@Test
+	public final void testEmptyReport() throws IOException {
+		assertEquals("", convert("")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public final void testMalformedReportFailsOnClose() {
+		try {
+			convert("<report><jobs>"); //$NON-NLS-1$
+		} catch (IOException excep) {
+			// expected
+			return;
+		}
+		fail("Expected a truncated report to fail"); //$NON-NLS-1$
+	}
+
+	@Test
+	public final void testJobWrittenBeforeReportEnds() throws IOException {
+		PipedInputStream linesIn = new PipedInputStream();
+		try (BufferedReader lines = new BufferedReader(new InputStreamReader(linesIn, StandardCharsets.UTF_8));
+				OutputStream json = new NdjsonReportStream(new PipedOutputStream(linesIn))) {
+			json.write(("<report><jobs>" + job("/a.pdf", true)).getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+			json.flush();
+			assertTrue(lines.readLine().startsWith("{\"job\":")); //$NON-NLS-1$
+			json.write(("</jobs>" + SUMMARY + "</report>").getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	private static String job(final String name, final boolean isCompliant) {
+		return "<job><item size=\"10\"><name>" + name + "</name></item><validationReport isCompliant=\"" + isCompliant //$NON-NLS-1$ //$NON-NLS-2$
+				+ "\"><details failedRules=\"" + (isCompliant ? "0\">" //$NON-NLS-1$ //$NON-NLS-2$
+						: "1\"><rule clause=\"6.1.2\" status=\"failed\"><description>A &quot;quoted&quot;\nline</description></rule>") //$NON-NLS-1$
+				+ "</details></validationReport></job>"; //$NON-NLS-1$
+	}
+
+	private static String convert(final String report) throws IOException {
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		try (OutputStream os = new NdjsonReportStream(json)) {
+			byte[] bytes = report.getBytes(StandardCharsets.UTF_8);
+			// odd sized writes, across chunk boundaries
+			for (int offset = 0; offset < bytes.length; offset += 7) {
+				os.write(bytes, offset, Math.min(7, bytes.length - offset));
+			}
+		}
+		return new String(json.toByteArray(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,111 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class ParallelGzipOutputStreamTest {
+	private static final int BLOCK_SIZE = 64 * 1024;
+
+	@Test
+	public final void testRoundTrip() throws IOException {
+		byte[] report = report(10 * BLOCK_SIZE + 123);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		try (OutputStream gzip = new ParallelGzipOutputStream(compressed, BLOCK_SIZE, 4)) {
+			// mixed write sizes, across block boundaries
+			int offset = 0;
+			Random random = new Random(1);
+			while (offset < report.length) {
+				if (random.nextInt(10) == 0) {
+					gzip.write(report[offset++]);
+					gzip.flush();
+				} else {
+					int len = Math.min(report.length - offset, random.nextInt(3 * BLOCK_SIZE / 2));
+					gzip.write(report, offset, len);
+					offset += len;
+				}
+			}
+		}
+		assertTrue(compressed.size() < report.length / 2);
+		assertArrayEquals(report, gunzip(compressed.toByteArray()));
+	}
+
+	@Test
+	public final void testEmptyStreamIsValidGzip() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		new ParallelGzipOutputStream(compressed, BLOCK_SIZE, 2).close();
+		assertEquals(0, gunzip(compressed.toByteArray()).length);
+	}
+
+	@Test
+	public final void testCompressionLeavesStreamOpen() throws IOException {
+		TrackingStream target = new TrackingStream();
+		OutputStream gzip = ReportCompression.GZIP.compress(target);
+		gzip.write("<report/>".getBytes(StandardCharsets.UTF_8));
+		gzip.close();
+		gzip.close();
+		assertFalse(target.isClosed);
+		assertEquals("<report/>", new String(gunzip(target.toByteArray()), StandardCharsets.UTF_8));
+		assertTrue(ReportCompression.NONE.compress(target) == target);
+		assertEquals(ReportCompression.GZIP, ReportCompression.fromOption("GZIP"));
+	}
+
+	private static byte[] report(final int size) {
+		StringBuilder report = new StringBuilder(size + 64);
+		for (int job = 0; report.length() < size; job++) {
+			report.append("<job><item><name>file").append(job).append(".pdf</name></item></job>\n");
+		}
+		return report.substring(0, size).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gunzip(final byte[] compressed) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+			byte[] buffer = new byte[8192];
+			for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+				out.write(buffer, 0, read);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static final class TrackingStream extends ByteArrayOutputStream {
+		boolean isClosed = false;
+
+		TrackingStream() {
+			super();
+		}
+
+		@Override
+		public void close() {
+			this.isClosed = true;
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReportFolderWriterTest {
+	private static final int REPORTS = 50;
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testWritesEveryReport() throws IOException {
+		Path root = this.tempFolder.getRoot().toPath();
+		List<Path> committed = Collections.synchronizedList(new ArrayList<>());
+		try (ReportFolderWriter writer = new ReportFolderWriter(2, 4, committed::add)) {
+			for (int i = 0; i < REPORTS; i++) {
+				write(writer, target(root, i), report(i));
+			}
+		}
+		assertEquals(REPORTS, committed.size());
+		for (int i = 0; i < REPORTS; i++) {
+			assertTrue(committed.contains(target(root, i)));
+			assertArrayEquals(report(i), Files.readAllBytes(target(root, i)));
+		}
+		// every report was renamed into place
+		try (Stream<Path> files = Files.walk(root)) {
+			assertEquals(0, files.filter(file -> file.toString().endsWith(".part")).count()); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public final void testReplacesExistingReport() throws IOException {
+		Path target = this.tempFolder.getRoot().toPath().resolve("report.xml"); //$NON-NLS-1$
+		Files.write(target, report(0));
+		try (ReportFolderWriter writer = new ReportFolderWriter(1, 1, path -> {
+			// nothing to do
+		})) {
+			write(writer, target, report(1));
+		}
+		assertArrayEquals(report(1), Files.readAllBytes(target));
+	}
+
+	@Test
+	public final void testFailureIsReported() throws IOException {
+		Path blocker = this.tempFolder.newFile("blocker").toPath(); //$NON-NLS-1$
+		try (ReportFolderWriter writer = new ReportFolderWriter(1, 1, path -> {
+			// nothing to do
+		})) {
+			// the report's directory can't be created under a file
+			write(writer, blocker.resolve("report.xml"), report(0)); //$NON-NLS-1$
+		} catch (IOException excep) {
+			// expected
+			return;
+		}
+		fail("Expected the failed write to be reported on close"); //$NON-NLS-1$
+	}
+
+	@Test
+	public final void testUncommittedReportIsDiscarded() throws IOException {
+		Path root = this.tempFolder.getRoot().toPath();
+		List<Path> committed = Collections.synchronizedList(new ArrayList<>());
+		try (ReportFolderWriter writer = new ReportFolderWriter(1, 1, committed::add)) {
+			try (ReportFolderWriter.Report report = writer.open(target(root, 0))) {
+				report.getStream().write(report(0));
+			}
+		}
+		assertTrue(committed.isEmpty());
+		try (Stream<Path> files = Files.walk(root)) {
+			assertEquals(0, files.filter(Files::isRegularFile).count());
+		}
+	}
+
+	private static void write(final ReportFolderWriter writer, final Path target, final byte[] content)
+			throws IOException {
+		try (ReportFolderWriter.Report report = writer.open(target)) {
+			report.getStream().write(content);
+			report.commit();
+		}
+	}
+
+	private static Path target(final Path root, final int index) {
+		return root.resolve("dir" + (index % 5)).resolve("sub" + (index % 3)).resolve("file" + index + ".xml"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+	}
+
+	private static byte[] report(final int index) {
+		return ("<report id=\"" + index + "\"/>").getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,98 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+@SuppressWarnings("static-method")
+public class ShardSelectorTest {
+	private static final int SHARDS = 4;
+	private static final int FILES = 400;
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testEveryFileInOneShard() {
+		int[] sizes = new int[SHARDS];
+		for (int i = 0; i < FILES; i++) {
+			File file = new File("archive/batch/file" + i + ".pdf");
+			int selected = 0;
+			for (int shard = 0; shard < SHARDS; shard++) {
+				if (new ShardSelector(shard, SHARDS).test(file)) {
+					selected++;
+					sizes[shard]++;
+				}
+			}
+			assertEquals(1, selected);
+		}
+		for (int size : sizes) {
+			assertTrue("Unbalanced shard of " + size + " files", size > FILES / SHARDS / 2);
+		}
+	}
+
+	@Test
+	public final void testSeparatorsDontChangeShard() {
+		assertEquals(ShardSelector.shardOf("archive/batch/file.pdf", 7),
+				ShardSelector.shardOf("archive\\batch\\file.pdf", 7));
+		assertTrue(ShardSelector.ALL.test(new File("any.pdf")));
+	}
+
+	@Test
+	public final void testIllegalShard() {
+		for (int[] shard : new int[][] { { 0, 0 }, { -1, 2 }, { 2, 2 } }) {
+			try {
+				new ShardSelector(shard[0], shard[1]);
+				fail("Accepted shard " + shard[0] + " of " + shard[1]);
+			} catch (IllegalArgumentException e) {
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public final void testFilterSelectsDuringDiscovery() throws IOException {
+		File root = this.tempFolder.newFolder("root");
+		File sub = new File(root, "sub");
+		assertTrue(sub.mkdir());
+		for (int i = 0; i < 20; i++) {
+			assertTrue(new File((i % 2 == 0) ? root : sub, "test" + i + ".pdf").createNewFile());
+		}
+		List<File> roots = Collections.singletonList(root);
+		Set<File> found = new HashSet<>();
+		for (int shard = 0; shard < SHARDS; shard++) {
+			ShardSelector selector = new ShardSelector(shard, SHARDS);
+			for (File file : ApplicationUtils.filterPdfFiles(roots, true, selector)) {
+				assertTrue(selector.test(file));
+				assertTrue(found.add(file));
+			}
+		}
+		assertEquals(ApplicationUtils.filterPdfFiles(roots, true).size(), found.size());
+		assertEquals(20, found.size());
+	}
+}
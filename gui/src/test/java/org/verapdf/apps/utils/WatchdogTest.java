@@ -0,0 +1,77 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.apps.utils;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class WatchdogTest {
+
+	@Test
+	public final void testOverrunningJobIsInterrupted() {
+		try (Watchdog watchdog = new Watchdog(1, 0)) {
+			assertTrue(watchdog.isEnabled());
+			Watchdog.Ticket ticket = watchdog.watch();
+			boolean isInterrupted = false;
+			try {
+				TimeUnit.SECONDS.sleep(10);
+			} catch (InterruptedException excep) {
+				isInterrupted = true;
+			}
+			assertTrue(isInterrupted);
+			assertTrue(ticket.isExpired());
+			ticket.close();
+			assertFalse(Thread.currentThread().isInterrupted());
+		}
+	}
+
+	@Test
+	public final void testJobWithinBudgetIsNotExpired() {
+		try (Watchdog watchdog = new Watchdog(10, 10)) {
+			Watchdog.Ticket ticket = watchdog.watch();
+			ticket.close();
+			assertFalse(ticket.isExpired());
+			assertFalse(Thread.currentThread().isInterrupted());
+		}
+	}
+
+	@Test
+	public final void testClosedTicketIsNotExpired() {
+		try (Watchdog watchdog = new Watchdog(10, 0)) {
+			Watchdog.Ticket ticket = watchdog.watch();
+			ticket.close();
+			// the check picked the ticket before the job closed it
+			ticket.expire();
+			assertFalse(ticket.isExpired());
+			assertFalse(Thread.currentThread().isInterrupted());
+		}
+	}
+
+	@Test
+	public final void testDisabledWatchdogNeverExpires() throws InterruptedException {
+		try (Watchdog watchdog = new Watchdog(0, 0)) {
+			assertFalse(watchdog.isEnabled());
+			try (Watchdog.Ticket ticket = watchdog.watch()) {
+				TimeUnit.MILLISECONDS.sleep(300);
+				assertFalse(ticket.isExpired());
+			}
+		}
+	}
+}
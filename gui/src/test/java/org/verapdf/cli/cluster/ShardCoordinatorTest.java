@@ -0,0 +1,220 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.cluster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.core.VeraPDFException;
+import org.verapdf.processor.reports.ResultStructure;
+import org.verapdf.processor.reports.multithread.MultiThreadProcessingHandler;
+
+@SuppressWarnings("static-method")
+public class ShardCoordinatorTest {
+	private static final long LEASE_MILLIS = 1000L;
+
+	@Test
+	public final void testPartition() {
+		List<Shard> shards = Shard.partition(files(7), 3);
+		assertEquals(3, shards.size());
+		assertEquals(3, shards.get(0).getFiles().size());
+		assertEquals(1, shards.get(2).getFiles().size());
+		assertEquals(new File("f6.pdf"), shards.get(2).getFiles().get(0));
+		assertEquals(2, shards.get(2).getId());
+		assertTrue(Shard.partition(Collections.emptyList(), 3).isEmpty());
+	}
+
+	@Test
+	public final void testExpiredLeaseIsReassigned() {
+		AtomicLong clock = new AtomicLong();
+		ShardCoordinator coordinator = new ShardCoordinator(Shard.partition(files(2), 1), LEASE_MILLIS, clock::get);
+		ShardLease first = coordinator.acquire("a");
+		assertEquals(0, first.getShard().getId());
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS / 2));
+		assertTrue(coordinator.renew(first));
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS));
+		assertFalse(coordinator.renew(first));
+		ShardLease retry = coordinator.acquire("b");
+		assertEquals(0, retry.getShard().getId());
+		assertEquals(1, coordinator.acquire("b").getShard().getId());
+		assertNull(coordinator.acquire("c"));
+		assertFalse(coordinator.isDone());
+	}
+
+	@Test
+	public final void testFirstResultWins() throws IOException {
+		AtomicLong clock = new AtomicLong();
+		ShardCoordinator coordinator = new ShardCoordinator(Shard.partition(files(1), 1), LEASE_MILLIS, clock::get);
+		ShardLease first = coordinator.acquire("a");
+		clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS * 2));
+		ShardLease retry = coordinator.acquire("b");
+		assertNotNull(retry);
+		ShardResult late = result("late");
+		assertTrue(coordinator.complete(first, late));
+		assertFalse(coordinator.renew(retry));
+		ShardResult duplicate = result("duplicate");
+		assertFalse(coordinator.complete(retry, duplicate));
+		assertFalse(duplicate.getReports().get(0).exists());
+		assertTrue(coordinator.isDone());
+		assertEquals(1, coordinator.getTotals().getTotalJobs());
+		assertEquals(ExitCodes.VALID, coordinator.getExitCode());
+		late.deleteReports();
+	}
+
+	@Test
+	public final void testShardAbandonedAfterMaxAttempts() throws InterruptedException {
+		AtomicLong clock = new AtomicLong();
+		ShardCoordinator coordinator = new ShardCoordinator(Shard.partition(files(1), 1), LEASE_MILLIS, clock::get);
+		for (int i = 0; i < ShardCoordinator.MAX_ATTEMPTS; i++) {
+			assertNotNull(coordinator.acquire("w" + i));
+			clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS + 1));
+		}
+		assertNull(coordinator.acquire("w"));
+		assertTrue(coordinator.awaitCompletion(LEASE_MILLIS));
+		assertEquals(1, coordinator.getAbandoned().size());
+		assertEquals(ExitCodes.VERAPDF_EXCEPTION, coordinator.getExitCode());
+	}
+
+	@Test
+	public final void testLoopbackBatchSurvivesDeadWorker() throws InterruptedException {
+		List<File> files = files(10);
+		ShardCoordinator coordinator = new ShardCoordinator(Shard.partition(files, 3), 200L);
+		ShardTransport transport = new LoopbackTransport(coordinator);
+		AtomicBoolean hasFailed = new AtomicBoolean(false);
+		ShardProcessor failOnce = (pdf, report) -> {
+			if (hasFailed.compareAndSet(false, true)) {
+				throw new VeraPDFException("worker died"); //$NON-NLS-1$
+			}
+			return process(pdf, report);
+		};
+		List<Thread> workers = new ArrayList<>();
+		workers.add(new Thread(new ShardWorker("dying", transport, failOnce, 10L, 50L)));
+		workers.add(new Thread(new ShardWorker("w1", transport, ShardCoordinatorTest::process, 10L, 50L)));
+		workers.add(new Thread(new ShardWorker("w2", transport, ShardCoordinatorTest::process, 10L, 50L)));
+		// the dying worker takes the first shard before the others start
+		workers.get(0).start();
+		workers.get(0).join();
+		workers.get(1).start();
+		workers.get(2).start();
+		assertTrue(coordinator.awaitCompletion(TimeUnit.SECONDS.toMillis(10)));
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		List<String> report = new ArrayList<>();
+		coordinator.writeReport(new MultiThreadProcessingHandler() {
+			@Override
+			public void startReport() {
+				report.add("start");
+			}
+
+			@Override
+			public void fillReport(ResultStructure result) {
+				try {
+					report.add(new String(Files.readAllBytes(result.getReportFile().toPath()),
+							StandardCharsets.UTF_8));
+				} catch (IOException excep) {
+					throw new UncheckedIOException(excep);
+				}
+			}
+
+			@Override
+			public void endReport() {
+				report.add("end");
+			}
+		});
+		assertEquals(files.size() + 2, report.size());
+		for (int i = 0; i < files.size(); i++) {
+			assertEquals(files.get(i).getName(), report.get(i + 1));
+		}
+		BatchTotals totals = coordinator.getTotals();
+		assertEquals(files.size(), totals.getTotalJobs());
+		assertEquals(files.size() / 2, totals.getNonCompliantPdfaCount());
+		assertEquals(ExitCodes.INVALID, coordinator.getExitCode());
+		assertTrue(coordinator.getAbandoned().isEmpty());
+	}
+
+	@Test
+	public final void testHeartbeatKeepsLeaseOnSlowFile() throws InterruptedException {
+		List<File> files = files(2);
+		ShardCoordinator coordinator = new ShardCoordinator(Shard.partition(files, 2), 200L);
+		AtomicInteger calls = new AtomicInteger();
+		ShardProcessor slow = (pdf, report) -> {
+			calls.incrementAndGet();
+			try {
+				// several lease times on a single file
+				TimeUnit.MILLISECONDS.sleep(700L);
+			} catch (InterruptedException excep) {
+				Thread.currentThread().interrupt();
+			}
+			return process(pdf, report);
+		};
+		Thread worker = new Thread(new ShardWorker("slow", new LoopbackTransport(coordinator), slow, 10L, 50L));
+		worker.start();
+		assertTrue(coordinator.awaitCompletion(TimeUnit.SECONDS.toMillis(10)));
+		worker.join();
+		assertEquals(files.size(), calls.get());
+		assertTrue(coordinator.getAbandoned().isEmpty());
+		assertEquals(files.size(), coordinator.getTotals().getTotalJobs());
+	}
+
+	private static BatchTotals process(final File pdf, final OutputStream report) {
+		try {
+			report.write(pdf.getName().getBytes(StandardCharsets.UTF_8));
+		} catch (IOException excep) {
+			throw new UncheckedIOException(excep);
+		}
+		BatchTotals totals = new BatchTotals();
+		totals.addJob();
+		// every other file is non-compliant
+		totals.addValidation(false, pdf.getName().charAt(1) % 2 == 0);
+		return totals;
+	}
+
+	private static ShardResult result(final String content) throws IOException {
+		File report = File.createTempFile("shard", ".report");
+		Files.write(report.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		BatchTotals totals = new BatchTotals();
+		totals.addJob();
+		return new ShardResult(Collections.singletonList(report), totals);
+	}
+
+	private static List<File> files(final int count) {
+		List<File> files = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			files.add(new File("f" + i + ".pdf"));
+		}
+		return files;
+	}
+}
@@ -25,6 +25,11 @@ package org.verapdf.cli.commands;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 
 import org.junit.Test;
 import org.verapdf.apps.Applications;
@@ -32,6 +37,7 @@ import org.verapdf.apps.VeraAppConfig;
 import org.verapdf.processor.TaskType;
 
 import com.beust.jcommander.JCommander;
+import com.beust.jcommander.ParameterException;
 
 /**
  * @author <a href="mailto:carl@openpreservation.org">Carl Wilson</a>
@@ -378,6 +384,53 @@ public class VeraCliArgParserTest {
         assertFalse(config.getProcessType().getTasks().contains(TaskType.VALIDATE));
     }
 
+    @Test
+    public final void testProcessesConverter() {
+        VeraCliArgParser.ProcessesConverter converter = new VeraCliArgParser.ProcessesConverter();
+        assertTrue(converter.convert("4").intValue() == 4);
+        assertTrue(converter.convert("auto").intValue() == VeraCliArgParser.AUTO_PROCESSES);
+        assertTrue(converter.convert("AUTO").intValue() == VeraCliArgParser.AUTO_PROCESSES);
+        for (String illegal : new String[] { "0", "-2", "many" }) {
+            try {
+                converter.convert(illegal);
+                fail("Expected ParameterException for " + illegal);
+            } catch (ParameterException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public final void testAutoProcessesIsMultiProcess() {
+        VeraCliArgParser parser = new VeraCliArgParser();
+        JCommander jCommander = initialiseJCommander(parser);
+        jCommander.parse(new String[] { "--processes", "1" });
+        assertFalse(parser.isMultiProcess());
+        jCommander.parse(new String[] { "--processes", "auto" });
+        assertTrue(parser.isMultiProcess());
+    }
+
+    @Test
+    public final void testReportFolderOptions() throws IOException {
+        File policy = File.createTempFile("policy", ".sch");
+        policy.deleteOnExit();
+        String[][] valid = { {}, { "--reportfolder", "out" }, { "--reportfolder", "out", "--processes", "1" },
+                { "--compress", "gzip" } };
+        for (String[] args : valid) {
+            VeraCliArgParser parser = new VeraCliArgParser();
+            initialiseJCommander(parser).parse(args);
+            assertTrue(Arrays.toString(args), parser.isValidReportFolder());
+        }
+        String[][] invalid = { { "--reportfolder", "out", "--processes", "2" },
+                { "--reportfolder", "out", "--compress", "gzip" },
+                { "--reportfolder", "out", "--policyfile", policy.getAbsolutePath() } };
+        for (String[] args : invalid) {
+            VeraCliArgParser parser = new VeraCliArgParser();
+            initialiseJCommander(parser).parse(args);
+            assertFalse(Arrays.toString(args), parser.isValidReportFolder());
+        }
+    }
+
     static final JCommander initialiseJCommander(final VeraCliArgParser parser) {
         JCommander jCommander = new JCommander(parser);
         jCommander.setProgramName(APP_NAME);
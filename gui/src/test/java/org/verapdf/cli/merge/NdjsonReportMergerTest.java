@@ -0,0 +1,110 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.merge;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.apps.utils.NdjsonReportStream;
+import org.verapdf.cli.CliConstants.ExitCodes;
+
+@SuppressWarnings("static-method")
+public class NdjsonReportMergerTest {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testRecomputesSummary() throws Exception {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		BatchTotals totals;
+		try (NdjsonReportMerger merger = new NdjsonReportMerger(os)) {
+			merger.add(new ByteArrayInputStream(ndjson(ReportMergerTest.FIRST)));
+			merger.add(new ByteArrayInputStream(ndjson(ReportMergerTest.SECOND)));
+			totals = merger.getTotals();
+		}
+		assertEquals(5, totals.getTotalJobs());
+		assertEquals(1, totals.getCompliantPdfaCount());
+		assertEquals(1, totals.getNonCompliantPdfaCount());
+		assertEquals(1, totals.getFailedValidationJobs());
+		assertEquals(1, totals.getFailedEncryptedJobs());
+		assertEquals(1, totals.getFailedParsingJobs());
+		assertEquals(1, totals.getOutOfMemory());
+		assertEquals(1, totals.getFeaturesJobs());
+		assertEquals(1, totals.getFailedRepairJobs());
+		assertEquals(1, totals.getPolicyNonCompliantJobs());
+
+		String[] lines = new String(os.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertEquals(7, lines.length);
+		assertTrue(lines[0].startsWith("{\"buildInformation\""));
+		assertTrue(lines[0].contains("1.15.0"));
+		Map<String, Object> summary = NdjsonReportMerger.JsonLine.parse(lines[6]);
+		assertEquals("{batchSummary={totalJobs=5, failedToParse=1, encrypted=1, outOfMemory=1, veraExceptions=0, "
+				+ "validationReports={compliant=1, nonCompliant=1, failedJobs=1, value=3}, "
+				+ "featureReports={failedJobs=0, value=1}, repairReports={failedJobs=1, value=1}, "
+				+ "policyReports={nonCompliant=1, value=2}, "
+				+ "duration={start=500, finish=62500, value=00:01:02.000}}}", summary.toString());
+	}
+
+	@Test
+	public final void testMergeFiles() throws IOException {
+		File first = this.tempFolder.newFile("first.json");
+		Files.write(first.toPath(), ndjson(ReportMergerTest.FIRST));
+		byte[] second = ndjson(ReportMergerTest.SECOND);
+		File truncated = this.tempFolder.newFile("truncated.json");
+		String text = new String(second, StandardCharsets.UTF_8);
+		Files.write(truncated.toPath(), text.substring(0, text.indexOf("d.pdf")).getBytes(StandardCharsets.UTF_8));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		assertEquals(ExitCodes.INVALID, ReportMerger.merge(Arrays.asList(first), os));
+		os.reset();
+		assertEquals(ExitCodes.IO_EXCEPTION, ReportMerger.merge(Arrays.asList(first, truncated), os));
+		String merged = new String(os.toByteArray(), StandardCharsets.UTF_8);
+		// the job that broke off isn't copied
+		assertEquals(3, merged.split("\\{\"job\":", -1).length - 1);
+		assertTrue(merged.contains("\"totalJobs\":3,"));
+	}
+
+	@Test
+	public final void testXmlReportIsRejected() throws IOException {
+		try (NdjsonReportMerger merger = new NdjsonReportMerger(new ByteArrayOutputStream())) {
+			merger.add(new ByteArrayInputStream(ReportMergerTest.FIRST.getBytes(StandardCharsets.UTF_8)));
+			fail("Expected an XML report to be rejected");
+		} catch (IOException excep) {
+			// expected
+		}
+	}
+
+	private static byte[] ndjson(final String report) throws IOException {
+		ByteArrayOutputStream json = new ByteArrayOutputStream();
+		try (OutputStream os = new NdjsonReportStream(json)) {
+			os.write(report.getBytes(StandardCharsets.UTF_8));
+		}
+		return json.toByteArray();
+	}
+}
@@ -0,0 +1,137 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.merge;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+@SuppressWarnings("static-method")
+public class ReportMergerTest {
+	static final String FIRST = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<report>"
+			+ "<buildInformation><releaseDetails id=\"core\" version=\"1.15.0\"/></buildInformation><jobs>"
+			+ "<job><item size=\"10\"><name>a.pdf</name></item>"
+			+ "<validationReport profileName=\"PDF/A-1B\" isCompliant=\"true\"><details failedChecks=\"0\"/></validationReport>"
+			+ "<policyReport passedChecks=\"2\" failedChecks=\"0\"/></job>"
+			+ "<job><item size=\"20\"><name>b.pdf</name></item>"
+			+ "<validationReport profileName=\"PDF/A-1B\" isCompliant=\"false\"/>"
+			+ "<featuresReport><informationDict/></featuresReport>"
+			+ "<metadataRepairReport status=\"FIX_ERROR\"/>"
+			+ "<policyReport passedChecks=\"1\" failedChecks=\"1\"/></job>"
+			+ "</jobs><batchSummary totalJobs=\"2\"><duration start=\"1000\" finish=\"3000\">00:00:02.000</duration>"
+			+ "</batchSummary></report>";
+	static final String SECOND = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<report>"
+			+ "<buildInformation><releaseDetails id=\"core\" version=\"1.15.1\"/></buildInformation><jobs>"
+			+ "<job><item size=\"30\"><name>c.pdf</name></item>"
+			+ "<taskException type=\"PARSE\" isExecuted=\"true\" isSuccess=\"false\"><exceptionMessage>The PDF is encrypted</exceptionMessage></taskException></job>"
+			+ "<job><item size=\"40\"><name>d.pdf</name></item>"
+			+ "<taskException type=\"VALIDATE\" isExecuted=\"true\" isSuccess=\"false\"><exceptionMessage>"
+			+ "veraPDF process terminated while processing the file: " + ExitCodes.OOM.message
+			+ "</exceptionMessage></taskException></job>"
+			+ "<job><item size=\"50\"><name>e.pdf</name></item>"
+			+ "<taskException type=\"PARSE\" isExecuted=\"true\" isSuccess=\"false\"><exceptionMessage>Couldn't parse stream</exceptionMessage></taskException></job>"
+			+ "</jobs><batchSummary totalJobs=\"3\"><duration start=\"500\" finish=\"62500\">00:01:02.000</duration>"
+			+ "</batchSummary></report>";
+
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testRecomputesSummary() throws Exception {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		BatchTotals totals;
+		try (ReportMerger merger = new ReportMerger(os)) {
+			merger.add(stream(FIRST));
+			merger.add(stream(SECOND));
+			totals = merger.getTotals();
+		}
+		assertEquals(5, totals.getTotalJobs());
+		assertEquals(1, totals.getCompliantPdfaCount());
+		assertEquals(1, totals.getNonCompliantPdfaCount());
+		assertEquals(1, totals.getFailedValidationJobs());
+		assertEquals(1, totals.getFailedEncryptedJobs());
+		assertEquals(1, totals.getFailedParsingJobs());
+		assertEquals(1, totals.getOutOfMemory());
+		assertEquals(0, totals.getVeraExceptions());
+		assertEquals(1, totals.getFeaturesJobs());
+		assertEquals(1, totals.getFailedRepairJobs());
+		assertEquals(2, totals.getPolicyJobs());
+		assertEquals(1, totals.getPolicyNonCompliantJobs());
+
+		Document merged = parse(os.toByteArray());
+		assertEquals(5, merged.getElementsByTagName("job").getLength());
+		assertEquals(1, merged.getElementsByTagName("buildInformation").getLength());
+		assertEquals("1.15.0",
+				((Element) merged.getElementsByTagName("releaseDetails").item(0)).getAttribute("version"));
+		Element summary = (Element) merged.getElementsByTagName("batchSummary").item(0);
+		assertEquals("5", summary.getAttribute("totalJobs"));
+		assertEquals("1", summary.getAttribute("failedToParse"));
+		assertEquals("1", summary.getAttribute("encrypted"));
+		assertEquals("1", summary.getAttribute("outOfMemory"));
+		Element validation = (Element) summary.getElementsByTagName("validationReports").item(0);
+		assertEquals("1", validation.getAttribute("compliant"));
+		assertEquals("3", validation.getTextContent());
+		Element duration = (Element) summary.getElementsByTagName("duration").item(0);
+		assertEquals("500", duration.getAttribute("start"));
+		assertEquals("62500", duration.getAttribute("finish"));
+		assertEquals("00:01:02.000", duration.getTextContent());
+	}
+
+	@Test
+	public final void testMergeFiles() throws IOException {
+		File first = this.tempFolder.newFile("first.xml");
+		Files.write(first.toPath(), FIRST.getBytes(StandardCharsets.UTF_8));
+		File truncated = this.tempFolder.newFile("truncated.xml");
+		Files.write(truncated.toPath(), SECOND.substring(0, SECOND.indexOf("<name>d.pdf")).getBytes(StandardCharsets.UTF_8));
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		assertEquals(ExitCodes.INVALID, ReportMerger.merge(Arrays.asList(first), os));
+		os.reset();
+		assertEquals(ExitCodes.IO_EXCEPTION, ReportMerger.merge(Arrays.asList(first, truncated), os));
+		String merged = new String(os.toByteArray(), StandardCharsets.UTF_8);
+		// the job that broke off isn't copied
+		assertEquals(3, merged.split("<job>", -1).length - 1);
+		assertEquals(3, merged.split("</job>", -1).length - 1);
+		assertEquals(true, merged.contains("totalJobs=\"3\""));
+	}
+
+	@Test
+	public final void testFormatDuration() {
+		assertEquals("01:02:03.004", ReportMerger.formatDuration(3723004L));
+	}
+
+	private static ByteArrayInputStream stream(final String report) {
+		return new ByteArrayInputStream(report.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Document parse(final byte[] report) throws Exception {
+		return DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(report));
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.verapdf.cli.CliConstants;
+import org.verapdf.cli.CliConstants.ExitCodes;
+
+@SuppressWarnings("static-method")
+public class ProcessingMetricsTest {
+
+	@Test
+	public final void testJobCounters() {
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		metrics.jobStarted();
+		metrics.jobStarted();
+		assertEquals(2, metrics.getInFlight());
+		metrics.jobFinished(ExitCodes.VALID);
+		metrics.jobFinished(ExitCodes.INVALID);
+		assertEquals(0, metrics.getInFlight());
+		assertEquals(2, metrics.getJobsProcessed());
+		assertEquals(0, metrics.getFailures(ExitCodes.VALID));
+		assertEquals(1, metrics.getFailures(ExitCodes.INVALID));
+	}
+
+	@Test
+	public final void testPrometheusText() {
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		metrics.jobStarted();
+		metrics.jobFinished(ExitCodes.FAILED_PARSING);
+		metrics.recordStage(CliConstants.STAGE_PROCESS, TimeUnit.MILLISECONDS.toNanos(300));
+		metrics.setConcurrency(4);
+		String text = metrics.toPrometheusText();
+		assertTrue(text.contains("# TYPE verapdf_jobs_processed_total counter\n"));
+		assertTrue(text.contains("verapdf_jobs_processed_total 1\n"));
+		assertTrue(text.contains("verapdf_job_failures_total{exit_code=\"FAILED_PARSING\"} 1\n"));
+		assertTrue(text.contains("verapdf_stage_duration_seconds_bucket{stage=\"process\",le=\"0.25\"} 0\n"));
+		assertTrue(text.contains("verapdf_stage_duration_seconds_bucket{stage=\"process\",le=\"0.5\"} 1\n"));
+		assertTrue(text.contains("verapdf_stage_duration_seconds_bucket{stage=\"process\",le=\"+Inf\"} 1\n"));
+		assertTrue(text.contains("verapdf_stage_duration_seconds_count{stage=\"process\"} 1\n"));
+		assertTrue(text.contains("verapdf_concurrency 4\n"));
+		assertTrue(text.contains("verapdf_heap_used_bytes "));
+	}
+}
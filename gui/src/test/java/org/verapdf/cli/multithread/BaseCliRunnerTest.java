@@ -0,0 +1,101 @@
+package org.verapdf.cli.multithread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.cli.metrics.ProcessingMetrics;
+import org.verapdf.processor.FormatOption;
+import org.verapdf.processor.reports.ResultStructure;
+import org.verapdf.processor.reports.multithread.MultiThreadProcessingHandler;
+
+public class BaseCliRunnerTest {
+	@Rule
+	public TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testFileIsReportedWhenChildCantStart() throws IOException, InterruptedException {
+		File pdf = this.tempFolder.newFile("a.pdf");
+		BatchQueue queue = new BatchQueue(0);
+		queue.add(new BatchItem(pdf, 0));
+		RecordingHandler handler = new RecordingHandler();
+		ResultMerger merger = new ResultMerger(handler, 1, 0);
+		merger.start();
+		MultiThreadProcessor processor = new MultiThreadProcessor(queue, merger, FormatOption.XML,
+				new ProcessingMetrics());
+		File missing = new File(this.tempFolder.getRoot(), "no-such-verapdf");
+		BaseCliRunner runner = new BaseCliRunner(processor, missing.getAbsolutePath(),
+				Collections.<String>emptyList(), queue, true, 0, 0);
+
+		assertFalse(runner.start());
+		merger.close();
+		assertEquals(0, queue.size());
+		assertEquals(1, handler.filled.size());
+		String report = new String(Files.readAllBytes(handler.filled.get(0).getReportFile().toPath()),
+				StandardCharsets.UTF_8);
+		assertTrue(report.contains(pdf.getAbsolutePath()));
+		assertTrue(report.contains("taskException"));
+	}
+
+	@Test
+	public final void testEveryFileIsCounted() throws IOException, InterruptedException {
+		BatchItem invalid = new BatchItem(this.tempFolder.newFile("a.pdf"), 0);
+		BatchItem slow = new BatchItem(this.tempFolder.newFile("b.pdf"), 1);
+		BatchItem unstarted = new BatchItem(this.tempFolder.newFile("c.pdf"), 2);
+		File report = this.tempFolder.newFile("a.xml");
+		Files.write(report.toPath(), "<report/>".getBytes(StandardCharsets.UTF_8));
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		ResultMerger merger = new ResultMerger(new RecordingHandler(), 3, 0);
+		merger.start();
+		MultiThreadProcessor processor = new MultiThreadProcessor(new BatchQueue(0), merger, FormatOption.XML,
+				metrics);
+
+		processor.started(invalid);
+		processor.started(slow);
+		assertEquals(2, metrics.getInFlight());
+		processor.write(invalid, new ResultStructure(report), ExitCodes.INVALID);
+		processor.timedOut(slow);
+		processor.notStarted(unstarted);
+		merger.close();
+
+		assertEquals(3, metrics.getJobsProcessed());
+		assertEquals(0, metrics.getInFlight());
+		assertEquals(1, metrics.getFailures(ExitCodes.INVALID));
+		assertEquals(1, metrics.getFailures(ExitCodes.TIMEOUT));
+		assertEquals(1, metrics.getFailures(ExitCodes.FAILED_MULTIPROCESS_START));
+	}
+
+	private static final class RecordingHandler implements MultiThreadProcessingHandler {
+		final List<ResultStructure> filled = new ArrayList<>();
+
+		RecordingHandler() {
+		}
+
+		@Override
+		public void startReport() {
+			// nothing to start
+		}
+
+		@Override
+		public void fillReport(ResultStructure result) {
+			this.filled.add(result);
+		}
+
+		@Override
+		public void endReport() {
+			// nothing to end
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package org.verapdf.cli.multithread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class BatchQueueTest {
+
+	@Test
+	public final void testLargeFilesOnlyGoToLane() throws IOException {
+		File small = file(10);
+		File large = file(100);
+		try {
+			BatchQueue queue = new BatchQueue(50);
+			queue.laneStarted();
+			queue.add(new BatchItem(large, 0));
+			queue.add(new BatchItem(small, 1));
+			assertEquals(2, queue.size());
+			assertEquals(1, queue.largeFileCount());
+			assertEquals(1, queue.poll(false).getIndex());
+			assertNull(queue.poll(false));
+			assertEquals(0, queue.poll(true).getIndex());
+			assertNull(queue.poll(true));
+		} finally {
+			small.delete();
+			large.delete();
+		}
+	}
+
+	@Test
+	public final void testLaneTakesOrdinaryFilesWhenNoLargeFileWaits() throws IOException {
+		File small = file(10);
+		try {
+			BatchQueue queue = new BatchQueue(0);
+			queue.add(new BatchItem(small, 0));
+			assertEquals(0, queue.largeFileCount());
+			assertEquals(0, queue.poll(true).getIndex());
+		} finally {
+			small.delete();
+		}
+	}
+
+	@Test
+	public final void testLargeFilesAreTakenWithoutLane() throws IOException {
+		File small = file(10);
+		File large = file(100);
+		try {
+			BatchQueue queue = new BatchQueue(50);
+			queue.add(new BatchItem(large, 0));
+			queue.add(new BatchItem(small, 1));
+			queue.add(new BatchItem(large, 2));
+			queue.laneStarted();
+			assertEquals(0, queue.poll(true).getIndex());
+			// the lane ended with a large file still waiting
+			queue.laneEnded();
+			assertEquals(1, queue.poll(false).getIndex());
+			assertEquals(2, queue.poll(false).getIndex());
+			assertNull(queue.poll(false));
+		} finally {
+			small.delete();
+			large.delete();
+		}
+	}
+
+	private static File file(int size) throws IOException {
+		File file = File.createTempFile("batch", ".pdf");
+		Files.write(file.toPath(), new byte[size]);
+		return file;
+	}
+}
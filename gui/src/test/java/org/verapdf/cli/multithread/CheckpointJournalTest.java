@@ -0,0 +1,147 @@
+package org.verapdf.cli.multithread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.verapdf.apps.utils.BatchTotals;
+import org.verapdf.cli.CliConstants.ExitCodes;
+import org.verapdf.processor.FormatOption;
+
+@SuppressWarnings("static-method")
+public class CheckpointJournalTest {
+
+	@Test
+	public final void testResumeRestoresCompletedReports() throws IOException {
+		File dir = Files.createTempDirectory("checkpoint").toFile();
+		try {
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.MRR, false)) {
+				journal.record(item("a.pdf", 0), ExitCodes.VALID, report("<a/>"));
+				// journaled before the child that found b.pdf invalid exited
+				journal.record(item("b.pdf", 1), ExitCodes.VALID, report(job("b.pdf", false)));
+			}
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.MRR, true)) {
+				Map<String, CheckpointJournal.Entry> completed = journal.getCompleted();
+				List<String> paths = new ArrayList<>(completed.keySet());
+				assertEquals(2, paths.size());
+				assertTrue(paths.get(0).endsWith("a.pdf"));
+				assertEquals(ExitCodes.INVALID, ExitCodes.fromTotals(journal.countCompleted()));
+				assertEquals(job("b.pdf", false), read(journal.restore(completed.get(paths.get(1)))));
+				journal.record(item("c.pdf", 2), ExitCodes.INVALID, report("<c/>"));
+			}
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.MRR, true)) {
+				assertEquals(3, journal.getCompleted().size());
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public final void testTornTailIsDiscarded() throws IOException {
+		File dir = Files.createTempDirectory("checkpoint").toFile();
+		try {
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.XML, false)) {
+				journal.record(item("a.pdf", 0), ExitCodes.VALID, report("<a/>"));
+			}
+			long spoolLength = new File(dir, CheckpointJournal.SPOOL_NAME).length();
+			append(new File(dir, CheckpointJournal.SPOOL_NAME), "<partial");
+			append(new File(dir, CheckpointJournal.JOURNAL_NAME), "1\t0\t4\t8\t/b.p");
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.XML, true)) {
+				assertEquals(1, journal.getCompleted().size());
+				journal.record(item("b.pdf", 1), ExitCodes.VALID, report("<b/>"));
+			}
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.XML, true)) {
+				List<CheckpointJournal.Entry> entries = new ArrayList<>(journal.getCompleted().values());
+				assertEquals(2, entries.size());
+				assertEquals(spoolLength, entries.get(1).offset);
+				assertEquals("<b/>", read(journal.restore(entries.get(1))));
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public final void testOtherFormatIsRejected() throws IOException {
+		File dir = Files.createTempDirectory("checkpoint").toFile();
+		try {
+			CheckpointJournal.open(dir, FormatOption.MRR, false).close();
+			try {
+				CheckpointJournal.open(dir, FormatOption.TEXT, true);
+				fail("Expected journal for another format to be rejected");
+			} catch (IOException e) {
+				// expected
+			}
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.TEXT, false)) {
+				assertEquals(0, journal.getCompleted().size());
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	@Test
+	public final void testTextReportsAreCounted() throws IOException {
+		File dir = Files.createTempDirectory("checkpoint").toFile();
+		try {
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.TEXT, false)) {
+				journal.record(item("a.pdf", 0), ExitCodes.VALID, report("PASS /a.pdf\n"));
+				journal.record(item("b.pdf", 1), ExitCodes.VALID, report("ERROR /b.pdf crashed\n"));
+			}
+			try (CheckpointJournal journal = CheckpointJournal.open(dir, FormatOption.TEXT, true)) {
+				BatchTotals totals = journal.countCompleted();
+				assertEquals(2, totals.getTotalJobs());
+				assertEquals(ExitCodes.VERAPDF_EXCEPTION, ExitCodes.fromTotals(totals));
+			}
+		} finally {
+			delete(dir);
+		}
+	}
+
+	private static String job(String name, boolean isCompliant) {
+		return "<report><jobs><job><item size=\"1\"><name>" + name + "</name></item><validationReport isCompliant=\""
+				+ isCompliant + "\"/></job></jobs></report>";
+	}
+
+	private static BatchItem item(String name, long index) {
+		return new BatchItem(new File(name), index);
+	}
+
+	private static File report(String content) throws IOException {
+		File report = File.createTempFile("report", ".xml");
+		report.deleteOnExit();
+		Files.write(report.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return report;
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+
+	private static void append(File file, String content) throws IOException {
+		try (FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private static void delete(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+}
@@ -0,0 +1,74 @@
+package org.verapdf.cli.multithread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.verapdf.cli.metrics.ProcessingMetrics;
+
+@SuppressWarnings("static-method")
+public class ConcurrencyControllerTest {
+	private static final HostLoad.Sample IDLE = new HostLoad.Sample(0.5, 0.5, 0.5, 0.0);
+	private static final HostLoad.Sample BUSY = new HostLoad.Sample(0.95, 1.0, 0.5, 0.0);
+
+	@Test
+	public final void testGrowsWhileThroughputRises() {
+		ConcurrencyController controller = ConcurrencyController.adaptive(4, 8, new ProcessingMetrics());
+		assertEquals(5, controller.adjust(10.0, IDLE));
+		assertEquals(6, controller.adjust(12.0, IDLE));
+		assertEquals(7, controller.adjust(14.0, IDLE));
+	}
+
+	@Test
+	public final void testBacksOffWhenIncreaseDoesNotPay() {
+		ConcurrencyController controller = ConcurrencyController.adaptive(4, 8, new ProcessingMetrics());
+		assertEquals(5, controller.adjust(10.0, IDLE));
+		assertEquals(4, controller.adjust(10.0, IDLE));
+		for (int i = 0; i < ConcurrencyController.PLATEAU_SAMPLES; i++) {
+			assertEquals(4, controller.adjust(10.0, IDLE));
+		}
+		assertEquals(5, controller.adjust(10.0, IDLE));
+	}
+
+	@Test
+	public final void testCutsLevelWhenOversubscribed() {
+		ConcurrencyController controller = ConcurrencyController.adaptive(8, 16, new ProcessingMetrics());
+		assertEquals(6, controller.adjust(10.0, new HostLoad.Sample(1.0, 2.0, 0.5, 0.0)));
+		assertEquals(4, controller.adjust(10.0, new HostLoad.Sample(0.5, 0.5, 0.05, 0.0)));
+		assertEquals(3, controller.adjust(10.0, new HostLoad.Sample(0.5, 0.5, 0.5, 0.5)));
+	}
+
+	@Test
+	public final void testHoldsWhenSaturatedOrAtMaximum() {
+		ConcurrencyController controller = ConcurrencyController.adaptive(4, 5, new ProcessingMetrics());
+		assertEquals(4, controller.adjust(10.0, BUSY));
+		assertEquals(5, controller.adjust(10.0, IDLE));
+		assertEquals(5, controller.adjust(12.0, IDLE));
+	}
+
+	@Test
+	public final void testNeverDropsBelowOne() {
+		ConcurrencyController controller = ConcurrencyController.adaptive(1, 4, new ProcessingMetrics());
+		assertEquals(1, controller.adjust(1.0, new HostLoad.Sample(1.0, 3.0, 0.01, 0.9)));
+	}
+
+	@Test
+	public final void testGcTimeComesFromChildren() throws InterruptedException {
+		HostLoad host = new HostLoad();
+		Thread.sleep(20);
+		assertTrue(host.sample(0, 2).gcFraction == 0.0);
+		Thread.sleep(20);
+		HostLoad.Sample collecting = host.sample(60_000, 2);
+		assertTrue(collecting.gcFraction > ConcurrencyController.MAX_GC_FRACTION);
+		Thread.sleep(20);
+		assertTrue(host.sample(60_000, 2).gcFraction == 0.0);
+	}
+
+	@Test
+	public final void testFixedLevelNeverChanges() {
+		ProcessingMetrics metrics = new ProcessingMetrics();
+		ConcurrencyController controller = ConcurrencyController.fixed(3, metrics);
+		assertEquals(3, controller.update(System.nanoTime() + 3_600_000_000_000L));
+		assertEquals(3, metrics.getConcurrency());
+	}
+}
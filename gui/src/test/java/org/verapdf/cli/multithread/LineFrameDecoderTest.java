@@ -0,0 +1,39 @@
+package org.verapdf.cli.multithread;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class LineFrameDecoderTest {
+
+	@Test
+	public final void testFramesSpanningReads() {
+		LineFrameDecoder decoder = new LineFrameDecoder(StandardCharsets.UTF_8);
+		List<String> frames = new ArrayList<>();
+		byte[] bytes = "/tmp/a.xml\r\n/tmp/b.xml\n/tmp/ç.xml\n/tmp/tail".getBytes(StandardCharsets.UTF_8);
+		for (int i = 0; i < bytes.length; i += 3) {
+			decoder.decode(bytes, i, Math.min(3, bytes.length - i), frames::add);
+		}
+		assertEquals(Arrays.asList("/tmp/a.xml", "/tmp/b.xml", "/tmp/ç.xml"), frames);
+		decoder.decode(new byte[] { '\n' }, 0, 1, frames::add);
+		assertEquals("/tmp/tail", frames.get(3));
+	}
+
+	@Test
+	public final void testLongFrameGrowsBuffer() {
+		LineFrameDecoder decoder = new LineFrameDecoder(StandardCharsets.UTF_8);
+		List<String> frames = new ArrayList<>();
+		char[] chars = new char[1000];
+		Arrays.fill(chars, 'x');
+		String longFrame = new String(chars);
+		byte[] bytes = (longFrame + "\n\n").getBytes(StandardCharsets.UTF_8);
+		decoder.decode(bytes, 0, bytes.length, frames::add);
+		assertEquals(Arrays.asList(longFrame, ""), frames);
+	}
+}
@@ -0,0 +1,78 @@
+package org.verapdf.cli.multithread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Test;
+
+@SuppressWarnings("static-method")
+public class ReorderBufferTest {
+
+	@Test
+	public final void testRestoresInputOrder() throws IOException {
+		ReorderBuffer<String> buffer = new ReorderBuffer<>(10);
+		List<String> out = new ArrayList<>();
+		buffer.add(2, "c", out::add);
+		buffer.add(1, "b", out::add);
+		assertEquals(0, out.size());
+		buffer.add(0, "a", out::add);
+		assertEquals(Arrays.asList("a", "b", "c"), out);
+		buffer.add(4, "e", out::add);
+		buffer.add(3, "d", out::add);
+		assertEquals(Arrays.asList("a", "b", "c", "d", "e"), out);
+		assertEquals(0, buffer.size());
+	}
+
+	@Test
+	public final void testOverflowSkipsGap() throws IOException {
+		ReorderBuffer<String> buffer = new ReorderBuffer<>(2);
+		List<String> out = new ArrayList<>();
+		buffer.add(1, "b", out::add);
+		buffer.add(2, "c", out::add);
+		buffer.add(4, "e", out::add);
+		assertEquals(Arrays.asList("b", "c"), out);
+		buffer.add(0, "a", out::add);
+		assertEquals(Arrays.asList("b", "c", "a"), out);
+		buffer.drain(out::add);
+		assertEquals(Arrays.asList("b", "c", "a", "e"), out);
+	}
+
+	@Test
+	public final void testOverflowSpillsToDisk() throws IOException {
+		try (SpillFile<String> spill = new SpillFile<>(Function.identity(), Function.identity())) {
+			ReorderBuffer<String> buffer = new ReorderBuffer<>(2, spill);
+			List<String> out = new ArrayList<>();
+			for (int i = 10; i > 0; i--) {
+				buffer.add(i, "item" + i, out::add);
+				assertTrue(buffer.size() <= 2);
+			}
+			assertEquals(0, out.size());
+			assertEquals(8, buffer.spilled());
+			buffer.add(0, "item0", out::add);
+			assertEquals(11, out.size());
+			for (int i = 0; i <= 10; i++) {
+				assertEquals("item" + i, out.get(i));
+			}
+			assertEquals(0, buffer.spilled());
+		}
+	}
+
+	@Test
+	public final void testDrainMergesSpilled() throws IOException {
+		try (SpillFile<String> spill = new SpillFile<>(Function.identity(), Function.identity())) {
+			ReorderBuffer<String> buffer = new ReorderBuffer<>(1, spill);
+			List<String> out = new ArrayList<>();
+			buffer.add(3, "d", out::add);
+			buffer.add(1, "b", out::add);
+			buffer.add(5, "f", out::add);
+			buffer.drain(out::add);
+			assertEquals(Arrays.asList("b", "d", "f"), out);
+		}
+	}
+}
@@ -0,0 +1,127 @@
+package org.verapdf.cli.multithread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.verapdf.processor.reports.ResultStructure;
+import org.verapdf.processor.reports.multithread.MultiThreadProcessingHandler;
+
+@SuppressWarnings("static-method")
+public class ResultMergerTest {
+	private static final int RESULTS = 200;
+	private static final int PRODUCERS = 4;
+	private static final int REORDER_WINDOW = 8;
+
+	@Test
+	public final void testOrderedMerge() throws InterruptedException {
+		List<ResultStructure> results = new ArrayList<>();
+		for (int i = 0; i < RESULTS; i++) {
+			results.add(new ResultStructure(new File("report" + i + ".xml")));
+		}
+		RecordingHandler handler = new RecordingHandler();
+		ResultMerger merger = new ResultMerger(handler, RESULTS, REORDER_WINDOW);
+		merger.start();
+		submitConcurrently(merger, results);
+		merger.close();
+		assertEquals(1, handler.started);
+		assertEquals(1, handler.ended);
+		assertEquals(RESULTS, handler.filled.size());
+		for (int i = 0; i < RESULTS; i++) {
+			assertEquals(results.get(i).getReportFile().getAbsoluteFile(), handler.filled.get(i).getReportFile().getAbsoluteFile());
+		}
+	}
+
+	@Test
+	public final void testMissingResultsStillEndReport() throws InterruptedException {
+		RecordingHandler handler = new RecordingHandler();
+		ResultMerger merger = new ResultMerger(handler, 3, 0);
+		merger.start();
+		merger.submit(1, new ResultStructure(new File("report1.xml")));
+		merger.close();
+		assertEquals(1, handler.filled.size());
+		assertEquals(1, handler.ended);
+	}
+
+	@Test
+	public final void testTaskRunsOnWriterThread() throws InterruptedException {
+		RecordingHandler handler = new RecordingHandler();
+		ResultMerger merger = new ResultMerger(handler, 2, REORDER_WINDOW);
+		List<String> threads = Collections.synchronizedList(new ArrayList<>());
+		merger.start();
+		merger.submit(1, new ResultStructure(new File("report1.xml")),
+				() -> threads.add(Thread.currentThread().getName()));
+		merger.submit(0, new ResultStructure(new File("report0.xml")), () -> {
+			throw new IllegalStateException("task failure doesn't lose the result");
+		});
+		merger.close();
+		assertEquals(Collections.singletonList("veraPDF-merger"), threads);
+		assertEquals(2, handler.filled.size());
+	}
+
+	@Test
+	public final void testSkippedResultReleasesOrder() throws InterruptedException {
+		RecordingHandler handler = new RecordingHandler();
+		ResultMerger merger = new ResultMerger(handler, 3, REORDER_WINDOW);
+		merger.start();
+		merger.submit(2, new ResultStructure(new File("report2.xml")));
+		merger.submit(1, new ResultStructure(new File("report1.xml")));
+		merger.skip(0);
+		merger.close();
+		assertEquals(2, handler.filled.size());
+		assertEquals(new File("report1.xml"), handler.filled.get(0).getReportFile());
+		assertEquals(1, handler.ended);
+	}
+
+	private static void submitConcurrently(ResultMerger merger, List<ResultStructure> results)
+			throws InterruptedException {
+		List<Integer> indexes = new ArrayList<>();
+		for (int i = 0; i < results.size(); i++) {
+			indexes.add(Integer.valueOf(i));
+		}
+		Collections.shuffle(indexes);
+		CountDownLatch done = new CountDownLatch(PRODUCERS);
+		for (int producer = 0; producer < PRODUCERS; producer++) {
+			final int offset = producer;
+			new Thread(() -> {
+				for (int i = offset; i < indexes.size(); i += PRODUCERS) {
+					int index = indexes.get(i).intValue();
+					merger.submit(index, results.get(index));
+				}
+				done.countDown();
+			}).start();
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+	}
+
+	private static final class RecordingHandler implements MultiThreadProcessingHandler {
+		int started = 0;
+		int ended = 0;
+		final List<ResultStructure> filled = new ArrayList<>();
+
+		RecordingHandler() {
+		}
+
+		@Override
+		public void startReport() {
+			this.started++;
+		}
+
+		@Override
+		public void fillReport(ResultStructure result) {
+			this.filled.add(result);
+		}
+
+		@Override
+		public void endReport() {
+			this.ended++;
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.cli.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.verapdf.cli.CliConstants.ExitCodes;
+
+@SuppressWarnings("static-method")
+public class JobStoreTest {
+
+	@Test
+	public final void testEvictExpired() throws IOException {
+		File dir = Files.createTempDirectory("jobstore").toFile(); //$NON-NLS-1$
+		try (JobStore store = new JobStore(dir, 1000L)) {
+			Job finished = store.create("done.pdf", JobPriority.NORMAL); //$NON-NLS-1$
+			Job queued = store.create("queued.pdf", JobPriority.NORMAL); //$NON-NLS-1$
+			assertTrue(finished.getReportFile().createNewFile());
+			finished.completed(ExitCodes.VALID, 5000L);
+			assertEquals(0, store.evictExpired(5500L));
+			assertNotNull(store.get(finished.getId()));
+			assertEquals(1, store.evictExpired(6001L));
+			assertNull(store.get(finished.getId()));
+			assertFalse(finished.getReportFile().exists());
+			assertNotNull(store.get(queued.getId()));
+			assertEquals(1, store.size());
+		} finally {
+			dir.delete();
+		}
+	}
+
+	@Test
+	public final void testJobOrder() throws IOException {
+		File dir = Files.createTempDirectory("jobstore").toFile(); //$NON-NLS-1$
+		try (JobStore store = new JobStore(dir, 1000L)) {
+			Job lowFirst = store.create("low1.pdf", JobPriority.LOW); //$NON-NLS-1$
+			Job normal = store.create("normal.pdf", JobPriority.NORMAL); //$NON-NLS-1$
+			Job lowSecond = store.create("low2.pdf", JobPriority.LOW); //$NON-NLS-1$
+			Job high = store.create("high.pdf", JobPriority.HIGH); //$NON-NLS-1$
+			List<Job> jobs = new ArrayList<>();
+			Collections.addAll(jobs, lowSecond, high, lowFirst, normal);
+			Collections.sort(jobs);
+			assertEquals(high, jobs.get(0));
+			assertEquals(normal, jobs.get(1));
+			assertEquals(lowFirst, jobs.get(2));
+			assertEquals(lowSecond, jobs.get(3));
+		} finally {
+			dir.delete();
+		}
+	}
+
+	@Test
+	public final void testPriorityFromSize() {
+		assertEquals(JobPriority.NORMAL, JobPriority.fromSize(1024L));
+		assertEquals(JobPriority.LOW, JobPriority.fromSize(JobPriority.SMALL_JOB_BYTES + 1));
+		assertEquals(JobPriority.LOW, JobPriority.fromSize(-1L));
+		assertEquals(JobPriority.HIGH, JobPriority.fromValue("high")); //$NON-NLS-1$
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.verapdf.pdfa.flavours.PDFAFlavour;
+import org.verapdf.pdfa.results.ValidationResult;
+import org.verapdf.processor.BatchProcessingHandler;
+import org.verapdf.processor.ProcessorConfig;
+import org.verapdf.processor.ProcessorResult;
+import org.verapdf.processor.reports.BatchSummary;
+import org.verapdf.processor.reports.ItemDetails;
+
+@SuppressWarnings("static-method")
+public class ProgressHandlerTest {
+
+	@Test
+	public final void testCountsAndFinalSnapshot() throws Exception {
+		List<ValidationProgress> published = new ArrayList<>();
+		long[] now = { 0 };
+		CountingHandler delegate = new CountingHandler();
+		try (ProgressHandler handler = new ProgressHandler(delegate,
+				new ProgressTracker(3, published::add, () -> now[0], 250))) {
+			handler.handleBatchStart(null);
+			handler.handleItemStart(ItemDetails.fromValues("/tmp/a.pdf")); //$NON-NLS-1$
+			handler.handleResult(result(true, false, Boolean.TRUE));
+			handler.handleItemStart(ItemDetails.fromValues("/tmp/b.pdf")); //$NON-NLS-1$
+			handler.handleResult(result(true, false, Boolean.FALSE));
+			handler.handleItemStart(ItemDetails.fromValues("/tmp/c.pdf")); //$NON-NLS-1$
+			handler.handleResult(result(false, false, null));
+			now[0] = TimeUnit.SECONDS.toNanos(2);
+			handler.handleBatchEnd(null);
+		}
+		assertEquals(8, delegate.calls);
+		// the start and end are always published, everything else happened
+		// within the interval
+		assertEquals(2, published.size());
+		ValidationProgress last = published.get(1);
+		assertEquals(3, last.getTotal());
+		assertEquals(3, last.getCompleted());
+		assertEquals(2, last.getFailed());
+		assertNull(last.getCurrentFile());
+		assertEquals(2000, last.getElapsedMillis());
+		assertEquals(1.5, last.getFilesPerSecond(), 0.001);
+		assertEquals(3, last.getResults().size());
+		assertEquals("/tmp/b.pdf", last.getResults().get(1).getName()); //$NON-NLS-1$
+		assertEquals(JobResult.Status.COMPLIANT, last.getResults().get(0).getStatus());
+		assertEquals(JobResult.Status.NON_COMPLIANT, last.getResults().get(1).getStatus());
+		assertEquals(JobResult.Status.FAILED, last.getResults().get(2).getStatus());
+		assertEquals(PDFAFlavour.PDFA_1_B.getId(), last.getResults().get(0).getFlavour());
+		assertNull(last.getResults().get(2).getFlavour());
+	}
+
+	@Test
+	public final void testThrottling() throws Exception {
+		List<ValidationProgress> published = new ArrayList<>();
+		long[] now = { 0 };
+		try (ProgressHandler handler = new ProgressHandler(new CountingHandler(),
+				new ProgressTracker(100, published::add, () -> now[0], 250))) {
+			handler.handleBatchStart(null);
+			for (int i = 0; i < 100; i++) {
+				now[0] += TimeUnit.MILLISECONDS.toNanos(10);
+				handler.handleItemStart(ItemDetails.fromValues("file" + i + ".pdf")); //$NON-NLS-1$ //$NON-NLS-2$
+				handler.handleResult(result(true, false, Boolean.TRUE));
+			}
+		}
+		// one second of processing, the start plus a snapshot every 250ms
+		assertEquals(5, published.size());
+		ValidationProgress last = published.get(published.size() - 1);
+		assertTrue(last.getCompleted() < 100);
+		// each finished file is in exactly one snapshot
+		int results = 0;
+		for (ValidationProgress progress : published) {
+			results += progress.getResults().size();
+		}
+		assertEquals(last.getCompleted(), results);
+		assertTrue(last.getRemainingMillis() > 0);
+		assertTrue(last.getMessage().contains(last.getCurrentFile()));
+	}
+
+	/**
+	 * Proxies stand in for the library's result interfaces, only the methods
+	 * the handler reads are answered.
+	 */
+	private static ProcessorResult result(final boolean isPdf, final boolean isEncrypted, final Boolean isCompliant) {
+		ValidationResult validationResult = (isCompliant == null) ? null
+				: proxy(ValidationResult.class, "isCompliant", isCompliant, //$NON-NLS-1$
+						"getPDFAFlavour", PDFAFlavour.PDFA_1_B, //$NON-NLS-1$
+						"getTestAssertions", Collections.emptyList()); //$NON-NLS-1$
+		return proxy(ProcessorResult.class, "isPdf", Boolean.valueOf(isPdf), //$NON-NLS-1$
+				"isEncryptedPdf", Boolean.valueOf(isEncrypted), //$NON-NLS-1$
+				"getValidationResult", validationResult); //$NON-NLS-1$
+	}
+
+	private static <T> T proxy(final Class<T> type, final Object... answers) {
+		InvocationHandler handler = (proxy, method, args) -> {
+			for (int i = 0; i < answers.length; i += 2) {
+				if (answers[i].equals(method.getName())) {
+					return answers[i + 1];
+				}
+			}
+			throw new UnsupportedOperationException(method.getName());
+		};
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+	private static final class CountingHandler implements BatchProcessingHandler {
+		int calls = 0;
+
+		CountingHandler() {
+		}
+
+		@Override
+		public void handleBatchStart(ProcessorConfig config) {
+			this.calls++;
+		}
+
+		@Override
+		public void handleItemStart(ItemDetails itemDetails) {
+			this.calls++;
+		}
+
+		@Override
+		public void handleResult(ProcessorResult result) {
+			this.calls++;
+		}
+
+		@Override
+		public void handleBatchEnd(BatchSummary summary) {
+			this.calls++;
+		}
+
+		@Override
+		public void close() throws IOException {
+			// nothing to close
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/**
+ * This file is part of VeraPDF Library GUI, a module of the veraPDF project.
+ * Copyright (c) 2015, veraPDF Consortium <info@verapdf.org> All rights
+ * reserved. VeraPDF Library GUI is free software: you can redistribute it
+ * and/or modify it under the terms of either: The GNU General public license
+ * GPLv3+. You should have received a copy of the GNU General Public License
+ * along with VeraPDF Library GUI as the LICENSE.GPL file in the root of the
+ * source tree. If not, see http://www.gnu.org/licenses/ or
+ * https://www.gnu.org/licenses/gpl-3.0.en.html. The Mozilla Public License
+ * MPLv2+. You should have received a copy of the Mozilla Public License along
+ * with VeraPDF Library GUI as the LICENSE.MPL file in the root of the source
+ * tree. If a copy of the MPL was not distributed with this file, you can obtain
+ * one at http://mozilla.org/MPL/2.0/.
+ */
+package org.verapdf.gui;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ResultIndexTest {
+	private static final String[] NAMES = { "/pdfs/d.pdf", "/pdfs/B.pdf", "/pdfs/f.pdf", "/pdfs/a.pdf", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+			"/pdfs/e.pdf", "/pdfs/c.pdf", "/pdfs/h.pdf", "/pdfs/g.pdf", "/pdfs/\u00e9t\u00e9.pdf" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public final void testReadsBackAcrossPages() throws IOException {
+		try (ResultIndex index = newIndex()) {
+			index.add(result(0));
+			// the first page is read while it's only partly written
+			assertEquals(NAMES[0], index.get(0).getName());
+			for (int i = 1; i < NAMES.length; i++) {
+				index.add(result(i));
+			}
+			assertEquals(NAMES.length, index.size());
+			for (int i = NAMES.length - 1; i >= 0; i--) {
+				JobResult expected = result(i);
+				JobResult actual = index.get(i);
+				assertEquals(expected.getName(), actual.getName());
+				assertEquals(expected.getStatus(), actual.getStatus());
+				assertEquals(expected.getFlavour(), actual.getFlavour());
+				assertEquals(expected.getFailedRules(), actual.getFailedRules());
+				assertEquals(expected.getDurationMillis(), actual.getDurationMillis());
+			}
+			assertEquals(Arrays.asList("1b", "2b"), index.getFlavours()); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	@Test
+	public final void testSelect() throws IOException {
+		try (ResultIndex index = filledIndex()) {
+			assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6, 7, 8 }, index.select(null, null, null));
+			assertArrayEquals(new int[] { 1, 4, 7 }, index.select(JobResult.Status.NON_COMPLIANT, null, null));
+			assertArrayEquals(new int[] { 1, 7 }, index.select(null, "2b", "6.1.4-1")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertArrayEquals(new int[] { 4 }, index.select(null, "1b", "6.2.3-2")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertArrayEquals(new int[0], index.select(null, null, "7.1-1")); //$NON-NLS-1$
+			assertArrayEquals(new int[0], index.select(JobResult.Status.COMPLIANT, null, "6.1.4-1")); //$NON-NLS-1$
+		}
+	}
+
+	@Test
+	public final void testSortByName() throws IOException {
+		try (ResultIndex index = filledIndex()) {
+			int[] rows = index.select(null, null, null);
+			// runs of three paths are sorted, then merged
+			index.sort(rows, ResultIndex.Key.NAME, true);
+			assertArrayEquals(new int[] { 3, 1, 5, 0, 4, 2, 7, 6, 8 }, rows);
+			index.sort(rows, ResultIndex.Key.NAME, false);
+			assertArrayEquals(new int[] { 8, 6, 7, 2, 4, 0, 5, 1, 3 }, rows);
+		}
+	}
+
+	@Test
+	public final void testSortByKey() throws IOException {
+		try (ResultIndex index = filledIndex()) {
+			int[] rows = index.select(null, null, null);
+			index.sort(rows, ResultIndex.Key.DURATION, false);
+			assertArrayEquals(new int[] { 8, 7, 6, 5, 4, 3, 2, 1, 0 }, rows);
+			// equal statuses keep the order the rows were added in
+			index.sort(rows, ResultIndex.Key.STATUS, true);
+			assertArrayEquals(new int[] { 0, 3, 6, 1, 4, 7, 2, 5, 8 }, rows);
+			index.sort(rows, ResultIndex.Key.FLAVOUR, true);
+			assertArrayEquals(new int[] { 2, 5, 8, 0, 4, 6, 1, 3, 7 }, rows);
+			int[] failed = index.select(JobResult.Status.NON_COMPLIANT, null, null);
+			index.sort(failed, ResultIndex.Key.FAILED_RULES, false);
+			assertArrayEquals(new int[] { 1, 7, 4 }, failed);
+		}
+	}
+
+	@Test
+	public final void testCloseDeletesFiles() throws IOException {
+		File records = new File(this.tempFolder.getRoot(), "closed.idx"); //$NON-NLS-1$
+		File data = new File(this.tempFolder.getRoot(), "closed.dat"); //$NON-NLS-1$
+		try (ResultIndex index = new ResultIndex(records, data, 4, 2, 3)) {
+			index.add(result(0));
+		}
+		assertFalse(records.exists());
+		assertFalse(data.exists());
+	}
+
+	@Test
+	public final void testFailedHasNoFlavour() throws IOException {
+		try (ResultIndex index = filledIndex()) {
+			assertNull(index.get(2).getFlavour());
+			assertEquals(Collections.emptyList(), index.get(2).getFailedRules());
+		}
+	}
+
+	private ResultIndex filledIndex() throws IOException {
+		ResultIndex index = newIndex();
+		for (int i = 0; i < NAMES.length; i++) {
+			index.add(result(i));
+		}
+		return index;
+	}
+
+	private ResultIndex newIndex() throws IOException {
+		// small pages, few of them kept and short sort runs
+		return new ResultIndex(this.tempFolder.newFile(), this.tempFolder.newFile(), 4, 2, 3);
+	}
+
+	/**
+	 * Compliant, not compliant and failed in turn, files that failed have no
+	 * flavour and files that aren't compliant fail one or two rules.
+	 */
+	private static JobResult result(final int i) {
+		switch (i % 3) {
+			case 0:
+				return new JobResult(NAMES[i], JobResult.Status.COMPLIANT, (i % 2 == 0) ? "1b" : "2b", //$NON-NLS-1$ //$NON-NLS-2$
+						Collections.<String>emptyList(), i * 100);
+			case 1:
+				return new JobResult(NAMES[i], JobResult.Status.NON_COMPLIANT, (i % 2 == 0) ? "1b" : "2b", //$NON-NLS-1$ //$NON-NLS-2$
+						(i == 4) ? Collections.singletonList("6.2.3-2") //$NON-NLS-1$
+								: Arrays.asList("6.1.4-1", "6.2.3-2"), //$NON-NLS-1$ //$NON-NLS-2$
+						i * 100);
+			default:
+				return new JobResult(NAMES[i], JobResult.Status.FAILED, i * 100);
+		}
+	}
+
+}